@@ -1,16 +1,20 @@
 package io.github.amayaframework.context;
 
+import io.github.amayaframework.http.AcceptLanguage;
 import io.github.amayaframework.http.HttpMethod;
 import io.github.amayaframework.http.HttpVersion;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -54,6 +58,10 @@ public abstract class AbstractHttpRequest extends AbstractRequest<HttpServletReq
      * Attributes of session associated with this request.
      */
     protected Map<String, Object> sessionAttributes;
+    /**
+     * Parsed Accept-Language header of this request.
+     */
+    protected AcceptLanguage acceptLanguage;
 
     /**
      * Constructs {@link AbstractHttpRequest} instance with given {@link HttpServletRequest} and {@link HttpVersion}.
@@ -99,6 +107,34 @@ public abstract class AbstractHttpRequest extends AbstractRequest<HttpServletReq
         return request.getIntHeader(name);
     }
 
+    @Override
+    public AcceptLanguage getAcceptLanguage() {
+        if (acceptLanguage != null) {
+            return acceptLanguage;
+        }
+        acceptLanguage = AcceptLanguage.parse(request.getHeader("Accept-Language"));
+        return acceptLanguage;
+    }
+
+    @Override
+    public Iterable<Locale> getLocales() {
+        var ret = getAcceptLanguage().getLocales();
+        if (ret.isEmpty()) {
+            // Let the container supply its default locale
+            return super.getLocales();
+        }
+        return ret;
+    }
+
+    @Override
+    public Locale getLocale() {
+        var ret = getAcceptLanguage().getLocale();
+        if (ret == null) {
+            return super.getLocale();
+        }
+        return ret;
+    }
+
     /**
      * Parses {@link HttpMethod} from raw string, containing method name.
      *
@@ -195,10 +231,27 @@ public abstract class AbstractHttpRequest extends AbstractRequest<HttpServletReq
 
     /**
      * Collects query parameters from this request.
+     * By default, decodes the query string with {@link FormDecoder#DEFAULT}, keeping the values as strings.
      *
      * @return {@link Map} instance containing all request query parameters
+     * @throws UncheckedIOException if the query string exceeds the limits of {@link FormDecoder#DEFAULT}
      */
-    protected abstract Map<String, List<Object>> collectQueries();
+    protected Map<String, List<Object>> collectQueries() {
+        var ret = new HashMap<String, List<Object>>();
+        var query = request.getQueryString();
+        if (query == null) {
+            return ret;
+        }
+        try {
+            FormDecoder.DEFAULT.decode(query, (name, value) -> {
+                ret.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+                return true;
+            });
+        } catch (FormLimitException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ret;
+    }
 
     @Override
     public Map<String, List<Object>> getQueryParameters() {
@@ -3,10 +3,17 @@ package io.github.amayaframework.context;
 import io.github.amayaframework.http.HttpCode;
 import io.github.amayaframework.http.HttpVersion;
 import io.github.amayaframework.http.MimeData;
+import io.github.amayaframework.http.MimeType;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -18,6 +25,9 @@ import java.util.function.Supplier;
  * Requires to implement {@link AbstractResponse#formatMimeData(MimeData)}.
  */
 public abstract class AbstractHttpResponse extends AbstractResponse<HttpServletResponse> implements HttpResponse {
+    private static final int TRANSFER_SIZE = 65536;
+    private static final ThreadLocal<byte[]> TRANSFER_BUFFER = ThreadLocal.withInitial(() -> new byte[TRANSFER_SIZE]);
+
     /**
      * Http version of this response.
      */
@@ -146,6 +156,69 @@ public abstract class AbstractHttpResponse extends AbstractResponse<HttpServletR
         this.status = HttpCode.FOUND;
     }
 
+    /**
+     * Transfers given number of bytes from the file channel to the response body.
+     * If the response output stream is a {@link WritableByteChannel}, the data is transferred with
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)} until the target stops accepting data,
+     * and the rest is copied through a reusable per-thread buffer. Servlet containers rarely expose their
+     * output streams as channels, so in practice the copy is the usual path; implementations having direct
+     * access to the connection channel can override this method to use zero-copy transfer.
+     *
+     * @param channel the specified {@link FileChannel} to be transferred
+     * @param count   the number of bytes to be transferred
+     * @throws IOException if an input or output exception occurred
+     */
+    protected void transferFile(FileChannel channel, long count) throws IOException {
+        var stream = response.getOutputStream();
+        var position = 0L;
+        if (stream instanceof WritableByteChannel) {
+            var target = (WritableByteChannel) stream;
+            while (position < count) {
+                var transferred = channel.transferTo(position, count - position, target);
+                if (transferred <= 0) {
+                    // Non-blocking target is full, blocking stream writes will wait for it
+                    break;
+                }
+                position += transferred;
+            }
+            if (position == count) {
+                return;
+            }
+            channel.position(position);
+        }
+        var buffer = TRANSFER_BUFFER.get();
+        var wrapped = ByteBuffer.wrap(buffer);
+        var remaining = count - position;
+        while (remaining > 0) {
+            wrapped.clear();
+            if (remaining < buffer.length) {
+                wrapped.limit((int) remaining);
+            }
+            var read = channel.read(wrapped);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file, " + remaining + " bytes left");
+            }
+            stream.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    @Override
+    public void sendFile(Path file) throws IOException {
+        Objects.requireNonNull(file);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var size = channel.size();
+            setContentLength(size);
+            response.setDateHeader("Last-Modified", Files.getLastModifiedTime(file).toMillis());
+            if (data == null) {
+                var name = file.getFileName();
+                var type = name == null ? null : MimeType.ofFileName(name.toString());
+                setMimeType(type == null ? MimeType.OCTET_STREAM : type);
+            }
+            transferFile(channel, size);
+        }
+    }
+
     @Override
     public Supplier<Map<String, String>> getTrailerFields() {
         return response.getTrailerFields();
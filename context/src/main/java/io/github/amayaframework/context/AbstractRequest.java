@@ -9,9 +9,14 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Skeletal implementation of {@link Request}. Built over underlying {@link ServletRequest} instance.
@@ -43,6 +48,14 @@ public abstract class AbstractRequest<T extends ServletRequest> implements Reque
      * Request attribute map.
      */
     protected Map<String, Object> attributes;
+    /**
+     * Request body being read asynchronously.
+     */
+    protected CompletionStage<ByteBuffer> body;
+    /**
+     * Decoded form body of this request.
+     */
+    protected Map<String, List<String>> form;
 
     /**
      * Constructs {@link AbstractRequest} instance with given {@link ServletRequest} instance.
@@ -95,6 +108,29 @@ public abstract class AbstractRequest<T extends ServletRequest> implements Reque
         return request.getReader();
     }
 
+    @Override
+    public CompletionStage<ByteBuffer> readBody(long maxSize) throws IOException {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Negative body size limit: " + maxSize);
+        }
+        if (body != null) {
+            return body;
+        }
+        var expected = request.getContentLengthLong();
+        if (expected > maxSize) {
+            body = CompletableFuture.failedFuture(BodyReadListener.tooLarge(maxSize));
+            return body;
+        }
+        if (!request.isAsyncStarted()) {
+            request.startAsync();
+        }
+        var stream = request.getInputStream();
+        var listener = new BodyReadListener(stream, expected, maxSize);
+        stream.setReadListener(listener);
+        body = listener.getResult();
+        return body;
+    }
+
     @Override
     public InetSocketAddress getLocalAddress() {
         if (local != null) {
@@ -143,6 +179,40 @@ public abstract class AbstractRequest<T extends ServletRequest> implements Reque
         return request.getParameterValues(name);
     }
 
+    /**
+     * Gets the {@link FormDecoder} used to decode the form body of this request.
+     * By default, returns the decoder with default limits and the request charset, if specified, or UTF-8.
+     *
+     * @return the {@link FormDecoder} instance
+     */
+    protected FormDecoder getFormDecoder() {
+        var encoding = request.getCharacterEncoding();
+        if (encoding == null) {
+            return FormDecoder.DEFAULT;
+        }
+        try {
+            var charset = Charset.forName(encoding);
+            return new FormDecoder(charset, FormDecoder.DEFAULT_MAX_FIELDS, FormDecoder.DEFAULT_MAX_SIZE);
+        } catch (IllegalArgumentException e) {
+            return FormDecoder.DEFAULT;
+        }
+    }
+
+    @Override
+    public Map<String, List<String>> getForm() throws IOException {
+        if (form != null) {
+            return form;
+        }
+        var type = request.getContentType();
+        var qualifier = MimeType.FORM_URLENCODED.getQualifier();
+        if (type == null || !type.regionMatches(true, 0, qualifier, 0, qualifier.length())) {
+            form = Map.of();
+            return form;
+        }
+        form = Collections.unmodifiableMap(getFormDecoder().decode(request.getInputStream()));
+        return form;
+    }
+
     @Override
     public Iterable<Locale> getLocales() {
         return () -> request.getLocales().asIterator();
@@ -7,8 +7,13 @@ import jakarta.servlet.ServletResponse;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
 
 /**
  * Skeletal implementation of {@link Response}. Built over underlying {@link ServletResponse} instance.
@@ -64,6 +69,22 @@ public abstract class AbstractResponse<T extends ServletResponse> implements Res
         return response.getWriter();
     }
 
+    @Override
+    public CompletionStage<Void> write(Flow.Publisher<ByteBuffer> publisher,
+                                       Consumer<ByteBuffer> release) throws IOException {
+        Objects.requireNonNull(publisher);
+        Objects.requireNonNull(release);
+        var listener = new BodyWriteListener(response.getOutputStream(), release);
+        publisher.subscribe(listener);
+        return listener.getResult();
+    }
+
+    @Override
+    public CompletionStage<Void> write(Flow.Publisher<ByteBuffer> publisher) throws IOException {
+        return write(publisher, buffer -> {
+        });
+    }
+
     @Override
     public boolean isSent() {
         return response.isCommitted();
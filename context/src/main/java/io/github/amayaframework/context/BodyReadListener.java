@@ -0,0 +1,92 @@
+package io.github.amayaframework.context;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A {@link ReadListener} that collects the request body without blocking the container threads.
+ * Data is read only while {@link ServletInputStream#isReady()} returns true, so the request is parked
+ * until the container notifies that the next portion of data has arrived. Once more data than the limit
+ * has arrived, reading stops and the result fails.
+ */
+final class BodyReadListener implements ReadListener {
+    private static final int CHUNK_SIZE = 8192;
+    private static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final ServletInputStream stream;
+    private final long maxSize;
+    private final int maxCapacity;
+    private final CompletableFuture<ByteBuffer> result;
+    private byte[] buffer;
+    private int length;
+
+    BodyReadListener(ServletInputStream stream, long expected, long maxSize) {
+        this.stream = stream;
+        this.maxSize = maxSize;
+        // One byte over the limit is enough to detect that the body exceeds it
+        this.maxCapacity = (int) Math.min(maxSize, MAX_LENGTH - 1) + 1;
+        this.result = new CompletableFuture<>();
+        // The declared length is not trusted to allocate more than a chunk before any data arrives
+        var initial = expected >= 0 && expected < CHUNK_SIZE ? (int) expected + 1 : CHUNK_SIZE;
+        this.buffer = new byte[Math.min(initial, maxCapacity)];
+    }
+
+    static IOException tooLarge(long maxSize) {
+        return new IOException("Request body exceeds " + maxSize + " bytes");
+    }
+
+    CompletionStage<ByteBuffer> getResult() {
+        return result;
+    }
+
+    private void ensureCapacity() {
+        if (length < buffer.length) {
+            return;
+        }
+        var capacity = Math.max(CHUNK_SIZE, (long) buffer.length << 1);
+        buffer = Arrays.copyOf(buffer, (int) Math.min(capacity, maxCapacity));
+    }
+
+    private void fail(long limit) {
+        buffer = null;
+        result.completeExceptionally(tooLarge(limit));
+    }
+
+    @Override
+    public void onDataAvailable() throws IOException {
+        while (!result.isDone() && stream.isReady()) {
+            ensureCapacity();
+            if (length == buffer.length) {
+                // The array size limit is reached
+                fail(length);
+                return;
+            }
+            var read = stream.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                return;
+            }
+            length += read;
+            if (length > maxSize) {
+                fail(maxSize);
+            }
+        }
+    }
+
+    @Override
+    public void onAllDataRead() {
+        if (!result.isDone()) {
+            result.complete(ByteBuffer.wrap(buffer, 0, length).slice());
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        result.completeExceptionally(t);
+    }
+}
@@ -0,0 +1,164 @@
+package io.github.amayaframework.context;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Flow.Subscriber} that streams buffers received from {@link Flow.Publisher} to the response
+ * through a {@link WriteListener}. The next buffer is requested only after the previous one has been written
+ * and the output stream reports that it is ready, so the publisher never produces more data than the socket
+ * can accept. A write error cancels the subscription, an error signalled by the publisher does not,
+ * as the subscription is already terminated.
+ */
+final class BodyWriteListener implements Flow.Subscriber<ByteBuffer> {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final ServletOutputStream stream;
+    private final Consumer<ByteBuffer> release;
+    private final CompletableFuture<Void> result;
+    private Flow.Subscription subscription;
+    private ByteBuffer pending;
+    private byte[] chunk;
+    private boolean requested;
+    private boolean draining;
+    private boolean done;
+
+    BodyWriteListener(ServletOutputStream stream, Consumer<ByteBuffer> release) {
+        this.stream = stream;
+        this.release = release;
+        this.result = new CompletableFuture<>();
+    }
+
+    CompletionStage<Void> getResult() {
+        return result;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            var position = buffer.position();
+            stream.write(buffer.array(), buffer.arrayOffset() + position, buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        if (chunk == null) {
+            chunk = new byte[CHUNK_SIZE];
+        }
+        while (buffer.hasRemaining()) {
+            var length = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, length);
+            stream.write(chunk, 0, length);
+        }
+    }
+
+    private void drain() throws IOException {
+        if (draining || result.isDone()) {
+            return;
+        }
+        draining = true;
+        try {
+            while (true) {
+                if (pending == null) {
+                    if (done) {
+                        result.complete(null);
+                        return;
+                    }
+                    if (requested) {
+                        return;
+                    }
+                    requested = true;
+                    // The publisher is allowed to call onNext synchronously, so check the pending buffer again
+                    subscription.request(1);
+                    continue;
+                }
+                if (!stream.isReady()) {
+                    return;
+                }
+                var buffer = pending;
+                pending = null;
+                write(buffer);
+                release.accept(buffer);
+            }
+        } finally {
+            draining = false;
+        }
+    }
+
+    private void fail(Throwable t) {
+        if (!result.completeExceptionally(t)) {
+            return;
+        }
+        if (pending != null) {
+            release.accept(pending);
+            pending = null;
+        }
+    }
+
+    @Override
+    public synchronized void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        stream.setWriteListener(new Output());
+    }
+
+    @Override
+    public synchronized void onNext(ByteBuffer item) {
+        if (result.isDone()) {
+            // The buffer was in flight when the write failed, it will never be drained
+            release.accept(item);
+            return;
+        }
+        pending = item;
+        requested = false;
+        try {
+            drain();
+        } catch (IOException e) {
+            subscription.cancel();
+            fail(e);
+        }
+    }
+
+    @Override
+    public synchronized void onComplete() {
+        done = true;
+        try {
+            drain();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public synchronized void onError(Throwable t) {
+        fail(t);
+    }
+
+    private final class Output implements WriteListener {
+
+        @Override
+        public void onWritePossible() throws IOException {
+            synchronized (BodyWriteListener.this) {
+                drain();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            synchronized (BodyWriteListener.this) {
+                if (!done) {
+                    subscription.cancel();
+                }
+                fail(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package io.github.amayaframework.context;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A token signalling that the result of a request is no longer needed, either because the client
+ * has gone away, or because the deadline of the request has passed.
+ * <br>
+ * The token is checked cooperatively: {@link #isCancelled()} costs a volatile read, plus reading the clock
+ * if a deadline is set, so handlers may poll it in loops. Asynchronous work started for the request is
+ * cancelled with it by {@link #link(Future)} or by the actions registered with {@link #onCancel(Runnable)}.
+ * Actions run on the thread that cancelled the token or observed the deadline, or on the timer thread
+ * if a deadline passes while actions are registered.
+ * <br>
+ * Tokens are thread-safe. A token is cancelled at most once, and the deadline can only be moved closer.
+ */
+public final class CancellationToken {
+    /**
+     * The name of the servlet request attribute holding the token of the request.
+     */
+    public static final String ATTRIBUTE = CancellationToken.class.getName();
+
+    private final CompletableFuture<Void> signal;
+    private volatile boolean timed;
+    private volatile long deadline;
+    private boolean scheduled;
+
+    /**
+     * Constructs {@link CancellationToken} instance without deadline.
+     */
+    public CancellationToken() {
+        this.signal = new CompletableFuture<>();
+    }
+
+    private boolean expire() {
+        if (!timed || System.nanoTime() - deadline < 0) {
+            return false;
+        }
+        signal.completeExceptionally(new TimeoutException("Request deadline exceeded"));
+        return true;
+    }
+
+    /**
+     * Checks if the request is cancelled, including by its deadline.
+     *
+     * @return true, if the result of the request is no longer needed
+     */
+    public boolean isCancelled() {
+        return signal.isDone() || expire();
+    }
+
+    /**
+     * Checks if the request is cancelled because its deadline has passed.
+     *
+     * @return true, if the deadline has passed before the request was cancelled otherwise
+     */
+    public boolean isExpired() {
+        return isCancelled() && signal.isCompletedExceptionally();
+    }
+
+    /**
+     * Throws {@link CancellationException} if the request is cancelled.
+     *
+     * @throws CancellationException if the request is cancelled, including by its deadline
+     */
+    public void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException(isExpired() ? "Request deadline exceeded" : "Request cancelled");
+        }
+    }
+
+    /**
+     * Cancels the request, running the registered actions. Does nothing if the request is already cancelled.
+     */
+    public void cancel() {
+        signal.complete(null);
+    }
+
+    /**
+     * Checks if the request has a deadline.
+     *
+     * @return true, if the deadline is set
+     */
+    public boolean hasDeadline() {
+        return timed;
+    }
+
+    /**
+     * Gets the time left until the deadline.
+     *
+     * @param unit the unit of the result, must be non-null
+     * @return the time left, 0 if the deadline has passed, {@link Long#MAX_VALUE} if there is no deadline
+     */
+    public long getRemaining(TimeUnit unit) {
+        if (!timed) {
+            return Long.MAX_VALUE;
+        }
+        return unit.convert(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the deadline to the given time from now, unless the current deadline is closer.
+     *
+     * @param timeout the time left for the request, must be non-null and non-negative
+     */
+    public synchronized void setTimeout(Duration timeout) {
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("Negative timeout: " + timeout);
+        }
+        var now = System.nanoTime();
+        // Saturated, so that very long timeouts do not overflow
+        var next = now + Math.min(timeout.toNanos(), Long.MAX_VALUE / 2);
+        if (timed && deadline - next <= 0) {
+            return;
+        }
+        deadline = next;
+        timed = true;
+        if (scheduled) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        // The timer task of orTimeout is removed as soon as the signal completes
+        signal.orTimeout(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registers the action to be run when the request is cancelled.
+     * If the request is already cancelled, the action is run at once on the calling thread.
+     * If the request has a deadline, the action is also run by a timer once the deadline passes.
+     *
+     * @param action the action to be run at most once, must be non-null
+     */
+    public void onCancel(Runnable action) {
+        Objects.requireNonNull(action);
+        if (isCancelled()) {
+            action.run();
+            return;
+        }
+        synchronized (this) {
+            signal.whenComplete((value, e) -> action.run());
+            if (timed && !scheduled) {
+                scheduled = true;
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * Links the given asynchronous work to the request, so that it is cancelled, with interruption,
+     * when the request is cancelled.
+     *
+     * @param future the {@link Future} of the work, must be non-null
+     * @param <T>    the type of the future
+     * @return the given future
+     */
+    public <T extends Future<?>> T link(T future) {
+        onCancel(() -> future.cancel(true));
+        return future;
+    }
+
+    @Override
+    public String toString() {
+        if (isCancelled()) {
+            return isExpired() ? "CancellationToken{expired}" : "CancellationToken{cancelled}";
+        }
+        return timed
+                ? "CancellationToken{remaining=" + getRemaining(TimeUnit.MILLISECONDS) + "ms}"
+                : "CancellationToken{active}";
+    }
+}
@@ -0,0 +1,320 @@
+package io.github.amayaframework.context;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+
+/**
+ * A decoder of application/x-www-form-urlencoded data, used both for request bodies and query strings.
+ * <br>
+ * Bodies are decoded incrementally while being read from the input stream through a reusable per-thread buffer,
+ * so only the field being decoded is kept in memory. The decoder can either visit fields one by one,
+ * look up a single field, stopping at the first match and skipping the values of other fields,
+ * or build the full field map. The number of fields and the total size of the data are limited,
+ * violations are reported with {@link FormLimitException}.
+ * <br>
+ * Malformed percent-encoded sequences are kept as is. Instances are immutable and thread-safe.
+ */
+public final class FormDecoder {
+    /**
+     * The default maximum number of fields.
+     */
+    public static final int DEFAULT_MAX_FIELDS = 1000;
+    /**
+     * The default maximum size of the encoded data, in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 2 * 1024 * 1024;
+    /**
+     * The decoder with UTF-8 charset and default limits.
+     */
+    public static final FormDecoder DEFAULT =
+            new FormDecoder(StandardCharsets.UTF_8, DEFAULT_MAX_FIELDS, DEFAULT_MAX_SIZE);
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private final Charset charset;
+    private final int maxFields;
+    private final long maxSize;
+
+    /**
+     * Constructs {@link FormDecoder} instance with given charset and limits.
+     *
+     * @param charset   the charset of decoded data, must be non-null
+     * @param maxFields the maximum number of fields
+     * @param maxSize   the maximum size of the encoded data, in bytes
+     */
+    public FormDecoder(Charset charset, int maxFields, long maxSize) {
+        if (maxFields < 0 || maxSize < 0) {
+            throw new IllegalArgumentException("Invalid form limits");
+        }
+        this.charset = Objects.requireNonNull(charset);
+        this.maxFields = maxFields;
+        this.maxSize = maxSize;
+    }
+
+    private static void add(Map<String, List<String>> map, String name, String value) {
+        map.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+    }
+
+    /**
+     * Gets the charset of decoded data.
+     *
+     * @return the {@link Charset} instance
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    private boolean decode(InputStream stream, State state) throws IOException {
+        var buffer = BUFFER.get();
+        int read;
+        while ((read = stream.read(buffer)) >= 0) {
+            if (!state.feed(buffer, 0, read)) {
+                return false;
+            }
+        }
+        return state.finish();
+    }
+
+    private boolean decode(String data, State state) throws FormLimitException {
+        var bytes = data.getBytes(charset);
+        return state.feed(bytes, 0, bytes.length) && state.finish();
+    }
+
+    /**
+     * Decodes the fields read from the input stream, passing them to the visitor in the order of appearance.
+     * The stream is read until its end or until the visitor returns false.
+     *
+     * @param stream  the specified {@link InputStream} containing encoded data, must be non-null
+     * @param visitor the visitor accepting field name and value and returning false to stop decoding
+     * @return true if all the fields have been visited, false if decoding has been stopped by the visitor
+     * @throws IOException if an I/O error occurs or the data exceeds the limits
+     */
+    public boolean decode(InputStream stream, BiPredicate<String, String> visitor) throws IOException {
+        return decode(stream, new State(visitor, null));
+    }
+
+    /**
+     * Decodes the fields of given string, passing them to the visitor in the order of appearance.
+     *
+     * @param data    the specified encoded string, for example, query string, must be non-null
+     * @param visitor the visitor accepting field name and value and returning false to stop decoding
+     * @return true if all the fields have been visited, false if decoding has been stopped by the visitor
+     * @throws FormLimitException if the data exceeds the limits
+     */
+    public boolean decode(String data, BiPredicate<String, String> visitor) throws FormLimitException {
+        return decode(data, new State(visitor, null));
+    }
+
+    /**
+     * Decodes all the fields read from the input stream into a map.
+     *
+     * @param stream the specified {@link InputStream} containing encoded data, must be non-null
+     * @return the {@link Map} instance preserving the order of fields
+     * @throws IOException if an I/O error occurs or the data exceeds the limits
+     */
+    public Map<String, List<String>> decode(InputStream stream) throws IOException {
+        var ret = new LinkedHashMap<String, List<String>>();
+        decode(stream, new State((name, value) -> {
+            add(ret, name, value);
+            return true;
+        }, null));
+        return ret;
+    }
+
+    /**
+     * Decodes all the fields of given string into a map.
+     *
+     * @param data the specified encoded string, for example, query string, must be non-null
+     * @return the {@link Map} instance preserving the order of fields
+     * @throws FormLimitException if the data exceeds the limits
+     */
+    public Map<String, List<String>> decode(String data) throws FormLimitException {
+        var ret = new LinkedHashMap<String, List<String>>();
+        decode(data, new State((name, value) -> {
+            add(ret, name, value);
+            return true;
+        }, null));
+        return ret;
+    }
+
+    /**
+     * Reads the input stream until the first field with given name and returns its value.
+     * Values of other fields are skipped without being decoded. The rest of the stream is not read.
+     *
+     * @param stream the specified {@link InputStream} containing encoded data, must be non-null
+     * @param name   the specified field name, must be non-null
+     * @return the field value or null if the field does not exist
+     * @throws IOException if an I/O error occurs or the data exceeds the limits
+     */
+    public String find(InputStream stream, String name) throws IOException {
+        var ret = new String[1];
+        decode(stream, new State((key, value) -> {
+            ret[0] = value;
+            return false;
+        }, Objects.requireNonNull(name)));
+        return ret[0];
+    }
+
+    /**
+     * Finds the first field with given name in the encoded string and returns its value.
+     *
+     * @param data the specified encoded string, for example, query string, must be non-null
+     * @param name the specified field name, must be non-null
+     * @return the field value or null if the field does not exist
+     * @throws FormLimitException if the data exceeds the limits
+     */
+    public String find(String data, String name) throws FormLimitException {
+        var ret = new String[1];
+        decode(data, new State((key, value) -> {
+            ret[0] = value;
+            return false;
+        }, Objects.requireNonNull(name)));
+        return ret[0];
+    }
+
+    private static int hex(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+        if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        }
+        if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private final class State {
+        private final BiPredicate<String, String> visitor;
+        private final String target;
+        private byte[] token;
+        private int length;
+        private String name;
+        private boolean skipping;
+        private int escape;
+        private byte pending;
+        private long size;
+        private int fields;
+
+        private State(BiPredicate<String, String> visitor, String target) {
+            this.visitor = visitor;
+            this.target = target;
+            this.token = new byte[64];
+            this.escape = -1;
+        }
+
+        private void append(byte b) {
+            if (skipping) {
+                return;
+            }
+            if (length == token.length) {
+                token = Arrays.copyOf(token, length * 2);
+            }
+            token[length++] = b;
+        }
+
+        private void flushEscape() {
+            // Keep malformed escape sequence as is
+            if (escape < 0) {
+                return;
+            }
+            append((byte) '%');
+            if (escape > 0) {
+                append(pending);
+            }
+            escape = -1;
+        }
+
+        private String take() {
+            flushEscape();
+            var ret = new String(token, 0, length, charset);
+            length = 0;
+            return ret;
+        }
+
+        private boolean complete() throws FormLimitException {
+            if (name == null && length == 0 && escape < 0) {
+                // Empty field, for example, 'a=1&&b=2'
+                return true;
+            }
+            if (++fields > maxFields) {
+                throw new FormLimitException("Number of form fields exceeds limit " + maxFields);
+            }
+            String key;
+            String value;
+            if (name == null) {
+                key = take();
+                value = "";
+            } else {
+                key = name;
+                value = skipping ? null : take();
+            }
+            name = null;
+            length = 0;
+            escape = -1;
+            var matched = !skipping && (target == null || target.equals(key));
+            skipping = false;
+            return !matched || visitor.test(key, value);
+        }
+
+        private boolean feed(byte[] bytes, int offset, int count) throws FormLimitException {
+            size += count;
+            if (size > maxSize) {
+                throw new FormLimitException("Form data size exceeds limit " + maxSize);
+            }
+            var end = offset + count;
+            for (var i = offset; i < end; ++i) {
+                var b = bytes[i];
+                if (b == '&') {
+                    if (!complete()) {
+                        return false;
+                    }
+                    continue;
+                }
+                if (b == '=' && name == null) {
+                    name = take();
+                    skipping = target != null && !target.equals(name);
+                    continue;
+                }
+                if (escape >= 0) {
+                    var digit = hex(b);
+                    if (digit < 0) {
+                        flushEscape();
+                        // The current byte is processed as a regular one below
+                    } else if (escape == 0) {
+                        pending = b;
+                        escape = 1;
+                        continue;
+                    } else {
+                        escape = -1;
+                        append((byte) ((hex(pending) << 4) | digit));
+                        continue;
+                    }
+                }
+                if (b == '%') {
+                    escape = 0;
+                } else if (b == '+') {
+                    append((byte) ' ');
+                } else {
+                    append(b);
+                }
+            }
+            return true;
+        }
+
+        private boolean finish() throws FormLimitException {
+            return complete();
+        }
+    }
+}
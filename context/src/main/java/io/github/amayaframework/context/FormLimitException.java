@@ -0,0 +1,18 @@
+package io.github.amayaframework.context;
+
+import java.io.IOException;
+
+/**
+ * Thrown to indicate that form data exceeds the limits configured in {@link FormDecoder}.
+ */
+public class FormLimitException extends IOException {
+
+    /**
+     * Constructs an {@link FormLimitException} instance with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public FormLimitException(String message) {
+        super(message);
+    }
+}
@@ -45,4 +45,23 @@ public interface HttpContext extends Context {
      */
     @Override
     HttpServletResponse getServletResponse();
+
+    /**
+     * Gets the {@link CancellationToken} of the current http request, creating it on the first call.
+     * <br>
+     * By default, the token is kept in the servlet request attribute {@link CancellationToken#ATTRIBUTE},
+     * so it is shared by all the contexts of the request. The first call should be made by the thread
+     * processing the request, before the token is passed to other threads.
+     *
+     * @return the {@link CancellationToken} instance
+     */
+    default CancellationToken getCancellation() {
+        var request = getServletRequest();
+        var ret = (CancellationToken) request.getAttribute(CancellationToken.ATTRIBUTE);
+        if (ret == null) {
+            ret = new CancellationToken();
+            request.setAttribute(CancellationToken.ATTRIBUTE, ret);
+        }
+        return ret;
+    }
 }
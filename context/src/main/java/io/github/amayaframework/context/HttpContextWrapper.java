@@ -0,0 +1,96 @@
+package io.github.amayaframework.context;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.Objects;
+
+/**
+ * Implementation of {@link HttpContext} that delegates all calls to the wrapped {@link HttpContext} instance,
+ * optionally replacing its {@link HttpRequest} and {@link HttpResponse}.
+ * <br>
+ * Note that the servlet-level request and response are always taken from the wrapped context,
+ * so the code working with them directly bypasses the replaced instances.
+ */
+public class HttpContextWrapper implements HttpContext {
+    /**
+     * The wrapped {@link HttpContext} instance.
+     */
+    protected final HttpContext context;
+    /**
+     * The {@link HttpRequest} instance exposed by this context.
+     */
+    protected final HttpRequest request;
+    /**
+     * The {@link HttpResponse} instance exposed by this context.
+     */
+    protected final HttpResponse response;
+
+    /**
+     * Constructs {@link HttpContextWrapper} instance wrapping given {@link HttpContext}
+     * and exposing given request and response.
+     *
+     * @param context  the wrapped {@link HttpContext} instance, must be non-null
+     * @param request  the {@link HttpRequest} instance to be exposed, must be non-null
+     * @param response the {@link HttpResponse} instance to be exposed, must be non-null
+     */
+    public HttpContextWrapper(HttpContext context, HttpRequest request, HttpResponse response) {
+        this.context = Objects.requireNonNull(context);
+        this.request = Objects.requireNonNull(request);
+        this.response = Objects.requireNonNull(response);
+    }
+
+    /**
+     * Constructs {@link HttpContextWrapper} instance wrapping given {@link HttpContext}
+     * and exposing given response instead of the original one.
+     *
+     * @param context  the wrapped {@link HttpContext} instance, must be non-null
+     * @param response the {@link HttpResponse} instance to be exposed, must be non-null
+     */
+    public HttpContextWrapper(HttpContext context, HttpResponse response) {
+        this(context, context.getRequest(), response);
+    }
+
+    /**
+     * Constructs {@link HttpContextWrapper} instance wrapping given {@link HttpContext}.
+     *
+     * @param context the wrapped {@link HttpContext} instance, must be non-null
+     */
+    public HttpContextWrapper(HttpContext context) {
+        this(context, context.getRequest(), context.getResponse());
+    }
+
+    /**
+     * Gets the wrapped {@link HttpContext} instance.
+     *
+     * @return the {@link HttpContext} instance
+     */
+    public HttpContext getContext() {
+        return context;
+    }
+
+    @Override
+    public HttpRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public HttpServletRequest getServletRequest() {
+        return context.getServletRequest();
+    }
+
+    @Override
+    public HttpResponse getResponse() {
+        return response;
+    }
+
+    @Override
+    public HttpServletResponse getServletResponse() {
+        return context.getServletResponse();
+    }
+
+    @Override
+    public CancellationToken getCancellation() {
+        return context.getCancellation();
+    }
+}
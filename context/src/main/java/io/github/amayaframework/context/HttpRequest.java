@@ -1,5 +1,6 @@
 package io.github.amayaframework.context;
 
+import io.github.amayaframework.http.AcceptLanguage;
 import io.github.amayaframework.http.HttpMethod;
 
 import java.net.URI;
@@ -91,6 +92,13 @@ public interface HttpRequest extends Request, HttpTransaction {
      */
     int getIntHeader(String name);
 
+    /**
+     * Gets the parsed Accept-Language header of this request.
+     *
+     * @return the {@link AcceptLanguage} instance, {@link AcceptLanguage#EMPTY} if the header is absent or malformed
+     */
+    AcceptLanguage getAcceptLanguage();
+
     // Path parameters
 
     /**
@@ -4,6 +4,7 @@ import io.github.amayaframework.http.HttpCode;
 import jakarta.servlet.http.Cookie;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Date;
 import java.util.Map;
 import java.util.function.Supplier;
@@ -134,6 +135,22 @@ public interface HttpResponse extends Response, HttpTransaction {
      */
     void sendRedirect(String location) throws IOException;
 
+    /**
+     * Sends the content of the specified file as the response body.
+     * Sets the <code>Content-Length</code> and <code>Last-Modified</code> headers from the file attributes and,
+     * if no mime data has been set yet, the {@link io.github.amayaframework.http.MimeType} found by the file
+     * extension. Where the transport allows it, the file is transferred with
+     * {@link java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+     * without copying it through the heap.
+     * <p>
+     * The path is used as is, so application files should be resolved against the environment root first.
+     *
+     * @param file the specified path to the file to be sent, must be non-null
+     * @throws IOException           if the file cannot be read or an output exception occurred
+     * @throws IllegalStateException if the <code>getWriter</code> method has been called on this response
+     */
+    void sendFile(Path file) throws IOException;
+
     /**
      * Gets the supplier of trailer headers.
      *
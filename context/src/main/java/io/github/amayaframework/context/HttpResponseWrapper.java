@@ -0,0 +1,253 @@
+package io.github.amayaframework.context;
+
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpVersion;
+import io.github.amayaframework.http.MimeData;
+import io.github.amayaframework.http.MimeType;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.Cookie;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of {@link HttpResponse} that delegates all calls to the wrapped {@link HttpResponse} instance.
+ * Can be subclassed by pipeline stages that need to intercept some of the response methods,
+ * for example, to transform the response body.
+ */
+public class HttpResponseWrapper implements HttpResponse {
+    /**
+     * The wrapped {@link HttpResponse} instance.
+     */
+    protected final HttpResponse response;
+
+    /**
+     * Constructs {@link HttpResponseWrapper} instance wrapping given {@link HttpResponse}.
+     *
+     * @param response the wrapped {@link HttpResponse} instance, must be non-null
+     */
+    public HttpResponseWrapper(HttpResponse response) {
+        this.response = Objects.requireNonNull(response);
+    }
+
+    /**
+     * Gets the wrapped {@link HttpResponse} instance.
+     *
+     * @return the {@link HttpResponse} instance
+     */
+    public HttpResponse getResponse() {
+        return response;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        return response.getOutputStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        return response.getWriter();
+    }
+
+    @Override
+    public CompletionStage<Void> write(Flow.Publisher<ByteBuffer> publisher,
+                                       Consumer<ByteBuffer> release) throws IOException {
+        return response.write(publisher, release);
+    }
+
+    @Override
+    public CompletionStage<Void> write(Flow.Publisher<ByteBuffer> publisher) throws IOException {
+        return response.write(publisher);
+    }
+
+    @Override
+    public void setContentLength(long length) {
+        response.setContentLength(length);
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        response.setLocale(locale);
+    }
+
+    @Override
+    public boolean isSent() {
+        return response.isSent();
+    }
+
+    @Override
+    public void reset() {
+        response.reset();
+    }
+
+    @Override
+    public int getBufferSize() {
+        return response.getBufferSize();
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        response.setBufferSize(size);
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        response.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        response.resetBuffer();
+    }
+
+    @Override
+    public void setCookie(Cookie cookie) {
+        response.setCookie(cookie);
+    }
+
+    @Override
+    public void setHeader(String name, Object value) {
+        response.setHeader(name, value);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        response.setHeader(name, value);
+    }
+
+    @Override
+    public void setHeader(String name, Date date) {
+        response.setHeader(name, date);
+    }
+
+    @Override
+    public void setHeader(String name, long date) {
+        response.setHeader(name, date);
+    }
+
+    @Override
+    public HttpCode getStatus() {
+        return response.getStatus();
+    }
+
+    @Override
+    public void setStatus(HttpCode code) {
+        response.setStatus(code);
+    }
+
+    @Override
+    public void sendError(HttpCode code, String message) throws IOException {
+        response.sendError(code, message);
+    }
+
+    @Override
+    public void sendError(HttpCode code) throws IOException {
+        response.sendError(code);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        response.sendRedirect(location);
+    }
+
+    @Override
+    public void sendFile(Path file) throws IOException {
+        response.sendFile(file);
+    }
+
+    @Override
+    public Supplier<Map<String, String>> getTrailerFields() {
+        return response.getTrailerFields();
+    }
+
+    @Override
+    public void setTrailerFields(Supplier<Map<String, String>> supplier) {
+        response.setTrailerFields(supplier);
+    }
+
+    @Override
+    public HttpVersion getHttpVersion() {
+        return response.getHttpVersion();
+    }
+
+    @Override
+    public Map<String, Cookie> getCookies() {
+        return response.getCookies();
+    }
+
+    @Override
+    public Cookie getCookie(String name) {
+        return response.getCookie(name);
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return response.getHeaders();
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return response.containsHeader(name);
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return response.getHeader(name);
+    }
+
+    @Override
+    public Charset getCharset() {
+        return response.getCharset();
+    }
+
+    @Override
+    public void setCharset(Charset charset) {
+        response.setCharset(charset);
+    }
+
+    @Override
+    public long getContentLength() {
+        return response.getContentLength();
+    }
+
+    @Override
+    public MimeData getMimeData() {
+        return response.getMimeData();
+    }
+
+    @Override
+    public void setMimeData(MimeData data) {
+        response.setMimeData(data);
+    }
+
+    @Override
+    public void setMimeType(MimeType type) {
+        response.setMimeType(type);
+    }
+
+    @Override
+    public String getProtocol() {
+        return response.getProtocol();
+    }
+
+    @Override
+    public String getScheme() {
+        return response.getScheme();
+    }
+
+    @Override
+    public Locale getLocale() {
+        return response.getLocale();
+    }
+}
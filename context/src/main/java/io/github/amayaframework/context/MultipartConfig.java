@@ -0,0 +1,111 @@
+package io.github.amayaframework.context;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * A class holding the limits and the spill directory used by {@link MultipartParser}.
+ */
+public final class MultipartConfig {
+    /**
+     * The default size of a part kept in memory, in bytes.
+     */
+    public static final long DEFAULT_SPILL_THRESHOLD = 64 * 1024;
+    /**
+     * The default maximum size of a part, in bytes.
+     */
+    public static final long DEFAULT_MAX_PART_SIZE = 1024L * 1024 * 1024;
+    /**
+     * The default maximum number of parts.
+     */
+    public static final int DEFAULT_MAX_PARTS = 128;
+    /**
+     * The default maximum size of part headers, in bytes.
+     */
+    public static final int DEFAULT_MAX_HEADER_SIZE = 8192;
+    static final int MAX_HEADER_SIZE_LIMIT = 16384;
+
+    private final Path directory;
+    private final long spillThreshold;
+    private final long maxPartSize;
+    private final int maxParts;
+    private final int maxHeaderSize;
+
+    /**
+     * Constructs {@link MultipartConfig} instance with given limits.
+     *
+     * @param directory      the directory for spilled parts, for example, a directory under the environment root,
+     *                       must be non-null
+     * @param spillThreshold the maximum size of a part kept in memory, in bytes
+     * @param maxPartSize    the maximum size of a part, in bytes
+     * @param maxParts       the maximum number of parts
+     * @param maxHeaderSize  the maximum size of part headers, in bytes, must not exceed 16384
+     */
+    public MultipartConfig(Path directory, long spillThreshold, long maxPartSize, int maxParts, int maxHeaderSize) {
+        if (spillThreshold < 0 || spillThreshold > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Invalid spill threshold: " + spillThreshold);
+        }
+        if (maxPartSize < 0 || maxParts < 0 || maxHeaderSize <= 0 || maxHeaderSize > MAX_HEADER_SIZE_LIMIT) {
+            throw new IllegalArgumentException("Invalid multipart limits");
+        }
+        this.directory = Objects.requireNonNull(directory);
+        this.spillThreshold = spillThreshold;
+        this.maxPartSize = maxPartSize;
+        this.maxParts = maxParts;
+        this.maxHeaderSize = maxHeaderSize;
+    }
+
+    /**
+     * Constructs {@link MultipartConfig} instance with given spill directory and default limits.
+     *
+     * @param directory the directory for spilled parts, must be non-null
+     */
+    public MultipartConfig(Path directory) {
+        this(directory, DEFAULT_SPILL_THRESHOLD, DEFAULT_MAX_PART_SIZE, DEFAULT_MAX_PARTS, DEFAULT_MAX_HEADER_SIZE);
+    }
+
+    /**
+     * Gets the directory for spilled parts.
+     *
+     * @return the {@link Path} instance
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the maximum size of a part kept in memory.
+     *
+     * @return the number of bytes
+     */
+    public long getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    /**
+     * Gets the maximum size of a part.
+     *
+     * @return the number of bytes
+     */
+    public long getMaxPartSize() {
+        return maxPartSize;
+    }
+
+    /**
+     * Gets the maximum number of parts.
+     *
+     * @return the number of parts
+     */
+    public int getMaxParts() {
+        return maxParts;
+    }
+
+    /**
+     * Gets the maximum size of part headers.
+     *
+     * @return the number of bytes
+     */
+    public int getMaxHeaderSize() {
+        return maxHeaderSize;
+    }
+}
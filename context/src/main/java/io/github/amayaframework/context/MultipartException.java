@@ -0,0 +1,18 @@
+package io.github.amayaframework.context;
+
+import java.io.IOException;
+
+/**
+ * Thrown to indicate that multipart body is malformed or exceeds the configured limits.
+ */
+public class MultipartException extends IOException {
+
+    /**
+     * Constructs an {@link MultipartException} instance with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public MultipartException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,457 @@
+package io.github.amayaframework.context;
+
+import io.github.amayaframework.http.MimeType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A streaming parser of multipart/form-data bodies (see rfc7578 and rfc2046, section 5.1).
+ * <br>
+ * The body is read through a fixed-size pooled buffer, where part delimiters are located with
+ * Boyer-Moore-Horspool search, so the memory used by the parser does not depend on the body size.
+ * Parts are returned one by one as they arrive: the content of a part is kept in memory while it fits
+ * in the spill threshold, and is written to a temporary file in the configured directory otherwise.
+ * The number of parts, the size of each part and the size of part headers are limited,
+ * violations are reported with {@link MultipartException}.
+ * <br>
+ * Returned parts are owned by the caller and should be closed to delete their temporary files.
+ * The parser is not thread-safe.
+ */
+public final class MultipartParser implements Closeable {
+    private static final int BUFFER_SIZE = 65536;
+    private static final ArrayBlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(32);
+    private static final int MAX_BOUNDARY_LENGTH = 70;
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte DASH = '-';
+
+    private final InputStream stream;
+    private final MultipartConfig config;
+    private final byte[] delimiter;
+    private final int[] shifts;
+    private byte[] buffer;
+    private int start;
+    private int end;
+    private boolean eof;
+    private boolean started;
+    private boolean finished;
+    private int parts;
+
+    /**
+     * Constructs {@link MultipartParser} instance reading given stream delimited by given boundary.
+     *
+     * @param stream   the specified {@link InputStream} containing multipart body, must be non-null
+     * @param boundary the specified boundary, must be non-null
+     * @param config   the specified {@link MultipartConfig} instance, must be non-null
+     */
+    public MultipartParser(InputStream stream, String boundary, MultipartConfig config) {
+        if (boundary.isEmpty() || boundary.length() > MAX_BOUNDARY_LENGTH) {
+            throw new IllegalArgumentException("Invalid multipart boundary length: " + boundary.length());
+        }
+        this.stream = Objects.requireNonNull(stream);
+        this.config = Objects.requireNonNull(config);
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.shifts = getShifts(delimiter);
+        this.buffer = acquire();
+        // The first delimiter is not preceded by CRLF, so it is inserted to make all the delimiters uniform
+        buffer[0] = CR;
+        buffer[1] = LF;
+        this.end = 2;
+    }
+
+    /**
+     * Constructs {@link MultipartParser} instance reading the body of given request.
+     *
+     * @param request the specified {@link HttpRequest} with multipart/form-data body, must be non-null
+     * @param config  the specified {@link MultipartConfig} instance, must be non-null
+     * @throws IOException if the request body cannot be opened
+     */
+    public MultipartParser(HttpRequest request, MultipartConfig config) throws IOException {
+        this(request.getInputStream(), getBoundary(request), config);
+    }
+
+    private static String getBoundary(HttpRequest request) throws MultipartException {
+        var ret = getBoundary(request.getHeader("Content-Type"));
+        if (ret == null) {
+            throw new MultipartException("Request is not multipart/form-data or has no boundary");
+        }
+        if (ret.length() > MAX_BOUNDARY_LENGTH) {
+            throw new MultipartException("Multipart boundary exceeds " + MAX_BOUNDARY_LENGTH + " characters");
+        }
+        return ret;
+    }
+
+    /**
+     * Extracts the boundary from the value of Content-Type header of multipart/form-data body.
+     *
+     * @param contentType the specified header value, for example, 'multipart/form-data; boundary=abc'
+     * @return the boundary or null if the content type is not multipart/form-data or has no boundary
+     */
+    public static String getBoundary(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        var parameters = contentType.split(";");
+        if (MimeType.of(parameters[0].trim().toLowerCase(Locale.ENGLISH)) != MimeType.FORM_DATA) {
+            return null;
+        }
+        for (var i = 1; i < parameters.length; ++i) {
+            var parameter = parameters[i].trim();
+            if (!parameter.regionMatches(true, 0, "boundary=", 0, 9)) {
+                continue;
+            }
+            var ret = parameter.substring(9);
+            if (ret.length() > 1 && ret.startsWith("\"") && ret.endsWith("\"")) {
+                ret = ret.substring(1, ret.length() - 1);
+            }
+            return ret.isEmpty() ? null : ret;
+        }
+        return null;
+    }
+
+    private static byte[] acquire() {
+        var ret = POOL.poll();
+        return ret == null ? new byte[BUFFER_SIZE] : ret;
+    }
+
+    private static int[] getShifts(byte[] pattern) {
+        var ret = new int[256];
+        var last = pattern.length - 1;
+        Arrays.fill(ret, pattern.length);
+        for (var i = 0; i < last; ++i) {
+            ret[pattern[i] & 0xff] = last - i;
+        }
+        return ret;
+    }
+
+    private static String getParameter(String disposition, String name) {
+        var length = disposition.length();
+        var index = 0;
+        while (index < length) {
+            var separator = disposition.indexOf(';', index);
+            if (separator < 0) {
+                return null;
+            }
+            index = separator + 1;
+            while (index < length && disposition.charAt(index) == ' ') {
+                ++index;
+            }
+            var equals = disposition.indexOf('=', index);
+            if (equals < 0) {
+                return null;
+            }
+            var key = disposition.substring(index, equals).trim();
+            index = equals + 1;
+            String value;
+            if (index < length && disposition.charAt(index) == '"') {
+                var builder = new StringBuilder();
+                ++index;
+                while (index < length && disposition.charAt(index) != '"') {
+                    var c = disposition.charAt(index++);
+                    if (c == '\\' && index < length) {
+                        c = disposition.charAt(index++);
+                    }
+                    builder.append(c);
+                }
+                ++index;
+                value = builder.toString();
+            } else {
+                var next = disposition.indexOf(';', index);
+                value = disposition.substring(index, next < 0 ? length : next).trim();
+                index = next < 0 ? length : next;
+            }
+            if (key.equalsIgnoreCase(name)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static String decodeExtended(String value) {
+        // Extended notation (rfc5987), for example, UTF-8''file%20name.txt
+        var quote = value.indexOf("''");
+        if (quote < 0) {
+            return null;
+        }
+        var charset = value.substring(0, quote);
+        if (!charset.equalsIgnoreCase("UTF-8")) {
+            return null;
+        }
+        try {
+            return URLDecoder.decode(value.substring(quote + 2).replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private int find(int from) {
+        var last = delimiter.length - 1;
+        var index = from;
+        while (index <= end - delimiter.length) {
+            var position = last;
+            while (buffer[index + position] == delimiter[position]) {
+                if (position == 0) {
+                    return index;
+                }
+                --position;
+            }
+            index += shifts[buffer[index + last] & 0xff];
+        }
+        return -1;
+    }
+
+    private void fill() throws IOException {
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        var read = stream.read(buffer, end, buffer.length - end);
+        if (read < 0) {
+            eof = true;
+        } else {
+            end += read;
+        }
+    }
+
+    private void require(int count) throws IOException {
+        while (end - start < count) {
+            if (eof) {
+                throw new MultipartException("Unexpected end of multipart body");
+            }
+            fill();
+        }
+    }
+
+    private void transfer(PartSink sink) throws IOException {
+        while (true) {
+            var index = find(start);
+            if (index >= 0) {
+                if (sink != null) {
+                    sink.write(buffer, start, index - start);
+                }
+                start = index + delimiter.length;
+                return;
+            }
+            if (eof) {
+                throw new MultipartException("Unexpected end of multipart body");
+            }
+            // The tail shorter than the delimiter can be the beginning of the delimiter
+            var safe = end - delimiter.length + 1;
+            if (safe > start) {
+                if (sink != null) {
+                    sink.write(buffer, start, safe - start);
+                }
+                start = safe;
+            }
+            fill();
+        }
+    }
+
+    private boolean readDelimiterEnd() throws IOException {
+        require(2);
+        if (buffer[start] == DASH && buffer[start + 1] == DASH) {
+            start += 2;
+            return false;
+        }
+        // Transport padding (rfc2046, section 5.1.1)
+        while (true) {
+            require(1);
+            var b = buffer[start];
+            if (b != ' ' && b != '\t') {
+                break;
+            }
+            ++start;
+        }
+        require(2);
+        if (buffer[start] != CR || buffer[start + 1] != LF) {
+            throw new MultipartException("Malformed multipart delimiter");
+        }
+        start += 2;
+        return true;
+    }
+
+    private String readLine(int[] budget) throws IOException {
+        // Offset of the first unscanned byte, relative to the line start, which moves when the buffer is compacted
+        var offset = 0;
+        while (true) {
+            for (var i = start + offset; i < end - 1; ++i) {
+                if (buffer[i] == CR && buffer[i + 1] == LF) {
+                    var length = i - start;
+                    budget[0] -= length + 2;
+                    if (budget[0] < 0) {
+                        throw new MultipartException("Part headers exceed size limit");
+                    }
+                    var ret = new String(buffer, start, length, StandardCharsets.UTF_8);
+                    start = i + 2;
+                    return ret;
+                }
+            }
+            offset = Math.max(0, end - 1 - start);
+            if (end - start >= budget[0]) {
+                throw new MultipartException("Part headers exceed size limit");
+            }
+            if (eof) {
+                throw new MultipartException("Unexpected end of multipart body");
+            }
+            fill();
+        }
+    }
+
+    private Map<String, String> readHeaders() throws IOException {
+        var ret = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+        var budget = new int[]{config.getMaxHeaderSize()};
+        while (true) {
+            var line = readLine(budget);
+            if (line.isEmpty()) {
+                return Collections.unmodifiableMap(ret);
+            }
+            var colon = line.indexOf(':');
+            if (colon <= 0) {
+                // The header itself is not reported, as it is an untrusted input
+                throw new MultipartException("Malformed part header in part " + parts);
+            }
+            ret.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+        }
+    }
+
+    /**
+     * Reads the next part of the body.
+     *
+     * @return the {@link MultipartPart} instance or null if there are no more parts
+     * @throws IOException if an I/O error occurs, the body is malformed or exceeds the limits
+     */
+    public MultipartPart next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (buffer == null) {
+            throw new IOException("Parser closed");
+        }
+        if (!started) {
+            // Skip the preamble
+            transfer(null);
+            started = true;
+            if (!readDelimiterEnd()) {
+                finished = true;
+                return null;
+            }
+        }
+        if (++parts > config.getMaxParts()) {
+            throw new MultipartException("Number of parts exceeds limit " + config.getMaxParts());
+        }
+        var headers = readHeaders();
+        var disposition = headers.get("Content-Disposition");
+        String name = null;
+        String fileName = null;
+        if (disposition != null) {
+            name = getParameter(disposition, "name");
+            var extended = getParameter(disposition, "filename*");
+            fileName = extended == null ? null : decodeExtended(extended);
+            if (fileName == null) {
+                fileName = getParameter(disposition, "filename");
+            }
+        }
+        var sink = new PartSink();
+        try {
+            transfer(sink);
+            if (!readDelimiterEnd()) {
+                finished = true;
+            }
+            return sink.toPart(headers, name, fileName);
+        } catch (IOException | RuntimeException e) {
+            try {
+                sink.discard();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the buffer used by this parser. The parts already returned remain valid.
+     * The underlying stream is not closed.
+     */
+    @Override
+    public void close() {
+        if (buffer == null) {
+            return;
+        }
+        POOL.offer(buffer);
+        buffer = null;
+    }
+
+    private final class PartSink {
+        private byte[] memory;
+        private int count;
+        private long size;
+        private Path file;
+        private OutputStream output;
+
+        private PartSink() {
+            this.memory = new byte[(int) Math.min(config.getSpillThreshold(), 1024)];
+        }
+
+        private void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            size += length;
+            if (size > config.getMaxPartSize()) {
+                throw new MultipartException("Part exceeds size limit " + config.getMaxPartSize());
+            }
+            if (output == null && size <= config.getSpillThreshold()) {
+                if (size > memory.length) {
+                    var capacity = Math.min(config.getSpillThreshold(), Math.max(size, memory.length * 2L));
+                    memory = Arrays.copyOf(memory, (int) capacity);
+                }
+                System.arraycopy(bytes, offset, memory, count, length);
+                count += length;
+                return;
+            }
+            if (output == null) {
+                var directory = config.getDirectory();
+                Files.createDirectories(directory);
+                file = Files.createTempFile(directory, "multipart-", ".part");
+                output = Files.newOutputStream(file);
+                output.write(memory, 0, count);
+                memory = null;
+            }
+            output.write(bytes, offset, length);
+        }
+
+        private MultipartPart toPart(Map<String, String> headers, String name, String fileName) throws IOException {
+            if (output == null) {
+                var content = count == memory.length ? memory : Arrays.copyOf(memory, count);
+                return new MultipartPart(headers, name, fileName, size, content, null);
+            }
+            output.close();
+            return new MultipartPart(headers, name, fileName, size, null, file);
+        }
+
+        private void discard() throws IOException {
+            memory = null;
+            if (output != null) {
+                output.close();
+            }
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
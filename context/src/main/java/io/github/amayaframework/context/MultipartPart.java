@@ -0,0 +1,172 @@
+package io.github.amayaframework.context;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+/**
+ * A class describing a single part of multipart/form-data body (see rfc7578).
+ * The content of the part is kept either in memory or in a temporary file, which is deleted
+ * on {@link #close()} unless it has been moved with {@link #moveTo(Path)}.
+ */
+public final class MultipartPart implements Closeable {
+    private final Map<String, String> headers;
+    private final String name;
+    private final String fileName;
+    private final long size;
+    private final byte[] content;
+    private Path file;
+
+    MultipartPart(Map<String, String> headers, String name, String fileName, long size, byte[] content, Path file) {
+        this.headers = headers;
+        this.name = name;
+        this.fileName = fileName;
+        this.size = size;
+        this.content = content;
+        this.file = file;
+    }
+
+    /**
+     * Gets the unmodifiable {@link Map} containing the part headers. Header names are case-insensitive.
+     *
+     * @return the {@link Map} instance
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Gets the part header with given name.
+     *
+     * @param name the specified header name
+     * @return the header value or null if it does not exist
+     */
+    public String getHeader(String name) {
+        return headers.get(name);
+    }
+
+    /**
+     * Gets the form field name of this part.
+     *
+     * @return the field name or null if Content-Disposition header does not specify it
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the original file name of this part.
+     *
+     * @return the file name or null if this part is not a file
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Gets the value of Content-Type header of this part.
+     *
+     * @return the content type or null if it is not specified
+     */
+    public String getContentType() {
+        return headers.get("Content-Type");
+    }
+
+    /**
+     * Gets the size of the part content.
+     *
+     * @return the number of bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Checks whether the part content is kept in memory.
+     *
+     * @return true if the content is kept in memory, false if it has been spilled to disk
+     */
+    public boolean isInMemory() {
+        return content != null;
+    }
+
+    /**
+     * Gets the path to the temporary file containing the part content.
+     *
+     * @return the {@link Path} instance or null if the content is kept in memory
+     */
+    public Path getPath() {
+        return file;
+    }
+
+    /**
+     * Opens the input stream reading the part content.
+     *
+     * @return the {@link InputStream} instance
+     * @throws IOException if the spilled content cannot be opened
+     */
+    public InputStream getInputStream() throws IOException {
+        if (content != null) {
+            return new ByteArrayInputStream(content);
+        }
+        if (file == null) {
+            throw new IOException("Part content has been deleted");
+        }
+        return Files.newInputStream(file);
+    }
+
+    /**
+     * Gets the copy of the part content as a byte array. For spilled parts the content is read from disk.
+     *
+     * @return the part content
+     * @throws IOException if the spilled content cannot be read or is too large for an array
+     */
+    public byte[] getBytes() throws IOException {
+        if (content != null) {
+            return content.clone();
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IOException("Part is too large to be read into memory: " + size);
+        }
+        try (var stream = getInputStream()) {
+            return stream.readAllBytes();
+        }
+    }
+
+    /**
+     * Moves or writes the part content to the specified file. Existing file is replaced.
+     *
+     * @param target the specified target file, must be non-null
+     * @throws IOException if an I/O error occurs
+     */
+    public void moveTo(Path target) throws IOException {
+        if (content != null) {
+            Files.write(target, content);
+            return;
+        }
+        if (file == null) {
+            throw new IOException("Part content has been deleted");
+        }
+        Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+        file = null;
+    }
+
+    /**
+     * Deletes the temporary file containing the part content, if any.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (file == null) {
+            return;
+        }
+        Files.deleteIfExists(file);
+        file = null;
+    }
+}
@@ -5,13 +5,20 @@ import jakarta.servlet.ServletInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
 /**
  * An interface describing the abstract web protocol request.
  */
 public interface Request extends Transaction, Attributable<String> {
+    /**
+     * The default maximum size of the body read by {@link #readBody()}, in bytes.
+     */
+    long DEFAULT_MAX_BODY_SIZE = 16 * 1024 * 1024;
 
     /**
      * Retrieves the body of the request as binary data using a {@link ServletInputStream}.
@@ -36,6 +43,42 @@ public interface Request extends Transaction, Attributable<String> {
      */
     BufferedReader getReader() throws IOException;
 
+    /**
+     * Reads the whole body of the request without blocking the calling thread while waiting for data.
+     * The body is collected by a {@link jakarta.servlet.ReadListener} registered on the request input stream,
+     * so no thread is held until all the data has arrived.
+     * <p>
+     * If the underlying request is not in asynchronous mode yet, it is switched to it. In this case the caller
+     * is responsible for completing the asynchronous cycle through the {@link jakarta.servlet.AsyncContext}
+     * of the underlying request. Repeated calls return the same {@link CompletionStage} instance, regardless
+     * of the size limit passed. Neither {@link #getInputStream} nor {@link #getReader} may be used after
+     * this method has been called.
+     * <p>
+     * If the declared Content-Length exceeds the limit, the stage fails at once, without switching the request
+     * to asynchronous mode. Otherwise, reading stops and the stage fails as soon as more data than the limit
+     * has arrived. In both cases the stage fails with {@link IOException}.
+     *
+     * @param maxSize the maximum size of the body, in bytes, must be non-negative
+     * @return a {@link CompletionStage} that completes with a {@link ByteBuffer} containing the request body
+     * @throws IllegalStateException if the request does not support asynchronous operations,
+     *                               or if {@link #getReader} method has already been called for this request
+     * @throws IOException           if an input or output exception occurred
+     */
+    CompletionStage<ByteBuffer> readBody(long maxSize) throws IOException;
+
+    /**
+     * Reads the whole body of the request without blocking the calling thread, limiting its size to
+     * {@link #DEFAULT_MAX_BODY_SIZE}. Behaves like {@link #readBody(long)}.
+     *
+     * @return a {@link CompletionStage} that completes with a {@link ByteBuffer} containing the request body
+     * @throws IllegalStateException if the request does not support asynchronous operations,
+     *                               or if {@link #getReader} method has already been called for this request
+     * @throws IOException           if an input or output exception occurred
+     */
+    default CompletionStage<ByteBuffer> readBody() throws IOException {
+        return readBody(DEFAULT_MAX_BODY_SIZE);
+    }
+
     /**
      * Gets {@link InetSocketAddress} instance containing fully qualified local address: hostname and port.
      *
@@ -103,6 +146,19 @@ public interface Request extends Transaction, Attributable<String> {
      */
     String[] getParameters(String name);
 
+    /**
+     * Reads and decodes the application/x-www-form-urlencoded body of this request.
+     * The body is decoded incrementally while being read from the input stream, the result is cached.
+     * If the request body has another type, the returned map is empty.
+     * <p>
+     * The body can be read only once, so this method must not be mixed with {@link #getParameters()}
+     * and other methods reading the body.
+     *
+     * @return an immutable {@link Map} containing form fields in the order of appearance
+     * @throws IOException if an I/O error occurs
+     */
+    Map<String, List<String>> getForm() throws IOException;
+
     /**
      * Returns an {@link Iterable} of {@link Locale} instances indicating, in decreasing order starting with the
      * preferred locale, the locales that are acceptable to the client based on the Accept-Language header.
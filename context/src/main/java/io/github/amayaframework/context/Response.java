@@ -4,7 +4,11 @@ import jakarta.servlet.ServletOutputStream;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
 import java.util.Locale;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
 
 /**
  * An interface describing the abstract web protocol response.
@@ -48,6 +52,37 @@ public interface Response extends Transaction {
      */
     PrintWriter getWriter() throws IOException;
 
+    /**
+     * Writes the body of the response from given {@link Flow.Publisher} without blocking the calling thread.
+     * The buffers are written by a {@link jakarta.servlet.WriteListener}, and the next buffer is requested from
+     * the publisher only when the previous one has been written and the output stream is ready for more data.
+     * After being written, each buffer is passed to the specified release action, so it can be returned to a pool.
+     * <p>
+     * The underlying request must be in asynchronous mode, and the caller is responsible for completing
+     * the asynchronous cycle after the returned {@link CompletionStage} has completed.
+     * Either this method, {@link #getOutputStream} or {@link #getWriter} may be used to write the body, not several.
+     *
+     * @param publisher the specified {@link Flow.Publisher} of body buffers, must be non-null
+     * @param release   the specified action to be applied to each written buffer, must be non-null
+     * @return a {@link CompletionStage} that completes when the publisher has completed and all buffers are written
+     * @throws IllegalStateException if the underlying request is not in asynchronous mode,
+     *                               or if the <code>getWriter</code> method has been called on this response
+     * @throws IOException           if an input or output exception occurred
+     */
+    CompletionStage<Void> write(Flow.Publisher<ByteBuffer> publisher, Consumer<ByteBuffer> release) throws IOException;
+
+    /**
+     * Writes the body of the response from given {@link Flow.Publisher} without blocking the calling thread.
+     * Behaves like {@link #write(Flow.Publisher, Consumer)} with no release action.
+     *
+     * @param publisher the specified {@link Flow.Publisher} of body buffers, must be non-null
+     * @return a {@link CompletionStage} that completes when the publisher has completed and all buffers are written
+     * @throws IllegalStateException if the underlying request is not in asynchronous mode,
+     *                               or if the <code>getWriter</code> method has been called on this response
+     * @throws IOException           if an input or output exception occurred
+     */
+    CompletionStage<Void> write(Flow.Publisher<ByteBuffer> publisher) throws IOException;
+
     /**
      * Sets the length of the content body in the response In HTTP servlets, this method sets the HTTP Content-Length
      * header.
@@ -0,0 +1,157 @@
+package io.github.amayaframework.context;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class BodyReadListenerTest {
+
+    private static String text(ByteBuffer buffer) {
+        var bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testChunks() throws IOException {
+        var stream = new ChunkedInput();
+        var listener = new BodyReadListener(stream, -1, 1024);
+        stream.setReadListener(listener);
+        stream.deliver("hello, ");
+        assertFalse(listener.getResult().toCompletableFuture().isDone());
+        stream.deliver("x".repeat(10));
+        stream.deliver("world");
+        stream.finish();
+        assertEquals("hello, xxxxxxxxxxworld", text(listener.getResult().toCompletableFuture().join()));
+    }
+
+    @Test
+    public void testGrowth() throws IOException {
+        var stream = new ChunkedInput();
+        var listener = new BodyReadListener(stream, 3, Long.MAX_VALUE);
+        stream.setReadListener(listener);
+        var body = "y".repeat(50000);
+        stream.deliver(body);
+        stream.finish();
+        assertEquals(body, text(listener.getResult().toCompletableFuture().join()));
+    }
+
+    @Test
+    public void testDeclaredLength() throws IOException {
+        var stream = new ChunkedInput();
+        // The buffer grows with the data, not with the declared length
+        var listener = new BodyReadListener(stream, Request.DEFAULT_MAX_BODY_SIZE, Request.DEFAULT_MAX_BODY_SIZE);
+        stream.setReadListener(listener);
+        var body = "z".repeat(20000);
+        stream.deliver(body);
+        stream.finish();
+        assertEquals(body, text(listener.getResult().toCompletableFuture().join()));
+    }
+
+    @Test
+    public void testLimit() throws IOException {
+        var stream = new ChunkedInput();
+        var listener = new BodyReadListener(stream, -1, 8);
+        stream.setReadListener(listener);
+        stream.deliver("12345678");
+        assertFalse(listener.getResult().toCompletableFuture().isDone());
+        stream.deliver("9");
+        var thrown = assertThrows(CompletionException.class, () -> listener.getResult().toCompletableFuture().join());
+        assertTrue(thrown.getCause() instanceof IOException);
+        // The rest of the body is not read
+        stream.deliver("more");
+        assertEquals(4, stream.available());
+        stream.finish();
+        assertTrue(listener.getResult().toCompletableFuture().isCompletedExceptionally());
+    }
+
+    @Test
+    public void testExactLimit() throws IOException {
+        var stream = new ChunkedInput();
+        var listener = new BodyReadListener(stream, 8, 8);
+        stream.setReadListener(listener);
+        stream.deliver("12345678");
+        stream.finish();
+        assertEquals("12345678", text(listener.getResult().toCompletableFuture().join()));
+    }
+
+    @Test
+    public void testError() throws IOException {
+        var stream = new ChunkedInput();
+        var listener = new BodyReadListener(stream, -1, 1024);
+        stream.setReadListener(listener);
+        var error = new IOException("Connection reset");
+        listener.onError(error);
+        var thrown = assertThrows(CompletionException.class, () -> listener.getResult().toCompletableFuture().join());
+        assertSame(error, thrown.getCause());
+    }
+
+    /**
+     * An input stream that becomes ready only when the test delivers a chunk, as a container does
+     * when data arrives from the network.
+     */
+    private static final class ChunkedInput extends ServletInputStream {
+        private final Queue<Byte> data = new ArrayDeque<>();
+        private ReadListener listener;
+        private boolean finished;
+
+        void deliver(String chunk) throws IOException {
+            for (var b : chunk.getBytes(StandardCharsets.US_ASCII)) {
+                data.add(b);
+            }
+            listener.onDataAvailable();
+        }
+
+        void finish() throws IOException {
+            finished = true;
+            listener.onAllDataRead();
+        }
+
+        @Override
+        public int available() {
+            return data.size();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished && data.isEmpty();
+        }
+
+        @Override
+        public boolean isReady() {
+            return !data.isEmpty();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            this.listener = readListener;
+        }
+
+        @Override
+        public int read() {
+            var ret = data.poll();
+            return ret == null ? -1 : ret & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            var count = 0;
+            while (count < len && !data.isEmpty()) {
+                b[off + count++] = data.poll();
+            }
+            return count == 0 ? -1 : count;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.amayaframework.context;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class BodyWriteListenerTest {
+
+    private static ByteBuffer wrap(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testBackpressure() throws IOException {
+        var stream = new ManualOutput();
+        var released = new ArrayList<ByteBuffer>();
+        var listener = new BodyWriteListener(stream, released::add);
+        var subscription = new ManualSubscription();
+        listener.onSubscribe(subscription);
+        assertEquals(1, subscription.requested);
+        var first = wrap("ab");
+        listener.onNext(first);
+        assertEquals(2, subscription.requested);
+        assertEquals(List.of(first), released);
+        // The socket is full, so the next buffer waits and nothing more is requested
+        stream.ready = false;
+        var direct = ByteBuffer.allocateDirect(2);
+        direct.put(wrap("cd")).flip();
+        listener.onNext(direct);
+        assertEquals(2, subscription.requested);
+        assertEquals("ab", stream.text());
+        stream.ready = true;
+        stream.listener.onWritePossible();
+        assertEquals(3, subscription.requested);
+        assertEquals("abcd", stream.text());
+        listener.onComplete();
+        assertNull(listener.getResult().toCompletableFuture().join());
+        assertEquals(2, released.size());
+        assertFalse(subscription.cancelled);
+    }
+
+    @Test
+    public void testPublisherError() {
+        var stream = new ManualOutput();
+        var listener = new BodyWriteListener(stream, buffer -> {
+        });
+        var subscription = new ManualSubscription();
+        listener.onSubscribe(subscription);
+        var error = new IllegalStateException("Publisher failed");
+        listener.onError(error);
+        var thrown = assertThrows(CompletionException.class, () -> listener.getResult().toCompletableFuture().join());
+        assertSame(error, thrown.getCause());
+        // The publisher has terminated the subscription itself
+        assertFalse(subscription.cancelled);
+    }
+
+    @Test
+    public void testWriteError() {
+        var stream = new ManualOutput();
+        var released = new ArrayList<ByteBuffer>();
+        var listener = new BodyWriteListener(stream, released::add);
+        var subscription = new ManualSubscription();
+        listener.onSubscribe(subscription);
+        stream.ready = false;
+        var pending = wrap("lost");
+        listener.onNext(pending);
+        var error = new IOException("Connection reset");
+        stream.listener.onError(error);
+        assertTrue(subscription.cancelled);
+        assertEquals(List.of(pending), released);
+        var thrown = assertThrows(CompletionException.class, () -> listener.getResult().toCompletableFuture().join());
+        assertSame(error, thrown.getCause());
+        // A buffer already in flight when the subscription was cancelled is released at once
+        var late = wrap("late");
+        listener.onNext(late);
+        assertEquals(List.of(pending, late), released);
+        assertEquals("", stream.text());
+    }
+
+    @Test
+    public void testSecondSubscription() {
+        var listener = new BodyWriteListener(new ManualOutput(), buffer -> {
+        });
+        var first = new ManualSubscription();
+        var second = new ManualSubscription();
+        listener.onSubscribe(first);
+        listener.onSubscribe(second);
+        assertFalse(first.cancelled);
+        assertTrue(second.cancelled);
+    }
+
+    private static final class ManualSubscription implements Flow.Subscription {
+        long requested;
+        boolean cancelled;
+
+        @Override
+        public void request(long n) {
+            requested += n;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * An output stream which readiness is controlled by the test, as a container reports
+     * whether the socket can accept more data.
+     */
+    private static final class ManualOutput extends ServletOutputStream {
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        WriteListener listener;
+        boolean ready = true;
+
+        String text() {
+            return data.toString(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            this.listener = writeListener;
+            try {
+                writeListener.onWritePossible();
+            } catch (IOException e) {
+                writeListener.onError(e);
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            data.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            data.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.amayaframework.context;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class FormDecoderTest {
+
+    private static InputStream chunked(String data, int chunk) {
+        return new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+        };
+    }
+
+    @Test
+    public void testDecode() throws IOException {
+        var data = "name=Amaya+Framework&tags=a&tags=b%26c&empty=&flag&&city=%D0%9C%D0%B8%D1%80";
+        var expected = Map.of(
+                "name", List.of("Amaya Framework"),
+                "tags", List.of("a", "b&c"),
+                "empty", List.of(""),
+                "flag", List.of(""),
+                "city", List.of("\u041c\u0438\u0440")
+        );
+        assertEquals(expected, FormDecoder.DEFAULT.decode(data));
+        // Escapes split between reads are decoded the same way
+        for (var chunk = 1; chunk < 8; ++chunk) {
+            assertEquals(expected, FormDecoder.DEFAULT.decode(chunked(data, chunk)));
+        }
+        assertEquals(List.of("name", "tags", "empty", "flag", "city"),
+                new ArrayList<>(FormDecoder.DEFAULT.decode(data).keySet()));
+    }
+
+    @Test
+    public void testMalformed() throws IOException {
+        var form = FormDecoder.DEFAULT.decode("a=100%&b=%zz&c=%4&d=%41%4");
+        assertEquals(List.of("100%"), form.get("a"));
+        assertEquals(List.of("%zz"), form.get("b"));
+        assertEquals(List.of("%4"), form.get("c"));
+        assertEquals(List.of("A%4"), form.get("d"));
+        assertEquals(List.of("b=c"), FormDecoder.DEFAULT.decode("a=b=c").get("a"));
+    }
+
+    @Test
+    public void testFind() throws IOException {
+        var data = "first=1&second=" + "x".repeat(10_000) + "&target=found&target=second";
+        assertEquals("found", FormDecoder.DEFAULT.find(data, "target"));
+        assertEquals("found", FormDecoder.DEFAULT.find(chunked(data, 100), "target"));
+        assertNull(FormDecoder.DEFAULT.find(data, "missing"));
+        assertEquals("", FormDecoder.DEFAULT.find("a&target", "target"));
+    }
+
+    @Test
+    public void testVisitor() throws IOException {
+        var visited = new ArrayList<String>();
+        assertFalse(FormDecoder.DEFAULT.decode(chunked("a=1&b=2&c=3", 2), (name, value) -> {
+            visited.add(name + value);
+            return !name.equals("b");
+        }));
+        assertEquals(List.of("a1", "b2"), visited);
+        assertTrue(FormDecoder.DEFAULT.decode("", (name, value) -> false));
+    }
+
+    @Test
+    public void testLimits() {
+        var decoder = new FormDecoder(StandardCharsets.UTF_8, 2, 16);
+        assertDoesNotThrow(() -> decoder.decode("a=1&b=2"));
+        var error = assertThrows(FormLimitException.class, () -> decoder.decode("a=1&b=2&c=3"));
+        assertEquals("Number of form fields exceeds limit 2", error.getMessage());
+        error = assertThrows(FormLimitException.class, () -> decoder.decode(chunked("a=" + "x".repeat(20), 4)));
+        assertEquals("Form data size exceeds limit 16", error.getMessage());
+        // Limit violations are reported as I/O errors of the body
+        IOException exception = assertThrows(FormLimitException.class, () -> decoder.find("c=3&d=4&e=5", "e"));
+        assertEquals("Number of form fields exceeds limit 2", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new FormDecoder(StandardCharsets.UTF_8, -1, 0));
+    }
+
+    @Test
+    public void testCharset() {
+        var decoder = new FormDecoder(StandardCharsets.ISO_8859_1, 10, 100);
+        assertEquals(StandardCharsets.ISO_8859_1, decoder.getCharset());
+        assertDoesNotThrow(() -> assertEquals("\u00e9", decoder.find("e=%E9", "e")));
+    }
+}
@@ -0,0 +1,215 @@
+package io.github.amayaframework.context;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class MultipartParserTest {
+    private static final String BOUNDARY = "----boundary42";
+    private static final String BODY = "preamble\r\n"
+            + "--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"title\"\r\n"
+            + "\r\n"
+            + "Hello, multipart\r\n"
+            + "--" + BOUNDARY + "  \r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"a.txt\"; "
+            + "filename*=UTF-8''%C3%A9t%C3%A9.txt\r\n"
+            + "Content-Type: text/plain\r\n"
+            + "\r\n"
+            + "line 1\r\n--not a delimiter\r\nline 2\r\n"
+            + "--" + BOUNDARY + "--\r\n"
+            + "epilogue";
+
+    private static InputStream chunked(String body, int chunk) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+        };
+    }
+
+    private static MultipartConfig config(Path directory, long spill, long maxPartSize, int maxParts, int maxHeaders) {
+        return new MultipartConfig(directory, spill, maxPartSize, maxParts, maxHeaders);
+    }
+
+    private static List<MultipartPart> parse(InputStream stream, MultipartConfig config) throws IOException {
+        var ret = new ArrayList<MultipartPart>();
+        try (var parser = new MultipartParser(stream, BOUNDARY, config)) {
+            MultipartPart part;
+            while ((part = parser.next()) != null) {
+                ret.add(part);
+            }
+        } catch (IOException e) {
+            // Returned parts are owned by the caller
+            for (var part : ret) {
+                part.close();
+            }
+            throw e;
+        }
+        return ret;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (var path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static long count(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static void assertParts(List<MultipartPart> parts) throws IOException {
+        assertEquals(2, parts.size());
+        var title = parts.get(0);
+        assertEquals("title", title.getName());
+        assertNull(title.getFileName());
+        assertEquals("Hello, multipart", new String(title.getBytes(), StandardCharsets.UTF_8));
+        var file = parts.get(1);
+        assertEquals("file", file.getName());
+        assertEquals("\u00e9t\u00e9.txt", file.getFileName());
+        assertEquals("text/plain", file.getContentType());
+        assertEquals("text/plain", file.getHeader("content-type"));
+        assertEquals("line 1\r\n--not a delimiter\r\nline 2", new String(file.getBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testParts() throws IOException {
+        var directory = Files.createTempDirectory("multipart");
+        var parts = parse(chunked(BODY, Integer.MAX_VALUE), new MultipartConfig(directory));
+        assertParts(parts);
+        var part = parts.get(0);
+        assertTrue(part.isInMemory());
+        assertEquals(16, part.getSize());
+        // The returned array is a copy, so the part content cannot be changed
+        part.getBytes()[0] = 'X';
+        assertEquals('H', part.getBytes()[0]);
+        assertEquals('H', part.getInputStream().read());
+        delete(directory);
+    }
+
+    @Test
+    public void testSplitReads() throws IOException {
+        var directory = Files.createTempDirectory("multipart");
+        // Every possible split of delimiters and headers between reads
+        for (var chunk = 1; chunk <= 20; ++chunk) {
+            assertParts(parse(chunked(BODY, chunk), new MultipartConfig(directory)));
+        }
+        delete(directory);
+    }
+
+    @Test
+    public void testLargePart() throws IOException {
+        var directory = Files.createTempDirectory("multipart");
+        var content = "0123456789".repeat(20_000);
+        var body = "--" + BOUNDARY + "\r\n\r\n" + content + "\r\n--" + BOUNDARY + "--";
+        var parts = parse(chunked(body, 4093), config(directory, 1024, 1024 * 1024, 8, 1024));
+        var part = parts.get(0);
+        assertFalse(part.isInMemory());
+        assertTrue(Files.exists(part.getPath()));
+        assertEquals(content.length(), part.getSize());
+        assertEquals(content, new String(part.getBytes(), StandardCharsets.UTF_8));
+        var target = directory.resolve("moved.txt");
+        part.moveTo(target);
+        assertNull(part.getPath());
+        assertEquals(content, Files.readString(target));
+        part.close();
+        assertEquals(1, count(directory));
+        delete(directory);
+    }
+
+    @Test
+    public void testSpillClose() throws IOException {
+        var directory = Files.createTempDirectory("multipart");
+        var parts = parse(chunked(BODY, 3), config(directory, 4, 1024, 8, 1024));
+        assertParts(parts);
+        assertEquals(2, count(directory));
+        for (var part : parts) {
+            assertFalse(part.isInMemory());
+            part.close();
+        }
+        assertEquals(0, count(directory));
+        assertThrows(IOException.class, () -> parts.get(0).getInputStream());
+        delete(directory);
+    }
+
+    @Test
+    public void testLimits() throws IOException {
+        var directory = Files.createTempDirectory("multipart");
+        var error = assertThrows(MultipartException.class,
+                () -> parse(chunked(BODY, 5), config(directory, 4, 20, 8, 1024)));
+        assertEquals("Part exceeds size limit 20", error.getMessage());
+        // The part being spilled at the violation is deleted by the parser
+        assertEquals(0, count(directory));
+        error = assertThrows(MultipartException.class,
+                () -> parse(chunked(BODY, 5), config(directory, 1024, 1024, 1, 1024)));
+        assertEquals("Number of parts exceeds limit 1", error.getMessage());
+        error = assertThrows(MultipartException.class,
+                () -> parse(chunked(BODY, 5), config(directory, 1024, 1024, 8, 40)));
+        assertEquals("Part headers exceed size limit", error.getMessage());
+        var endless = "--" + BOUNDARY + "\r\n" + "X".repeat(100_000);
+        error = assertThrows(MultipartException.class,
+                () -> parse(chunked(endless, 1000), config(directory, 1024, 1024, 8, 1024)));
+        assertEquals("Part headers exceed size limit", error.getMessage());
+        delete(directory);
+    }
+
+    @Test
+    public void testMalformed() throws IOException {
+        var directory = Files.createTempDirectory("multipart");
+        var config = new MultipartConfig(directory);
+        var header = "--" + BOUNDARY + "\r\n<script>alert(1)</script>\r\n\r\nvalue\r\n--" + BOUNDARY + "--";
+        var error = assertThrows(MultipartException.class, () -> parse(chunked(header, 100), config));
+        assertFalse(error.getMessage().contains("script"));
+        var delimiter = "--" + BOUNDARY + "garbage\r\n\r\nvalue\r\n--" + BOUNDARY + "--";
+        assertThrows(MultipartException.class, () -> parse(chunked(delimiter, 100), config));
+        assertThrows(IllegalArgumentException.class, () -> new MultipartParser(chunked("", 1), "", config));
+        delete(directory);
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        var directory = Files.createTempDirectory("multipart");
+        var config = config(directory, 4, 1024, 8, 1024);
+        var bytes = BODY.getBytes(StandardCharsets.UTF_8);
+        // Every truncation before the closing delimiter is an error
+        var closing = BODY.indexOf("--" + BOUNDARY + "--") + BOUNDARY.length() + 4;
+        for (var length = 0; length < closing; ++length) {
+            var body = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            var error = assertThrows(MultipartException.class, () -> parse(chunked(body, 7), config));
+            assertEquals("Unexpected end of multipart body", error.getMessage());
+        }
+        var parts = parse(chunked(BODY.substring(0, closing), 7), config);
+        assertEquals(2, parts.size());
+        for (var part : parts) {
+            part.close();
+        }
+        assertEquals(0, count(directory));
+        delete(directory);
+    }
+
+    @Test
+    public void testBoundary() {
+        assertEquals("abc", MultipartParser.getBoundary("multipart/form-data; boundary=abc"));
+        assertEquals("a b", MultipartParser.getBoundary("Multipart/Form-Data; charset=utf-8; BOUNDARY=\"a b\""));
+        assertNull(MultipartParser.getBoundary("multipart/form-data"));
+        assertNull(MultipartParser.getBoundary("multipart/form-data; boundary="));
+        assertNull(MultipartParser.getBoundary("text/plain; boundary=abc"));
+        assertNull(MultipartParser.getBoundary(null));
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.amayaframework.context;
+
+import io.github.amayaframework.http.HttpVersion;
+import io.github.amayaframework.http.MimeData;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public final class TransferFileTest {
+
+    private static void transfer(ServletOutputStream stream, ByteArrayOutputStream data, int size) throws IOException {
+        var content = new byte[size];
+        for (var i = 0; i < size; ++i) {
+            content[i] = (byte) i;
+        }
+        var file = Files.createTempFile("transfer", ".bin");
+        try {
+            Files.write(file, content);
+            var servlet = (HttpServletResponse) Proxy.newProxyInstance(
+                    TransferFileTest.class.getClassLoader(),
+                    new Class<?>[]{HttpServletResponse.class},
+                    (proxy, method, args) -> method.getName().equals("getOutputStream") ? stream : null
+            );
+            var response = new Response(servlet);
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                response.transferFile(channel, size);
+            }
+            assertArrayEquals(content, data.toByteArray());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testCopy() throws IOException {
+        var data = new ByteArrayOutputStream();
+        transfer(new Output(data), data, 200_000);
+    }
+
+    @Test
+    public void testChannel() throws IOException {
+        var data = new ByteArrayOutputStream();
+        var stream = new ChannelOutput(data, Long.MAX_VALUE);
+        transfer(stream, data, 200_000);
+        assertEquals(200_000, stream.accepted);
+    }
+
+    @Test
+    public void testStalledChannel() throws IOException {
+        // The channel stops accepting data midway, the rest must be copied instead of spinning forever
+        var data = new ByteArrayOutputStream();
+        var stream = new ChannelOutput(data, 1000);
+        transfer(stream, data, 200_000);
+        assertEquals(1000, stream.accepted);
+    }
+
+    private static final class Response extends AbstractHttpResponse {
+
+        private Response(HttpServletResponse response) {
+            super(response, "HTTP/1.1", "http", HttpVersion.HTTP_1_1);
+        }
+
+        @Override
+        protected String formatMimeData(MimeData data) {
+            return null;
+        }
+    }
+
+    private static class Output extends ServletOutputStream {
+        final ByteArrayOutputStream data;
+
+        Output(ByteArrayOutputStream data) {
+            this.data = data;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        @Override
+        public void write(int b) {
+            data.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            data.write(b, off, len);
+        }
+    }
+
+    /**
+     * An output stream exposed as a non-blocking channel, which accepts no more than the given number of bytes.
+     */
+    private static final class ChannelOutput extends Output implements WritableByteChannel {
+        private final long capacity;
+        long accepted;
+
+        ChannelOutput(ByteArrayOutputStream data, long capacity) {
+            super(data);
+            this.capacity = capacity;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            var count = (int) Math.min(src.remaining(), capacity - accepted);
+            var bytes = new byte[count];
+            src.get(bytes);
+            data.write(bytes, 0, count);
+            accepted += count;
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+    }
+}
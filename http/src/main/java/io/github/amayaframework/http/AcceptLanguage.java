@@ -0,0 +1,150 @@
+package io.github.amayaframework.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A class describing parsed value of Accept-Language header (see rfc9110, section 12.5.4).
+ * <br>
+ * Instances are immutable and cached by the raw header value, so repeated headers are neither parsed again
+ * nor produce new {@link Locale} objects. Each instance also memoizes the results of {@link #bestMatch(List)}
+ * per list of supported locales. Both caches are bounded and direct-mapped: a new value evicts the one cached
+ * in the same slot, so the caches follow the current traffic. Instances are thread-safe.
+ */
+public final class AcceptLanguage {
+    /**
+     * The value representing absent or malformed header, containing no locales.
+     */
+    public static final AcceptLanguage EMPTY = new AcceptLanguage(List.of(), List.of(), false);
+
+    private static final int MAX_PARSED = 1024;
+    private static final int MAX_MATCHES = 16;
+    private static final HeaderCache<String, AcceptLanguage> PARSED = new HeaderCache<>(MAX_PARSED);
+    // Distinct instance, so it cannot be confused with a supported root locale
+    private static final Locale NONE = new Locale("");
+
+    private final List<Locale.LanguageRange> ranges;
+    private final List<Locale> locales;
+    private final boolean any;
+    private final HeaderCache<List<Locale>, Locale> matches;
+
+    private AcceptLanguage(List<Locale.LanguageRange> ranges, List<Locale> locales, boolean any) {
+        this.ranges = ranges;
+        this.locales = locales;
+        this.any = any;
+        this.matches = new HeaderCache<>(MAX_MATCHES);
+    }
+
+    private static AcceptLanguage create(String header) {
+        List<Locale.LanguageRange> ranges;
+        try {
+            ranges = Locale.LanguageRange.parse(header);
+        } catch (IllegalArgumentException e) {
+            return EMPTY;
+        }
+        // Ranges are already sorted by weight, but also contain equivalents of deprecated tags
+        var locales = new LinkedHashSet<Locale>();
+        var any = false;
+        for (var range : ranges) {
+            if (range.getWeight() == 0) {
+                continue;
+            }
+            var tag = range.getRange();
+            if (tag.equals("*")) {
+                any = true;
+                continue;
+            }
+            if (tag.indexOf('*') < 0) {
+                locales.add(Locale.forLanguageTag(tag));
+            }
+        }
+        return new AcceptLanguage(
+                Collections.unmodifiableList(ranges),
+                Collections.unmodifiableList(new ArrayList<>(locales)),
+                any
+        );
+    }
+
+    /**
+     * Parses the value of Accept-Language header or gets the cached result.
+     *
+     * @param header the specified header value, may be null
+     * @return the {@link AcceptLanguage} instance, {@link #EMPTY} if the header is absent or malformed
+     */
+    public static AcceptLanguage parse(String header) {
+        if (header == null || header.isBlank()) {
+            return EMPTY;
+        }
+        var ret = PARSED.get(header);
+        if (ret != null) {
+            return ret;
+        }
+        ret = create(header);
+        PARSED.put(header, ret);
+        return ret;
+    }
+
+    /**
+     * Gets the parsed language ranges.
+     *
+     * @return the unmodifiable {@link List} of ranges in decreasing order of weight
+     */
+    public List<Locale.LanguageRange> getRanges() {
+        return ranges;
+    }
+
+    /**
+     * Gets the acceptable locales, excluding wildcard ranges and ranges with zero weight.
+     *
+     * @return the unmodifiable {@link List} of locales in decreasing order of preference
+     */
+    public List<Locale> getLocales() {
+        return locales;
+    }
+
+    /**
+     * Gets the most preferred locale.
+     *
+     * @return the {@link Locale} instance or null if there are no acceptable locales
+     */
+    public Locale getLocale() {
+        return locales.isEmpty() ? null : locales.get(0);
+    }
+
+    private Locale find(List<Locale> supported) {
+        var ret = Locale.lookup(ranges, supported);
+        if (ret != null) {
+            return ret;
+        }
+        // Lookup ignores the wildcard, which means that any supported locale is acceptable
+        return any ? supported.get(0) : NONE;
+    }
+
+    /**
+     * Finds the supported locale best matching this header using the lookup scheme (see rfc4647, section 3.4).
+     * If the header accepts any language, but no range matches, the first supported locale is returned.
+     * The result is memoized per list of supported locales, so the list is expected to be a constant.
+     *
+     * @param supported the supported locales ordered by preference, must be non-null
+     * @return the matched {@link Locale} or null if no supported locale is acceptable
+     */
+    public Locale bestMatch(List<Locale> supported) {
+        if (supported.isEmpty()) {
+            return null;
+        }
+        var ret = matches.get(supported);
+        if (ret == null) {
+            ret = find(supported);
+            matches.put(supported, ret);
+        }
+        return ret == NONE ? null : ret;
+    }
+
+    @Override
+    public String toString() {
+        return ranges.toString();
+    }
+}
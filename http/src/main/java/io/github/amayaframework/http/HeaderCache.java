@@ -0,0 +1,62 @@
+package io.github.amayaframework.http;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded direct-mapped cache of values computed from header strings or other immutable keys.
+ * Each key maps to a single slot by its hash, a new entry replaces the one occupying the slot,
+ * so the cache never grows beyond its capacity and values no longer requested are eventually evicted.
+ * Lookups and updates are lock-free.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of cached values
+ */
+final class HeaderCache<K, V> {
+    private final AtomicReferenceArray<Entry<K, V>> entries;
+    private final int mask;
+
+    /**
+     * Constructs {@link HeaderCache} instance with at least the given number of slots.
+     *
+     * @param capacity the minimum number of slots, 0 to disable caching
+     */
+    HeaderCache(int capacity) {
+        if (capacity == 0) {
+            this.entries = null;
+            this.mask = 0;
+            return;
+        }
+        var size = Integer.highestOneBit(Math.max(1, Math.min(capacity, 1 << 30) - 1)) << 1;
+        this.entries = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    private int index(K key) {
+        var hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    V get(K key) {
+        if (entries == null) {
+            return null;
+        }
+        var entry = entries.get(index(key));
+        return entry != null && entry.key.equals(key) ? entry.value : null;
+    }
+
+    void put(K key, V value) {
+        if (entries != null) {
+            entries.lazySet(index(key), new Entry<>(key, value));
+        }
+    }
+
+    private static final class Entry<K, V> {
+        private final K key;
+        private final V value;
+
+        private Entry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.amayaframework.http;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * A class describing a single media range of Accept header (see rfc9110, section 12.5.1).
+ * Wildcard group and name are represented with null, quality is kept in thousandths.
+ */
+final class MediaRange {
+    static final MediaRange[] EMPTY = new MediaRange[0];
+    static final int MAX_QUALITY = 1000;
+
+    final String group;
+    final String name;
+    final int quality;
+
+    MediaRange(String group, String name, int quality) {
+        this.group = group;
+        this.name = name;
+        this.quality = quality;
+    }
+
+    private static int parseQuality(String value) {
+        // qvalue = ( "0" [ "." 0*3DIGIT ] ) / ( "1" [ "." 0*3("0") ] )
+        var length = value.length();
+        if (length == 0 || length > 5 || (length > 1 && value.charAt(1) != '.')) {
+            return -1;
+        }
+        var first = value.charAt(0);
+        if (first != '0' && first != '1') {
+            return -1;
+        }
+        var ret = (first - '0') * MAX_QUALITY;
+        var factor = 100;
+        for (var i = 2; i < length; ++i) {
+            var c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            ret += (c - '0') * factor;
+            factor /= 10;
+        }
+        return ret > MAX_QUALITY ? -1 : ret;
+    }
+
+    private static MediaRange parseRange(String range) {
+        var parameters = range.split(";");
+        var type = parameters[0].trim();
+        var slash = type.indexOf('/');
+        if (slash <= 0 || slash == type.length() - 1) {
+            return null;
+        }
+        var group = type.substring(0, slash).trim().toLowerCase(Locale.ENGLISH);
+        var name = type.substring(slash + 1).trim().toLowerCase(Locale.ENGLISH);
+        if (group.equals("*")) {
+            if (!name.equals("*")) {
+                return null;
+            }
+            group = null;
+        }
+        if (name.equals("*")) {
+            name = null;
+        }
+        var quality = MAX_QUALITY;
+        for (var i = 1; i < parameters.length; ++i) {
+            var parameter = parameters[i].trim();
+            if (parameter.length() < 2 || Character.toLowerCase(parameter.charAt(0)) != 'q') {
+                continue;
+            }
+            var equals = parameter.indexOf('=');
+            if (equals < 0 || !parameter.substring(1, equals).isBlank()) {
+                continue;
+            }
+            quality = parseQuality(parameter.substring(equals + 1).trim());
+            if (quality < 0) {
+                return null;
+            }
+            // Parameters after the weight are accept extensions, ignore them
+            break;
+        }
+        return new MediaRange(group, name, quality);
+    }
+
+    /**
+     * Parses the value of Accept header. Malformed ranges are skipped.
+     *
+     * @param header the specified header value
+     * @return the array of parsed ranges, in the order of appearance
+     */
+    static MediaRange[] parse(String header) {
+        var ret = new ArrayList<MediaRange>();
+        for (var range : header.split(",")) {
+            if (range.isBlank()) {
+                continue;
+            }
+            var parsed = parseRange(range);
+            if (parsed != null) {
+                ret.add(parsed);
+            }
+        }
+        return ret.isEmpty() ? EMPTY : ret.toArray(EMPTY);
+    }
+
+    /**
+     * Checks whether this range matches the given mime type.
+     *
+     * @param type the specified mime type
+     * @return the specificity of the match: 3 for exact match, 2 for 'group/*', 1 for '*&#47;*', 0 if not matched
+     */
+    int match(MimeType type) {
+        if (group == null) {
+            return 1;
+        }
+        if (!group.equalsIgnoreCase(type.group)) {
+            return 0;
+        }
+        if (name == null) {
+            return 2;
+        }
+        return name.equalsIgnoreCase(type.name) ? 3 : 0;
+    }
+}
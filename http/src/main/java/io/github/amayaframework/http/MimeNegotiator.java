@@ -0,0 +1,128 @@
+package io.github.amayaframework.http;
+
+import java.util.List;
+
+/**
+ * A class that implements content negotiation based on Accept header (see rfc9110, section 12.5.1).
+ * <br>
+ * The negotiator is created for a fixed list of producible mime types, ordered by server preference.
+ * For each type the most specific matching media range determines its quality, the type with the highest
+ * quality wins, ties are resolved in favour of the earlier type. Media range parameters other than weight
+ * are ignored, and so are malformed media ranges: a header without valid ones is treated as absent.
+ * <br>
+ * Parsed headers are shared between all negotiators, and each negotiator memoizes its results,
+ * both keyed by the raw header value. Since clients send a small number of distinct Accept values,
+ * a repeated header is negotiated with a single lookup. Both caches are bounded and direct-mapped:
+ * a new value evicts the one cached in the same slot, so the caches follow the current traffic.
+ * Instances are thread-safe.
+ */
+public final class MimeNegotiator {
+    /**
+     * The default maximum number of memoized results per negotiator.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    private static final int MAX_PARSED = 1024;
+    private static final HeaderCache<String, MediaRange[]> PARSED = new HeaderCache<>(MAX_PARSED);
+
+    private final MimeType[] types;
+    private final HeaderCache<String, Integer> results;
+
+    /**
+     * Constructs {@link MimeNegotiator} instance with given producible types and cache size.
+     *
+     * @param types     the producible mime types ordered by preference, must be non-null and non-empty
+     * @param cacheSize the maximum number of memoized results
+     */
+    public MimeNegotiator(List<MimeType> types, int cacheSize) {
+        if (types.isEmpty()) {
+            throw new IllegalArgumentException("No producible mime types");
+        }
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("Invalid cache size: " + cacheSize);
+        }
+        this.types = types.toArray(new MimeType[0]);
+        for (var type : this.types) {
+            if (type == null) {
+                throw new NullPointerException("Producible mime type is null");
+            }
+        }
+        this.results = new HeaderCache<>(cacheSize);
+    }
+
+    /**
+     * Constructs {@link MimeNegotiator} instance with given producible types and default cache size.
+     *
+     * @param types the producible mime types ordered by preference, must be non-null and non-empty
+     */
+    public MimeNegotiator(MimeType... types) {
+        this(List.of(types), DEFAULT_CACHE_SIZE);
+    }
+
+    private static MediaRange[] parse(String header) {
+        var ret = PARSED.get(header);
+        if (ret != null) {
+            return ret;
+        }
+        ret = MediaRange.parse(header);
+        PARSED.put(header, ret);
+        return ret;
+    }
+
+    private int select(MediaRange[] ranges) {
+        var best = -1;
+        var bestQuality = 0;
+        for (var i = 0; i < types.length; ++i) {
+            var type = types[i];
+            var specificity = 0;
+            var quality = 0;
+            for (var range : ranges) {
+                var matched = range.match(type);
+                if (matched > specificity) {
+                    specificity = matched;
+                    quality = range.quality;
+                }
+            }
+            if (quality > bestQuality) {
+                best = i;
+                bestQuality = quality;
+                if (quality == MediaRange.MAX_QUALITY) {
+                    // Later types can only tie with the full weight
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets the producible mime types.
+     *
+     * @return the unmodifiable {@link List} of types ordered by preference
+     */
+    public List<MimeType> getTypes() {
+        return List.of(types);
+    }
+
+    /**
+     * Selects the best producible mime type for the given Accept header value.
+     * Absent or blank header, as well as the header without valid media ranges, means that any type
+     * is acceptable, so the most preferred type is returned.
+     *
+     * @param accept the value of Accept header, may be null
+     * @return the selected {@link MimeType} or null if no producible type is acceptable
+     */
+    public MimeType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return types[0];
+        }
+        var index = results.get(accept);
+        if (index == null) {
+            var ranges = parse(accept);
+            // Malformed header is ignored (see rfc9110, section 12.5.1)
+            index = ranges.length == 0 ? 0 : select(ranges);
+            results.put(accept, index);
+        }
+        return index < 0 ? null : types[index];
+    }
+}
@@ -98,6 +98,7 @@ public final class MimeType {
     public static final MimeType THREE_GPP = new MimeType("video", "3gpp");
     public static final MimeType THREE_GPP_2 = new MimeType("video", "3gpp2");
     private static final Map<String, MimeType> TYPES = getTypes();
+    private static final Map<String, MimeType> EXTENSIONS = getExtensions();
     final String qualifier;
     final String group;
     final String name;
@@ -205,6 +206,87 @@ public final class MimeType {
         return Collections.unmodifiableMap(ret);
     }
 
+    private static Map<String, MimeType> getExtensions() {
+        var ret = new HashMap<String, MimeType>();
+        // Application
+        ret.put("atom", ATOM_XML);
+        ret.put("json", JSON);
+        ret.put("map", JSON);
+        ret.put("bin", OCTET_STREAM);
+        ret.put("exe", OCTET_STREAM);
+        ret.put("ogx", APPLICATION_OGG);
+        ret.put("pdf", PDF);
+        ret.put("ps", POSTSCRIPT);
+        ret.put("eps", POSTSCRIPT);
+        ret.put("woff", FONT_WOFF);
+        ret.put("xhtml", XHTML_XML);
+        ret.put("dtd", XML_DTD);
+        ret.put("zip", ZIP);
+        ret.put("gz", GZIP);
+        ret.put("torrent", X_BITTORRENT);
+        ret.put("tex", X_TEX);
+        ret.put("doc", DOC);
+        // Audio
+        ret.put("au", BASIC);
+        ret.put("snd", BASIC);
+        ret.put("m4a", AUDIO_MP4);
+        ret.put("aac", AAC);
+        ret.put("mp3", MP3_MPEG);
+        ret.put("oga", AUDIO_OGG);
+        ret.put("wma", X_MS_WMA);
+        ret.put("wax", X_MS_WAX);
+        ret.put("ra", REAL_AUDIO);
+        ret.put("wav", WAV);
+        ret.put("weba", AUDIO_WEBM);
+        // Image
+        ret.put("gif", GIF);
+        ret.put("jpg", JPEG);
+        ret.put("jpeg", JPEG);
+        ret.put("jpe", JPEG);
+        ret.put("png", PNG);
+        ret.put("svg", SVG_XML);
+        ret.put("tif", TIFF);
+        ret.put("tiff", TIFF);
+        ret.put("ico", ICO);
+        ret.put("wbmp", WBMP);
+        ret.put("webp", WEBP);
+        // Message
+        ret.put("eml", E_MAIL_RFC_822);
+        // Text
+        ret.put("cmd", CMD);
+        ret.put("css", CSS);
+        ret.put("csv", CSV);
+        ret.put("html", HTML);
+        ret.put("htm", HTML);
+        ret.put("js", JAVASCRIPT);
+        ret.put("mjs", JAVASCRIPT);
+        ret.put("txt", PLAIN);
+        ret.put("text", PLAIN);
+        ret.put("log", PLAIN);
+        ret.put("php", PHP);
+        ret.put("xml", XML);
+        ret.put("xsl", XML);
+        ret.put("md", MARKDOWN);
+        ret.put("markdown", MARKDOWN);
+        ret.put("appcache", CACHE_MANIFEST);
+        // Video
+        ret.put("mpeg", MPEG);
+        ret.put("mpg", MPEG);
+        ret.put("mp4", MP4);
+        ret.put("m4v", MP4);
+        ret.put("ogv", OGG);
+        ret.put("ogg", OGG);
+        ret.put("mov", QUICKTIME);
+        ret.put("qt", QUICKTIME);
+        ret.put("webm", WEBM);
+        ret.put("wmv", X_MS_WMV);
+        ret.put("flv", X_FLV);
+        ret.put("avi", X_MS_VIDEO);
+        ret.put("3gp", THREE_GPP);
+        ret.put("3g2", THREE_GPP_2);
+        return Collections.unmodifiableMap(ret);
+    }
+
     /**
      * Returns {@link Map} instance containing all predefined mime types.
      *
@@ -236,6 +318,34 @@ public final class MimeType {
         return TYPES.get(qualifier.toLowerCase(Locale.ENGLISH));
     }
 
+    /**
+     * Searches among predefined mime types for the type associated with the specified file extension.
+     *
+     * @param extension the specified file extension without leading dot, for example, 'html'
+     * @return {@link MimeType} instance if found, null otherwise
+     */
+    public static MimeType ofExtension(String extension) {
+        var ret = EXTENSIONS.get(extension);
+        if (ret != null) {
+            return ret;
+        }
+        return EXTENSIONS.get(extension.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Searches among predefined mime types for the type associated with the extension of the specified file name.
+     *
+     * @param name the specified file name, for example, 'index.html'
+     * @return {@link MimeType} instance if found, null otherwise
+     */
+    public static MimeType ofFileName(String name) {
+        var index = name.lastIndexOf('.');
+        if (index < 0 || index == name.length() - 1) {
+            return null;
+        }
+        return ofExtension(name.substring(index + 1));
+    }
+
     /**
      * Gets qualifier of this mime type. For example, 'application/json'.
      *
@@ -0,0 +1,80 @@
+package io.github.amayaframework.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class AcceptLanguageTest {
+
+    @Test
+    public void testParse() {
+        var parsed = AcceptLanguage.parse("fr;q=0.8, en-US, en;q=0.9, de;q=0");
+        assertEquals(
+                List.of(Locale.forLanguageTag("en-US"), Locale.ENGLISH, Locale.FRENCH),
+                parsed.getLocales()
+        );
+        assertEquals(Locale.forLanguageTag("en-US"), parsed.getLocale());
+        assertThrows(UnsupportedOperationException.class, () -> parsed.getLocales().clear());
+    }
+
+    @Test
+    public void testCache() {
+        var header = "ru-RU, ru;q=0.9, en;q=0.5";
+        var first = AcceptLanguage.parse(header);
+        var second = AcceptLanguage.parse(new String(header.toCharArray()));
+        assertSame(first, second);
+        assertSame(first.getLocales().get(0), second.getLocales().get(0));
+    }
+
+    @Test
+    public void testCacheEviction() {
+        for (var i = 0; i < 10_000; ++i) {
+            AcceptLanguage.parse("en;q=0." + i);
+        }
+        // New values are still cached after the cache has filled
+        var header = "de-AT, de;q=0.9";
+        assertSame(AcceptLanguage.parse(header), AcceptLanguage.parse(new String(header.toCharArray())));
+        // Any language is acceptable, so the first supported locale itself is the match
+        var parsed = AcceptLanguage.parse("ja, *");
+        for (var i = 0; i < 1000; ++i) {
+            parsed.bestMatch(List.of(Locale.forLanguageTag("x-" + i)));
+        }
+        var first = new Locale("fr");
+        assertSame(first, parsed.bestMatch(List.of(first)));
+        // The equal list gets the memoized locale instead of its own one
+        assertSame(first, parsed.bestMatch(List.of(new Locale("fr"))));
+    }
+
+    @Test
+    public void testEmpty() {
+        assertSame(AcceptLanguage.EMPTY, AcceptLanguage.parse(null));
+        assertSame(AcceptLanguage.EMPTY, AcceptLanguage.parse(" "));
+        assertSame(AcceptLanguage.EMPTY, AcceptLanguage.parse("en;q=abc"));
+        assertNull(AcceptLanguage.EMPTY.getLocale());
+        assertNull(AcceptLanguage.EMPTY.bestMatch(List.of(Locale.ENGLISH)));
+    }
+
+    @Test
+    public void testBestMatch() {
+        var supported = List.of(Locale.ENGLISH, Locale.FRENCH, Locale.GERMAN);
+        assertEquals(Locale.FRENCH, AcceptLanguage.parse("fr-CA, en;q=0.5").bestMatch(supported));
+        assertEquals(Locale.ENGLISH, AcceptLanguage.parse("da, en-GB;q=0.8").bestMatch(supported));
+        assertEquals(Locale.GERMAN, AcceptLanguage.parse("fr;q=0, de").bestMatch(supported));
+        assertNull(AcceptLanguage.parse("ja, ko").bestMatch(supported));
+        assertEquals(Locale.ENGLISH, AcceptLanguage.parse("ja, *;q=0.1").bestMatch(supported));
+        // Memoized result
+        var parsed = AcceptLanguage.parse("ja, ko");
+        assertNull(parsed.bestMatch(supported));
+        assertNull(parsed.bestMatch(List.of()));
+    }
+
+    @Test
+    public void testRoot() {
+        var supported = List.of(Locale.ROOT);
+        assertNull(AcceptLanguage.parse("en").bestMatch(supported));
+        assertEquals(Locale.ROOT, AcceptLanguage.parse("en, *").bestMatch(supported));
+    }
+}
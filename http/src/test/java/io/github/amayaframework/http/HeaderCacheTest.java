@@ -0,0 +1,46 @@
+package io.github.amayaframework.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class HeaderCacheTest {
+
+    @Test
+    public void testGet() {
+        var cache = new HeaderCache<String, Integer>(16);
+        assertNull(cache.get("a"));
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertEquals(1, cache.get("a"));
+        assertEquals(2, cache.get("b"));
+        cache.put("a", 3);
+        assertEquals(3, cache.get("a"));
+    }
+
+    @Test
+    public void testEviction() {
+        var cache = new HeaderCache<String, Integer>(8);
+        for (var i = 0; i < 1000; ++i) {
+            cache.put("key" + i, i);
+        }
+        var found = 0;
+        for (var i = 0; i < 1000; ++i) {
+            var value = cache.get("key" + i);
+            if (value != null) {
+                assertEquals(i, value);
+                ++found;
+            }
+        }
+        // Only the latest entries of each slot remain
+        assertTrue(found > 0 && found <= 8);
+        assertEquals(999, cache.get("key999"));
+    }
+
+    @Test
+    public void testDisabled() {
+        var cache = new HeaderCache<String, Integer>(0);
+        cache.put("a", 1);
+        assertNull(cache.get("a"));
+    }
+}
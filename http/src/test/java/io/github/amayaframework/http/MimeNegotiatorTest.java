@@ -0,0 +1,90 @@
+package io.github.amayaframework.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class MimeNegotiatorTest {
+
+    @Test
+    public void testExact() {
+        var negotiator = new MimeNegotiator(MimeType.JSON, MimeType.APPLICATION_XML);
+        assertEquals(MimeType.JSON, negotiator.negotiate("application/json"));
+        assertEquals(MimeType.APPLICATION_XML, negotiator.negotiate("application/xml"));
+        assertEquals(MimeType.APPLICATION_XML, negotiator.negotiate("APPLICATION/XML"));
+        assertNull(negotiator.negotiate("text/html"));
+    }
+
+    @Test
+    public void testAbsent() {
+        var negotiator = new MimeNegotiator(MimeType.HTML, MimeType.JSON);
+        assertEquals(MimeType.HTML, negotiator.negotiate(null));
+        assertEquals(MimeType.HTML, negotiator.negotiate(""));
+        assertEquals(MimeType.HTML, negotiator.negotiate(" "));
+    }
+
+    @Test
+    public void testQuality() {
+        var negotiator = new MimeNegotiator(MimeType.HTML, MimeType.JSON);
+        assertEquals(MimeType.JSON, negotiator.negotiate("text/html;q=0.5, application/json"));
+        assertEquals(MimeType.JSON, negotiator.negotiate("text/html; q=0.5, application/json; q=0.501"));
+        assertEquals(MimeType.HTML, negotiator.negotiate("text/html;q=0.5, application/json;q=0.5"));
+        assertEquals(MimeType.JSON, negotiator.negotiate("text/html;q=0, */*;q=0.1"));
+        assertNull(negotiator.negotiate("text/html;q=0, application/json;q=0.000"));
+    }
+
+    @Test
+    public void testWildcards() {
+        var negotiator = new MimeNegotiator(MimeType.JSON, MimeType.HTML, MimeType.PNG);
+        assertEquals(MimeType.JSON, negotiator.negotiate("*/*"));
+        assertEquals(MimeType.HTML, negotiator.negotiate("text/*"));
+        assertEquals(MimeType.PNG, negotiator.negotiate("image/*, */*;q=0.8"));
+        // The most specific range determines the quality
+        assertEquals(MimeType.HTML, negotiator.negotiate("application/json;q=0.2, */*;q=0.9"));
+        assertEquals(MimeType.PNG, negotiator.negotiate("text/*;q=0.3, image/png;q=0.5, */*;q=0.4"));
+        assertNull(negotiator.negotiate("*/*;q=0"));
+    }
+
+    @Test
+    public void testBrowser() {
+        var negotiator = new MimeNegotiator(MimeType.JSON, MimeType.HTML);
+        var accept = "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8";
+        assertEquals(MimeType.HTML, negotiator.negotiate(accept));
+        // Memoized result
+        assertEquals(MimeType.HTML, negotiator.negotiate(accept));
+    }
+
+    @Test
+    public void testMalformed() {
+        var negotiator = new MimeNegotiator(MimeType.JSON, MimeType.HTML);
+        // Headers without valid media ranges are treated as absent
+        assertEquals(MimeType.JSON, negotiator.negotiate("json"));
+        assertEquals(MimeType.JSON, negotiator.negotiate(",,"));
+        assertEquals(MimeType.JSON, negotiator.negotiate("*/json, text"));
+        assertNull(negotiator.negotiate("json, image/png"));
+        assertEquals(MimeType.HTML, negotiator.negotiate("application/json;q=2, text/html"));
+        assertEquals(MimeType.HTML, negotiator.negotiate("application/json;q=abc, text/html"));
+        assertEquals(MimeType.JSON, negotiator.negotiate("application/json;level=1;q=1;ext=2"));
+    }
+
+    @Test
+    public void testEviction() {
+        var negotiator = new MimeNegotiator(List.of(MimeType.JSON, MimeType.HTML), 4);
+        for (var i = 0; i < 10_000; ++i) {
+            assertEquals(MimeType.HTML, negotiator.negotiate("text/html;level=" + i));
+        }
+        assertEquals(MimeType.JSON, negotiator.negotiate("application/json"));
+        assertEquals(MimeType.JSON, negotiator.negotiate("application/json"));
+    }
+
+    @Test
+    public void testCacheLimit() {
+        var negotiator = new MimeNegotiator(List.of(MimeType.JSON, MimeType.HTML), 0);
+        assertEquals(MimeType.HTML, negotiator.negotiate("text/html"));
+        assertEquals(MimeType.HTML, negotiator.negotiate("text/html"));
+        assertThrows(IllegalArgumentException.class, () -> new MimeNegotiator(List.of(), 1));
+        assertThrows(IllegalArgumentException.class, () -> new MimeNegotiator(List.of(MimeType.JSON), -1));
+    }
+}
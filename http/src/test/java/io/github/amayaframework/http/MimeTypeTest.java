@@ -53,4 +53,17 @@ public final class MimeTypeTest {
             }
         }
     }
+
+    @Test
+    public void testExtensions() {
+        assertEquals(MimeType.HTML, MimeType.ofExtension("html"));
+        assertEquals(MimeType.HTML, MimeType.ofExtension("HTM"));
+        assertEquals(MimeType.JAVASCRIPT, MimeType.ofExtension("js"));
+        assertEquals(MimeType.PNG, MimeType.ofExtension("png"));
+        assertEquals(MimeType.JPEG, MimeType.ofFileName("photo.JPG"));
+        assertEquals(MimeType.CSS, MimeType.ofFileName("assets/style.min.css"));
+        assertNull(MimeType.ofExtension("unknown"));
+        assertNull(MimeType.ofFileName("README"));
+        assertNull(MimeType.ofFileName("archive."));
+    }
 }
@@ -0,0 +1,21 @@
+package io.github.amayaframework.loadgen;
+
+import io.github.amayaframework.server.LoopbackRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * An interface describing a connection of {@link Transport}. Connections are used by a single thread.
+ */
+public interface Connection extends Closeable {
+
+    /**
+     * Sends given request and waits for the whole response.
+     *
+     * @param request the {@link LoopbackRequest} to be sent, must be non-null
+     * @return the status code of the response
+     * @throws IOException if any problems occurred during sending or the response is malformed
+     */
+    int send(LoopbackRequest request) throws IOException;
+}
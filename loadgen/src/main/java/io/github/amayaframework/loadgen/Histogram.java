@@ -0,0 +1,183 @@
+package io.github.amayaframework.loadgen;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free log-linear histogram of non-negative long values, for example, latencies in nanoseconds.
+ * <br>
+ * Values below 128 are counted exactly, larger values are counted in buckets of 64 per power of two,
+ * so any reported value is within 1/64 (about 1.6%) of the recorded one. Recording is lock-free
+ * and can be done from any number of threads at once.
+ */
+public final class Histogram {
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_COUNT = SUB_COUNT >> 1;
+    private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * HALF_COUNT;
+
+    private final AtomicLongArray counts;
+    private final LongAdder total;
+    private final LongAdder sum;
+    private final AtomicLong min;
+    private final AtomicLong max;
+
+    /**
+     * Constructs an empty {@link Histogram} instance.
+     */
+    public Histogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.total = new LongAdder();
+        this.sum = new LongAdder();
+        this.min = new AtomicLong(Long.MAX_VALUE);
+        this.max = new AtomicLong(-1);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        var shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        var mantissa = (int) (value >>> shift);
+        return SUB_COUNT + (shift - 1) * HALF_COUNT + mantissa - HALF_COUNT;
+    }
+
+    static long highestOf(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        var offset = index - SUB_COUNT;
+        var shift = offset / HALF_COUNT + 1;
+        var mantissa = (long) (offset % HALF_COUNT + HALF_COUNT);
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    private static void updateMin(AtomicLong min, long value) {
+        var current = min.get();
+        while (value < current && !min.compareAndSet(current, value)) {
+            current = min.get();
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        var current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Records given value.
+     *
+     * @param value the specified value, must be non-negative
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        counts.incrementAndGet(indexOf(value));
+        total.increment();
+        sum.add(value);
+        updateMin(min, value);
+        updateMax(max, value);
+    }
+
+    /**
+     * Adds all values recorded by given histogram to this histogram.
+     *
+     * @param other the specified {@link Histogram} instance, must be non-null
+     */
+    public void add(Histogram other) {
+        for (var i = 0; i < BUCKETS; ++i) {
+            var count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        total.add(other.total.sum());
+        sum.add(other.sum.sum());
+        updateMin(min, other.min.get());
+        updateMax(max, other.max.get());
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return total.sum();
+    }
+
+    /**
+     * Gets the smallest recorded value.
+     *
+     * @return the smallest recorded value or 0 if the histogram is empty
+     */
+    public long getMin() {
+        var ret = min.get();
+        return ret == Long.MAX_VALUE ? 0 : ret;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return the largest recorded value or 0 if the histogram is empty
+     */
+    public long getMax() {
+        return Math.max(max.get(), 0);
+    }
+
+    /**
+     * Gets the arithmetic mean of recorded values.
+     *
+     * @return the mean value or 0 if the histogram is empty
+     */
+    public double getMean() {
+        var count = total.sum();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Gets the value at given percentile, that is the smallest value such that the given percentage
+     * of recorded values are less than or equal to it. The value is reported as the highest value
+     * of its bucket, but never exceeds the largest recorded value.
+     *
+     * @param percentile the specified percentile, from 0 to 100
+     * @return the value at the percentile or 0 if the histogram is empty
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile out of range: " + percentile);
+        }
+        var count = total.sum();
+        if (count == 0) {
+            return 0;
+        }
+        var target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        var seen = 0L;
+        for (var i = 0; i < BUCKETS; ++i) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Removes all recorded values. Values recorded concurrently with the reset may be partially lost.
+     */
+    public void reset() {
+        for (var i = 0; i < BUCKETS; ++i) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        min.set(Long.MAX_VALUE);
+        max.set(-1);
+    }
+}
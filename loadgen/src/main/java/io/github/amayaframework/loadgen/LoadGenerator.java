@@ -0,0 +1,296 @@
+package io.github.amayaframework.loadgen;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A local http load generator. Sends the requests of {@link RequestMix} with the configured number
+ * of workers for the configured time and records their latencies.
+ * <br>
+ * Without a rate, each worker sends its next request as soon as the previous one completes (closed loop),
+ * which measures the maximum throughput. With a rate, requests are scheduled at a constant total rate
+ * spread evenly over the workers, and each latency is measured from the time its request was scheduled.
+ * So when the application stalls, the requests that would have been sent meanwhile are still accounted
+ * with the whole wait, and the percentiles are not hidden by coordinated omission.
+ * If the rate cannot be sustained with the configured number of workers, latencies grow without bound.
+ */
+public final class LoadGenerator {
+    private static final Duration DEFAULT_DURATION = Duration.ofSeconds(10);
+
+    private final Transport transport;
+    private RequestMix mix;
+    private int concurrency;
+    private double rate;
+    private Duration duration;
+    private Duration warmup;
+
+    /**
+     * Constructs {@link LoadGenerator} instance with given transport. By default, it runs
+     * one worker per available processor for 10 seconds in a closed loop without warmup.
+     *
+     * @param transport the specified {@link Transport} instance, must be non-null
+     */
+    public LoadGenerator(Transport transport) {
+        this.transport = Objects.requireNonNull(transport);
+        this.mix = new RequestMix();
+        this.concurrency = Runtime.getRuntime().availableProcessors();
+        this.duration = DEFAULT_DURATION;
+        this.warmup = Duration.ZERO;
+    }
+
+    /**
+     * Gets the transport of this generator.
+     *
+     * @return the {@link Transport} instance
+     */
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Gets the request mix sent by this generator.
+     *
+     * @return the {@link RequestMix} instance
+     */
+    public RequestMix getMix() {
+        return mix;
+    }
+
+    /**
+     * Sets the request mix sent by this generator.
+     *
+     * @param mix the {@link RequestMix} instance, must be non-null
+     */
+    public void setMix(RequestMix mix) {
+        this.mix = Objects.requireNonNull(mix);
+    }
+
+    /**
+     * Gets the number of workers, each sending one request at a time over its own connection.
+     *
+     * @return the number of workers
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Sets the number of workers, each sending one request at a time over its own connection.
+     *
+     * @param concurrency the number of workers, must be positive
+     */
+    public void setConcurrency(int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+        }
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Gets the total rate of requests.
+     *
+     * @return the rate in requests per second, 0 if requests are sent in a closed loop
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Sets the total rate of requests. 0 means that each worker sends requests in a closed loop.
+     *
+     * @param rate the rate in requests per second, must be non-negative
+     */
+    public void setRate(double rate) {
+        if (!(rate >= 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("Invalid rate: " + rate);
+        }
+        this.rate = rate;
+    }
+
+    /**
+     * Gets the duration of the measured part of a run.
+     *
+     * @return the {@link Duration} instance
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Sets the duration of the measured part of a run.
+     *
+     * @param duration the {@link Duration} instance, must be positive
+     */
+    public void setDuration(Duration duration) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Duration must be positive: " + duration);
+        }
+        this.duration = duration;
+    }
+
+    /**
+     * Gets the warmup duration. Requests started during the warmup are sent, but not counted.
+     *
+     * @return the {@link Duration} instance
+     */
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    /**
+     * Sets the warmup duration. Requests started during the warmup are sent, but not counted.
+     *
+     * @param warmup the {@link Duration} instance, must be non-negative
+     */
+    public void setWarmup(Duration warmup) {
+        if (warmup.isNegative()) {
+            throw new IllegalArgumentException("Warmup must be non-negative: " + warmup);
+        }
+        this.warmup = warmup;
+    }
+
+    /**
+     * Runs the load and waits for all workers to finish. The requests in flight when the time is over
+     * are completed and counted.
+     *
+     * @return the {@link LoadReport} containing the results of the run
+     * @throws IllegalStateException if the request mix is empty
+     * @throws InterruptedException  if the current thread was interrupted while waiting for the workers,
+     *                               in this case the workers are interrupted too
+     */
+    public LoadReport run() throws InterruptedException {
+        if (mix.isEmpty()) {
+            throw new IllegalStateException("Request mix is empty");
+        }
+        var histogram = new Histogram();
+        var interval = rate == 0 ? 0 : Math.max(1, (long) (1e9 * concurrency / rate));
+        var begin = System.nanoTime();
+        var measured = begin + warmup.toNanos();
+        var end = measured + duration.toNanos();
+        var workers = new Worker[concurrency];
+        var threads = new Thread[concurrency];
+        for (var i = 0; i < concurrency; ++i) {
+            // Workers are shifted so that the requests are spread evenly over each interval
+            var first = begin + interval * i / concurrency;
+            workers[i] = new Worker(histogram, interval, first, measured, end);
+            threads[i] = new Thread(workers[i], "loadgen-worker-" + i);
+            threads[i].setDaemon(true);
+        }
+        for (var thread : threads) {
+            thread.start();
+        }
+        try {
+            for (var thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            for (var thread : threads) {
+                thread.interrupt();
+            }
+            throw e;
+        }
+        var statuses = new TreeMap<Integer, Long>();
+        var errors = 0L;
+        Throwable failure = null;
+        for (var worker : workers) {
+            worker.statuses.forEach((code, count) -> statuses.merge(code, count[0], Long::sum));
+            errors += worker.errors;
+            if (failure == null) {
+                failure = worker.failure;
+            }
+        }
+        return new LoadReport(end - measured, histogram, Collections.unmodifiableMap(statuses), errors, failure);
+    }
+
+    private final class Worker implements Runnable {
+        private final Histogram histogram;
+        private final long interval;
+        private final long measured;
+        private final long end;
+        private final Map<Integer, long[]> statuses;
+        private long next;
+        private long errors;
+        private Throwable failure;
+
+        private Worker(Histogram histogram, long interval, long first, long measured, long end) {
+            this.histogram = histogram;
+            this.interval = interval;
+            this.next = first;
+            this.measured = measured;
+            this.end = end;
+            this.statuses = new HashMap<>();
+        }
+
+        private long await() {
+            if (interval == 0) {
+                return System.nanoTime();
+            }
+            var ret = next;
+            next += interval;
+            if (ret >= end) {
+                return ret;
+            }
+            long now;
+            while ((now = System.nanoTime()) < ret && !Thread.currentThread().isInterrupted()) {
+                LockSupport.parkNanos(ret - now);
+            }
+            return ret;
+        }
+
+        private Connection close(Connection connection) {
+            if (connection == null) {
+                return null;
+            }
+            try {
+                connection.close();
+            } catch (IOException e) {
+                // The connection is discarded anyway
+            }
+            return null;
+        }
+
+        @Override
+        public void run() {
+            var random = ThreadLocalRandom.current();
+            Connection connection = null;
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    var start = await();
+                    if (start >= end) {
+                        return;
+                    }
+                    var request = mix.next(random);
+                    var counted = start >= measured;
+                    try {
+                        if (connection == null) {
+                            connection = transport.open();
+                        }
+                        var status = connection.send(request);
+                        var latency = System.nanoTime() - start;
+                        if (counted) {
+                            histogram.record(latency);
+                            statuses.computeIfAbsent(status, key -> new long[1])[0]++;
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        connection = close(connection);
+                        if (counted) {
+                            ++errors;
+                            if (failure == null) {
+                                failure = e;
+                            }
+                        }
+                    }
+                }
+            } finally {
+                close(connection);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package io.github.amayaframework.loadgen;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A class containing the results of a {@link LoadGenerator} run. Only requests started after the warmup
+ * are counted. Latencies are in nanoseconds; in constant-throughput runs they are measured from the time
+ * the request was scheduled to be sent, not from the time it was actually sent.
+ */
+public final class LoadReport {
+    private static final double[] PERCENTILES = {50, 75, 90, 99, 99.9, 99.99, 100};
+    private static final double NANOS_PER_MILLI = 1_000_000;
+
+    private final long duration;
+    private final Histogram latency;
+    private final Map<Integer, Long> statuses;
+    private final long errors;
+    private final Throwable failure;
+
+    LoadReport(long duration, Histogram latency, Map<Integer, Long> statuses, long errors, Throwable failure) {
+        this.duration = duration;
+        this.latency = latency;
+        this.statuses = statuses;
+        this.errors = errors;
+        this.failure = failure;
+    }
+
+    /**
+     * Gets the duration of the measured part of the run.
+     *
+     * @return the {@link Duration} instance
+     */
+    public Duration getDuration() {
+        return Duration.ofNanos(duration);
+    }
+
+    /**
+     * Gets the number of completed requests.
+     *
+     * @return the number of requests which received a response
+     */
+    public long getRequests() {
+        return latency.getCount();
+    }
+
+    /**
+     * Gets the number of failed requests, that is the requests which received no response.
+     *
+     * @return the number of failed requests
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the first exception a request failed with.
+     *
+     * @return the {@link Throwable} instance or null if no request failed
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Gets the number of responses by status code.
+     *
+     * @return the unmodifiable {@link Map} of response counts, sorted by status code
+     */
+    public Map<Integer, Long> getStatusCounts() {
+        return statuses;
+    }
+
+    /**
+     * Gets the number of completed requests per second.
+     *
+     * @return the throughput in requests per second
+     */
+    public double getThroughput() {
+        return duration == 0 ? 0 : latency.getCount() * 1e9 / duration;
+    }
+
+    /**
+     * Gets the latency histogram of completed requests, in nanoseconds.
+     *
+     * @return the {@link Histogram} instance
+     */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    private static String millis(double nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MILLI);
+    }
+
+    private void print(PrintWriter writer) {
+        writer.printf(Locale.ROOT, "Requests: %d in %.3f s, %.1f req/s, errors: %d%n",
+                latency.getCount(), duration / 1e9, getThroughput(), errors);
+        var codes = new StringBuilder();
+        statuses.forEach((code, count) -> {
+            if (codes.length() > 0) {
+                codes.append(", ");
+            }
+            codes.append(code).append('=').append(count);
+        });
+        writer.println("Status codes: " + (codes.length() == 0 ? "none" : codes));
+        writer.println("Latency (ms): min " + millis(latency.getMin())
+                + ", mean " + millis(latency.getMean())
+                + ", max " + millis(latency.getMax()));
+        for (var percentile : PERCENTILES) {
+            writer.printf(Locale.ROOT, "%10.3f%% %12s%n", percentile, millis(latency.getValueAtPercentile(percentile)));
+        }
+        if (failure != null) {
+            writer.println("First failure: " + failure);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Prints the summary of this report: throughput, status codes and latency percentiles.
+     *
+     * @param stream the {@link PrintStream} to print to, must be non-null
+     */
+    public void print(PrintStream stream) {
+        print(new PrintWriter(stream));
+    }
+
+    @Override
+    public String toString() {
+        var ret = new StringWriter();
+        print(new PrintWriter(ret));
+        return ret.toString();
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.amayaframework.loadgen;
+
+import io.github.amayaframework.options.OptionSet;
+import io.github.amayaframework.server.HttpServer;
+import io.github.amayaframework.server.HttpServerFactory;
+import io.github.amayaframework.server.LoopbackRequest;
+import io.github.amayaframework.server.LoopbackServer;
+
+import java.util.Objects;
+
+/**
+ * A {@link Transport} serving requests in memory with {@link LoopbackServer}, on the worker threads.
+ * <br>
+ * To measure a web application without network noise, build it with the factory of this transport:
+ * <pre>{@code
+ * var transport = new LoopbackTransport();
+ * var app = builder.setServerFactory(transport.getServerFactory()).build();
+ * app.start(handler);
+ * var report = new LoadGenerator(transport).run();
+ * }</pre>
+ */
+public final class LoopbackTransport implements Transport {
+    private final LoopbackServer server;
+
+    /**
+     * Constructs {@link LoopbackTransport} instance with given server.
+     *
+     * @param server the specified {@link LoopbackServer}, must be non-null
+     */
+    public LoopbackTransport(LoopbackServer server) {
+        this.server = Objects.requireNonNull(server);
+    }
+
+    /**
+     * Constructs {@link LoopbackTransport} instance with a new {@link LoopbackServer}.
+     */
+    public LoopbackTransport() {
+        this(new LoopbackServer());
+    }
+
+    /**
+     * Gets the server of this transport.
+     *
+     * @return the {@link LoopbackServer} instance
+     */
+    public LoopbackServer getServer() {
+        return server;
+    }
+
+    /**
+     * Gets the {@link HttpServerFactory} always returning the server of this transport.
+     * The options are ignored.
+     *
+     * @return the {@link HttpServerFactory} instance
+     */
+    public HttpServerFactory getServerFactory() {
+        return new HttpServerFactory() {
+            @Override
+            public HttpServer create(OptionSet set) {
+                return server;
+            }
+
+            @Override
+            public HttpServer create() {
+                return server;
+            }
+        };
+    }
+
+    @Override
+    public Connection open() {
+        return new Connection() {
+            @Override
+            public int send(LoopbackRequest request) {
+                return server.exchange(request).getStatusCode();
+            }
+
+            @Override
+            public void close() {
+                // Exchanges hold no resources between requests
+            }
+        };
+    }
+}
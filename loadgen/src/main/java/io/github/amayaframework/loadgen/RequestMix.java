@@ -0,0 +1,98 @@
+package io.github.amayaframework.loadgen;
+
+import io.github.amayaframework.server.LoopbackRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * A class containing the weighted requests sent by {@link LoadGenerator}.
+ * Each request is chosen with the probability proportional to its weight.
+ * <br>
+ * The requests are only read during a run, so they must not be modified while it is in progress.
+ */
+public final class RequestMix {
+    private final List<LoopbackRequest> requests;
+    private long[] weights;
+    private long total;
+
+    /**
+     * Constructs an empty {@link RequestMix} instance.
+     */
+    public RequestMix() {
+        this.requests = new ArrayList<>();
+        this.weights = new long[0];
+    }
+
+    /**
+     * Creates a {@link RequestMix} instance containing only given request.
+     *
+     * @param request the specified {@link LoopbackRequest}, must be non-null
+     * @return the {@link RequestMix} instance
+     */
+    public static RequestMix of(LoopbackRequest request) {
+        var ret = new RequestMix();
+        ret.add(request, 1);
+        return ret;
+    }
+
+    /**
+     * Adds the request with given weight.
+     *
+     * @param request the specified {@link LoopbackRequest}, must be non-null
+     * @param weight  the weight of the request, must be positive
+     * @return this {@link RequestMix} instance
+     */
+    public RequestMix add(LoopbackRequest request, int weight) {
+        Objects.requireNonNull(request);
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive: " + weight);
+        }
+        requests.add(request);
+        total += weight;
+        weights = Arrays.copyOf(weights, weights.length + 1);
+        // Weights are kept as running sums, so the request is found with a binary search
+        weights[weights.length - 1] = total;
+        return this;
+    }
+
+    /**
+     * Gets the requests of this mix.
+     *
+     * @return the unmodifiable {@link List} of requests, in the order they were added
+     */
+    public List<LoopbackRequest> getRequests() {
+        return List.copyOf(requests);
+    }
+
+    /**
+     * Checks if this mix contains no requests.
+     *
+     * @return true, if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return requests.isEmpty();
+    }
+
+    /**
+     * Chooses the next request.
+     *
+     * @param random the {@link Random} instance used to choose the request, must be non-null
+     * @return the chosen {@link LoopbackRequest}
+     * @throws IllegalStateException if the mix is empty
+     */
+    public LoopbackRequest next(Random random) {
+        if (requests.isEmpty()) {
+            throw new IllegalStateException("Request mix is empty");
+        }
+        if (requests.size() == 1) {
+            return requests.get(0);
+        }
+        var point = (long) (random.nextDouble() * total);
+        var index = Arrays.binarySearch(weights, point + 1);
+        return requests.get(index < 0 ? -index - 1 : index);
+    }
+}
@@ -0,0 +1,313 @@
+package io.github.amayaframework.loadgen;
+
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.http.HttpVersion;
+import io.github.amayaframework.server.LoopbackRequest;
+import io.github.amayaframework.web.WebApplication;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A {@link Transport} sending requests over HTTP/1.1 keep-alive connections to a real socket.
+ * <br>
+ * Each connection sends one request at a time and reads the whole response before sending the next one.
+ * If the server closes the connection, it is reopened before the next request, and the reconnection time
+ * is counted in the latency of that request. TLS is not supported.
+ */
+public final class SocketTransport implements Transport {
+    private static final int BUFFER_SIZE = 16384;
+    private static final int DEFAULT_TIMEOUT = 30000;
+
+    private final InetSocketAddress address;
+    private final String host;
+    private int timeout;
+
+    /**
+     * Constructs {@link SocketTransport} instance connecting to given address.
+     *
+     * @param address the specified address, must be non-null and resolved
+     */
+    public SocketTransport(InetSocketAddress address) {
+        if (address.isUnresolved()) {
+            throw new IllegalArgumentException("Unresolved address: " + address);
+        }
+        this.address = address.getAddress().isAnyLocalAddress()
+                ? new InetSocketAddress(InetAddress.getLoopbackAddress(), address.getPort())
+                : address;
+        this.host = this.address.getHostString() + ':' + this.address.getPort();
+        this.timeout = DEFAULT_TIMEOUT;
+    }
+
+    /**
+     * Creates {@link SocketTransport} instance connecting to the first cleartext address the application
+     * is bound to. Wildcard addresses are reached over the loopback interface.
+     *
+     * @param application the specified {@link WebApplication}, bound to at least one address with a fixed port
+     * @return the {@link SocketTransport} instance
+     * @throws IllegalArgumentException if the application is not bound to any cleartext address
+     */
+    public static SocketTransport of(WebApplication application) {
+        var config = application.getServerConfig();
+        for (var address : config.getAddresses()) {
+            if (address.getPort() != 0 && config.getTlsConfig(address) == null) {
+                return new SocketTransport(address);
+            }
+        }
+        throw new IllegalArgumentException("Application is not bound to any cleartext address with a fixed port");
+    }
+
+    /**
+     * Gets the address this transport connects to.
+     *
+     * @return the {@link InetSocketAddress} instance
+     */
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Gets the socket read timeout in milliseconds. The default value is 30000.
+     *
+     * @return the timeout in milliseconds, 0 means infinite
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Sets the socket read timeout in milliseconds, the request fails if the response is not read in time.
+     *
+     * @param timeout the timeout in milliseconds, 0 means infinite
+     */
+    public void setTimeout(int timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Negative timeout: " + timeout);
+        }
+        this.timeout = timeout;
+    }
+
+    private byte[] encode(LoopbackRequest request) {
+        if (request.getVersion().after(HttpVersion.HTTP_1_1)) {
+            throw new IllegalArgumentException("Only HTTP/1.x requests can be sent over socket transport");
+        }
+        var builder = new StringBuilder(256);
+        builder.append(request.getMethod().getName()).append(' ').append(request.getPath());
+        if (request.getQuery() != null) {
+            builder.append('?').append(request.getQuery());
+        }
+        builder.append(' ').append(request.getVersion().getTag()).append("\r\n");
+        var headers = request.getHeaders();
+        if (!headers.containsKey("Host")) {
+            builder.append("Host: ").append(host).append("\r\n");
+        }
+        var body = request.getBody();
+        if (body.length > 0 && !headers.containsKey("Content-Length")) {
+            builder.append("Content-Length: ").append(body.length).append("\r\n");
+        }
+        headers.forEach((name, values) -> {
+            for (var value : values) {
+                builder.append(name).append(": ").append(value).append("\r\n");
+            }
+        });
+        builder.append("\r\n");
+        var head = builder.toString().getBytes(StandardCharsets.ISO_8859_1);
+        var ret = new byte[head.length + body.length];
+        System.arraycopy(head, 0, ret, 0, head.length);
+        System.arraycopy(body, 0, ret, head.length, body.length);
+        return ret;
+    }
+
+    @Override
+    public Connection open() throws IOException {
+        var ret = new SocketConnection();
+        ret.connect();
+        return ret;
+    }
+
+    private final class SocketConnection implements Connection {
+        // Requests are immutable during a run, so they are encoded once per connection
+        private final Map<LoopbackRequest, byte[]> encoded;
+        private final StringBuilder line;
+        private final byte[] skip;
+        private Socket socket;
+        private InputStream input;
+        private OutputStream output;
+
+        private SocketConnection() {
+            this.encoded = new IdentityHashMap<>();
+            this.line = new StringBuilder();
+            this.skip = new byte[BUFFER_SIZE];
+        }
+
+        private void connect() throws IOException {
+            var socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(timeout);
+                socket.connect(address, timeout);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            this.socket = socket;
+            this.input = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+            this.output = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+        }
+
+        private String readLine() throws IOException {
+            line.setLength(0);
+            while (true) {
+                var b = input.read();
+                if (b < 0) {
+                    throw new EOFException("Connection closed by server");
+                }
+                if (b == '\n') {
+                    var length = line.length();
+                    if (length > 0 && line.charAt(length - 1) == '\r') {
+                        line.setLength(length - 1);
+                    }
+                    return line.toString();
+                }
+                line.append((char) b);
+            }
+        }
+
+        private void skipBytes(long count) throws IOException {
+            while (count > 0) {
+                var read = input.read(skip, 0, (int) Math.min(count, skip.length));
+                if (read < 0) {
+                    throw new EOFException("Connection closed by server");
+                }
+                count -= read;
+            }
+        }
+
+        private void skipChunks() throws IOException {
+            while (true) {
+                var size = readLine();
+                var extension = size.indexOf(';');
+                long length;
+                try {
+                    length = Long.parseLong((extension < 0 ? size : size.substring(0, extension)).trim(), 16);
+                } catch (NumberFormatException e) {
+                    throw new ProtocolException("Invalid chunk size: " + size);
+                }
+                if (length == 0) {
+                    // Skip trailer fields
+                    while (!readLine().isEmpty()) {
+                        // Trailers are ignored
+                    }
+                    return;
+                }
+                skipBytes(length);
+                readLine();
+            }
+        }
+
+        private int read(boolean head) throws IOException {
+            var status = readLine();
+            if (!status.startsWith("HTTP/1.") || status.length() < 12) {
+                throw new ProtocolException("Invalid status line: " + status);
+            }
+            int code;
+            try {
+                code = Integer.parseInt(status.substring(9, 12));
+            } catch (NumberFormatException e) {
+                throw new ProtocolException("Invalid status line: " + status);
+            }
+            var keepAlive = status.startsWith("HTTP/1.1");
+            var length = -1L;
+            var chunked = false;
+            String header;
+            while (!(header = readLine()).isEmpty()) {
+                var colon = header.indexOf(':');
+                if (colon <= 0) {
+                    throw new ProtocolException("Invalid header: " + header);
+                }
+                var name = header.substring(0, colon).trim();
+                var value = header.substring(colon + 1).trim().toLowerCase(Locale.ROOT);
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    try {
+                        length = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        throw new ProtocolException("Invalid Content-Length: " + value);
+                    }
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    chunked = value.endsWith("chunked");
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    keepAlive = value.contains("keep-alive") || (keepAlive && !value.contains("close"));
+                }
+            }
+            if (code < 200) {
+                // Interim responses are followed by the final one
+                return read(head);
+            }
+            if (head || code == 204 || code == 304) {
+                return keepAlive ? code : close(code);
+            }
+            if (chunked) {
+                skipChunks();
+            } else if (length >= 0) {
+                skipBytes(length);
+            } else {
+                // The body is delimited by the end of the connection
+                input.transferTo(OutputStream.nullOutputStream());
+                return close(code);
+            }
+            return keepAlive ? code : close(code);
+        }
+
+        private int close(int code) throws IOException {
+            close();
+            return code;
+        }
+
+        @Override
+        public int send(LoopbackRequest request) throws IOException {
+            Objects.requireNonNull(request);
+            var bytes = encoded.computeIfAbsent(request, SocketTransport.this::encode);
+            try {
+                if (socket == null) {
+                    connect();
+                }
+                output.write(bytes);
+                output.flush();
+                return read(request.getMethod().equals(HttpMethod.HEAD));
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (socket == null) {
+                return;
+            }
+            var socket = this.socket;
+            this.socket = null;
+            this.input = null;
+            this.output = null;
+            socket.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SocketTransport{" + host + '}';
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.amayaframework.loadgen;
+
+import java.io.IOException;
+
+/**
+ * An interface describing the way the load generator reaches the application under test.
+ */
+public interface Transport {
+
+    /**
+     * Opens a new connection. Each worker of {@link LoadGenerator} uses its own connection.
+     *
+     * @return the opened {@link Connection} instance
+     * @throws IOException if any problems occurred during opening
+     */
+    Connection open() throws IOException;
+}
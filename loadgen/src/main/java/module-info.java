@@ -0,0 +1,14 @@
+/**
+ * Amaya Load Generator Module
+ *
+ * @author Roman Bakaldin
+ */
+module io.github.amayaframework.loadgen {
+    // Requires
+    requires io.github.amayaframework.options;
+    requires io.github.amayaframework.server;
+    requires io.github.amayaframework.http;
+    requires static io.github.amayaframework.web;
+    // Exports
+    exports io.github.amayaframework.loadgen;
+}
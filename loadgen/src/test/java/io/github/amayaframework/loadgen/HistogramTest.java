@@ -0,0 +1,72 @@
+package io.github.amayaframework.loadgen;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class HistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (var value = 0L; value < 1_000_000; value += 7) {
+            var index = Histogram.indexOf(value);
+            var highest = Histogram.highestOf(index);
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 64);
+            if (index > 0) {
+                assertTrue(Histogram.highestOf(index - 1) < value);
+            }
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.highestOf(Histogram.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentiles() {
+        var histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        for (var i = 1; i <= 10000; ++i) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(10000, histogram.getCount());
+        assertEquals(1000, histogram.getMin());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_500, histogram.getMean(), 0.001);
+        assertEquals(5_000_000, histogram.getValueAtPercentile(50), 5_000_000 / 64);
+        assertEquals(9_900_000, histogram.getValueAtPercentile(99), 9_900_000 / 64);
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+        assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        var histogram = new Histogram();
+        var threads = new ArrayList<Thread>();
+        for (var i = 0; i < 8; ++i) {
+            var seed = i;
+            threads.add(new Thread(() -> {
+                var random = new Random(seed);
+                for (var j = 0; j < 100_000; ++j) {
+                    histogram.record(random.nextInt(1_000_000));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertEquals(800_000, histogram.getCount());
+        var other = new Histogram();
+        other.record(5_000_000);
+        histogram.add(other);
+        assertEquals(800_001, histogram.getCount());
+        assertEquals(5_000_000, histogram.getMax());
+        assertEquals(500_000, histogram.getValueAtPercentile(50), 20_000);
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.amayaframework.loadgen;
+
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.server.BufferPool;
+import io.github.amayaframework.server.HttpAcceptor;
+import io.github.amayaframework.server.HttpConnectionConfig;
+import io.github.amayaframework.server.HttpConnectionLoop;
+import io.github.amayaframework.server.LoopbackRequest;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class LoadGeneratorTest {
+
+    private static LoopbackTransport loopback() {
+        var ret = new LoopbackTransport();
+        var server = ret.getServer();
+        server.setHandler(context -> {
+            var path = context.getRequest().getPath();
+            if (path.equals("/missing")) {
+                context.getResponse().setStatus(HttpCode.NOT_FOUND);
+                return;
+            }
+            if (path.equals("/slow")) {
+                Thread.sleep(20);
+            }
+            context.getResponse().getWriter().write(path);
+        });
+        server.start();
+        return ret;
+    }
+
+    @Test
+    public void testClosedLoop() throws InterruptedException {
+        var transport = loopback();
+        var generator = new LoadGenerator(transport);
+        generator.setConcurrency(4);
+        generator.setDuration(Duration.ofMillis(300));
+        generator.setWarmup(Duration.ofMillis(50));
+        generator.setMix(new RequestMix()
+                .add(new LoopbackRequest(HttpMethod.GET, "/ok"), 3)
+                .add(new LoopbackRequest(HttpMethod.GET, "/missing"), 1));
+        var report = generator.run();
+        transport.getServer().stop();
+        assertTrue(report.getRequests() > 100);
+        assertEquals(0, report.getErrors());
+        var ok = report.getStatusCounts().get(200);
+        var missing = report.getStatusCounts().get(404);
+        assertEquals(report.getRequests(), ok + missing);
+        assertEquals(0.75, (double) ok / report.getRequests(), 0.05);
+        assertEquals(Duration.ofMillis(300), report.getDuration());
+        assertTrue(report.toString().contains("99.900%"));
+    }
+
+    @Test
+    public void testConstantRate() throws InterruptedException {
+        var transport = loopback();
+        var generator = new LoadGenerator(transport);
+        generator.setConcurrency(2);
+        generator.setRate(200);
+        generator.setDuration(Duration.ofMillis(500));
+        generator.setMix(RequestMix.of(new LoopbackRequest(HttpMethod.GET, "/ok")));
+        var report = generator.run();
+        assertEquals(100, report.getRequests(), 2);
+        assertEquals(200, report.getThroughput(), 4);
+        // A single worker can serve 50 slow requests per second, so the scheduled ones queue up
+        generator.setConcurrency(1);
+        generator.setRate(100);
+        generator.setDuration(Duration.ofMillis(400));
+        generator.setMix(RequestMix.of(new LoopbackRequest(HttpMethod.GET, "/slow")));
+        report = generator.run();
+        transport.getServer().stop();
+        assertTrue(report.getLatency().getValueAtPercentile(99) > Duration.ofMillis(100).toNanos());
+        assertTrue(report.getLatency().getMin() >= Duration.ofMillis(20).toNanos());
+    }
+
+    @Test
+    public void testSocketTransport() throws Throwable {
+        var pool = new BufferPool();
+        pool.start();
+        var loop = new HttpConnectionLoop(exchange -> {
+            exchange.begin(HttpCode.OK);
+            if (exchange.getTarget().equals("/close")) {
+                exchange.close();
+            }
+            exchange.body(ByteBuffer.wrap(exchange.getTarget().getBytes(StandardCharsets.US_ASCII)));
+        }, pool, new HttpConnectionConfig());
+        loop.start();
+        var acceptor = new HttpAcceptor(List.of(loop));
+        acceptor.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        acceptor.start();
+        try {
+            var address = (InetSocketAddress) acceptor.getLocalAddresses().get(0);
+            var transport = new SocketTransport(address);
+            try (var connection = transport.open()) {
+                var post = new LoopbackRequest(HttpMethod.POST, "/post");
+                post.setBody("body", StandardCharsets.US_ASCII);
+                assertEquals(200, connection.send(post));
+                assertEquals(200, connection.send(new LoopbackRequest(HttpMethod.GET, "/close")));
+                assertEquals(200, connection.send(new LoopbackRequest(HttpMethod.HEAD, "/head")));
+            }
+            var generator = new LoadGenerator(transport);
+            generator.setConcurrency(4);
+            generator.setDuration(Duration.ofMillis(300));
+            generator.setMix(RequestMix.of(new LoopbackRequest(HttpMethod.GET, "/")));
+            var report = generator.run();
+            assertEquals(0, report.getErrors(), String.valueOf(report.getFailure()));
+            assertTrue(report.getRequests() > 100);
+            assertEquals(report.getRequests(), report.getStatusCounts().get(200));
+        } finally {
+            acceptor.stop();
+            loop.stop();
+            pool.stop();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.http.HttpVersion;
+import io.github.amayaframework.http.MimeData;
+import io.github.amayaframework.http.MimeType;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A base {@link HttpServerConfig} implementation recording the listened addresses with their TLS settings
+ * and holding the http version, mime and path codecs. The codecs can be changed only while the server is stopped.
+ */
+abstract class AbstractServerConfig implements HttpServerConfig {
+    private final Set<InetSocketAddress> addresses;
+    private final Set<SocketAddress> unixAddresses;
+    private final Map<InetSocketAddress, TlsConfig> tls;
+    private volatile boolean locked;
+    private volatile HttpVersion version;
+    private volatile MimeFormatter formatter;
+    private volatile MimeParser parser;
+    private volatile PathTokenizer tokenizer;
+
+    /**
+     * Constructs {@link AbstractServerConfig} instance with given default http version.
+     *
+     * @param version the default {@link HttpVersion} instance, must be non-null
+     */
+    protected AbstractServerConfig(HttpVersion version) {
+        this.addresses = Collections.synchronizedSet(new LinkedHashSet<>());
+        this.unixAddresses = Collections.synchronizedSet(new LinkedHashSet<>());
+        this.tls = Collections.synchronizedMap(new HashMap<>());
+        this.version = Objects.requireNonNull(version);
+        this.formatter = MimeData::toString;
+        this.parser = AbstractServerConfig::parseMime;
+        this.tokenizer = AbstractServerConfig::splitPath;
+    }
+
+    private static MimeData parseMime(String data) {
+        var separator = data.indexOf(';');
+        var type = MimeType.of((separator < 0 ? data : data.substring(0, separator)).trim());
+        if (type == null) {
+            throw new IllegalMimeType(data);
+        }
+        if (separator < 0) {
+            return new MimeData(type);
+        }
+        var parameter = data.substring(separator + 1).trim();
+        var equals = parameter.indexOf('=');
+        if (equals <= 0) {
+            throw new IllegalMimeType(data);
+        }
+        var value = parameter.substring(equals + 1).trim();
+        if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        return new MimeData(type, parameter.substring(0, equals).trim(), value);
+    }
+
+    private static List<String> splitPath(String path) {
+        var ret = new ArrayList<String>();
+        var start = 0;
+        var length = path.length();
+        while (start < length) {
+            var end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                ret.add(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return ret;
+    }
+
+    void setLocked(boolean locked) {
+        this.locked = locked;
+    }
+
+    void checkNotLocked() {
+        if (locked) {
+            throw new IllegalStateException("Server already started");
+        }
+    }
+
+    @Override
+    public Set<InetSocketAddress> getAddresses() {
+        return Collections.unmodifiableSet(addresses);
+    }
+
+    @Override
+    public void addAddress(InetSocketAddress address) {
+        addresses.add(Objects.requireNonNull(address));
+    }
+
+    @Override
+    public void addAddress(InetSocketAddress address, TlsConfig tls) {
+        Objects.requireNonNull(tls);
+        addAddress(address);
+        this.tls.put(address, tls);
+    }
+
+    @Override
+    public TlsConfig getTlsConfig(InetSocketAddress address) {
+        return tls.get(address);
+    }
+
+    @Override
+    public void removeAddress(InetSocketAddress address) {
+        addresses.remove(address);
+        tls.remove(address);
+    }
+
+    @Override
+    public Set<SocketAddress> getUnixAddresses() {
+        return Collections.unmodifiableSet(unixAddresses);
+    }
+
+    @Override
+    public void addUnixAddress(SocketAddress address) {
+        if (!UnixSockets.isSupported()) {
+            throw new UnsupportedOperationException("Unix domain sockets require Java 16 or later");
+        }
+        if (!UnixSockets.isUnixAddress(address)) {
+            throw new IllegalArgumentException("Not a unix domain socket address: " + address);
+        }
+        unixAddresses.add(address);
+    }
+
+    @Override
+    public void removeUnixAddress(SocketAddress address) {
+        unixAddresses.remove(address);
+    }
+
+    @Override
+    public HttpVersion getHttpVersion() {
+        return version;
+    }
+
+    @Override
+    public void setHttpVersion(HttpVersion version) {
+        checkNotLocked();
+        this.version = Objects.requireNonNull(version);
+    }
+
+    @Override
+    public MimeFormatter getMimeFormatter() {
+        return formatter;
+    }
+
+    @Override
+    public void setMimeFormatter(MimeFormatter formatter) {
+        checkNotLocked();
+        this.formatter = Objects.requireNonNull(formatter);
+    }
+
+    @Override
+    public MimeParser getMimeParser() {
+        return parser;
+    }
+
+    @Override
+    public void setMimeParser(MimeParser parser) {
+        checkNotLocked();
+        this.parser = Objects.requireNonNull(parser);
+    }
+
+    @Override
+    public PathTokenizer getPathTokenizer() {
+        return tokenizer;
+    }
+
+    @Override
+    public void setPathTokenizer(PathTokenizer tokenizer) {
+        checkNotLocked();
+        this.tokenizer = Objects.requireNonNull(tokenizer);
+    }
+}
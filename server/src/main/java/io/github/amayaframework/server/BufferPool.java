@@ -0,0 +1,408 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.service.Service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of direct {@link ByteBuffer}s for server I/O.
+ * <br>
+ * Buffers are grouped in power-of-two size classes. The buffers of a size class are sliced from direct slabs,
+ * which are allocated on demand while the total allocated memory does not exceed the specified limit.
+ * Each thread keeps a small cache of buffers per size class and exchanges them with the shared free lists
+ * in batches, so most acquisitions and releases do not contend. Reused buffers are not zeroed.
+ * <br>
+ * Requests larger than the largest size class are served with unpooled direct buffers. If the memory limit
+ * is reached, requests are served with unpooled heap buffers. Both are counted as overflows and ignored on release.
+ * In debug mode the pool records the acquisition site of each buffer, rejects double releases and reports
+ * the buffers that have not been released when the pool stops.
+ * <br>
+ * The pool hands out buffers only while running, so it should be registered in the application
+ * {@link io.github.amayaframework.service.ServiceManager}. Stopping the pool drops all cached memory.
+ */
+public final class BufferPool implements Service {
+    /**
+     * The default size of the smallest size class, in bytes.
+     */
+    public static final int DEFAULT_MIN_SIZE = 1024;
+    /**
+     * The default size of the largest size class, in bytes.
+     */
+    public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+    /**
+     * The default limit of the memory allocated for slabs, in bytes.
+     */
+    public static final long DEFAULT_MAX_MEMORY = 64L * 1024 * 1024;
+
+    private static final int SLAB_SIZE = 256 * 1024;
+    private static final int CACHE_SIZE = 16;
+
+    private final int minShift;
+    private final SizeClass[] classes;
+    private final long maxMemory;
+    private final boolean debug;
+    private final Object lock;
+    private final List<ThreadCache> caches;
+    private final Map<ByteBuffer, Throwable> outstanding;
+    private final ThreadLocal<ThreadCache> local;
+    private final LongAdder used;
+    private final LongAdder overflows;
+    private long allocated;
+    private volatile int generation;
+    private volatile boolean running;
+
+    /**
+     * Constructs {@link BufferPool} instance with given size classes and limits.
+     *
+     * @param minSize   the size of the smallest size class, must be a power of two
+     * @param maxSize   the size of the largest size class, must be a power of two not less than minSize
+     * @param maxMemory the limit of the memory allocated for slabs, in bytes
+     * @param debug     if true, the pool tracks acquired buffers to detect leaks and double releases
+     */
+    public BufferPool(int minSize, int maxSize, long maxMemory, boolean debug) {
+        if (Integer.bitCount(minSize) != 1 || Integer.bitCount(maxSize) != 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Size classes must be powers of two");
+        }
+        if (maxMemory < 0) {
+            throw new IllegalArgumentException("Invalid memory limit: " + maxMemory);
+        }
+        this.minShift = Integer.numberOfTrailingZeros(minSize);
+        var count = Integer.numberOfTrailingZeros(maxSize) - minShift + 1;
+        this.classes = new SizeClass[count];
+        for (var i = 0; i < count; ++i) {
+            classes[i] = new SizeClass(minSize << i);
+        }
+        this.maxMemory = maxMemory;
+        this.debug = debug;
+        this.lock = new Object();
+        this.caches = new ArrayList<>();
+        this.outstanding = debug ? new IdentityHashMap<>() : null;
+        this.local = new ThreadLocal<>();
+        this.used = new LongAdder();
+        this.overflows = new LongAdder();
+    }
+
+    /**
+     * Constructs {@link BufferPool} instance with default size classes and limits, debug mode is disabled.
+     */
+    public BufferPool() {
+        this(DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE, DEFAULT_MAX_MEMORY, false);
+    }
+
+    private int classOf(int size) {
+        if (size <= classes[0].size) {
+            return 0;
+        }
+        var ret = 32 - Integer.numberOfLeadingZeros(size - 1) - minShift;
+        return ret < classes.length ? ret : -1;
+    }
+
+    private int exactClassOf(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            return -1;
+        }
+        var ret = Integer.numberOfTrailingZeros(capacity) - minShift;
+        return ret >= 0 && ret < classes.length ? ret : -1;
+    }
+
+    private ThreadCache getCache() {
+        var ret = local.get();
+        var current = generation;
+        if (ret != null && ret.generation == current) {
+            return ret;
+        }
+        // Buffers cached before the pool was stopped belong to dropped slabs
+        ret = new ThreadCache(Thread.currentThread(), classes.length, current);
+        synchronized (lock) {
+            caches.add(ret);
+        }
+        local.set(ret);
+        return ret;
+    }
+
+    private void reclaim() {
+        // Buffers cached by terminated threads cannot be reached otherwise
+        var iterator = caches.iterator();
+        while (iterator.hasNext()) {
+            var cache = iterator.next();
+            if (cache.thread.isAlive()) {
+                continue;
+            }
+            iterator.remove();
+            for (var i = 0; i < classes.length; ++i) {
+                classes[i].push(cache.buffers[i], cache.counts[i]);
+                cache.counts[i] = 0;
+            }
+        }
+    }
+
+    private boolean allocateSlab(SizeClass sizeClass) {
+        var size = sizeClass.size;
+        var slabSize = Math.max(SLAB_SIZE, size);
+        synchronized (lock) {
+            reclaim();
+            if (sizeClass.available() > 0) {
+                return true;
+            }
+            if (allocated + slabSize > maxMemory) {
+                return false;
+            }
+            allocated += slabSize;
+        }
+        var slab = ByteBuffer.allocateDirect(slabSize);
+        var buffers = new ByteBuffer[slabSize / size];
+        for (var i = 0; i < buffers.length; ++i) {
+            slab.limit((i + 1) * size).position(i * size);
+            buffers[i] = slab.slice();
+        }
+        sizeClass.push(buffers, buffers.length);
+        return true;
+    }
+
+    private ByteBuffer take(ThreadCache cache, int index) {
+        var count = cache.counts[index];
+        if (count == 0) {
+            var sizeClass = classes[index];
+            count = sizeClass.pop(cache.buffers[index], CACHE_SIZE / 2);
+            while (count == 0) {
+                if (!allocateSlab(sizeClass)) {
+                    return null;
+                }
+                count = sizeClass.pop(cache.buffers[index], CACHE_SIZE / 2);
+            }
+        }
+        var buffers = cache.buffers[index];
+        var ret = buffers[--count];
+        buffers[count] = null;
+        cache.counts[index] = count;
+        return ret;
+    }
+
+    /**
+     * Acquires a buffer with capacity not less than the given size. The buffer position is zero
+     * and its limit is equal to its capacity, the content is undefined.
+     *
+     * @param size the required size, in bytes
+     * @return the {@link ByteBuffer} instance
+     * @throws IllegalStateException if the pool is not running
+     */
+    public ByteBuffer acquire(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Invalid buffer size: " + size);
+        }
+        if (!running) {
+            throw new IllegalStateException("Buffer pool is not running");
+        }
+        var index = classOf(size);
+        if (index < 0) {
+            overflows.increment();
+            return ByteBuffer.allocateDirect(size);
+        }
+        var ret = take(getCache(), index);
+        if (ret == null) {
+            overflows.increment();
+            return ByteBuffer.allocate(classes[index].size);
+        }
+        ret.clear();
+        used.add(ret.capacity());
+        if (debug) {
+            synchronized (lock) {
+                outstanding.put(ret, new Throwable("Buffer acquired here"));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the buffer to the pool. The buffer must not be used after release.
+     * Buffers allocated on overflow are ignored.
+     *
+     * @param buffer the buffer acquired from this pool, must be non-null
+     * @throws IllegalStateException in debug mode, if the buffer has not been acquired or has already been released
+     */
+    public void release(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            return;
+        }
+        var index = exactClassOf(buffer.capacity());
+        if (index < 0) {
+            return;
+        }
+        if (!running) {
+            // Slabs have been dropped, the buffer is left to the garbage collector
+            used.add(-buffer.capacity());
+            return;
+        }
+        if (debug) {
+            synchronized (lock) {
+                if (outstanding.remove(buffer) == null) {
+                    throw new IllegalStateException("Buffer has not been acquired from this pool or already released");
+                }
+            }
+        }
+        used.add(-buffer.capacity());
+        var cache = getCache();
+        var buffers = cache.buffers[index];
+        var count = cache.counts[index];
+        if (count == CACHE_SIZE) {
+            // Move the older half to the shared list, keeping recently used buffers local
+            var half = CACHE_SIZE / 2;
+            classes[index].push(buffers, half);
+            System.arraycopy(buffers, half, buffers, 0, half);
+            count = half;
+        }
+        buffers[count++] = buffer;
+        cache.counts[index] = count;
+    }
+
+    /**
+     * Gets the limit of the memory allocated for slabs.
+     *
+     * @return the number of bytes
+     */
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * Gets the memory currently allocated for slabs.
+     *
+     * @return the number of bytes
+     */
+    public long getAllocatedMemory() {
+        synchronized (lock) {
+            return allocated;
+        }
+    }
+
+    /**
+     * Gets the total capacity of pooled buffers that are currently acquired.
+     *
+     * @return the number of bytes
+     */
+    public long getUsedMemory() {
+        return used.sum();
+    }
+
+    /**
+     * Gets the number of acquisitions served with unpooled buffers,
+     * because of their size or because the memory limit has been reached.
+     *
+     * @return the number of overflows
+     */
+    public long getOverflows() {
+        return overflows.sum();
+    }
+
+    /**
+     * Checks whether the pool runs in debug mode.
+     *
+     * @return true if debug mode is enabled, false otherwise
+     */
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Gets the acquisition sites of the buffers that have not been released yet. Works only in debug mode.
+     *
+     * @return the {@link List} of {@link Throwable} instances holding the stack traces of acquisitions
+     */
+    public List<Throwable> getOutstanding() {
+        if (!debug) {
+            return List.of();
+        }
+        synchronized (lock) {
+            return List.copyOf(outstanding.values());
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        List<Throwable> leaks;
+        synchronized (lock) {
+            ++generation;
+            caches.clear();
+            for (var sizeClass : classes) {
+                sizeClass.clear();
+            }
+            allocated = 0;
+            if (!debug || outstanding.isEmpty()) {
+                return;
+            }
+            leaks = List.copyOf(outstanding.values());
+            outstanding.clear();
+        }
+        var e = new IllegalStateException(leaks.size() + " buffer(s) have not been released");
+        leaks.forEach(e::addSuppressed);
+        throw e;
+    }
+
+    private static final class SizeClass {
+        private final int size;
+        private ByteBuffer[] free;
+        private int count;
+
+        private SizeClass(int size) {
+            this.size = size;
+            this.free = new ByteBuffer[CACHE_SIZE];
+        }
+
+        private synchronized int available() {
+            return count;
+        }
+
+        private synchronized int pop(ByteBuffer[] into, int max) {
+            var ret = Math.min(max, count);
+            count -= ret;
+            System.arraycopy(free, count, into, 0, ret);
+            for (var i = count; i < count + ret; ++i) {
+                free[i] = null;
+            }
+            return ret;
+        }
+
+        private synchronized void push(ByteBuffer[] from, int length) {
+            if (count + length > free.length) {
+                var grown = new ByteBuffer[Math.max(free.length * 2, count + length)];
+                System.arraycopy(free, 0, grown, 0, count);
+                free = grown;
+            }
+            System.arraycopy(from, 0, free, count, length);
+            count += length;
+            for (var i = 0; i < length; ++i) {
+                from[i] = null;
+            }
+        }
+
+        private synchronized void clear() {
+            free = new ByteBuffer[CACHE_SIZE];
+            count = 0;
+        }
+    }
+
+    private static final class ThreadCache {
+        private final Thread thread;
+        private final ByteBuffer[][] buffers;
+        private final int[] counts;
+        private final int generation;
+
+        private ThreadCache(Thread thread, int classes, int generation) {
+            this.thread = thread;
+            this.buffers = new ByteBuffer[classes][CACHE_SIZE];
+            this.counts = new int[classes];
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.amayaframework.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The cancellation state of a native exchange. It is used by the single thread driving the connection,
+ * so it is not thread-safe.
+ */
+final class Cancellation {
+    private List<Runnable> actions;
+    private boolean cancelled;
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    void onCancel(Runnable action) {
+        Objects.requireNonNull(action);
+        if (cancelled) {
+            action.run();
+            return;
+        }
+        if (actions == null) {
+            actions = new ArrayList<>(1);
+        }
+        actions.add(action);
+    }
+
+    /**
+     * Cancels the exchange, running the registered actions. The failures of the actions are ignored,
+     * so that they do not break the connection.
+     */
+    void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        var actions = this.actions;
+        this.actions = null;
+        if (actions == null) {
+            return;
+        }
+        for (var action : actions) {
+            try {
+                action.run();
+            } catch (Throwable e) {
+                // The response is abandoned anyway
+            }
+        }
+    }
+
+    /**
+     * Drops the registered actions, as the response has been written.
+     */
+    void complete() {
+        actions = null;
+    }
+
+    /**
+     * Drops the registered actions and resets the state for the next exchange.
+     */
+    void clear() {
+        actions = null;
+        cancelled = false;
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.amayaframework.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+/**
+ * The HPACK decoder of header blocks (see rfc7541) holding the dynamic table of a single connection.
+ * <br>
+ * Header blocks must be decoded in the order they are received, including the blocks of refused streams,
+ * since every block may update the dynamic table. Instances are not thread-safe.
+ */
+final class HpackDecoder {
+    private final HpackTable table;
+    private final int maxTableSize;
+    private final int maxListSize;
+    private byte[] block;
+    private int position;
+    private int limit;
+
+    /**
+     * Constructs {@link HpackDecoder} instance with given limits.
+     *
+     * @param maxTableSize the maximum size of the dynamic table, announced with SETTINGS_HEADER_TABLE_SIZE
+     * @param maxListSize  the maximum size of a decoded header list, as defined for SETTINGS_MAX_HEADER_LIST_SIZE
+     */
+    HpackDecoder(int maxTableSize, int maxListSize) {
+        this.table = new HpackTable(maxTableSize);
+        this.maxTableSize = maxTableSize;
+        this.maxListSize = maxListSize;
+    }
+
+    /**
+     * Gets the dynamic table.
+     *
+     * @return the {@link HpackTable} instance
+     */
+    HpackTable getTable() {
+        return table;
+    }
+
+    private static Http2Exception error(String message) {
+        return new Http2Exception(Http2Exception.COMPRESSION_ERROR, message);
+    }
+
+    private int readInteger(int prefix) throws Http2Exception {
+        var max = (1 << prefix) - 1;
+        var ret = block[position++] & max;
+        if (ret < max) {
+            return ret;
+        }
+        for (var shift = 0; ; shift += 7) {
+            if (position == limit) {
+                throw error("Truncated integer");
+            }
+            var octet = block[position++];
+            if (shift > 21) {
+                throw error("Integer overflow");
+            }
+            ret += (octet & 0x7F) << shift;
+            if (ret < 0) {
+                throw error("Integer overflow");
+            }
+            if ((octet & 0x80) == 0) {
+                return ret;
+            }
+        }
+    }
+
+    private String readString() throws Http2Exception {
+        if (position == limit) {
+            throw error("Truncated string");
+        }
+        var huffman = (block[position] & 0x80) != 0;
+        var length = readInteger(7);
+        if (length > limit - position) {
+            throw error("Truncated string");
+        }
+        var start = position;
+        position += length;
+        if (huffman) {
+            return HpackHuffman.decode(block, start, length);
+        }
+        return new String(block, start, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private String getName(int index) throws Http2Exception {
+        var ret = table.getName(index);
+        if (ret == null) {
+            throw error("Invalid table index: " + index);
+        }
+        return ret;
+    }
+
+    /**
+     * Decodes the header block, passing the header fields to the consumer in the order of appearance.
+     * If the header list exceeds the size limit, the block is still decoded to keep the dynamic table
+     * in sync with the peer, but the remaining fields are not passed to the consumer.
+     *
+     * @param block    the array containing the header block
+     * @param offset   the array offset
+     * @param length   the length of the header block
+     * @param consumer the consumer of header names and values
+     * @return true if the header list does not exceed the size limit, false otherwise
+     * @throws Http2Exception if the header block is malformed
+     */
+    boolean decode(byte[] block, int offset, int length, BiConsumer<String, String> consumer) throws Http2Exception {
+        this.block = block;
+        this.position = offset;
+        this.limit = offset + length;
+        try {
+            var listSize = 0L;
+            var fields = false;
+            while (position < limit) {
+                var octet = block[position];
+                String name;
+                String value;
+                if ((octet & 0x80) != 0) {
+                    // Indexed header field
+                    var index = readInteger(7);
+                    name = getName(index);
+                    value = table.getValue(index);
+                } else if ((octet & 0x40) != 0) {
+                    // Literal header field with incremental indexing
+                    var index = readInteger(6);
+                    name = index == 0 ? readString() : getName(index);
+                    value = readString();
+                    table.add(name, value);
+                } else if ((octet & 0x20) != 0) {
+                    // Dynamic table size update, allowed only at the beginning of a block
+                    if (fields) {
+                        throw error("Misplaced dynamic table size update");
+                    }
+                    var size = readInteger(5);
+                    if (size > maxTableSize) {
+                        throw error("Dynamic table size exceeds the limit: " + size);
+                    }
+                    table.setMaxSize(size);
+                    continue;
+                } else {
+                    // Literal header field without indexing or never indexed
+                    var index = readInteger(4);
+                    name = index == 0 ? readString() : getName(index);
+                    value = readString();
+                }
+                fields = true;
+                listSize += name.length() + value.length() + HpackTable.ENTRY_OVERHEAD;
+                if (listSize <= maxListSize) {
+                    consumer.accept(name, value);
+                }
+            }
+            return listSize <= maxListSize;
+        } finally {
+            this.block = null;
+        }
+    }
+}
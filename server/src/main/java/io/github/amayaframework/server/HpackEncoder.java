@@ -0,0 +1,178 @@
+package io.github.amayaframework.server;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * The HPACK encoder of header blocks (see rfc7541) holding the dynamic table of a single connection.
+ * <br>
+ * Fields found in the static table are encoded as a single index without touching the dynamic table,
+ * which covers the most frequent response statuses. Other fields are added to the dynamic table, except
+ * for the fields whose values rarely repeat, which are encoded as literals, and credentials, which are
+ * encoded as never indexed literals. Strings are Huffman-coded when it makes them shorter.
+ * <br>
+ * The encoder writes to its own growable block, which is valid until the next call of {@link #begin()}.
+ * Instances are not thread-safe.
+ */
+final class HpackEncoder {
+    private static final Set<String> NOT_INDEXED = Set.of(
+            "content-length", "date", "etag", "last-modified", "age", "expires", "location"
+    );
+    private static final Set<String> NEVER_INDEXED = Set.of(
+            "authorization", "proxy-authorization", "cookie", "set-cookie"
+    );
+
+    private final HpackTable table;
+    private final int maxTableSize;
+    private int minPendingSize;
+    private boolean sizeUpdate;
+    private byte[] block;
+    private int length;
+
+    /**
+     * Constructs {@link HpackEncoder} instance with given dynamic table size.
+     *
+     * @param maxTableSize the maximum size of the dynamic table the encoder uses
+     */
+    HpackEncoder(int maxTableSize) {
+        this.table = new HpackTable(maxTableSize);
+        this.maxTableSize = maxTableSize;
+        this.block = new byte[256];
+    }
+
+    /**
+     * Gets the dynamic table.
+     *
+     * @return the {@link HpackTable} instance
+     */
+    HpackTable getTable() {
+        return table;
+    }
+
+    /**
+     * Applies the table size limit announced by the peer with SETTINGS_HEADER_TABLE_SIZE.
+     * The encoder uses the smaller of the limit and its own maximum, the change is signalled
+     * at the beginning of the next header block.
+     *
+     * @param limit the table size limit of the peer
+     */
+    void setTableSizeLimit(int limit) {
+        var size = Math.min(limit, maxTableSize);
+        if (size == table.getMaxSize() && !sizeUpdate) {
+            return;
+        }
+        // If the size has been reduced and then increased, the minimum must be signalled as well
+        minPendingSize = sizeUpdate ? Math.min(minPendingSize, size) : Math.min(table.getMaxSize(), size);
+        sizeUpdate = true;
+        table.setMaxSize(size);
+    }
+
+    /**
+     * Starts a new header block, discarding the previous one.
+     */
+    void begin() {
+        length = 0;
+        if (!sizeUpdate) {
+            return;
+        }
+        sizeUpdate = false;
+        var size = table.getMaxSize();
+        if (minPendingSize < size) {
+            writeInteger(0x20, 5, minPendingSize);
+        }
+        writeInteger(0x20, 5, size);
+    }
+
+    /**
+     * Gets the array holding the encoded block.
+     *
+     * @return the array, starting with the block
+     */
+    byte[] getBlock() {
+        return block;
+    }
+
+    /**
+     * Gets the length of the encoded block.
+     *
+     * @return the number of bytes
+     */
+    int getLength() {
+        return length;
+    }
+
+    private void ensure(int size) {
+        if (block.length - length < size) {
+            block = Arrays.copyOf(block, Math.max(block.length * 2, length + size));
+        }
+    }
+
+    private void writeInteger(int mask, int prefix, int value) {
+        ensure(6);
+        var max = (1 << prefix) - 1;
+        if (value < max) {
+            block[length++] = (byte) (mask | value);
+            return;
+        }
+        block[length++] = (byte) (mask | max);
+        value -= max;
+        while (value >= 0x80) {
+            block[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        block[length++] = (byte) value;
+    }
+
+    private void writeString(String value) {
+        var encoded = HpackHuffman.length(value);
+        if (encoded < value.length()) {
+            writeInteger(0x80, 7, encoded);
+            ensure(encoded);
+            length = HpackHuffman.encode(value, block, length);
+            return;
+        }
+        writeInteger(0, 7, value.length());
+        ensure(value.length());
+        for (var i = 0; i < value.length(); ++i) {
+            block[length++] = (byte) value.charAt(i);
+        }
+    }
+
+    /**
+     * Appends the header field to the block.
+     *
+     * @param name  the header name, must be in lower case
+     * @param value the header value
+     */
+    void encode(String name, String value) {
+        var index = table.indexOf(name, value);
+        if (index > 0) {
+            writeInteger(0x80, 7, index);
+            return;
+        }
+        var nameIndex = -index;
+        int mask;
+        int prefix;
+        if (NEVER_INDEXED.contains(name)) {
+            mask = 0x10;
+            prefix = 4;
+        } else if (NOT_INDEXED.contains(name)
+                || name.length() + value.length() + HpackTable.ENTRY_OVERHEAD > table.getMaxSize() / 2) {
+            // Large fields would evict many entries, while being unlikely to repeat
+            mask = 0;
+            prefix = 4;
+        } else {
+            mask = 0x40;
+            prefix = 6;
+        }
+        writeInteger(mask, prefix, nameIndex);
+        if (nameIndex == 0) {
+            writeString(name);
+        }
+        writeString(value);
+        if (mask == 0x40) {
+            // The name index refers to the table before the insertion
+            table.add(name, value);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package io.github.amayaframework.server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The HPACK indexing table: the static table followed by the dynamic table (see rfc7541, section 2.3).
+ * <br>
+ * The dynamic table is a ring of entries, where index 0 of the ring is the newest entry. Lookups by name
+ * use a precomputed index of the static table, since entries of the static table with the same name
+ * are adjacent; the dynamic table, which holds a few dozens of entries at the default size, is scanned.
+ */
+final class HpackTable {
+    /**
+     * The number of static table entries.
+     */
+    static final int STATIC_LENGTH = 61;
+    /**
+     * The size accounted for each entry in addition to the lengths of its name and value.
+     */
+    static final int ENTRY_OVERHEAD = 32;
+
+    private static final String[][] STATIC = {
+            {":authority", ""},
+            {":method", "GET"},
+            {":method", "POST"},
+            {":path", "/"},
+            {":path", "/index.html"},
+            {":scheme", "http"},
+            {":scheme", "https"},
+            {":status", "200"},
+            {":status", "204"},
+            {":status", "206"},
+            {":status", "304"},
+            {":status", "400"},
+            {":status", "404"},
+            {":status", "500"},
+            {"accept-charset", ""},
+            {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""},
+            {"accept-ranges", ""},
+            {"accept", ""},
+            {"access-control-allow-origin", ""},
+            {"age", ""},
+            {"allow", ""},
+            {"authorization", ""},
+            {"cache-control", ""},
+            {"content-disposition", ""},
+            {"content-encoding", ""},
+            {"content-language", ""},
+            {"content-length", ""},
+            {"content-location", ""},
+            {"content-range", ""},
+            {"content-type", ""},
+            {"cookie", ""},
+            {"date", ""},
+            {"etag", ""},
+            {"expect", ""},
+            {"expires", ""},
+            {"from", ""},
+            {"host", ""},
+            {"if-match", ""},
+            {"if-modified-since", ""},
+            {"if-none-match", ""},
+            {"if-range", ""},
+            {"if-unmodified-since", ""},
+            {"last-modified", ""},
+            {"link", ""},
+            {"location", ""},
+            {"max-forwards", ""},
+            {"proxy-authenticate", ""},
+            {"proxy-authorization", ""},
+            {"range", ""},
+            {"referer", ""},
+            {"refresh", ""},
+            {"retry-after", ""},
+            {"server", ""},
+            {"set-cookie", ""},
+            {"strict-transport-security", ""},
+            {"transfer-encoding", ""},
+            {"user-agent", ""},
+            {"vary", ""},
+            {"via", ""},
+            {"www-authenticate", ""}
+    };
+    private static final Map<String, Integer> STATIC_NAMES = getStaticNames();
+
+    private String[] names;
+    private String[] values;
+    private int first;
+    private int length;
+    private int size;
+    private int maxSize;
+
+    HpackTable(int maxSize) {
+        this.names = new String[16];
+        this.values = new String[16];
+        this.maxSize = maxSize;
+    }
+
+    private static Map<String, Integer> getStaticNames() {
+        var ret = new HashMap<String, Integer>();
+        for (var i = STATIC.length - 1; i >= 0; --i) {
+            ret.put(STATIC[i][0], i + 1);
+        }
+        return ret;
+    }
+
+    private static int sizeOf(String name, String value) {
+        return name.length() + value.length() + ENTRY_OVERHEAD;
+    }
+
+    /**
+     * Gets the number of dynamic table entries.
+     *
+     * @return the number of entries
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Gets the size of the dynamic table.
+     *
+     * @return the sum of entry sizes
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the maximum size of the dynamic table.
+     *
+     * @return the maximum size
+     */
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum size of the dynamic table, evicting the oldest entries which do not fit in it.
+     *
+     * @param maxSize the maximum size, must not be negative
+     */
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evict(0);
+    }
+
+    private int slot(int position) {
+        return (first + position) & (names.length - 1);
+    }
+
+    /**
+     * Gets the name of the entry with given index.
+     *
+     * @param index the index, starting at 1 with the static table
+     * @return the entry name or null if there is no entry with such index
+     */
+    String getName(int index) {
+        if (index <= 0) {
+            return null;
+        }
+        if (index <= STATIC_LENGTH) {
+            return STATIC[index - 1][0];
+        }
+        index -= STATIC_LENGTH + 1;
+        return index < length ? names[slot(index)] : null;
+    }
+
+    /**
+     * Gets the value of the entry with given index.
+     *
+     * @param index the index, starting at 1 with the static table
+     * @return the entry value or null if there is no entry with such index
+     */
+    String getValue(int index) {
+        if (index <= 0) {
+            return null;
+        }
+        if (index <= STATIC_LENGTH) {
+            return STATIC[index - 1][1];
+        }
+        index -= STATIC_LENGTH + 1;
+        return index < length ? values[slot(index)] : null;
+    }
+
+    /**
+     * Finds the entry matching the header field.
+     *
+     * @param name  the header name
+     * @param value the header value
+     * @return the index of the entry with the same name and value, the negated index of the entry with
+     * the same name if there is no such entry, or 0 if there is no entry with the same name
+     */
+    int indexOf(String name, String value) {
+        var found = 0;
+        var index = STATIC_NAMES.get(name);
+        if (index != null) {
+            for (var i = index; i <= STATIC_LENGTH && STATIC[i - 1][0].equals(name); ++i) {
+                if (STATIC[i - 1][1].equals(value)) {
+                    return i;
+                }
+            }
+            found = -index;
+        }
+        for (var i = 0; i < length; ++i) {
+            var slot = slot(i);
+            if (!names[slot].equals(name)) {
+                continue;
+            }
+            if (values[slot].equals(value)) {
+                return STATIC_LENGTH + 1 + i;
+            }
+            if (found == 0) {
+                found = -(STATIC_LENGTH + 1 + i);
+            }
+        }
+        return found;
+    }
+
+    private void evict(int required) {
+        while (length > 0 && size + required > maxSize) {
+            var slot = slot(--length);
+            size -= sizeOf(names[slot], values[slot]);
+            names[slot] = null;
+            values[slot] = null;
+        }
+    }
+
+    private void grow() {
+        var capacity = names.length * 2;
+        var grownNames = new String[capacity];
+        var grownValues = new String[capacity];
+        for (var i = 0; i < length; ++i) {
+            var slot = slot(i);
+            grownNames[i] = names[slot];
+            grownValues[i] = values[slot];
+        }
+        names = grownNames;
+        values = grownValues;
+        first = 0;
+    }
+
+    /**
+     * Inserts the entry at the beginning of the dynamic table, evicting the oldest entries if necessary.
+     * An entry larger than the maximum size empties the table (see rfc7541, section 4.4).
+     *
+     * @param name  the entry name
+     * @param value the entry value
+     */
+    void add(String name, String value) {
+        var entrySize = sizeOf(name, value);
+        if (entrySize > maxSize) {
+            evict(maxSize + 1);
+            return;
+        }
+        evict(entrySize);
+        if (length == names.length) {
+            grow();
+        }
+        first = (first - 1) & (names.length - 1);
+        names[first] = name;
+        values[first] = value;
+        ++length;
+        size += entrySize;
+    }
+}
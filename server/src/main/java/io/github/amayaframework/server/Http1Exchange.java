@@ -0,0 +1,128 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.http.HttpVersion;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * The {@link HttpExchange} of {@link HttpConnection}, which is reused for all requests of the connection.
+ * The request head and body are views over the connection read buffer.
+ */
+final class Http1Exchange implements HttpExchange {
+    private final HttpConnection connection;
+    private final HttpRequestParser request;
+    private final HttpResponseEncoder response;
+    private final Cancellation cancellation;
+    private ByteBuffer body;
+    private boolean keepAlive;
+
+    Http1Exchange(HttpConnection connection, HttpRequestParser request, HttpResponseEncoder response) {
+        this.connection = connection;
+        this.request = request;
+        this.response = response;
+        this.cancellation = new Cancellation();
+    }
+
+    void reset(ByteBuffer body, boolean keepAlive) {
+        this.body = body;
+        this.keepAlive = keepAlive;
+        cancellation.clear();
+    }
+
+    void cancel() {
+        cancellation.cancel();
+    }
+
+    void complete() {
+        cancellation.complete();
+    }
+
+    @Override
+    public HttpMethod getMethod() {
+        return request.getMethod();
+    }
+
+    @Override
+    public HttpVersion getVersion() {
+        return request.getVersion();
+    }
+
+    @Override
+    public String getTarget() {
+        return request.getTarget();
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return request.getHeader(name);
+    }
+
+    @Override
+    public int getHeaderCount() {
+        return request.getHeaderCount();
+    }
+
+    @Override
+    public String getHeaderName(int index) {
+        return request.getHeaderName(index);
+    }
+
+    @Override
+    public String getHeaderValue(int index) {
+        return request.getHeaderValue(index);
+    }
+
+    @Override
+    public ByteBuffer getBody() {
+        return body;
+    }
+
+    @Override
+    public SocketAddress getRemoteAddress() {
+        return connection.getRemoteAddress();
+    }
+
+    @Override
+    public boolean isSecure() {
+        return connection.isSecure();
+    }
+
+    @Override
+    public void begin(HttpCode code) {
+        // The response to HEAD request has no body, but the same headers as the response to GET request
+        response.begin(code, request.getMethod() == HttpMethod.HEAD);
+    }
+
+    @Override
+    public void header(String name, String value) {
+        response.header(name, value);
+    }
+
+    @Override
+    public void body(ByteBuffer segment) {
+        response.body(segment);
+    }
+
+    @Override
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    @Override
+    public void close() {
+        keepAlive = false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancellation.isCancelled();
+    }
+
+    @Override
+    public void onCancel(Runnable action) {
+        cancellation.onCancel(action);
+    }
+}
@@ -0,0 +1,1234 @@
+package io.github.amayaframework.server;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.http.HttpVersion;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A native cleartext HTTP/2 server connection (see rfc9113).
+ * <br>
+ * The connection multiplexes streams over a single channel: frames are read into a pooled buffer, header blocks
+ * are decoded with the connection HPACK context, and each stream is passed to the handler as {@link HttpExchange}
+ * as soon as its request is complete, so a slow upload does not delay other streams. The handler runs on the thread
+ * driving the connection, responses are encoded into frames and written with gathering writes; response bodies
+ * are not copied, DATA frames are slices of the body segments. Streams reset by the peer, or open when
+ * the connection fails or is closed, are cancelled, see {@link HttpExchange#isCancelled()}.
+ * <br>
+ * Flow control is enforced in both directions. Received DATA frames must fit in the windows the connection
+ * has announced, which are replenished as the request bodies are buffered. Response DATA frames are sent while
+ * both the connection and stream windows of the peer allow, the rest waits for WINDOW_UPDATE frames.
+ * Request bodies are buffered up to the configured limit, larger requests are answered with 413 status.
+ * <br>
+ * The connection is created by {@link HttpConnection}, when a client starts with the HTTP/2 connection preface
+ * (prior knowledge) or upgrades with 'Upgrade: h2c' header, but it can serve a channel on its own as well.
+ * Like {@link HttpConnection}, it is driven by a single thread, which calls {@link #read()} when the channel
+ * is readable and {@link #write()} when it is writable and {@link #isWritePending()} is true.
+ */
+public final class Http2Connection implements Closeable {
+    /**
+     * The client connection preface.
+     */
+    static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int PRIORITY = 0x2;
+    private static final int RST_STREAM = 0x3;
+    private static final int SETTINGS = 0x4;
+    private static final int PUSH_PROMISE = 0x5;
+    private static final int PING = 0x6;
+    private static final int GOAWAY = 0x7;
+    private static final int WINDOW_UPDATE = 0x8;
+    private static final int CONTINUATION = 0x9;
+
+    private static final int FLAG_END_STREAM = 0x1;
+    private static final int FLAG_ACK = 0x1;
+    private static final int FLAG_END_HEADERS = 0x4;
+    private static final int FLAG_PADDED = 0x8;
+    private static final int FLAG_PRIORITY = 0x20;
+
+    private static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+    private static final int SETTINGS_ENABLE_PUSH = 0x2;
+    private static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+    private static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+    private static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+    private static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+    private static final int FRAME_HEADER_SIZE = 9;
+    private static final int DEFAULT_WINDOW = 65535;
+    private static final int DEFAULT_FRAME_SIZE = 16384;
+    private static final int MAX_FRAME_SIZE = 16777215;
+    private static final int TABLE_SIZE = 4096;
+    private static final int CHUNK_SIZE = 4096;
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0).asReadOnlyBuffer();
+    private static final byte[] SWITCHING_PROTOCOLS =
+            "HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII);
+    private static final Set<String> CONNECTION_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade"
+    );
+
+    private final ReadableByteChannel input;
+    private final GatheringByteChannel output;
+    private final Channel channel;
+    private final SocketAddress remote;
+    private final BufferPool pool;
+    private final Runnable1<HttpExchange> handler;
+    private final HpackDecoder decoder;
+    private final HpackEncoder encoder;
+    private final Map<Integer, Stream> streams;
+    private final ArrayDeque<Stream> blocked;
+    private final ArrayDeque<ByteBuffer> queue;
+    private final List<ByteBuffer> chunks;
+    private final List<Stream> retired;
+    private final int maxStreams;
+    private final int maxBodySize;
+    private final int maxHeadSize;
+    private ByteBuffer buffer;
+    private ByteBuffer chunk;
+    private ByteBuffer[] gather;
+    private byte[] block;
+    private int blockLength;
+    private int blockStream;
+    private int blockFlags;
+    private boolean prefaceSent;
+    private boolean prefaceReceived;
+    private boolean settingsReceived;
+    private int lastStream;
+    private long sendWindow;
+    private int receiveWindow;
+    private int peerWindow;
+    private int peerFrameSize;
+    private boolean goingAway;
+    private boolean goAwaySent;
+    private boolean failed;
+    private boolean writePending;
+    private boolean closed;
+    private int served;
+
+    /**
+     * Constructs {@link Http2Connection} instance over the given channel.
+     *
+     * @param channel the connection channel, must be non-null
+     * @param remote  the address of the remote peer, may be null
+     * @param pool    the {@link BufferPool} supplying read and frame buffers, must be non-null
+     * @param handler the handler of exchanges, must be non-null
+     * @param config  the {@link HttpConnectionConfig} instance containing connection limits, must be non-null
+     * @param <T>     the type of channel
+     */
+    public <T extends ReadableByteChannel & GatheringByteChannel> Http2Connection(T channel,
+                                                                                 SocketAddress remote,
+                                                                                 BufferPool pool,
+                                                                                 Runnable1<HttpExchange> handler,
+                                                                                 HttpConnectionConfig config) {
+        this(channel, channel, channel, remote, pool, handler, config);
+    }
+
+    Http2Connection(ReadableByteChannel input,
+                    GatheringByteChannel output,
+                    Channel channel,
+                    SocketAddress remote,
+                    BufferPool pool,
+                    Runnable1<HttpExchange> handler,
+                    HttpConnectionConfig config) {
+        this.input = input;
+        this.output = output;
+        this.channel = channel;
+        this.remote = remote;
+        this.pool = pool;
+        this.handler = handler;
+        this.decoder = new HpackDecoder(TABLE_SIZE, config.getMaxHeadSize());
+        this.encoder = new HpackEncoder(TABLE_SIZE);
+        this.streams = new HashMap<>();
+        this.blocked = new ArrayDeque<>();
+        this.queue = new ArrayDeque<>();
+        this.chunks = new ArrayList<>();
+        this.retired = new ArrayList<>();
+        this.maxStreams = config.getMaxStreams();
+        this.maxBodySize = config.getMaxBodySize();
+        this.maxHeadSize = config.getMaxHeadSize();
+        this.gather = new ByteBuffer[16];
+        this.block = new byte[1024];
+        this.sendWindow = DEFAULT_WINDOW;
+        this.receiveWindow = DEFAULT_WINDOW;
+        this.peerWindow = DEFAULT_WINDOW;
+        this.peerFrameSize = DEFAULT_FRAME_SIZE;
+    }
+
+    /**
+     * Gets the address of the remote peer.
+     *
+     * @return the {@link SocketAddress} instance or null if it is unknown
+     */
+    public SocketAddress getRemoteAddress() {
+        return remote;
+    }
+
+    /**
+     * Gets the number of streams served over this connection.
+     *
+     * @return the number of streams
+     */
+    public int getServed() {
+        return served;
+    }
+
+    /**
+     * Gets the number of streams which are open or have a response being sent.
+     *
+     * @return the number of streams
+     */
+    public int getStreams() {
+        return streams.size();
+    }
+
+    /**
+     * Checks whether frames are waiting for the channel to become writable.
+     *
+     * @return true if frames are pending, false otherwise
+     */
+    public boolean isWritePending() {
+        return writePending;
+    }
+
+    /**
+     * Checks whether this connection is open.
+     *
+     * @return true if open, false otherwise
+     */
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    // Output
+
+    private ByteBuffer room(int size) {
+        if (chunk != null && chunk.remaining() >= size) {
+            return chunk;
+        }
+        seal();
+        chunk = pool.acquire(Math.max(size, CHUNK_SIZE));
+        chunks.add(chunk);
+        return chunk;
+    }
+
+    private void seal() {
+        if (chunk == null) {
+            return;
+        }
+        if (chunk.position() > 0) {
+            queue.add(chunk.flip());
+        }
+        chunk = null;
+    }
+
+    private static ByteBuffer putHeader(ByteBuffer buffer, int length, int type, int flags, int stream) {
+        return buffer.put((byte) (length >>> 16))
+                .put((byte) (length >>> 8))
+                .put((byte) length)
+                .put((byte) type)
+                .put((byte) flags)
+                .putInt(stream);
+    }
+
+    private ByteBuffer frame(int length, int type, int flags, int stream) {
+        return putHeader(room(FRAME_HEADER_SIZE + length), length, type, flags, stream);
+    }
+
+    private void sendPreface() {
+        if (prefaceSent) {
+            return;
+        }
+        prefaceSent = true;
+        frame(12, SETTINGS, 0, 0)
+                .putShort((short) SETTINGS_MAX_CONCURRENT_STREAMS).putInt(maxStreams)
+                .putShort((short) SETTINGS_MAX_HEADER_LIST_SIZE).putInt(maxHeadSize);
+    }
+
+    private void sendWindowUpdate(int stream, int increment) {
+        frame(4, WINDOW_UPDATE, 0, stream).putInt(increment);
+    }
+
+    private void sendReset(int stream, int error) {
+        frame(4, RST_STREAM, 0, stream).putInt(error);
+    }
+
+    private void sendGoAway(int error) {
+        if (goAwaySent) {
+            return;
+        }
+        goAwaySent = true;
+        goingAway = true;
+        frame(8, GOAWAY, 0, 0).putInt(lastStream).putInt(error);
+    }
+
+    private void sendHeaders(int stream, boolean endStream) {
+        var data = encoder.getBlock();
+        var length = encoder.getLength();
+        var offset = 0;
+        var type = HEADERS;
+        do {
+            var size = Math.min(length - offset, peerFrameSize);
+            var last = offset + size == length;
+            var flags = (last ? FLAG_END_HEADERS : 0) | (endStream && type == HEADERS ? FLAG_END_STREAM : 0);
+            frame(size, type, flags, stream).put(data, offset, size);
+            offset += size;
+            type = CONTINUATION;
+        } while (offset < length);
+    }
+
+    private void sendData() {
+        var iterator = blocked.iterator();
+        while (iterator.hasNext() && sendWindow > 0) {
+            var stream = iterator.next();
+            var segments = stream.segments;
+            while (!segments.isEmpty() && stream.sendWindow > 0 && sendWindow > 0) {
+                var segment = segments.peek();
+                var size = (int) Math.min(Math.min(segment.remaining(), peerFrameSize),
+                        Math.min(sendWindow, stream.sendWindow));
+                var slice = segment.duplicate();
+                slice.limit(slice.position() + size);
+                segment.position(segment.position() + size);
+                if (!segment.hasRemaining()) {
+                    segments.poll();
+                }
+                var flags = segments.isEmpty() ? FLAG_END_STREAM : 0;
+                putHeader(room(FRAME_HEADER_SIZE), size, DATA, flags, stream.id);
+                seal();
+                queue.add(slice);
+                sendWindow -= size;
+                stream.sendWindow -= size;
+            }
+            if (segments.isEmpty()) {
+                iterator.remove();
+                retire(stream);
+            }
+        }
+    }
+
+    private boolean flush() throws IOException {
+        seal();
+        while (!queue.isEmpty()) {
+            var count = queue.size();
+            if (gather.length < count) {
+                gather = new ByteBuffer[Math.max(count, gather.length * 2)];
+            }
+            queue.toArray(gather);
+            var written = output.write(gather, 0, count);
+            Arrays.fill(gather, 0, count, null);
+            while (!queue.isEmpty() && !queue.peek().hasRemaining()) {
+                queue.poll();
+            }
+            if (written == 0 && !queue.isEmpty()) {
+                writePending = true;
+                return true;
+            }
+        }
+        writePending = false;
+        releaseOutput();
+        if (failed || (goingAway && streams.isEmpty())) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    private void releaseOutput() {
+        for (var chunk : chunks) {
+            pool.release(chunk);
+        }
+        chunks.clear();
+        chunk = null;
+        for (var stream : retired) {
+            stream.release();
+        }
+        retired.clear();
+    }
+
+    // Streams
+
+    private void retire(Stream stream) {
+        streams.remove(stream.id);
+        // The request body may be referenced by queued DATA frames, so it is released after the flush
+        retired.add(stream);
+    }
+
+    private void reset(int id, int error) {
+        var stream = streams.get(id);
+        if (stream != null) {
+            blocked.remove(stream);
+            retire(stream);
+            stream.cancellation.cancel();
+        }
+        sendReset(id, error);
+    }
+
+    private void fail(int error) {
+        sendGoAway(error);
+        failed = true;
+        for (var stream : streams.values()) {
+            retired.add(stream);
+            stream.cancellation.cancel();
+        }
+        streams.clear();
+        blocked.clear();
+    }
+
+    private void respond(Stream stream) {
+        var status = stream.status;
+        var head = stream.method == HttpMethod.HEAD;
+        var endStream = stream.segments.isEmpty() || head;
+        encoder.begin();
+        encoder.encode(":status", Integer.toString(status.getCode()));
+        var names = stream.responseNames;
+        var values = stream.responseValues;
+        for (var i = 0; i < names.size(); ++i) {
+            encoder.encode(names.get(i), values.get(i));
+        }
+        if (stream.bodyAllowed && !stream.lengthSet) {
+            encoder.encode("content-length", Long.toString(stream.bodySize));
+        }
+        sendHeaders(stream.id, endStream);
+        if (endStream) {
+            stream.segments.clear();
+            retire(stream);
+        } else {
+            blocked.add(stream);
+            sendData();
+        }
+        if (stream.closeRequested) {
+            sendGoAway(Http2Exception.NO_ERROR);
+        }
+    }
+
+    private void reject(Stream stream, HttpCode code) {
+        stream.begin(code);
+        respond(stream);
+        if (!stream.remoteClosed) {
+            // The response is complete, so the rest of the request is not needed
+            sendReset(stream.id, Http2Exception.NO_ERROR);
+        }
+    }
+
+    private void dispatch(Stream stream) {
+        stream.remoteClosed = true;
+        if (stream.method == null) {
+            stream.method = HttpMethod.all().get(stream.methodName);
+            if (stream.method == null) {
+                reject(stream, HttpCode.NOT_IMPLEMENTED);
+                return;
+            }
+        }
+        stream.view = stream.body == null ? EMPTY : stream.body.duplicate().flip().asReadOnlyBuffer();
+        try {
+            handler.run(stream);
+        } catch (Throwable e) {
+            stream.status = null;
+        }
+        if (stream.status == null) {
+            stream.begin(HttpCode.INTERNAL_SERVER_ERROR);
+        }
+        respond(stream);
+    }
+
+    // Input
+
+    private static Http2Exception error(int error, String message) {
+        return new Http2Exception(error, message);
+    }
+
+    private static ByteBuffer unpad(int flags, ByteBuffer payload) throws Http2Exception {
+        if ((flags & FLAG_PADDED) == 0) {
+            return payload;
+        }
+        if (!payload.hasRemaining()) {
+            throw error(Http2Exception.FRAME_SIZE_ERROR, "Missing pad length");
+        }
+        var padding = payload.get() & 0xFF;
+        if (padding > payload.remaining()) {
+            throw error(Http2Exception.PROTOCOL_ERROR, "Padding exceeds the payload");
+        }
+        payload.limit(payload.limit() - padding);
+        return payload;
+    }
+
+    private void ensureBuffer() {
+        if (buffer == null) {
+            buffer = pool.acquire(FRAME_HEADER_SIZE + DEFAULT_FRAME_SIZE);
+            buffer.limit(0);
+            return;
+        }
+        if (buffer.limit() == buffer.capacity() && buffer.position() > 0) {
+            buffer.compact().flip();
+        }
+    }
+
+    private void releaseBuffer() {
+        if (buffer != null && !buffer.hasRemaining()) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    private void receive() throws Http2Exception {
+        while (!failed && buffer.hasRemaining()) {
+            var position = buffer.position();
+            if (!prefaceReceived) {
+                if (buffer.remaining() < PREFACE.length) {
+                    return;
+                }
+                for (var i = 0; i < PREFACE.length; ++i) {
+                    if (buffer.get(position + i) != PREFACE[i]) {
+                        throw error(Http2Exception.PROTOCOL_ERROR, "Invalid connection preface");
+                    }
+                }
+                buffer.position(position + PREFACE.length);
+                prefaceReceived = true;
+                continue;
+            }
+            if (buffer.remaining() < FRAME_HEADER_SIZE) {
+                return;
+            }
+            var length = (buffer.get(position) & 0xFF) << 16
+                    | (buffer.get(position + 1) & 0xFF) << 8
+                    | buffer.get(position + 2) & 0xFF;
+            if (length > DEFAULT_FRAME_SIZE) {
+                throw error(Http2Exception.FRAME_SIZE_ERROR, "Frame exceeds the maximum size");
+            }
+            if (buffer.remaining() < FRAME_HEADER_SIZE + length) {
+                return;
+            }
+            var type = buffer.get(position + 3) & 0xFF;
+            var flags = buffer.get(position + 4) & 0xFF;
+            var stream = buffer.getInt(position + 5) & 0x7FFFFFFF;
+            var payload = buffer.duplicate();
+            payload.limit(position + FRAME_HEADER_SIZE + length).position(position + FRAME_HEADER_SIZE);
+            buffer.position(position + FRAME_HEADER_SIZE + length);
+            try {
+                onFrame(type, flags, stream, payload);
+            } catch (Http2Exception e) {
+                if (e.getStream() == 0) {
+                    throw e;
+                }
+                reset(e.getStream(), e.getError());
+            }
+        }
+    }
+
+    private void onFrame(int type, int flags, int stream, ByteBuffer payload) throws Http2Exception {
+        if (!settingsReceived && type != SETTINGS) {
+            throw error(Http2Exception.PROTOCOL_ERROR, "Connection must start with SETTINGS frame");
+        }
+        if (blockStream != 0 && (type != CONTINUATION || stream != blockStream)) {
+            throw error(Http2Exception.PROTOCOL_ERROR, "Header block is interrupted");
+        }
+        switch (type) {
+            case DATA:
+                onData(flags, stream, payload);
+                break;
+            case HEADERS:
+                onHeaders(flags, stream, payload);
+                break;
+            case PRIORITY:
+                checkStream(stream);
+                if (payload.remaining() != 5) {
+                    throw new Http2Exception(Http2Exception.FRAME_SIZE_ERROR, stream, "Invalid PRIORITY frame");
+                }
+                break;
+            case RST_STREAM:
+                onReset(stream, payload);
+                break;
+            case SETTINGS:
+                onSettings(flags, stream, payload);
+                break;
+            case PUSH_PROMISE:
+                throw error(Http2Exception.PROTOCOL_ERROR, "Client cannot push streams");
+            case PING:
+                onPing(flags, stream, payload);
+                break;
+            case GOAWAY:
+                if (stream != 0 || payload.remaining() < 8) {
+                    throw error(Http2Exception.PROTOCOL_ERROR, "Invalid GOAWAY frame");
+                }
+                goingAway = true;
+                break;
+            case WINDOW_UPDATE:
+                onWindowUpdate(stream, payload);
+                break;
+            case CONTINUATION:
+                if (blockStream == 0) {
+                    throw error(Http2Exception.PROTOCOL_ERROR, "Unexpected CONTINUATION frame");
+                }
+                appendBlock(payload);
+                if ((flags & FLAG_END_HEADERS) != 0) {
+                    onHeaderBlock();
+                }
+                break;
+            default:
+                // Unknown frame types must be ignored
+        }
+    }
+
+    private static void checkStream(int stream) throws Http2Exception {
+        if (stream == 0) {
+            throw error(Http2Exception.PROTOCOL_ERROR, "Frame requires a stream");
+        }
+    }
+
+    private void checkIdle(int stream) throws Http2Exception {
+        if (stream > lastStream) {
+            throw error(Http2Exception.PROTOCOL_ERROR, "Frame received for idle stream " + stream);
+        }
+    }
+
+    private void onData(int flags, int id, ByteBuffer payload) throws Http2Exception {
+        checkStream(id);
+        var length = payload.remaining();
+        receiveWindow -= length;
+        if (receiveWindow < 0) {
+            throw error(Http2Exception.FLOW_CONTROL_ERROR, "Connection window exceeded");
+        }
+        if (receiveWindow <= DEFAULT_WINDOW / 2) {
+            // The data is consumed immediately, so the connection window is always replenished
+            sendWindowUpdate(0, DEFAULT_WINDOW - receiveWindow);
+            receiveWindow = DEFAULT_WINDOW;
+        }
+        var stream = streams.get(id);
+        if (stream == null) {
+            // The stream has been closed or reset, the frames in flight are discarded
+            checkIdle(id);
+            return;
+        }
+        if (stream.remoteClosed) {
+            throw new Http2Exception(Http2Exception.STREAM_CLOSED, id, "Stream is half-closed");
+        }
+        stream.receiveWindow -= length;
+        if (stream.receiveWindow < 0) {
+            throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, id, "Stream window exceeded");
+        }
+        var data = unpad(flags, payload);
+        var endStream = (flags & FLAG_END_STREAM) != 0;
+        if (stream.received + data.remaining() > maxBodySize) {
+            stream.remoteClosed = endStream;
+            reject(stream, HttpCode.PAYLOAD_TOO_LARGE);
+            return;
+        }
+        if (data.hasRemaining()) {
+            stream.append(data);
+        }
+        if (endStream) {
+            dispatch(stream);
+            return;
+        }
+        if (stream.receiveWindow <= DEFAULT_WINDOW / 2) {
+            sendWindowUpdate(id, DEFAULT_WINDOW - stream.receiveWindow);
+            stream.receiveWindow = DEFAULT_WINDOW;
+        }
+    }
+
+    private void appendBlock(ByteBuffer fragment) throws Http2Exception {
+        var length = fragment.remaining();
+        if (blockLength + length > maxHeadSize * 2 + DEFAULT_FRAME_SIZE) {
+            throw error(Http2Exception.ENHANCE_YOUR_CALM, "Header block is too large");
+        }
+        if (block.length - blockLength < length) {
+            block = Arrays.copyOf(block, Math.max(block.length * 2, blockLength + length));
+        }
+        fragment.get(block, blockLength, length);
+        blockLength += length;
+    }
+
+    private void onHeaders(int flags, int stream, ByteBuffer payload) throws Http2Exception {
+        checkStream(stream);
+        var fragment = unpad(flags, payload);
+        if ((flags & FLAG_PRIORITY) != 0) {
+            if (fragment.remaining() < 5) {
+                throw error(Http2Exception.FRAME_SIZE_ERROR, "Invalid HEADERS frame");
+            }
+            fragment.position(fragment.position() + 5);
+        }
+        blockStream = stream;
+        blockFlags = flags;
+        blockLength = 0;
+        appendBlock(fragment);
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            onHeaderBlock();
+        }
+    }
+
+    private void onHeaderBlock() throws Http2Exception {
+        var id = blockStream;
+        var endStream = (blockFlags & FLAG_END_STREAM) != 0;
+        blockStream = 0;
+        var stream = streams.get(id);
+        if (stream != null || id <= lastStream) {
+            // Trailers are decoded to keep the table in sync, but ignored, as well as the frames in flight
+            // of the streams which have been closed or reset
+            decoder.decode(block, 0, blockLength, (name, value) -> {
+            });
+            if (stream == null) {
+                return;
+            }
+            if (stream.remoteClosed || !endStream) {
+                throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, id, "Invalid trailers");
+            }
+            dispatch(stream);
+            return;
+        }
+        if ((id & 1) == 0) {
+            throw error(Http2Exception.PROTOCOL_ERROR, "Invalid stream identifier: " + id);
+        }
+        lastStream = id;
+        stream = new Stream(id);
+        var fits = decoder.decode(block, 0, blockLength, stream::addField);
+        if (goingAway || streams.size() >= maxStreams) {
+            sendReset(id, Http2Exception.REFUSED_STREAM);
+            return;
+        }
+        if (stream.malformed || stream.methodName == null || stream.path == null) {
+            sendReset(id, Http2Exception.PROTOCOL_ERROR);
+            return;
+        }
+        streams.put(id, stream);
+        ++served;
+        if (!fits) {
+            stream.remoteClosed = endStream;
+            reject(stream, HttpCode.REQUEST_HEADER_FIELDS_TOO_LARGE);
+        } else if (endStream) {
+            dispatch(stream);
+        }
+    }
+
+    private void onReset(int id, ByteBuffer payload) throws Http2Exception {
+        checkStream(id);
+        if (payload.remaining() != 4) {
+            throw error(Http2Exception.FRAME_SIZE_ERROR, "Invalid RST_STREAM frame");
+        }
+        checkIdle(id);
+        var stream = streams.get(id);
+        if (stream != null) {
+            blocked.remove(stream);
+            retire(stream);
+            stream.cancellation.cancel();
+        }
+    }
+
+    private void onSettings(int flags, int stream, ByteBuffer payload) throws Http2Exception {
+        if (stream != 0) {
+            throw error(Http2Exception.PROTOCOL_ERROR, "SETTINGS frame cannot have a stream");
+        }
+        if ((flags & FLAG_ACK) != 0) {
+            if (payload.hasRemaining()) {
+                throw error(Http2Exception.FRAME_SIZE_ERROR, "SETTINGS acknowledgement must be empty");
+            }
+            return;
+        }
+        applySettings(payload);
+        settingsReceived = true;
+        frame(0, SETTINGS, FLAG_ACK, 0);
+    }
+
+    private void applySettings(ByteBuffer payload) throws Http2Exception {
+        if (payload.remaining() % 6 != 0) {
+            throw error(Http2Exception.FRAME_SIZE_ERROR, "Invalid SETTINGS frame");
+        }
+        while (payload.hasRemaining()) {
+            var id = payload.getShort() & 0xFFFF;
+            var value = payload.getInt();
+            switch (id) {
+                case SETTINGS_HEADER_TABLE_SIZE:
+                    encoder.setTableSizeLimit(value < 0 ? Integer.MAX_VALUE : value);
+                    break;
+                case SETTINGS_ENABLE_PUSH:
+                    if (value != 0 && value != 1) {
+                        throw error(Http2Exception.PROTOCOL_ERROR, "Invalid SETTINGS_ENABLE_PUSH");
+                    }
+                    break;
+                case SETTINGS_INITIAL_WINDOW_SIZE:
+                    if (value < 0) {
+                        throw error(Http2Exception.FLOW_CONTROL_ERROR, "Invalid SETTINGS_INITIAL_WINDOW_SIZE");
+                    }
+                    var delta = value - peerWindow;
+                    peerWindow = value;
+                    for (var open : streams.values()) {
+                        open.sendWindow += delta;
+                        if (open.sendWindow > Integer.MAX_VALUE) {
+                            throw error(Http2Exception.FLOW_CONTROL_ERROR, "Stream window overflow");
+                        }
+                    }
+                    sendData();
+                    break;
+                case SETTINGS_MAX_FRAME_SIZE:
+                    if (value < DEFAULT_FRAME_SIZE || value > MAX_FRAME_SIZE) {
+                        throw error(Http2Exception.PROTOCOL_ERROR, "Invalid SETTINGS_MAX_FRAME_SIZE");
+                    }
+                    peerFrameSize = value;
+                    break;
+                default:
+                    // Concurrency and header list limits of the client do not affect the server,
+                    // unknown settings must be ignored
+            }
+        }
+    }
+
+    private void onPing(int flags, int stream, ByteBuffer payload) throws Http2Exception {
+        if (stream != 0) {
+            throw error(Http2Exception.PROTOCOL_ERROR, "PING frame cannot have a stream");
+        }
+        if (payload.remaining() != 8) {
+            throw error(Http2Exception.FRAME_SIZE_ERROR, "Invalid PING frame");
+        }
+        if ((flags & FLAG_ACK) == 0) {
+            frame(8, PING, FLAG_ACK, 0).put(payload);
+        }
+    }
+
+    private void onWindowUpdate(int id, ByteBuffer payload) throws Http2Exception {
+        if (payload.remaining() != 4) {
+            throw error(Http2Exception.FRAME_SIZE_ERROR, "Invalid WINDOW_UPDATE frame");
+        }
+        var increment = payload.getInt() & 0x7FFFFFFF;
+        if (id == 0) {
+            if (increment == 0) {
+                throw error(Http2Exception.PROTOCOL_ERROR, "Zero window increment");
+            }
+            sendWindow += increment;
+            if (sendWindow > Integer.MAX_VALUE) {
+                throw error(Http2Exception.FLOW_CONTROL_ERROR, "Connection window overflow");
+            }
+            sendData();
+            return;
+        }
+        checkIdle(id);
+        var stream = streams.get(id);
+        if (stream == null) {
+            return;
+        }
+        if (increment == 0) {
+            throw new Http2Exception(Http2Exception.PROTOCOL_ERROR, id, "Zero window increment");
+        }
+        stream.sendWindow += increment;
+        if (stream.sendWindow > Integer.MAX_VALUE) {
+            throw new Http2Exception(Http2Exception.FLOW_CONTROL_ERROR, id, "Stream window overflow");
+        }
+        sendData();
+    }
+
+    private boolean process() throws IOException {
+        try {
+            receive();
+        } catch (Http2Exception e) {
+            fail(e.getError());
+        }
+        return flush();
+    }
+
+    private boolean receive(ByteBuffer data) throws IOException {
+        while (data.hasRemaining() && !failed) {
+            ensureBuffer();
+            var position = buffer.position();
+            var size = Math.min(data.remaining(), buffer.capacity() - buffer.limit());
+            var source = data.duplicate();
+            source.limit(source.position() + size);
+            buffer.position(buffer.limit()).limit(buffer.limit() + size);
+            buffer.put(source).position(position);
+            data.position(data.position() + size);
+            try {
+                receive();
+            } catch (Http2Exception e) {
+                fail(e.getError());
+            }
+        }
+        if (buffer != null) {
+            releaseBuffer();
+        }
+        return flush();
+    }
+
+    /**
+     * Starts the connection, which has been switched from HTTP/1.1 by the client connection preface.
+     *
+     * @param data the bytes received over HTTP/1.1, starting with the preface
+     * @return true if the connection remains open, false if it has been closed
+     * @throws IOException if an I/O error occurs
+     */
+    boolean start(ByteBuffer data) throws IOException {
+        sendPreface();
+        return receive(data);
+    }
+
+    /**
+     * Starts the connection, which has been upgraded from HTTP/1.1 by the request with 'Upgrade: h2c' header.
+     * The upgrade request becomes stream 1, which is handled immediately.
+     *
+     * @param settings the decoded payload of HTTP2-Settings header
+     * @param request  the upgrade request head
+     * @param body     the upgrade request body
+     * @param data     the bytes received over HTTP/1.1 after the upgrade request
+     * @return true if the connection remains open, false if it has been closed
+     * @throws IOException if an I/O error occurs
+     */
+    boolean upgrade(byte[] settings, HttpRequestParser request, ByteBuffer body, ByteBuffer data) throws IOException {
+        room(SWITCHING_PROTOCOLS.length).put(SWITCHING_PROTOCOLS);
+        sendPreface();
+        try {
+            applySettings(ByteBuffer.wrap(settings));
+        } catch (Http2Exception e) {
+            fail(e.getError());
+            return flush();
+        }
+        var stream = new Stream(1);
+        stream.method = request.getMethod();
+        stream.path = request.getTarget();
+        for (var i = 0; i < request.getHeaderCount(); ++i) {
+            var name = request.getHeaderName(i).toLowerCase(Locale.ENGLISH);
+            if (name.equals("host")) {
+                stream.authority = request.getHeaderValue(i);
+            } else if (!name.equals("http2-settings") && !CONNECTION_HEADERS.contains(name)) {
+                stream.names.add(name);
+                stream.values.add(request.getHeaderValue(i));
+            }
+        }
+        if (body.hasRemaining()) {
+            stream.append(body);
+        }
+        lastStream = 1;
+        streams.put(1, stream);
+        ++served;
+        dispatch(stream);
+        return receive(data);
+    }
+
+    /**
+     * Reads available bytes from the channel and handles the received frames.
+     *
+     * @return true if the connection remains open, false if it has been closed
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean read() throws IOException {
+        if (closed) {
+            return false;
+        }
+        if (writePending) {
+            return true;
+        }
+        sendPreface();
+        ensureBuffer();
+        var position = buffer.position();
+        buffer.position(buffer.limit()).limit(buffer.capacity());
+        int read;
+        try {
+            read = input.read(buffer);
+        } finally {
+            buffer.limit(buffer.position()).position(position);
+        }
+        if (read < 0) {
+            close();
+            return false;
+        }
+        if (!process()) {
+            return false;
+        }
+        releaseBuffer();
+        return true;
+    }
+
+    /**
+     * Continues writing the pending frames.
+     *
+     * @return true if the connection remains open, false if it has been closed
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean write() throws IOException {
+        if (closed) {
+            return false;
+        }
+        if (!writePending) {
+            return true;
+        }
+        return flush();
+    }
+
+    /**
+     * Closes the connection channel and releases the buffers. Open streams are discarded.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (var stream : streams.values()) {
+            retired.add(stream);
+            stream.cancellation.cancel();
+        }
+        streams.clear();
+        blocked.clear();
+        queue.clear();
+        releaseOutput();
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+        channel.close();
+    }
+
+    private final class Stream implements HttpExchange {
+        private final int id;
+        private final List<String> names;
+        private final List<String> values;
+        private final List<String> responseNames;
+        private final List<String> responseValues;
+        private final ArrayDeque<ByteBuffer> segments;
+        private final Cancellation cancellation;
+        private String methodName;
+        private String path;
+        private String authority;
+        private boolean regular;
+        private boolean malformed;
+        private HttpMethod method;
+        private ByteBuffer body;
+        private ByteBuffer view;
+        private int received;
+        private boolean remoteClosed;
+        private long sendWindow;
+        private int receiveWindow;
+        private HttpCode status;
+        private long bodySize;
+        private boolean lengthSet;
+        private boolean bodyAllowed;
+        private boolean closeRequested;
+
+        private Stream(int id) {
+            this.id = id;
+            this.names = new ArrayList<>();
+            this.values = new ArrayList<>();
+            this.responseNames = new ArrayList<>();
+            this.responseValues = new ArrayList<>();
+            this.segments = new ArrayDeque<>();
+            this.cancellation = new Cancellation();
+            this.sendWindow = peerWindow;
+            this.receiveWindow = DEFAULT_WINDOW;
+        }
+
+        private void addField(String name, String value) {
+            if (name.startsWith(":")) {
+                if (regular) {
+                    malformed = true;
+                    return;
+                }
+                switch (name) {
+                    case ":method":
+                        malformed |= methodName != null;
+                        methodName = value;
+                        break;
+                    case ":path":
+                        malformed |= path != null || value.isEmpty();
+                        path = value;
+                        break;
+                    case ":authority":
+                        malformed |= authority != null;
+                        authority = value;
+                        break;
+                    case ":scheme":
+                        break;
+                    default:
+                        malformed = true;
+                }
+                return;
+            }
+            regular = true;
+            for (var i = 0; i < name.length(); ++i) {
+                var c = name.charAt(i);
+                if (c >= 'A' && c <= 'Z') {
+                    malformed = true;
+                    return;
+                }
+            }
+            if (CONNECTION_HEADERS.contains(name) || (name.equals("te") && !value.equals("trailers"))) {
+                malformed = true;
+                return;
+            }
+            names.add(name);
+            values.add(value);
+        }
+
+        private void append(ByteBuffer data) {
+            var size = data.remaining();
+            if (body == null) {
+                body = pool.acquire(Math.max(size, 1024));
+            } else if (body.remaining() < size) {
+                var grown = pool.acquire(Math.max(body.capacity() * 2, body.position() + size));
+                grown.put(body.flip());
+                pool.release(body);
+                body = grown;
+            }
+            body.put(data);
+            received += size;
+        }
+
+        private void release() {
+            cancellation.complete();
+            if (body != null) {
+                pool.release(body);
+                body = null;
+            }
+            view = null;
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return method;
+        }
+
+        @Override
+        public HttpVersion getVersion() {
+            return HttpVersion.HTTP_2_0;
+        }
+
+        @Override
+        public String getTarget() {
+            return path;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            for (var i = 0; i < names.size(); ++i) {
+                if (names.get(i).equalsIgnoreCase(name)) {
+                    return values.get(i);
+                }
+            }
+            if (name.equalsIgnoreCase("host")) {
+                return authority;
+            }
+            return null;
+        }
+
+        private boolean isHostMissing() {
+            return authority != null && !names.contains("host");
+        }
+
+        @Override
+        public int getHeaderCount() {
+            // The authority is presented as Host header, as getHeader does
+            return isHostMissing() ? names.size() + 1 : names.size();
+        }
+
+        @Override
+        public String getHeaderName(int index) {
+            if (index == names.size() && isHostMissing()) {
+                return "host";
+            }
+            return names.get(index);
+        }
+
+        @Override
+        public String getHeaderValue(int index) {
+            if (index == names.size() && isHostMissing()) {
+                return authority;
+            }
+            return values.get(index);
+        }
+
+        @Override
+        public ByteBuffer getBody() {
+            return view;
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return remote;
+        }
+
+        @Override
+        public boolean isSecure() {
+            return channel instanceof TlsChannel;
+        }
+
+        @Override
+        public void begin(HttpCode code) {
+            status = code;
+            responseNames.clear();
+            responseValues.clear();
+            segments.clear();
+            bodySize = 0;
+            lengthSet = false;
+            bodyAllowed = HttpResponseEncoder.isBodyAllowed(code);
+        }
+
+        private void checkStarted() {
+            if (status == null) {
+                throw new IllegalStateException("Response is not started");
+            }
+        }
+
+        @Override
+        public void header(String name, String value) {
+            checkStarted();
+            HttpResponseEncoder.checkField(name);
+            HttpResponseEncoder.checkField(value);
+            var lower = name.toLowerCase(Locale.ENGLISH);
+            if (CONNECTION_HEADERS.contains(lower)) {
+                return;
+            }
+            if (lower.equals("content-length")) {
+                lengthSet = true;
+            }
+            responseNames.add(lower);
+            responseValues.add(value);
+        }
+
+        @Override
+        public void body(ByteBuffer segment) {
+            checkStarted();
+            if (!bodyAllowed) {
+                throw new IllegalStateException("Response status does not allow a body");
+            }
+            if (!segment.hasRemaining()) {
+                return;
+            }
+            segments.add(segment);
+            bodySize += segment.remaining();
+        }
+
+        @Override
+        public boolean isKeepAlive() {
+            return !goingAway && !closeRequested;
+        }
+
+        @Override
+        public void close() {
+            closeRequested = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancellation.isCancelled();
+        }
+
+        @Override
+        public void onCancel(Runnable action) {
+            cancellation.onCancel(action);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.amayaframework.server;
+
+import java.io.IOException;
+
+/**
+ * Thrown to indicate that the peer of HTTP/2 connection has violated the protocol.
+ * Holds the error code (see rfc9113, section 7) and the stream the error is limited to.
+ * Errors of stream 0 are connection errors.
+ */
+public class Http2Exception extends IOException {
+    /**
+     * The graceful shutdown, not an error.
+     */
+    public static final int NO_ERROR = 0x0;
+    /**
+     * The unspecific protocol error.
+     */
+    public static final int PROTOCOL_ERROR = 0x1;
+    /**
+     * The unexpected internal error.
+     */
+    public static final int INTERNAL_ERROR = 0x2;
+    /**
+     * The violation of the flow-control protocol.
+     */
+    public static final int FLOW_CONTROL_ERROR = 0x3;
+    /**
+     * The frame received for a closed stream.
+     */
+    public static final int STREAM_CLOSED = 0x5;
+    /**
+     * The frame of invalid size.
+     */
+    public static final int FRAME_SIZE_ERROR = 0x6;
+    /**
+     * The stream refused before any processing.
+     */
+    public static final int REFUSED_STREAM = 0x7;
+    /**
+     * The stream is no longer needed.
+     */
+    public static final int CANCEL = 0x8;
+    /**
+     * The header compression context cannot be maintained.
+     */
+    public static final int COMPRESSION_ERROR = 0x9;
+    /**
+     * The peer generates excessive load.
+     */
+    public static final int ENHANCE_YOUR_CALM = 0xb;
+
+    /**
+     * The error code.
+     */
+    private final int error;
+    /**
+     * The stream identifier, 0 for connection errors.
+     */
+    private final int stream;
+
+    /**
+     * Constructs an {@link Http2Exception} instance describing the stream error.
+     *
+     * @param error   the error code
+     * @param stream  the stream identifier, 0 for connection errors
+     * @param message the detail message
+     */
+    public Http2Exception(int error, int stream, String message) {
+        super(message);
+        this.error = error;
+        this.stream = stream;
+    }
+
+    /**
+     * Constructs an {@link Http2Exception} instance describing the connection error.
+     *
+     * @param error   the error code
+     * @param message the detail message
+     */
+    public Http2Exception(int error, String message) {
+        this(error, 0, message);
+    }
+
+    /**
+     * Gets the error code.
+     *
+     * @return the error code
+     */
+    public int getError() {
+        return error;
+    }
+
+    /**
+     * Gets the identifier of the stream the error is limited to.
+     *
+     * @return the stream identifier, 0 for connection errors
+     */
+    public int getStream() {
+        return stream;
+    }
+}
@@ -0,0 +1,394 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.service.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An acceptor of connections to the listened addresses, which distributes them across {@link HttpConnectionLoop}s.
+ * <br>
+ * If SO_REUSEPORT is available, each loop has its own acceptor thread listening every address with a separate
+ * channel, so the kernel balances incoming connections across the channels and accepts scale with the loops.
+ * Otherwise, a single acceptor thread listens every address with one channel and registers accepted connections
+ * in the loops round-robin. The port is reused only on Linux, where the kernel balances connections between
+ * the channels, on other systems the last bound channel may receive all of them.
+ * <br>
+ * Unix domain socket addresses are supported on Java 16 and later, see {@link UnixSockets}. Each of them is listened
+ * with a single channel distributing connections round-robin, the socket file is created on start and deleted on stop.
+ * <br>
+ * Each wakeup accepts all pending connections, so connection bursts are drained without a selection per connection.
+ * If accepting fails, for example, when the descriptor limit is reached, the listener stops selecting for accepts
+ * for a short delay instead of spinning on the pending connection, which stays in the backlog.
+ * Connections accepted on an address listened over TLS are registered with its {@link TlsConfig}.
+ * The loops are not managed by the acceptor, they should be started before it and stopped after it.
+ */
+public final class HttpAcceptor implements Service {
+    /**
+     * The default maximum length of the queue of incoming connections.
+     */
+    public static final int DEFAULT_BACKLOG = 1024;
+
+    private static final boolean LINUX = System.getProperty("os.name", "").startsWith("Linux");
+    private static final long ACCEPT_BACKOFF = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final List<HttpConnectionLoop> loops;
+    private final int backlog;
+    private final boolean reusePort;
+    private final Map<SocketAddress, TlsConfig> addresses;
+    private final List<Acceptor> acceptors;
+    private final List<SocketAddress> localAddresses;
+    private volatile boolean running;
+    private boolean reusing;
+
+    /**
+     * Constructs {@link HttpAcceptor} instance with given loops and settings.
+     *
+     * @param loops     the list of {@link HttpConnectionLoop}s serving accepted connections, must be non-empty
+     * @param backlog   the maximum length of the queue of incoming connections of each channel
+     * @param reusePort if true, SO_REUSEPORT is used where it is available, otherwise a single acceptor is used
+     */
+    public HttpAcceptor(List<HttpConnectionLoop> loops, int backlog, boolean reusePort) {
+        if (loops.isEmpty()) {
+            throw new IllegalArgumentException("Acceptor requires at least one loop");
+        }
+        if (backlog <= 0) {
+            throw new IllegalArgumentException("Value must be positive: " + backlog);
+        }
+        this.loops = List.copyOf(loops);
+        this.backlog = backlog;
+        this.reusePort = reusePort;
+        this.addresses = new LinkedHashMap<>();
+        this.acceptors = new ArrayList<>();
+        this.localAddresses = new ArrayList<>();
+    }
+
+    /**
+     * Constructs {@link HttpAcceptor} instance with given loops, default backlog and SO_REUSEPORT where available.
+     *
+     * @param loops the list of {@link HttpConnectionLoop}s serving accepted connections, must be non-empty
+     */
+    public HttpAcceptor(List<HttpConnectionLoop> loops) {
+        this(loops, DEFAULT_BACKLOG, true);
+    }
+
+    private void checkStopped() {
+        if (running) {
+            throw new IllegalStateException("Acceptor already started");
+        }
+    }
+
+    /**
+     * Adds given address to the listened addresses.
+     *
+     * @param address the address to be listened, must be non-null
+     * @throws IllegalArgumentException if the address is neither an inet nor a unix domain socket address
+     * @throws IllegalStateException    if acceptor started
+     */
+    public void bind(SocketAddress address) {
+        bind(address, null);
+    }
+
+    /**
+     * Adds given address to the listened addresses, which will be listened over TLS.
+     *
+     * @param address the address to be listened, must be non-null
+     * @param tls     the {@link TlsConfig} instance of the address, null to listen without TLS
+     * @throws IllegalArgumentException if the address is neither an inet nor a unix domain socket address
+     * @throws IllegalStateException    if acceptor started
+     */
+    public void bind(SocketAddress address, TlsConfig tls) {
+        checkStopped();
+        Objects.requireNonNull(address);
+        if (!(address instanceof InetSocketAddress) && !UnixSockets.isUnixAddress(address)) {
+            throw new IllegalArgumentException("Unsupported address type: " + address.getClass().getName());
+        }
+        addresses.put(address, tls);
+    }
+
+    /**
+     * Adds all the addresses listened by given config: the inet addresses, with their {@link TlsConfig}
+     * if the config is a {@link HttpServerConfig}, and the unix domain socket addresses.
+     *
+     * @param config the {@link ServerConfig} instance, must be non-null
+     * @throws IllegalStateException if acceptor started
+     */
+    public void bind(ServerConfig config) {
+        checkStopped();
+        var tls = config instanceof HttpServerConfig ? (HttpServerConfig) config : null;
+        for (var address : config.getAddresses()) {
+            bind(address, tls == null ? null : tls.getTlsConfig(address));
+        }
+        for (var address : config.getUnixAddresses()) {
+            bind(address, null);
+        }
+    }
+
+    /**
+     * Removes given address from the listened addresses.
+     *
+     * @param address the address to be removed, must be non-null
+     * @throws IllegalStateException if acceptor started
+     */
+    public void unbind(SocketAddress address) {
+        checkStopped();
+        addresses.remove(address);
+    }
+
+    /**
+     * Gets the addresses the acceptor is bound to, in the order they were added.
+     * Unlike the listened addresses, they contain the actual ports if ephemeral ones were requested.
+     *
+     * @return the unmodifiable list of bound addresses, empty if acceptor is not running
+     */
+    public List<SocketAddress> getLocalAddresses() {
+        return Collections.unmodifiableList(localAddresses);
+    }
+
+    /**
+     * Checks whether the running acceptor uses SO_REUSEPORT.
+     *
+     * @return true if each loop has its own listening channels, false otherwise
+     */
+    public boolean isReusePort() {
+        return reusing;
+    }
+
+    private ServerSocketChannel open(SocketAddress address, boolean reuse) throws IOException {
+        var ret = address instanceof InetSocketAddress ? ServerSocketChannel.open() : UnixSockets.open();
+        try {
+            if (reuse) {
+                ret.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            ret.bind(address, backlog);
+            ret.configureBlocking(false);
+            return ret;
+        } catch (IOException e) {
+            closeQuietly(ret);
+            throw e;
+        }
+    }
+
+    private boolean canReusePort() throws IOException {
+        if (!reusePort || !LINUX || loops.size() == 1) {
+            return false;
+        }
+        try (var channel = ServerSocketChannel.open()) {
+            return channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        }
+    }
+
+    private void open() throws IOException {
+        reusing = canReusePort();
+        var count = reusing ? loops.size() : 1;
+        for (var i = 0; i < count; ++i) {
+            acceptors.add(new Acceptor());
+        }
+        for (var entry : addresses.entrySet()) {
+            var address = entry.getKey();
+            var tls = entry.getValue();
+            if (!(address instanceof InetSocketAddress)) {
+                var channel = open(address, false);
+                acceptors.get(0).add(new Listener(channel, tls, loops, UnixSockets.getPath(address)));
+                localAddresses.add(address);
+                continue;
+            }
+            var first = open(address, reusing);
+            acceptors.get(0).add(new Listener(first, tls, reusing ? List.of(loops.get(0)) : loops, null));
+            var local = (InetSocketAddress) first.getLocalAddress();
+            localAddresses.add(local);
+            // Ephemeral ports are resolved by the first bind
+            for (var i = 1; i < count; ++i) {
+                acceptors.get(i).add(new Listener(open(local, true), tls, List.of(loops.get(i)), null));
+            }
+        }
+    }
+
+    @Override
+    public void start() throws IOException {
+        checkStopped();
+        try {
+            open();
+        } catch (IOException e) {
+            acceptors.forEach(Acceptor::close);
+            acceptors.clear();
+            localAddresses.clear();
+            throw e;
+        }
+        running = true;
+        for (var i = 0; i < acceptors.size(); ++i) {
+            acceptors.get(i).start("amaya-http-acceptor-" + i);
+        }
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("Acceptor already stopped");
+        }
+        running = false;
+        for (var acceptor : acceptors) {
+            acceptor.selector.wakeup();
+        }
+        for (var acceptor : acceptors) {
+            acceptor.thread.join();
+        }
+        acceptors.clear();
+        localAddresses.clear();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing to do with a broken channel
+        }
+    }
+
+    private static final class Listener {
+        private final ServerSocketChannel channel;
+        private final TlsConfig tls;
+        private final List<HttpConnectionLoop> targets;
+        private final Path path;
+        private SelectionKey key;
+        private long resume;
+        private int next;
+
+        private Listener(ServerSocketChannel channel, TlsConfig tls, List<HttpConnectionLoop> targets, Path path) {
+            this.channel = channel;
+            this.tls = tls;
+            this.targets = targets;
+            this.path = path;
+        }
+
+        private boolean accept() {
+            while (true) {
+                try {
+                    var accepted = channel.accept();
+                    if (accepted == null) {
+                        return true;
+                    }
+                    targets.get(next).register(accepted, tls);
+                    next = (next + 1) % targets.size();
+                } catch (IOException e) {
+                    // For example, the descriptor limit is reached. The pending connection stays in the backlog,
+                    // so the channel remains acceptable and selecting it again at once would spin
+                    return false;
+                }
+            }
+        }
+
+        private void pause(long now) {
+            key.interestOps(0);
+            resume = now + ACCEPT_BACKOFF;
+        }
+
+        private boolean tryResume(long now) {
+            if (now - resume < 0) {
+                return false;
+            }
+            key.interestOps(SelectionKey.OP_ACCEPT);
+            return true;
+        }
+
+        private void close() {
+            closeQuietly(channel);
+            if (path == null) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // The file is left behind, the next bind to the path fails
+            }
+        }
+    }
+
+    private final class Acceptor {
+        private final Selector selector;
+        private final List<Listener> listeners;
+        private final List<Listener> paused;
+        private Thread thread;
+
+        private Acceptor() throws IOException {
+            this.selector = Selector.open();
+            this.listeners = new ArrayList<>();
+            this.paused = new ArrayList<>();
+        }
+
+        private void add(Listener listener) throws IOException {
+            listeners.add(listener);
+            listener.key = listener.channel.register(selector, SelectionKey.OP_ACCEPT, listener);
+        }
+
+        private long resume(long now) {
+            var ret = Long.MAX_VALUE;
+            var iterator = paused.iterator();
+            while (iterator.hasNext()) {
+                var listener = iterator.next();
+                if (listener.tryResume(now)) {
+                    iterator.remove();
+                } else {
+                    ret = Math.min(ret, listener.resume - now);
+                }
+            }
+            return ret;
+        }
+
+        private void run() {
+            try {
+                var delay = Long.MAX_VALUE;
+                while (running) {
+                    if (delay == Long.MAX_VALUE) {
+                        selector.select();
+                    } else {
+                        selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(delay)));
+                    }
+                    var keys = selector.selectedKeys();
+                    var now = System.nanoTime();
+                    for (var key : keys) {
+                        var listener = (Listener) key.attachment();
+                        if (!listener.accept()) {
+                            listener.pause(now);
+                            paused.add(listener);
+                        }
+                    }
+                    keys.clear();
+                    delay = paused.isEmpty() ? Long.MAX_VALUE : resume(System.nanoTime());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                close();
+            }
+        }
+
+        private void start(String name) {
+            thread = new Thread(this::run, name);
+            thread.start();
+        }
+
+        private void close() {
+            for (var listener : listeners) {
+                listener.close();
+            }
+            closeQuietly(selector);
+        }
+    }
+}
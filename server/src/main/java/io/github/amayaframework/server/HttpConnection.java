@@ -0,0 +1,490 @@
+package io.github.amayaframework.server;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpVersion;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Base64;
+
+/**
+ * A native HTTP/1.1 server connection, which switches to cleartext HTTP/2.
+ * <br>
+ * The connection reads requests into a pooled buffer, parses them with {@link HttpRequestParser} and passes them
+ * to the handler one by one as {@link HttpExchange}s. Pipelined requests are processed in the order of arrival:
+ * the next request is not handled until the response to the previous one has been written, and nothing is read
+ * while a response is pending. Request bodies must be delimited with Content-Length, chunked request bodies
+ * are rejected with 501 status.
+ * <br>
+ * Connections are persistent according to the request version and Connection header (see rfc9112, section 9.3),
+ * but no more than the configured number of requests is served over a connection. The read buffer is returned
+ * to the pool whenever the connection has no buffered data, so idle connections hold no buffers.
+ * <br>
+ * The connection is switched to {@link Http2Connection} if the client starts with the HTTP/2 connection preface
+ * (prior knowledge, see rfc9113, section 3.3) or sends a request with 'Upgrade: h2c' and HTTP2-Settings headers
+ * (see rfc7540, section 3.2), in which case the request is answered over HTTP/2. The upgrade is ignored over TLS,
+ * where HTTP/2 is negotiated with ALPN. After that all calls are delegated to the HTTP/2 connection,
+ * which serves the same handler.
+ * <br>
+ * The connection is driven by a single thread, for example, an event loop, which calls {@link #read()}
+ * when the channel is readable and {@link #write()} when it is writable and {@link #isWritePending()} is true.
+ * The handler runs on that thread. If the connection is closed while a response is pending, its exchange
+ * is cancelled.
+ */
+public final class HttpConnection implements Closeable {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0).asReadOnlyBuffer();
+    private static final byte[] CLOSE = HttpResponseEncoder.encodeHeader("Connection", "close");
+    private static final byte[] KEEP_ALIVE = HttpResponseEncoder.encodeHeader("Connection", "keep-alive");
+
+    private final ReadableByteChannel input;
+    private final GatheringByteChannel output;
+    private final Channel channel;
+    private final SocketAddress remote;
+    private final BufferPool pool;
+    private final Runnable1<HttpExchange> handler;
+    private final HttpRequestParser parser;
+    private final HttpResponseEncoder response;
+    private final Http1Exchange exchange;
+    private final HttpConnectionConfig config;
+    private final int maxRequests;
+    private final int maxBodySize;
+    private final int maxHeadSize;
+    private final int bufferSize;
+    private ByteBuffer buffer;
+    private boolean headDone;
+    private int bodyLength;
+    private boolean keepAlive;
+    private boolean writePending;
+    private boolean closed;
+    private int served;
+    private Http2Connection upgraded;
+
+    /**
+     * Constructs {@link HttpConnection} instance over the given channel.
+     *
+     * @param channel the connection channel, must be non-null
+     * @param remote  the address of the remote peer, may be null
+     * @param pool    the {@link BufferPool} supplying read and head buffers, must be non-null
+     * @param handler the handler of exchanges, must be non-null
+     * @param config  the {@link HttpConnectionConfig} instance containing connection limits, must be non-null
+     * @param <T>     the type of channel
+     */
+    public <T extends ReadableByteChannel & GatheringByteChannel> HttpConnection(T channel,
+                                                                                SocketAddress remote,
+                                                                                BufferPool pool,
+                                                                                Runnable1<HttpExchange> handler,
+                                                                                HttpConnectionConfig config) {
+        this.input = channel;
+        this.output = channel;
+        this.channel = channel;
+        this.remote = remote;
+        this.pool = pool;
+        this.handler = handler;
+        this.parser = new HttpRequestParser(config.getMaxHeadSize(), config.getMaxHeaders());
+        this.response = new HttpResponseEncoder(pool);
+        this.exchange = new Http1Exchange(this, parser, response);
+        this.config = config;
+        this.maxRequests = config.getMaxRequests();
+        this.maxBodySize = config.getMaxBodySize();
+        this.maxHeadSize = config.getMaxHeadSize();
+        this.bufferSize = config.getBufferSize();
+    }
+
+    /**
+     * Gets the address of the remote peer.
+     *
+     * @return the {@link SocketAddress} instance or null if it is unknown
+     */
+    public SocketAddress getRemoteAddress() {
+        return remote;
+    }
+
+    /**
+     * Checks whether this connection is served over TLS.
+     *
+     * @return true if the channel is a {@link TlsChannel}, false otherwise
+     */
+    public boolean isSecure() {
+        return channel instanceof TlsChannel;
+    }
+
+    /**
+     * Gets the number of requests served over this connection.
+     *
+     * @return the number of requests
+     */
+    public int getServed() {
+        return upgraded == null ? served : served + upgraded.getServed();
+    }
+
+    /**
+     * Checks whether the connection has been switched to HTTP/2.
+     *
+     * @return true if the connection serves HTTP/2, false otherwise
+     */
+    public boolean isUpgraded() {
+        return upgraded != null;
+    }
+
+    /**
+     * Checks whether a response is waiting for the channel to become writable.
+     *
+     * @return true if a response is pending, false otherwise
+     */
+    public boolean isWritePending() {
+        return upgraded == null ? writePending : upgraded.isWritePending();
+    }
+
+    /**
+     * Checks whether this connection is open.
+     *
+     * @return true if open, false otherwise
+     */
+    public boolean isOpen() {
+        return upgraded == null ? !closed : upgraded.isOpen();
+    }
+
+    private void ensureRoom() {
+        if (buffer == null) {
+            buffer = pool.acquire(bufferSize);
+            buffer.limit(0);
+            return;
+        }
+        var capacity = buffer.capacity();
+        if (buffer.limit() < capacity) {
+            return;
+        }
+        var start = headDone ? parser.getHeadStart() : buffer.position();
+        if (start > 0) {
+            // Offsets of the parsed head are invalidated, so it is parsed again
+            buffer.position(start);
+            buffer.compact().flip();
+            parser.reset();
+            headDone = false;
+            return;
+        }
+        var required = headDone ? parser.getHeadEnd() + bodyLength : Math.min(capacity * 2, maxHeadSize);
+        var grown = pool.acquire(Math.max(required, capacity * 2));
+        var position = buffer.position();
+        // The data is copied to the same indices, so the parser offsets stay valid
+        buffer.position(0);
+        grown.put(buffer).flip().position(position);
+        pool.release(buffer);
+        buffer = grown;
+        if (headDone) {
+            parser.move(grown);
+        }
+    }
+
+    private void releaseBuffer() {
+        if (buffer != null && !buffer.hasRemaining() && !headDone && !writePending) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    /**
+     * Reads available bytes from the channel and handles the complete requests.
+     *
+     * @return true if the connection remains open, false if it has been closed
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean read() throws IOException {
+        if (upgraded != null) {
+            return upgraded.read();
+        }
+        if (closed) {
+            return false;
+        }
+        if (writePending) {
+            return true;
+        }
+        ensureRoom();
+        var position = buffer.position();
+        buffer.position(buffer.limit()).limit(buffer.capacity());
+        int read;
+        try {
+            read = input.read(buffer);
+        } finally {
+            buffer.limit(buffer.position()).position(position);
+        }
+        if (read < 0) {
+            // Incomplete request, if any, is discarded
+            close();
+            return false;
+        }
+        if (!process()) {
+            return false;
+        }
+        releaseBuffer();
+        return true;
+    }
+
+    /**
+     * Continues writing the pending response, then handles the buffered pipelined requests.
+     *
+     * @return true if the connection remains open, false if it has been closed
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean write() throws IOException {
+        if (upgraded != null) {
+            return upgraded.write();
+        }
+        if (closed) {
+            return false;
+        }
+        if (!writePending) {
+            return true;
+        }
+        if (!response.write(output)) {
+            return true;
+        }
+        writePending = false;
+        if (!complete() || !process()) {
+            return false;
+        }
+        releaseBuffer();
+        return true;
+    }
+
+    private boolean process() throws IOException {
+        while (!writePending) {
+            if (!headDone) {
+                if (buffer == null || !buffer.hasRemaining()) {
+                    return true;
+                }
+                if (served == 0) {
+                    var preface = matchPreface();
+                    if (preface < 0) {
+                        return true;
+                    }
+                    if (preface > 0) {
+                        return switchToHttp2(null);
+                    }
+                }
+                try {
+                    if (!parser.parse(buffer)) {
+                        return true;
+                    }
+                    headDone = true;
+                    bodyLength = getBodyLength();
+                } catch (HttpParseException e) {
+                    return fail(e.getCode());
+                }
+            }
+            if (buffer.remaining() < bodyLength) {
+                return true;
+            }
+            if (!(channel instanceof TlsChannel) && isUpgrade()) {
+                return upgrade();
+            }
+            handle();
+            if (!flush()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int getBodyLength() throws HttpParseException {
+        var ret = -1L;
+        for (var i = 0; i < parser.getHeaderCount(); ++i) {
+            if (parser.nameEquals(i, "Transfer-Encoding")) {
+                throw new HttpParseException(HttpCode.NOT_IMPLEMENTED, "Chunked request bodies are not supported");
+            }
+            if (!parser.nameEquals(i, "Content-Length")) {
+                continue;
+            }
+            var from = parser.getValueStart(i);
+            var to = parser.getValueEnd(i);
+            if (from == to || to - from > 18) {
+                throw new HttpParseException(HttpCode.BAD_REQUEST, "Invalid Content-Length");
+            }
+            var value = 0L;
+            for (var j = from; j < to; ++j) {
+                var digit = buffer.get(j) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new HttpParseException(HttpCode.BAD_REQUEST, "Invalid Content-Length");
+                }
+                value = value * 10 + digit;
+            }
+            if (ret >= 0 && ret != value) {
+                throw new HttpParseException(HttpCode.BAD_REQUEST, "Conflicting Content-Length");
+            }
+            ret = value;
+        }
+        if (ret > maxBodySize) {
+            throw new HttpParseException(HttpCode.PAYLOAD_TOO_LARGE, "Request body is too large");
+        }
+        return (int) Math.max(ret, 0);
+    }
+
+    private int matchPreface() {
+        var position = buffer.position();
+        var length = Math.min(buffer.remaining(), Http2Connection.PREFACE.length);
+        for (var i = 0; i < length; ++i) {
+            if (buffer.get(position + i) != Http2Connection.PREFACE[i]) {
+                return 0;
+            }
+        }
+        return length < Http2Connection.PREFACE.length ? -1 : 1;
+    }
+
+    private boolean hasToken(String header, String token) {
+        for (var i = 0; i < parser.getHeaderCount(); ++i) {
+            if (!parser.nameEquals(i, header)) {
+                continue;
+            }
+            for (var option : parser.getHeaderValue(i).split(",")) {
+                if (option.trim().equalsIgnoreCase(token)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isPersistent() {
+        if (served >= maxRequests) {
+            return false;
+        }
+        if (parser.getVersion() == HttpVersion.HTTP_1_0) {
+            return hasToken("Connection", "keep-alive");
+        }
+        return !hasToken("Connection", "close");
+    }
+
+    private boolean isUpgrade() {
+        if (parser.getVersion() != HttpVersion.HTTP_1_1 || !hasToken("Upgrade", "h2c")) {
+            return false;
+        }
+        var settings = 0;
+        for (var i = 0; i < parser.getHeaderCount(); ++i) {
+            if (parser.nameEquals(i, "HTTP2-Settings")) {
+                ++settings;
+            }
+        }
+        return settings == 1 && hasToken("Connection", "Upgrade") && hasToken("Connection", "HTTP2-Settings");
+    }
+
+    private ByteBuffer takeBody() {
+        if (bodyLength == 0) {
+            return EMPTY;
+        }
+        var start = buffer.position();
+        var ret = buffer.duplicate();
+        ret.limit(start + bodyLength).position(start);
+        buffer.position(start + bodyLength);
+        return ret.slice().asReadOnlyBuffer();
+    }
+
+    private boolean upgrade() throws IOException {
+        byte[] settings;
+        try {
+            settings = Base64.getUrlDecoder().decode(parser.getHeader("HTTP2-Settings").trim());
+        } catch (IllegalArgumentException e) {
+            return fail(HttpCode.BAD_REQUEST);
+        }
+        return switchToHttp2(settings);
+    }
+
+    private boolean switchToHttp2(byte[] settings) throws IOException {
+        upgraded = new Http2Connection(input, output, channel, remote, pool, handler, config);
+        var data = buffer;
+        try {
+            if (settings == null) {
+                return upgraded.start(data);
+            }
+            var body = takeBody();
+            return upgraded.upgrade(settings, parser, body, data);
+        } finally {
+            // The HTTP/2 connection copies everything it needs
+            buffer = null;
+            headDone = false;
+            parser.reset();
+            pool.release(data);
+        }
+    }
+
+    private void handle() {
+        var body = takeBody();
+        ++served;
+        exchange.reset(body, isPersistent());
+        try {
+            handler.run(exchange);
+        } catch (Throwable e) {
+            response.reset();
+        }
+        if (!response.isPending()) {
+            response.begin(HttpCode.INTERNAL_SERVER_ERROR);
+            exchange.close();
+        }
+        keepAlive = exchange.isKeepAlive();
+        if (!keepAlive) {
+            response.header(CLOSE);
+        } else if (parser.getVersion() == HttpVersion.HTTP_1_0) {
+            response.header(KEEP_ALIVE);
+        }
+    }
+
+    private boolean fail(HttpCode code) throws IOException {
+        // The request cannot be delimited, so the connection is closed after the error response
+        keepAlive = false;
+        response.begin(code);
+        response.header(CLOSE);
+        return flush();
+    }
+
+    private boolean flush() throws IOException {
+        if (!response.write(output)) {
+            writePending = true;
+            return true;
+        }
+        return complete();
+    }
+
+    private boolean complete() throws IOException {
+        exchange.complete();
+        if (!keepAlive) {
+            close();
+            return false;
+        }
+        parser.reset();
+        headDone = false;
+        bodyLength = 0;
+        return true;
+    }
+
+    /**
+     * Closes the connection channel and releases the buffers.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (upgraded != null) {
+            upgraded.close();
+            return;
+        }
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (response.isPending()) {
+            // The write may have failed before the response was marked as pending
+            exchange.cancel();
+        }
+        response.reset();
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,179 @@
+package io.github.amayaframework.server;
+
+/**
+ * A class holding the limits of native HTTP/1.1 and HTTP/2 connections.
+ * Changes made after the connections have been created are not applied to them.
+ */
+public final class HttpConnectionConfig {
+    /**
+     * The default idle timeout, in milliseconds.
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT = 60_000;
+    /**
+     * The default maximum number of requests served over a single connection.
+     */
+    public static final int DEFAULT_MAX_REQUESTS = 1000;
+    /**
+     * The default maximum size of a request body, in bytes.
+     */
+    public static final int DEFAULT_MAX_BODY_SIZE = 1024 * 1024;
+    /**
+     * The default size of the connection read buffer, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    /**
+     * The default maximum number of concurrent streams of an HTTP/2 connection.
+     */
+    public static final int DEFAULT_MAX_STREAMS = 100;
+
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private int maxRequests = DEFAULT_MAX_REQUESTS;
+    private int maxHeadSize = HttpRequestParser.DEFAULT_MAX_HEAD_SIZE;
+    private int maxHeaders = HttpRequestParser.DEFAULT_MAX_HEADERS;
+    private int maxBodySize = DEFAULT_MAX_BODY_SIZE;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private int maxStreams = DEFAULT_MAX_STREAMS;
+
+    private static void checkPositive(long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Value must be positive: " + value);
+        }
+    }
+
+    /**
+     * Gets the time after which a connection without any activity is closed.
+     *
+     * @return the idle timeout, in milliseconds
+     */
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets the time after which a connection without any activity is closed.
+     *
+     * @param idleTimeout the idle timeout, in milliseconds, must be positive
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        checkPositive(idleTimeout);
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Gets the maximum number of requests served over a single connection.
+     *
+     * @return the maximum number of requests
+     */
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    /**
+     * Sets the maximum number of requests served over a single connection.
+     * The connection is closed after the response to the last of them.
+     *
+     * @param maxRequests the maximum number of requests, must be positive
+     */
+    public void setMaxRequests(int maxRequests) {
+        checkPositive(maxRequests);
+        this.maxRequests = maxRequests;
+    }
+
+    /**
+     * Gets the maximum size of a request head.
+     *
+     * @return the number of bytes
+     */
+    public int getMaxHeadSize() {
+        return maxHeadSize;
+    }
+
+    /**
+     * Sets the maximum size of a request head.
+     *
+     * @param maxHeadSize the number of bytes, must be positive
+     */
+    public void setMaxHeadSize(int maxHeadSize) {
+        checkPositive(maxHeadSize);
+        this.maxHeadSize = maxHeadSize;
+    }
+
+    /**
+     * Gets the maximum number of request header fields.
+     *
+     * @return the number of header fields
+     */
+    public int getMaxHeaders() {
+        return maxHeaders;
+    }
+
+    /**
+     * Sets the maximum number of request header fields.
+     *
+     * @param maxHeaders the number of header fields, must be positive
+     */
+    public void setMaxHeaders(int maxHeaders) {
+        checkPositive(maxHeaders);
+        this.maxHeaders = maxHeaders;
+    }
+
+    /**
+     * Gets the maximum size of a request body.
+     *
+     * @return the number of bytes
+     */
+    public int getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * Sets the maximum size of a request body.
+     *
+     * @param maxBodySize the number of bytes, must not be negative
+     */
+    public void setMaxBodySize(int maxBodySize) {
+        if (maxBodySize < 0) {
+            throw new IllegalArgumentException("Value must not be negative: " + maxBodySize);
+        }
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * Gets the initial size of the connection read buffer.
+     *
+     * @return the number of bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the initial size of the connection read buffer. The buffer grows when a request does not fit in it.
+     *
+     * @param bufferSize the number of bytes, must be positive
+     */
+    public void setBufferSize(int bufferSize) {
+        checkPositive(bufferSize);
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Gets the maximum number of concurrent streams of an HTTP/2 connection.
+     *
+     * @return the number of streams
+     */
+    public int getMaxStreams() {
+        return maxStreams;
+    }
+
+    /**
+     * Sets the maximum number of concurrent streams of an HTTP/2 connection, which is announced to clients
+     * with SETTINGS_MAX_CONCURRENT_STREAMS. Streams exceeding the limit are refused.
+     *
+     * @param maxStreams the number of streams, must be positive
+     */
+    public void setMaxStreams(int maxStreams) {
+        checkPositive(maxStreams);
+        this.maxStreams = maxStreams;
+    }
+}
@@ -0,0 +1,252 @@
+package io.github.amayaframework.server;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.service.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An event loop serving native HTTP/1.1 and HTTP/2 connections on a single thread.
+ * <br>
+ * Accepted channels are registered with {@link #register(SocketChannel)} from any thread and are driven
+ * by the loop as {@link HttpConnection}s. The idle timeout of each connection is a reusable {@link TimerWheel}
+ * timeout, which is rescheduled on every read and write, so idle connections cost no scheduler tasks
+ * and the loop never scans all connections. Idle timeouts are detected with the precision of 1/16 of the timeout.
+ * <br>
+ * Channels registered with {@link TlsConfig} are served over TLS by {@link TlsChannel}, the TLS handshake
+ * runs on the loop thread as well. Handlers run on the loop thread and must not block.
+ */
+public final class HttpConnectionLoop implements Service {
+    private final Runnable1<HttpExchange> handler;
+    private final BufferPool pool;
+    private final HttpConnectionConfig config;
+    private final Queue<Registration> pending;
+    private final long idleTimeout;
+    private final long tick;
+    private volatile Selector selector;
+    private volatile Thread thread;
+    private volatile boolean running;
+    private TimerWheel wheel;
+    private volatile int connections;
+
+    /**
+     * Constructs {@link HttpConnectionLoop} instance with given handler, buffer pool and connection limits.
+     *
+     * @param handler the handler of exchanges, must be non-null
+     * @param pool    the {@link BufferPool} supplying connection buffers, must be non-null
+     * @param config  the {@link HttpConnectionConfig} instance containing connection limits, must be non-null
+     */
+    public HttpConnectionLoop(Runnable1<HttpExchange> handler, BufferPool pool, HttpConnectionConfig config) {
+        this.handler = Objects.requireNonNull(handler);
+        this.pool = Objects.requireNonNull(pool);
+        this.config = Objects.requireNonNull(config);
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.idleTimeout = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeout());
+        this.tick = Math.min(Math.max(config.getIdleTimeout() / 16, 10), 1000);
+    }
+
+    /**
+     * Gets the number of open connections. The value is updated by the loop thread.
+     *
+     * @return the number of connections
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * Registers the accepted channel, which will be served by this loop. If the loop is not running,
+     * the channel is closed.
+     *
+     * @param channel the accepted {@link SocketChannel}, must be non-null
+     */
+    public void register(SocketChannel channel) {
+        register(channel, null);
+    }
+
+    /**
+     * Registers the accepted channel, which will be served by this loop over TLS. If the loop is not running,
+     * the channel is closed.
+     *
+     * @param channel the accepted {@link SocketChannel}, must be non-null
+     * @param tls     the {@link TlsConfig} instance to create the engine with, null to serve cleartext
+     */
+    public void register(SocketChannel channel, TlsConfig tls) {
+        pending.add(new Registration(channel, tls));
+        var selector = this.selector;
+        if (!running || selector == null) {
+            drain();
+            return;
+        }
+        selector.wakeup();
+    }
+
+    private void drain() {
+        Registration registration;
+        while ((registration = pending.poll()) != null) {
+            closeQuietly(registration.channel);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing to do with a broken channel
+        }
+    }
+
+    private void accept(Registration registration) {
+        var channel = registration.channel;
+        try {
+            channel.configureBlocking(false);
+            // Unix domain sockets have no Nagle's algorithm to disable
+            if (channel.supportedOptions().contains(StandardSocketOptions.TCP_NODELAY)) {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+            var remote = channel.getRemoteAddress();
+            TlsChannel tls = null;
+            HttpConnection connection;
+            if (registration.tls == null) {
+                connection = new HttpConnection(channel, remote, pool, handler, config);
+            } else {
+                tls = new TlsChannel(channel, registration.tls.createEngine(), pool);
+                connection = new HttpConnection(tls, remote, pool, handler, config);
+            }
+            var entry = new Entry(connection, tls);
+            entry.key = channel.register(selector, SelectionKey.OP_READ, entry);
+            wheel.schedule(entry.timeout, idleTimeout, System.nanoTime());
+            ++connections;
+        } catch (IOException e) {
+            closeQuietly(channel);
+        }
+    }
+
+    private void close(Entry entry) {
+        if (entry.closed) {
+            return;
+        }
+        entry.closed = true;
+        wheel.cancel(entry.timeout);
+        if (entry.key != null) {
+            entry.key.cancel();
+        }
+        closeQuietly(entry.connection);
+        --connections;
+    }
+
+    private void handle(SelectionKey key) {
+        var entry = (Entry) key.attachment();
+        var connection = entry.connection;
+        var tls = entry.tls;
+        try {
+            var open = true;
+            if (key.isWritable() && (tls == null || tls.flush())) {
+                open = connection.write();
+            }
+            if (open && key.isReadable()) {
+                open = connection.read();
+                // Decrypted data is not reported by the selector
+                while (open && tls != null && tls.hasBuffered() && !connection.isWritePending()) {
+                    open = connection.read();
+                }
+            }
+            if (!open) {
+                close(entry);
+                return;
+            }
+            var write = connection.isWritePending() || (tls != null && tls.isFlushPending());
+            key.interestOps(write ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            wheel.schedule(entry.timeout, idleTimeout, System.nanoTime());
+        } catch (IOException | CancelledKeyException e) {
+            close(entry);
+        }
+    }
+
+    private void run() {
+        var selector = this.selector;
+        try {
+            while (running) {
+                selector.select(tick);
+                Registration registration;
+                while ((registration = pending.poll()) != null) {
+                    accept(registration);
+                }
+                var keys = selector.selectedKeys();
+                for (var key : keys) {
+                    handle(key);
+                }
+                keys.clear();
+                wheel.advance(System.nanoTime());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (var key : selector.keys()) {
+                close((Entry) key.attachment());
+            }
+            drain();
+            closeQuietly(selector);
+        }
+    }
+
+    @Override
+    public void start() throws IOException {
+        if (running) {
+            throw new IllegalStateException("Loop already started");
+        }
+        selector = Selector.open();
+        wheel = new TimerWheel(tick, TimeUnit.MILLISECONDS, System.nanoTime());
+        connections = 0;
+        running = true;
+        thread = new Thread(this::run, "amaya-http-loop");
+        thread.start();
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("Loop already stopped");
+        }
+        running = false;
+        selector.wakeup();
+        thread.join();
+        thread = null;
+        selector = null;
+    }
+
+    private static final class Registration {
+        private final SocketChannel channel;
+        private final TlsConfig tls;
+
+        private Registration(SocketChannel channel, TlsConfig tls) {
+            this.channel = channel;
+            this.tls = tls;
+        }
+    }
+
+    private final class Entry {
+        private final HttpConnection connection;
+        private final TlsChannel tls;
+        private final TimerWheel.Timeout timeout;
+        private SelectionKey key;
+        private boolean closed;
+
+        private Entry(HttpConnection connection, TlsChannel tls) {
+            this.connection = connection;
+            this.tls = tls;
+            this.timeout = new TimerWheel.Timeout(() -> close(this));
+        }
+    }
+}
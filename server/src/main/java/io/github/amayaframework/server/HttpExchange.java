@@ -0,0 +1,163 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.http.HttpVersion;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * An interface describing a single request-response exchange of a native connection.
+ * <br>
+ * Exchanges of HTTP/1.1 connections and streams of HTTP/2 connections are passed to the same handler,
+ * so the handler does not depend on the protocol. The request head and body remain valid only until
+ * the handler returns. The handler must start the response with {@link #begin(HttpCode)} before it returns,
+ * otherwise the connection responds with 500 status. The connection writes the response after the handler returns.
+ * <br>
+ * The exchange is cancelled if its response can no longer be delivered: the peer has reset the HTTP/2 stream,
+ * or the connection has been closed before the response was written.
+ */
+public interface HttpExchange {
+
+    /**
+     * Gets the request method.
+     *
+     * @return the {@link HttpMethod} instance
+     */
+    HttpMethod getMethod();
+
+    /**
+     * Gets the request http version.
+     *
+     * @return the {@link HttpVersion} instance
+     */
+    HttpVersion getVersion();
+
+    /**
+     * Gets the request target, for example, '/path?query'.
+     *
+     * @return the request target string
+     */
+    String getTarget();
+
+    /**
+     * Gets the value of the first request header with given name, ignoring case.
+     *
+     * @param name the specified header name, must be non-null
+     * @return the header value or null if the header does not exist
+     */
+    String getHeader(String name);
+
+    /**
+     * Gets the number of request header fields. By default, returns 0, so the headers can only be looked up
+     * with {@link #getHeader(String)}.
+     *
+     * @return the number of header fields
+     */
+    default int getHeaderCount() {
+        return 0;
+    }
+
+    /**
+     * Gets the name of the request header field with given index. By default, there are no indexed fields.
+     *
+     * @param index the index of the field, from 0 to {@link #getHeaderCount()} exclusive
+     * @return the header name
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    default String getHeaderName(int index) {
+        throw new IndexOutOfBoundsException("Header index out of range: " + index);
+    }
+
+    /**
+     * Gets the value of the request header field with given index. By default, there are no indexed fields.
+     *
+     * @param index the index of the field, from 0 to {@link #getHeaderCount()} exclusive
+     * @return the header value
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    default String getHeaderValue(int index) {
+        throw new IndexOutOfBoundsException("Header index out of range: " + index);
+    }
+
+    /**
+     * Gets the read-only request body.
+     *
+     * @return the {@link ByteBuffer} containing the body, empty if the request has no body
+     */
+    ByteBuffer getBody();
+
+    /**
+     * Gets the address of the remote peer.
+     *
+     * @return the {@link SocketAddress} instance or null if it is unknown
+     */
+    SocketAddress getRemoteAddress();
+
+    /**
+     * Checks whether the exchange is served over TLS. By default, returns false.
+     *
+     * @return true if the connection is secure, false otherwise
+     */
+    default boolean isSecure() {
+        return false;
+    }
+
+    /**
+     * Starts the response with given status, discarding the previously started one.
+     *
+     * @param code the response status, must be non-null
+     */
+    void begin(HttpCode code);
+
+    /**
+     * Appends the response header field. Connection-specific header fields are managed by the connection.
+     *
+     * @param name  the header name, must be non-null
+     * @param value the header value, must be non-null
+     * @throws IllegalArgumentException if the name or the value contains CR or LF
+     */
+    void header(String name, String value);
+
+    /**
+     * Appends the response body segment. The segment is not copied, its bytes between position and limit
+     * are written and must not be modified until the response is written.
+     *
+     * @param segment the body segment, must be non-null
+     * @throws IllegalStateException if the response status does not allow a body
+     */
+    void body(ByteBuffer segment);
+
+    /**
+     * Checks whether the connection is kept alive after this exchange.
+     *
+     * @return true if the connection is persistent, false if it is closed after the response
+     */
+    boolean isKeepAlive();
+
+    /**
+     * Requests the connection to be closed after the response.
+     */
+    void close();
+
+    /**
+     * Checks whether the exchange is cancelled. By default, returns false.
+     *
+     * @return true if the response will not be delivered, false otherwise
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+
+    /**
+     * Registers the action to be run on the thread driving the connection when the exchange is cancelled,
+     * for example, to release the resources backing the response body. The actions are dropped once
+     * the response is written. If the exchange is already cancelled, the action is run at once.
+     * By default, does nothing.
+     *
+     * @param action the action to be run at most once, must be non-null
+     */
+    default void onCancel(Runnable action) {
+    }
+}
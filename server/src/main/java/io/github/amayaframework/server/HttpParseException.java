@@ -0,0 +1,36 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.http.HttpCode;
+
+import java.io.IOException;
+
+/**
+ * Thrown to indicate that received http message is malformed or exceeds the parser limits.
+ * Holds the status code the server should respond with.
+ */
+public class HttpParseException extends IOException {
+    /**
+     * The status code describing the error.
+     */
+    private final HttpCode code;
+
+    /**
+     * Constructs an {@link HttpParseException} instance with the specified status code and detail message.
+     *
+     * @param code    the status code describing the error
+     * @param message the detail message
+     */
+    public HttpParseException(HttpCode code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    /**
+     * Gets the status code the server should respond with.
+     *
+     * @return the {@link HttpCode} instance
+     */
+    public HttpCode getCode() {
+        return code;
+    }
+}
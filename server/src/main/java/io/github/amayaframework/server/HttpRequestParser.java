@@ -0,0 +1,585 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.http.HttpVersion;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An incremental parser of HTTP/1.1 request head (see rfc9112): request line and header fields.
+ * <br>
+ * The parser works directly over the {@link ByteBuffer} containing received bytes and does not copy them.
+ * Line ends are searched eight bytes at a time, header names and values are recorded as offsets into the buffer,
+ * methods and versions are resolved to predefined {@link HttpMethod} and {@link HttpVersion} instances
+ * by comparing bytes, so parsing a request allocates nothing.
+ * <br>
+ * If the head is incomplete, {@link #parse(ByteBuffer)} returns false and remembers where it stopped,
+ * so the next call resumes without scanning the same bytes again. Between calls the caller may only
+ * append bytes after the buffer limit: the bytes starting at the position of the first call must stay
+ * at the same indices, although they may be moved to another buffer at the same indices. After the head
+ * is parsed, the offsets remain valid as long as the bytes are not overwritten.
+ * <br>
+ * Both CRLF and bare LF line endings are accepted, bare CR and other control characters except
+ * horizontal tab are rejected, as well as obsolete line folding. Instances are reusable after
+ * {@link #reset()}, but not thread-safe.
+ */
+public final class HttpRequestParser {
+    /**
+     * The default maximum size of request head, in bytes.
+     */
+    public static final int DEFAULT_MAX_HEAD_SIZE = 16 * 1024;
+    /**
+     * The default maximum number of header fields.
+     */
+    public static final int DEFAULT_MAX_HEADERS = 100;
+
+    private static final int START = 0;
+    private static final int REQUEST_LINE = 1;
+    private static final int HEADERS = 2;
+    private static final int DONE = 3;
+    private static final long CONTROLS = 0x2020202020202020L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    // Ordered by frequency
+    private static final HttpMethod[] METHODS = {
+            HttpMethod.GET,
+            HttpMethod.POST,
+            HttpMethod.PUT,
+            HttpMethod.DELETE,
+            HttpMethod.HEAD,
+            HttpMethod.PATCH,
+            HttpMethod.OPTIONS,
+            HttpMethod.CONNECT,
+            HttpMethod.TRACE
+    };
+    private static final byte[][] METHOD_NAMES = getMethodNames();
+    private static final long HTTP_1_1 = pack(HttpVersion.HTTP_1_1.getTag());
+    private static final long HTTP_1_0 = pack(HttpVersion.HTTP_1_0.getTag());
+    private static final boolean[] TOKEN = getTokenTable();
+
+    private final int maxHeadSize;
+    private final int maxHeaders;
+    private ByteBuffer buffer;
+    private int state;
+    private int start;
+    private int line;
+    private int scan;
+    private int end;
+    private HttpMethod method;
+    private HttpVersion version;
+    private int targetStart;
+    private int targetEnd;
+    private int[] headers;
+    private int count;
+
+    /**
+     * Constructs {@link HttpRequestParser} instance with given limits.
+     *
+     * @param maxHeadSize the maximum size of request head, in bytes
+     * @param maxHeaders  the maximum number of header fields
+     */
+    public HttpRequestParser(int maxHeadSize, int maxHeaders) {
+        if (maxHeadSize <= 0 || maxHeaders < 0) {
+            throw new IllegalArgumentException("Illegal parser limits");
+        }
+        this.maxHeadSize = maxHeadSize;
+        this.maxHeaders = maxHeaders;
+        this.headers = new int[Math.min(maxHeaders, 16) * 4];
+    }
+
+    /**
+     * Constructs {@link HttpRequestParser} instance with default limits.
+     */
+    public HttpRequestParser() {
+        this(DEFAULT_MAX_HEAD_SIZE, DEFAULT_MAX_HEADERS);
+    }
+
+    private static byte[][] getMethodNames() {
+        var ret = new byte[METHODS.length][];
+        for (var i = 0; i < METHODS.length; ++i) {
+            ret[i] = METHODS[i].getName().getBytes(StandardCharsets.US_ASCII);
+        }
+        return ret;
+    }
+
+    private static long pack(String value) {
+        // Little-endian, as words are read
+        var ret = 0L;
+        for (var i = 7; i >= 0; --i) {
+            ret = (ret << 8) | value.charAt(i);
+        }
+        return ret;
+    }
+
+    private static boolean[] getTokenTable() {
+        var ret = new boolean[128];
+        for (var c = '0'; c <= '9'; ++c) {
+            ret[c] = true;
+        }
+        for (var c = 'a'; c <= 'z'; ++c) {
+            ret[c] = true;
+            ret[Character.toUpperCase(c)] = true;
+        }
+        for (var c : "!#$%&'*+-.^_`|~".toCharArray()) {
+            ret[c] = true;
+        }
+        return ret;
+    }
+
+    private static boolean isToken(byte b) {
+        return b > 0 && TOKEN[b];
+    }
+
+    private static HttpParseException badRequest(String message) {
+        return new HttpParseException(HttpCode.BAD_REQUEST, message);
+    }
+
+    private long word(int index, boolean reverse) {
+        var ret = buffer.getLong(index);
+        return reverse ? Long.reverseBytes(ret) : ret;
+    }
+
+    private int findLineEnd(int limit) throws HttpParseException {
+        var reverse = buffer.order() == ByteOrder.BIG_ENDIAN;
+        var i = scan;
+        while (i < limit) {
+            if (i + Long.BYTES <= limit) {
+                var word = word(i, reverse);
+                // Marks bytes below 0x20, exact for the lowest marked byte
+                var mask = (word - CONTROLS) & ~word & HIGH_BITS;
+                if (mask == 0) {
+                    i += Long.BYTES;
+                    continue;
+                }
+                i += Long.numberOfTrailingZeros(mask) >>> 3;
+            } else if ((buffer.get(i) & 0xFF) >= 0x20) {
+                ++i;
+                continue;
+            }
+            var b = buffer.get(i);
+            if (b == '\n') {
+                return i;
+            }
+            if (b == '\t') {
+                ++i;
+                continue;
+            }
+            if (b == '\r') {
+                if (i + 1 == limit) {
+                    break;
+                }
+                if (buffer.get(i + 1) == '\n') {
+                    return i + 1;
+                }
+            }
+            throw badRequest("Illegal control character in request head");
+        }
+        scan = i;
+        return -1;
+    }
+
+    private HttpMethod resolveMethod(int from, int to) throws HttpParseException {
+        var length = to - from;
+        for (var i = 0; i < METHOD_NAMES.length; ++i) {
+            var name = METHOD_NAMES[i];
+            if (name.length != length) {
+                continue;
+            }
+            var j = 0;
+            while (j < length && buffer.get(from + j) == name[j]) {
+                ++j;
+            }
+            if (j == length) {
+                return METHODS[i];
+            }
+        }
+        for (var i = from; i < to; ++i) {
+            if (!isToken(buffer.get(i))) {
+                throw badRequest("Illegal request method");
+            }
+        }
+        throw new HttpParseException(HttpCode.NOT_IMPLEMENTED, "Unknown request method");
+    }
+
+    private HttpVersion resolveVersion(int from, int to) throws HttpParseException {
+        if (to - from == Long.BYTES) {
+            var word = word(from, buffer.order() == ByteOrder.BIG_ENDIAN);
+            if (word == HTTP_1_1) {
+                return HttpVersion.HTTP_1_1;
+            }
+            if (word == HTTP_1_0) {
+                return HttpVersion.HTTP_1_0;
+            }
+            if ((word & 0xFFFFFFFFFFL) == (HTTP_1_1 & 0xFFFFFFFFFFL)) {
+                // Well-formed 'HTTP/' prefix, but unsupported version
+                throw new HttpParseException(HttpCode.HTTP_VERSION_NOT_SUPPORTED, "Unsupported http version");
+            }
+        }
+        throw badRequest("Illegal http version");
+    }
+
+    private void parseRequestLine(int from, int to) throws HttpParseException {
+        var first = from;
+        while (first < to && buffer.get(first) != ' ') {
+            ++first;
+        }
+        var last = to - 1;
+        while (last > first && buffer.get(last) != ' ') {
+            --last;
+        }
+        if (first == from || last <= first + 1) {
+            throw badRequest("Malformed request line");
+        }
+        for (var i = first + 1; i < last; ++i) {
+            var b = buffer.get(i);
+            if ((b >= 0 && b <= ' ') || b == 0x7F) {
+                throw badRequest("Illegal character in request target");
+            }
+        }
+        version = resolveVersion(last + 1, to);
+        method = resolveMethod(from, first);
+        targetStart = first + 1;
+        targetEnd = last;
+    }
+
+    private void parseHeader(int from, int to) throws HttpParseException {
+        var colon = from;
+        while (colon < to) {
+            var b = buffer.get(colon);
+            if (b == ':') {
+                break;
+            }
+            if (!isToken(b)) {
+                throw badRequest(b == ' ' || b == '\t' ? "Whitespace in header field" : "Illegal header name");
+            }
+            ++colon;
+        }
+        if (colon == to || colon == from) {
+            throw badRequest("Malformed header field");
+        }
+        if (count == maxHeaders) {
+            throw new HttpParseException(HttpCode.REQUEST_HEADER_FIELDS_TOO_LARGE, "Too many header fields");
+        }
+        var valueStart = colon + 1;
+        while (valueStart < to && isSpace(buffer.get(valueStart))) {
+            ++valueStart;
+        }
+        var valueEnd = to;
+        while (valueEnd > valueStart && isSpace(buffer.get(valueEnd - 1))) {
+            --valueEnd;
+        }
+        var index = count * 4;
+        if (index == headers.length) {
+            headers = Arrays.copyOf(headers, Math.min(headers.length * 2, maxHeaders * 4));
+        }
+        headers[index] = from;
+        headers[index + 1] = colon;
+        headers[index + 2] = valueStart;
+        headers[index + 3] = valueEnd;
+        ++count;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private HttpParseException tooLarge() {
+        if (state == REQUEST_LINE) {
+            return new HttpParseException(HttpCode.URI_TOO_LONG, "Request line is too long");
+        }
+        return new HttpParseException(HttpCode.REQUEST_HEADER_FIELDS_TOO_LARGE, "Request head is too large");
+    }
+
+    /**
+     * Parses the request head contained in the buffer between its position and limit, resuming the previous call
+     * if the head was incomplete. If the head is complete, the buffer position is moved to the first byte after it,
+     * which is the first byte of the body or the next pipelined request. Otherwise, the position is not changed.
+     *
+     * @param buffer the {@link ByteBuffer} containing received bytes, must be non-null
+     * @return true if the head is complete, false if more bytes are required
+     * @throws HttpParseException    if the head is malformed or exceeds the limits
+     * @throws IllegalStateException if the head has already been parsed
+     */
+    public boolean parse(ByteBuffer buffer) throws HttpParseException {
+        if (state == DONE) {
+            throw new IllegalStateException("Request head is already parsed");
+        }
+        this.buffer = buffer;
+        if (state == START) {
+            start = buffer.position();
+            line = start;
+            scan = start;
+            state = REQUEST_LINE;
+        }
+        var limit = Math.min(buffer.limit(), start + maxHeadSize);
+        while (true) {
+            var lf = findLineEnd(limit);
+            if (lf < 0) {
+                if (limit - start == maxHeadSize) {
+                    throw tooLarge();
+                }
+                return false;
+            }
+            var lineEnd = lf > line && buffer.get(lf - 1) == '\r' ? lf - 1 : lf;
+            if (state == REQUEST_LINE) {
+                // Empty lines preceding the request line are ignored
+                if (lineEnd != line) {
+                    parseRequestLine(line, lineEnd);
+                    state = HEADERS;
+                }
+            } else if (lineEnd == line) {
+                end = lf + 1;
+                state = DONE;
+                buffer.position(end);
+                return true;
+            } else {
+                if (isSpace(buffer.get(line))) {
+                    throw badRequest("Obsolete line folding");
+                }
+                parseHeader(line, lineEnd);
+            }
+            line = lf + 1;
+            scan = line;
+        }
+    }
+
+    /**
+     * Moves this parser to the given buffer, which must hold the same bytes at the same indices,
+     * for example, a grown copy of the previous buffer. The parsed offsets stay valid.
+     *
+     * @param buffer the {@link ByteBuffer} replacing the parsed one, must be non-null
+     */
+    public void move(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Resets this parser, so it can parse the next request starting at the buffer position.
+     */
+    public void reset() {
+        buffer = null;
+        state = START;
+        method = null;
+        version = null;
+        count = 0;
+    }
+
+    /**
+     * Checks whether the request head has been parsed.
+     *
+     * @return true if the head is complete, false otherwise
+     */
+    public boolean isComplete() {
+        return state == DONE;
+    }
+
+    /**
+     * Gets the index of the first byte of the request head, including ignored leading empty lines.
+     *
+     * @return the buffer index
+     */
+    public int getHeadStart() {
+        return start;
+    }
+
+    /**
+     * Gets the index of the first byte after the request head.
+     *
+     * @return the buffer index
+     */
+    public int getHeadEnd() {
+        return end;
+    }
+
+    /**
+     * Gets the request method.
+     *
+     * @return the {@link HttpMethod} instance or null if the request line has not been parsed yet
+     */
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * Gets the request http version.
+     *
+     * @return the {@link HttpVersion} instance or null if the request line has not been parsed yet
+     */
+    public HttpVersion getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the index of the first byte of the request target.
+     *
+     * @return the buffer index
+     */
+    public int getTargetStart() {
+        return targetStart;
+    }
+
+    /**
+     * Gets the index of the first byte after the request target.
+     *
+     * @return the buffer index
+     */
+    public int getTargetEnd() {
+        return targetEnd;
+    }
+
+    /**
+     * Decodes the request target, for example, '/path?query'.
+     *
+     * @return the request target string
+     */
+    public String getTarget() {
+        return string(targetStart, targetEnd);
+    }
+
+    /**
+     * Gets the number of parsed header fields.
+     *
+     * @return the number of header fields
+     */
+    public int getHeaderCount() {
+        return count;
+    }
+
+    private int offset(int index, int field) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return headers[index * 4 + field];
+    }
+
+    /**
+     * Gets the index of the first byte of the header name.
+     *
+     * @param index the header index
+     * @return the buffer index
+     */
+    public int getNameStart(int index) {
+        return offset(index, 0);
+    }
+
+    /**
+     * Gets the index of the first byte after the header name.
+     *
+     * @param index the header index
+     * @return the buffer index
+     */
+    public int getNameEnd(int index) {
+        return offset(index, 1);
+    }
+
+    /**
+     * Gets the index of the first byte of the header value, excluding leading whitespace.
+     *
+     * @param index the header index
+     * @return the buffer index
+     */
+    public int getValueStart(int index) {
+        return offset(index, 2);
+    }
+
+    /**
+     * Gets the index of the first byte after the header value, excluding trailing whitespace.
+     *
+     * @param index the header index
+     * @return the buffer index
+     */
+    public int getValueEnd(int index) {
+        return offset(index, 3);
+    }
+
+    private String string(int from, int to) {
+        var length = to - from;
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + from, length, StandardCharsets.ISO_8859_1);
+        }
+        var bytes = new byte[length];
+        for (var i = 0; i < length; ++i) {
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Decodes the header name.
+     *
+     * @param index the header index
+     * @return the header name as received
+     */
+    public String getHeaderName(int index) {
+        return string(offset(index, 0), offset(index, 1));
+    }
+
+    /**
+     * Decodes the header value.
+     *
+     * @param index the header index
+     * @return the header value without surrounding whitespace
+     */
+    public String getHeaderValue(int index) {
+        return string(offset(index, 2), offset(index, 3));
+    }
+
+    /**
+     * Checks whether the header has given name, ignoring case, without decoding the header name.
+     *
+     * @param index the header index
+     * @param name  the specified header name, must be non-null
+     * @return true if the name matches, false otherwise
+     */
+    public boolean nameEquals(int index, String name) {
+        var from = offset(index, 0);
+        var length = name.length();
+        if (headers[index * 4 + 1] - from != length) {
+            return false;
+        }
+        for (var i = 0; i < length; ++i) {
+            if (!equalsIgnoreCase(buffer.get(from + i), name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the first header with given name, ignoring case, without decoding the header names.
+     *
+     * @param name the specified header name, must be non-null
+     * @return the header index or -1 if the header does not exist
+     */
+    public int indexOf(String name) {
+        for (var i = 0; i < count; ++i) {
+            if (nameEquals(i, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equalsIgnoreCase(byte b, char c) {
+        if (b == c) {
+            return true;
+        }
+        // Header names are tokens, so folding of ASCII letters is enough
+        var lower = b | 0x20;
+        return lower >= 'a' && lower <= 'z' && lower == (c | 0x20);
+    }
+
+    /**
+     * Decodes the value of the first header with given name, ignoring case.
+     *
+     * @param name the specified header name, must be non-null
+     * @return the header value or null if the header does not exist
+     */
+    public String getHeader(String name) {
+        var index = indexOf(name);
+        return index < 0 ? null : getHeaderValue(index);
+    }
+}
@@ -0,0 +1,321 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.http.HttpCode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An encoder of HTTP/1.1 responses writing the whole response with a single gathering write where possible.
+ * <br>
+ * The status line and header fields are assembled in a head buffer acquired from the {@link BufferPool}.
+ * Status lines of predefined codes are pre-encoded, header fields can be passed pre-encoded as well.
+ * Body segments are not copied: the head and the segments are flushed together with
+ * {@link GatheringByteChannel#write(ByteBuffer[], int, int)}. If the whole response fits in the coalescing
+ * threshold, the body is copied into the head buffer, so the response is flushed with a single buffer.
+ * <br>
+ * Content-Length header is added automatically unless it has been set explicitly or the status does not allow
+ * a body. Responses to HEAD requests get the Content-Length of their body, but the body itself is not written. Writing to a non-blocking channel may be incomplete, in which case {@link #write(GatheringByteChannel)}
+ * is called again when the channel is ready. Instances are reusable, but not thread-safe.
+ */
+public final class HttpResponseEncoder {
+    /**
+     * The default maximum size of a response coalesced into a single buffer, in bytes.
+     */
+    public static final int DEFAULT_COALESCE_THRESHOLD = 4096;
+
+    private static final int HEAD_SIZE = 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] CONTENT_LENGTH = "Content-Length: ".getBytes(StandardCharsets.US_ASCII);
+    private static final Map<HttpCode, byte[]> STATUS_LINES = getStatusLines();
+
+    private final BufferPool pool;
+    private final int threshold;
+    private ByteBuffer head;
+    private ByteBuffer[] segments;
+    private int count;
+    private int index;
+    private long remaining;
+    private long bodySize;
+    private boolean lengthSet;
+    private boolean bodyAllowed;
+    private boolean omitBody;
+    private boolean encoded;
+
+    /**
+     * Constructs {@link HttpResponseEncoder} instance with given buffer pool and coalescing threshold.
+     *
+     * @param pool      the {@link BufferPool} supplying head buffers, must be non-null
+     * @param threshold the maximum size of a response coalesced into a single buffer, in bytes
+     */
+    public HttpResponseEncoder(BufferPool pool, int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Invalid coalescing threshold: " + threshold);
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+        this.segments = new ByteBuffer[4];
+    }
+
+    /**
+     * Constructs {@link HttpResponseEncoder} instance with given buffer pool and default coalescing threshold.
+     *
+     * @param pool the {@link BufferPool} supplying head buffers, must be non-null
+     */
+    public HttpResponseEncoder(BufferPool pool) {
+        this(pool, DEFAULT_COALESCE_THRESHOLD);
+    }
+
+    private static byte[] encodeStatusLine(HttpCode code) {
+        var line = "HTTP/1.1 " + code.getCode() + " " + code.getDescription() + "\r\n";
+        return line.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static Map<HttpCode, byte[]> getStatusLines() {
+        var ret = new HashMap<HttpCode, byte[]>();
+        for (var code : HttpCode.all().values()) {
+            ret.put(code, encodeStatusLine(code));
+        }
+        return ret;
+    }
+
+    /**
+     * Encodes the header field, so it can be reused for any number of responses.
+     *
+     * @param name  the header name, must be non-null
+     * @param value the header value, must be non-null
+     * @return the encoded header field, including trailing CRLF
+     * @throws IllegalArgumentException if the name or the value contains CR or LF
+     */
+    public static byte[] encodeHeader(String name, String value) {
+        checkField(name);
+        checkField(value);
+        return (name + ": " + value + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    static void checkField(String field) {
+        for (var i = 0; i < field.length(); ++i) {
+            var c = field.charAt(i);
+            if (c == '\r' || c == '\n') {
+                throw new IllegalArgumentException("Header field contains line break");
+            }
+        }
+    }
+
+    static boolean isBodyAllowed(HttpCode code) {
+        var value = code.getCode();
+        return value >= 200 && value != 204 && value != 304;
+    }
+
+    private void ensure(int size) {
+        if (head.remaining() >= size) {
+            return;
+        }
+        var grown = pool.acquire(Math.max(head.capacity() * 2, head.position() + size));
+        head.flip();
+        grown.put(head);
+        pool.release(head);
+        head = grown;
+    }
+
+    private void checkState() {
+        if (head == null) {
+            throw new IllegalStateException("Response is not started");
+        }
+        if (encoded) {
+            throw new IllegalStateException("Response head is already encoded");
+        }
+    }
+
+    /**
+     * Starts the response with given status. If the previous response has not been written completely,
+     * it is discarded.
+     *
+     * @param code the response status, must be non-null
+     */
+    public void begin(HttpCode code) {
+        begin(code, false);
+    }
+
+    /**
+     * Starts the response with given status. If the previous response has not been written completely,
+     * it is discarded. The body of the response to a HEAD request is only counted for the Content-Length,
+     * but not written (see rfc9110, section 9.3.2).
+     *
+     * @param code the response status, must be non-null
+     * @param omitBody true if the response is sent to a HEAD request
+     */
+    public void begin(HttpCode code, boolean omitBody) {
+        reset();
+        var line = STATUS_LINES.get(code);
+        if (line == null) {
+            line = encodeStatusLine(code);
+        }
+        head = pool.acquire(HEAD_SIZE);
+        ensure(line.length);
+        head.put(line);
+        bodyAllowed = isBodyAllowed(code);
+        this.omitBody = omitBody;
+    }
+
+    /**
+     * Appends the pre-encoded header field.
+     *
+     * @param header the header field encoded with {@link #encodeHeader(String, String)}, must be non-null
+     */
+    public void header(byte[] header) {
+        checkState();
+        ensure(header.length);
+        head.put(header);
+    }
+
+    /**
+     * Encodes and appends the header field. Content-Length header set this way replaces the automatic one.
+     *
+     * @param name  the header name, must be non-null
+     * @param value the header value, must be non-null
+     * @throws IllegalArgumentException if the name or the value contains CR or LF
+     */
+    public void header(String name, String value) {
+        checkState();
+        checkField(name);
+        checkField(value);
+        ensure(name.length() + value.length() + 4);
+        for (var i = 0; i < name.length(); ++i) {
+            head.put((byte) name.charAt(i));
+        }
+        head.put((byte) ':').put((byte) ' ');
+        for (var i = 0; i < value.length(); ++i) {
+            head.put((byte) value.charAt(i));
+        }
+        head.put(CRLF);
+        if (name.equalsIgnoreCase("Content-Length")) {
+            lengthSet = true;
+        }
+    }
+
+    /**
+     * Appends the body segment. The segment is not copied, its bytes between position and limit are written
+     * and must not be modified until the response is written.
+     *
+     * @param segment the body segment, must be non-null
+     * @throws IllegalStateException if the response status does not allow a body
+     */
+    public void body(ByteBuffer segment) {
+        checkState();
+        if (!bodyAllowed) {
+            throw new IllegalStateException("Response status does not allow a body");
+        }
+        if (!segment.hasRemaining()) {
+            return;
+        }
+        if (omitBody) {
+            bodySize += segment.remaining();
+            return;
+        }
+        if (count + 1 == segments.length) {
+            segments = Arrays.copyOf(segments, segments.length * 2);
+        }
+        // Index 0 is reserved for the head
+        segments[++count] = segment;
+        bodySize += segment.remaining();
+    }
+
+    private void putLength(long value) {
+        var digits = Long.toString(value);
+        ensure(CONTENT_LENGTH.length + digits.length() + CRLF.length);
+        head.put(CONTENT_LENGTH);
+        for (var i = 0; i < digits.length(); ++i) {
+            head.put((byte) digits.charAt(i));
+        }
+        head.put(CRLF);
+    }
+
+    private void encode() {
+        if (bodyAllowed && !lengthSet) {
+            putLength(bodySize);
+        }
+        if (omitBody) {
+            bodySize = 0;
+        }
+        ensure(CRLF.length);
+        head.put(CRLF);
+        if (head.position() + bodySize <= threshold) {
+            // Small response, copy the body to send a single buffer
+            ensure((int) bodySize);
+            for (var i = 1; i <= count; ++i) {
+                head.put(segments[i]);
+                segments[i] = null;
+            }
+            count = 0;
+            bodySize = 0;
+        }
+        head.flip();
+        segments[0] = head;
+        remaining = head.remaining() + bodySize;
+        encoded = true;
+    }
+
+    /**
+     * Writes the response to the channel. The head is encoded on the first call.
+     * All buffers are passed to a single gathering write, which is repeated only
+     * if the channel accepted a part of them.
+     *
+     * @param channel the {@link GatheringByteChannel} to write to, must be non-null
+     * @return true if the response is written completely, false if the channel cannot accept more bytes now
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean write(GatheringByteChannel channel) throws IOException {
+        if (head == null) {
+            throw new IllegalStateException("Response is not started");
+        }
+        if (!encoded) {
+            encode();
+        }
+        while (remaining > 0) {
+            var written = channel.write(segments, index, count + 1 - index);
+            if (written == 0) {
+                return false;
+            }
+            remaining -= written;
+            while (index <= count && !segments[index].hasRemaining()) {
+                ++index;
+            }
+        }
+        reset();
+        return true;
+    }
+
+    /**
+     * Checks whether the response has been started and not written completely.
+     *
+     * @return true if there is a pending response, false otherwise
+     */
+    public boolean isPending() {
+        return head != null;
+    }
+
+    /**
+     * Discards the pending response, if any, and releases the head buffer.
+     */
+    public void reset() {
+        if (head != null) {
+            pool.release(head);
+            head = null;
+        }
+        Arrays.fill(segments, 0, count + 1, null);
+        count = 0;
+        index = 0;
+        remaining = 0;
+        bodySize = 0;
+        lengthSet = false;
+        bodyAllowed = false;
+        omitBody = false;
+        encoded = false;
+    }
+}
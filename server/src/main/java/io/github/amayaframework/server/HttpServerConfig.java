@@ -2,6 +2,8 @@ package io.github.amayaframework.server;
 
 import io.github.amayaframework.http.HttpVersion;
 
+import java.net.InetSocketAddress;
+
 /**
  * An interface describing the http server config.
  */
@@ -66,4 +68,26 @@ public interface HttpServerConfig extends ServerConfig {
      * @throws IllegalStateException if server started
      */
     void setPathTokenizer(PathTokenizer tokenizer);
+
+    /**
+     * Adds given address to listened set and starts listen it over TLS.
+     * By default, TLS is not supported.
+     *
+     * @param address the specified address to be listened, must be non-null
+     * @param tls     the {@link TlsConfig} instance holding the TLS settings of the address, must be non-null
+     * @throws UnsupportedOperationException if the server does not support TLS
+     */
+    default void addAddress(InetSocketAddress address, TlsConfig tls) {
+        throw new UnsupportedOperationException("TLS is not supported by this server");
+    }
+
+    /**
+     * Gets the TLS settings of given listened address. By default, all the addresses are listened without TLS.
+     *
+     * @param address the specified listened address, must be non-null
+     * @return the {@link TlsConfig} instance or null if the address is listened without TLS or is not listened
+     */
+    default TlsConfig getTlsConfig(InetSocketAddress address) {
+        return null;
+    }
 }
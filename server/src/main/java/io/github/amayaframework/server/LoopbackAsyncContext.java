@@ -0,0 +1,173 @@
+package io.github.amayaframework.server;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link AsyncContext} of a {@link LoopbackServer} exchange. The exchange is captured once the context
+ * is completed. If it is not completed within the timeout, the listeners are notified and the exchange
+ * is completed with 500 Internal Server Error, unless a listener has completed it.
+ * Dispatching is not supported.
+ */
+final class LoopbackAsyncContext implements AsyncContext {
+    private static final long DEFAULT_TIMEOUT = 30000;
+
+    private final LoopbackServletRequest request;
+    private final LoopbackServletResponse response;
+    private final List<AsyncListener> listeners;
+    private final CompletableFuture<Void> completion;
+    private long timeout;
+
+    LoopbackAsyncContext(LoopbackServletRequest request, LoopbackServletResponse response) {
+        this.request = request;
+        this.response = response;
+        this.listeners = new ArrayList<>();
+        this.completion = new CompletableFuture<>();
+        this.timeout = DEFAULT_TIMEOUT;
+    }
+
+    CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    void schedule() {
+        if (timeout <= 0) {
+            return;
+        }
+        CompletableFuture.delayedExecutor(timeout, TimeUnit.MILLISECONDS).execute(this::expire);
+    }
+
+    private synchronized void expire() {
+        if (completion.isDone()) {
+            return;
+        }
+        var event = new AsyncEvent(this, request, response);
+        for (var listener : List.copyOf(listeners)) {
+            try {
+                listener.onTimeout(event);
+            } catch (IOException | RuntimeException e) {
+                // The exchange is failed anyway
+            }
+        }
+        if (completion.isDone()) {
+            return;
+        }
+        if (!response.isCommitted()) {
+            response.reset();
+            response.setStatus(LoopbackServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+        complete();
+    }
+
+    /**
+     * Fails the exchange as a container does when the client disconnects: the listeners are notified
+     * of the error, and the context is completed unless a listener has completed it.
+     *
+     * @param cause the error passed to the listeners
+     */
+    synchronized void fail(Throwable cause) {
+        if (completion.isDone()) {
+            return;
+        }
+        var event = new AsyncEvent(this, request, response, cause);
+        for (var listener : List.copyOf(listeners)) {
+            try {
+                listener.onError(event);
+            } catch (IOException | RuntimeException e) {
+                // The exchange is failed anyway
+            }
+        }
+        complete();
+    }
+
+    @Override
+    public ServletRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public ServletResponse getResponse() {
+        return response;
+    }
+
+    @Override
+    public boolean hasOriginalRequestAndResponse() {
+        return true;
+    }
+
+    @Override
+    public void dispatch() {
+        throw new UnsupportedOperationException("Dispatching is not supported");
+    }
+
+    @Override
+    public void dispatch(String path) {
+        throw new UnsupportedOperationException("Dispatching is not supported");
+    }
+
+    @Override
+    public void dispatch(ServletContext context, String path) {
+        throw new UnsupportedOperationException("Dispatching is not supported");
+    }
+
+    @Override
+    public synchronized void complete() {
+        if (completion.isDone()) {
+            return;
+        }
+        var event = new AsyncEvent(this, request, response);
+        for (var listener : listeners) {
+            try {
+                listener.onComplete(event);
+            } catch (IOException | RuntimeException e) {
+                // Listener failures do not affect the captured response
+            }
+        }
+        completion.complete(null);
+    }
+
+    @Override
+    public void start(Runnable run) {
+        CompletableFuture.runAsync(run);
+    }
+
+    @Override
+    public synchronized void addListener(AsyncListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void addListener(AsyncListener listener, ServletRequest servletRequest, ServletResponse servletResponse) {
+        addListener(listener);
+    }
+
+    @Override
+    public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException {
+        try {
+            return clazz.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new ServletException(e);
+        }
+    }
+
+    @Override
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public long getTimeout() {
+        return timeout;
+    }
+}
@@ -0,0 +1,117 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.context.AbstractHttpRequest;
+import io.github.amayaframework.context.AbstractHttpResponse;
+import io.github.amayaframework.context.CancellationToken;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.context.HttpRequest;
+import io.github.amayaframework.context.HttpResponse;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.http.HttpVersion;
+import io.github.amayaframework.http.MimeData;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link HttpContext} of a {@link LoopbackServer} exchange.
+ */
+final class LoopbackContext implements HttpContext {
+    private final HttpServletRequest servletRequest;
+    private final HttpServletResponse servletResponse;
+    private final HttpRequest request;
+    private final HttpResponse response;
+    private final CancellationToken cancellation;
+
+    LoopbackContext(HttpServletRequest servletRequest,
+                    HttpServletResponse servletResponse,
+                    HttpVersion version,
+                    String scheme,
+                    HttpServerConfig config) {
+        this.servletRequest = servletRequest;
+        this.servletResponse = servletResponse;
+        this.request = new Request(servletRequest, version, config);
+        this.response = new Response(servletResponse, version, scheme, config);
+        this.cancellation = new CancellationToken();
+        servletRequest.setAttribute(CancellationToken.ATTRIBUTE, cancellation);
+    }
+
+    @Override
+    public HttpRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public HttpServletRequest getServletRequest() {
+        return servletRequest;
+    }
+
+    @Override
+    public HttpResponse getResponse() {
+        return response;
+    }
+
+    @Override
+    public HttpServletResponse getServletResponse() {
+        return servletResponse;
+    }
+
+    @Override
+    public CancellationToken getCancellation() {
+        return cancellation;
+    }
+
+    private static final class Request extends AbstractHttpRequest {
+        private final HttpServerConfig config;
+        private final Map<String, Object> parameters;
+
+        private Request(HttpServletRequest request, HttpVersion version, HttpServerConfig config) {
+            super(request, version);
+            this.config = config;
+            this.parameters = new HashMap<>();
+        }
+
+        @Override
+        protected HttpMethod parseHttpMethod(String method) {
+            return HttpMethod.of(method);
+        }
+
+        @Override
+        protected List<String> splitPath(String path) {
+            return config.getPathTokenizer().tokenize(path);
+        }
+
+        @Override
+        protected MimeData parseMimeData(String data) {
+            return config.getMimeParser().read(data);
+        }
+
+        @Override
+        public Map<String, Object> getPathParameters() {
+            return parameters;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getPathParameter(String name) {
+            return (T) parameters.get(name);
+        }
+    }
+
+    private static final class Response extends AbstractHttpResponse {
+        private final HttpServerConfig config;
+
+        private Response(HttpServletResponse response, HttpVersion version, String scheme, HttpServerConfig config) {
+            super(response, version.getTag(), scheme, version);
+            this.config = config;
+        }
+
+        @Override
+        protected String formatMimeData(MimeData data) {
+            return config.getMimeFormatter().format(data);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.http.HttpVersion;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * A class describing the request served by {@link LoopbackServer}.
+ * <br>
+ * Header names are case-insensitive. The descriptor is only read while it is served, so it can be submitted
+ * many times and from many threads, but it must not be modified while any of its exchanges are in progress.
+ */
+public final class LoopbackRequest {
+    private static final byte[] EMPTY = new byte[0];
+    private static final InetSocketAddress DEFAULT_REMOTE = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+
+    private final HttpMethod method;
+    private final String path;
+    private final String query;
+    private final Map<String, List<String>> headers;
+    private HttpVersion version;
+    private String scheme;
+    private byte[] body;
+    private InetSocketAddress remoteAddress;
+
+    /**
+     * Constructs {@link LoopbackRequest} instance with given method and request target.
+     *
+     * @param method the specified {@link HttpMethod}, must be non-null
+     * @param target the specified request target, for example, '/path?query', must start with '/'
+     */
+    public LoopbackRequest(HttpMethod method, String target) {
+        this.method = Objects.requireNonNull(method);
+        if (!target.startsWith("/")) {
+            throw new IllegalArgumentException("Request target must start with '/': " + target);
+        }
+        var index = target.indexOf('?');
+        this.path = index < 0 ? target : target.substring(0, index);
+        this.query = index < 0 ? null : target.substring(index + 1);
+        this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        this.version = HttpVersion.HTTP_1_1;
+        this.scheme = "http";
+        this.body = EMPTY;
+        this.remoteAddress = DEFAULT_REMOTE;
+    }
+
+    /**
+     * Gets the method of this request.
+     *
+     * @return the {@link HttpMethod} instance
+     */
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * Gets the path of this request target.
+     *
+     * @return the path string, not decoded
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the query of this request target.
+     *
+     * @return the query string, not decoded, or null if the target has no query
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Gets the http version of this request. The default value is {@link HttpVersion#HTTP_1_1}.
+     *
+     * @return the {@link HttpVersion} instance
+     */
+    public HttpVersion getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the http version of this request.
+     *
+     * @param version the {@link HttpVersion} instance, must be non-null
+     */
+    public void setVersion(HttpVersion version) {
+        this.version = Objects.requireNonNull(version);
+    }
+
+    /**
+     * Gets the scheme of this request. The default value is 'http'.
+     *
+     * @return the scheme string
+     */
+    public String getScheme() {
+        return scheme;
+    }
+
+    /**
+     * Sets the scheme of this request, 'https' marks the request as secure.
+     *
+     * @param scheme the scheme string, must be non-null
+     */
+    public void setScheme(String scheme) {
+        this.scheme = Objects.requireNonNull(scheme);
+    }
+
+    /**
+     * Gets the headers of this request.
+     *
+     * @return the unmodifiable {@link Map} containing header values by case-insensitive names
+     */
+    public Map<String, List<String>> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * Gets the first value of given header.
+     *
+     * @param name the header name, must be non-null
+     * @return the header value or null if the header is not present
+     */
+    public String getHeader(String name) {
+        var values = headers.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    /**
+     * Adds the value to given header.
+     *
+     * @param name  the header name, must be non-null
+     * @param value the header value, must be non-null
+     */
+    public void addHeader(String name, String value) {
+        Objects.requireNonNull(value);
+        headers.computeIfAbsent(name, key -> new ArrayList<>(1)).add(value);
+    }
+
+    /**
+     * Replaces the values of given header with the value.
+     *
+     * @param name  the header name, must be non-null
+     * @param value the header value, null to remove the header
+     */
+    public void setHeader(String name, String value) {
+        if (value == null) {
+            headers.remove(name);
+            return;
+        }
+        var values = new ArrayList<String>(1);
+        values.add(value);
+        headers.put(name, values);
+    }
+
+    /**
+     * Gets the body of this request. The returned array is not copied and must not be modified.
+     *
+     * @return the body bytes, empty by default
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Sets the body of this request and its Content-Length header. The array is not copied.
+     *
+     * @param body the body bytes, must be non-null
+     */
+    public void setBody(byte[] body) {
+        this.body = Objects.requireNonNull(body);
+        setHeader("Content-Length", Integer.toString(body.length));
+    }
+
+    /**
+     * Encodes the string with given charset and sets it as the body of this request.
+     *
+     * @param body    the body string, must be non-null
+     * @param charset the {@link Charset} to encode the body with, must be non-null
+     */
+    public void setBody(String body, Charset charset) {
+        setBody(body.getBytes(charset));
+    }
+
+    /**
+     * Gets the address of the client sending this request. The default value is the loopback address.
+     *
+     * @return the {@link InetSocketAddress} instance
+     */
+    public InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * Sets the address of the client sending this request.
+     *
+     * @param remoteAddress the {@link InetSocketAddress} instance, must be non-null
+     */
+    public void setRemoteAddress(InetSocketAddress remoteAddress) {
+        this.remoteAddress = Objects.requireNonNull(remoteAddress);
+    }
+}
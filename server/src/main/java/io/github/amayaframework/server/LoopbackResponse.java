@@ -0,0 +1,124 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.http.HttpCode;
+import jakarta.servlet.http.Cookie;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A class containing the response captured by {@link LoopbackServer}.
+ * <br>
+ * Header names are case-insensitive. Cookies are not formatted as Set-Cookie headers
+ * and are available with {@link #getCookies()}.
+ */
+public final class LoopbackResponse {
+    private final int status;
+    private final Map<String, List<String>> headers;
+    private final List<Cookie> cookies;
+    private final byte[] body;
+    private final Charset charset;
+    private final Map<String, String> trailers;
+    private final Throwable throwable;
+
+    LoopbackResponse(int status,
+                     Map<String, List<String>> headers,
+                     List<Cookie> cookies,
+                     byte[] body,
+                     Charset charset,
+                     Map<String, String> trailers,
+                     Throwable throwable) {
+        this.status = status;
+        this.headers = headers;
+        this.cookies = cookies;
+        this.body = body;
+        this.charset = charset;
+        this.trailers = trailers;
+        this.throwable = throwable;
+    }
+
+    /**
+     * Gets the status code of this response.
+     *
+     * @return the status code
+     */
+    public int getStatusCode() {
+        return status;
+    }
+
+    /**
+     * Gets the status of this response.
+     *
+     * @return the {@link HttpCode} instance or null if the status code is unknown
+     */
+    public HttpCode getStatus() {
+        return HttpCode.of(status);
+    }
+
+    /**
+     * Gets the headers of this response.
+     *
+     * @return the unmodifiable {@link Map} containing header values by case-insensitive names
+     */
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Gets the first value of given header.
+     *
+     * @param name the header name, must be non-null
+     * @return the header value or null if the header is not present
+     */
+    public String getHeader(String name) {
+        var values = headers.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    /**
+     * Gets the cookies added to this response.
+     *
+     * @return the unmodifiable {@link List} of {@link Cookie}s, in the order they were added
+     */
+    public List<Cookie> getCookies() {
+        return cookies;
+    }
+
+    /**
+     * Gets the body of this response. The returned array is not copied.
+     *
+     * @return the body bytes
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Decodes the body of this response with the response character encoding.
+     *
+     * @return the body string
+     */
+    public String getBodyAsString() {
+        return new String(body, charset);
+    }
+
+    /**
+     * Gets the trailer fields of this response.
+     *
+     * @return the unmodifiable {@link Map} of trailer fields, empty if the response has no trailers
+     */
+    public Map<String, String> getTrailerFields() {
+        return trailers;
+    }
+
+    /**
+     * Gets the exception thrown by the handler. If the response was not sent when it was thrown,
+     * the status is 500 Internal Server Error.
+     *
+     * @return the {@link Throwable} instance or null if the handler completed normally
+     */
+    public Throwable getThrowable() {
+        return throwable;
+    }
+}
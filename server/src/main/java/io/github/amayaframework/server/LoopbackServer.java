@@ -0,0 +1,226 @@
+package io.github.amayaframework.server;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.http.HttpCode;
+
+import java.io.EOFException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * An {@link HttpServer} implementation serving {@link LoopbackRequest}s entirely in memory.
+ * Each request is turned into an {@link HttpContext}, passed straight to the handler on the calling thread,
+ * and the response is captured as {@link LoopbackResponse}. No socket is opened, so the bound addresses are
+ * only used as the local address of exchanges.
+ * <br>
+ * Exchanges are independent and can be submitted from many threads. Asynchronous processing is supported,
+ * the exchange completes once its {@link jakarta.servlet.AsyncContext} is completed or timed out.
+ * Sessions, authentication, multipart parts and dispatching are not supported.
+ */
+public final class LoopbackServer implements HttpServer {
+    private static final InetSocketAddress DEFAULT_LOCAL = new InetSocketAddress(InetAddress.getLoopbackAddress(), 80);
+
+    private final LoopbackServerConfig config;
+    private final Object lock;
+    private volatile Runnable1<HttpContext> handler;
+    private volatile InetSocketAddress local;
+    private volatile boolean started;
+
+    /**
+     * Constructs {@link LoopbackServer} instance with the default config.
+     */
+    public LoopbackServer() {
+        this.config = new LoopbackServerConfig();
+        this.lock = new Object();
+    }
+
+    @Override
+    public void bind(InetSocketAddress address) {
+        config.addAddress(address);
+    }
+
+    @Override
+    public void bind(int port) {
+        config.addAddress(new InetSocketAddress(port));
+    }
+
+    @Override
+    public HttpServerConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public Runnable1<HttpContext> getHandler() {
+        return handler;
+    }
+
+    @Override
+    public void setHandler(Runnable1<HttpContext> handler) {
+        synchronized (lock) {
+            if (started) {
+                throw new IllegalStateException("Server already started");
+            }
+            this.handler = Objects.requireNonNull(handler);
+        }
+    }
+
+    /**
+     * Checks if this server is started.
+     *
+     * @return true, if started, false otherwise
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    @Override
+    public void start() {
+        synchronized (lock) {
+            if (started) {
+                throw new IllegalStateException("Server already started");
+            }
+            if (handler == null) {
+                throw new IllegalStateException("Handler not set");
+            }
+            var addresses = config.getAddresses();
+            synchronized (addresses) {
+                local = addresses.isEmpty() ? DEFAULT_LOCAL : addresses.iterator().next();
+            }
+            config.setLocked(true);
+            started = true;
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (lock) {
+            if (!started) {
+                throw new IllegalStateException("Server already stopped");
+            }
+            started = false;
+            config.setLocked(false);
+        }
+    }
+
+    private static void disconnect(LoopbackContext context, LoopbackServletRequest request) {
+        context.getCancellation().cancel();
+        var async = request.getAsync();
+        if (async != null) {
+            async.fail(new EOFException("Client disconnected"));
+        }
+    }
+
+    private void serve(LoopbackRequest request, CompletableFuture<LoopbackResponse> result) {
+        if (!started) {
+            throw new IllegalStateException("Server not started");
+        }
+        var servletResponse = new LoopbackServletResponse();
+        var servletRequest = new LoopbackServletRequest(request, servletResponse, local, true);
+        if (request.getVersion().after(config.getHttpVersion())) {
+            servletResponse.setStatus(HttpCode.HTTP_VERSION_NOT_SUPPORTED.getCode());
+            result.complete(servletResponse.capture(null));
+            return;
+        }
+        var context = new LoopbackContext(
+                servletRequest,
+                servletResponse,
+                request.getVersion(),
+                request.getScheme(),
+                config
+        );
+        // The client gives up by cancelling the result, which is handled as a closed connection
+        result.whenComplete((response, e) -> {
+            if (result.isCancelled()) {
+                disconnect(context, servletRequest);
+            }
+        });
+        try {
+            handler.run(context);
+        } catch (Throwable e) {
+            var async = servletRequest.getAsync();
+            if (async != null) {
+                // Release the listeners, the exchange is failed anyway
+                async.complete();
+            }
+            result.complete(servletResponse.capture(e));
+            return;
+        }
+        var async = servletRequest.getAsync();
+        if (async == null) {
+            result.complete(servletResponse.capture(null));
+            return;
+        }
+        async.schedule();
+        if (result.isCancelled()) {
+            // The client gave up before the asynchronous processing was started
+            disconnect(context, servletRequest);
+        }
+        async.getCompletion().thenRun(() -> result.complete(servletResponse.capture(null)));
+    }
+
+    private CompletableFuture<LoopbackResponse> serveAsync(LoopbackRequest request, Executor executor) {
+        Objects.requireNonNull(request);
+        if (!started) {
+            throw new IllegalStateException("Server not started");
+        }
+        var ret = new CompletableFuture<LoopbackResponse>();
+        Runnable task = () -> {
+            try {
+                serve(request, ret);
+            } catch (RuntimeException e) {
+                ret.completeExceptionally(e);
+            }
+        };
+        if (executor == null) {
+            CompletableFuture.runAsync(task);
+        } else {
+            executor.execute(task);
+        }
+        return ret;
+    }
+
+    /**
+     * Serves given request on the calling thread and waits for its response.
+     * If the handler starts asynchronous processing, the call blocks until it is completed or timed out.
+     *
+     * @param request the {@link LoopbackRequest} to be served, must be non-null
+     * @return the captured {@link LoopbackResponse}
+     * @throws IllegalStateException if server is not started
+     */
+    public LoopbackResponse exchange(LoopbackRequest request) {
+        Objects.requireNonNull(request);
+        var ret = new CompletableFuture<LoopbackResponse>();
+        serve(request, ret);
+        return ret.join();
+    }
+
+    /**
+     * Serves given request with the executor. Cancelling the returned future acts as the client closing
+     * the connection: the {@link io.github.amayaframework.context.CancellationToken} of the request is cancelled,
+     * and the listeners of its asynchronous processing are notified of the error.
+     *
+     * @param request  the {@link LoopbackRequest} to be served, must be non-null
+     * @param executor the {@link Executor} running the handler, must be non-null
+     * @return the {@link CompletableFuture} completed with the captured {@link LoopbackResponse}
+     * @throws IllegalStateException if server is not started
+     */
+    public CompletableFuture<LoopbackResponse> submit(LoopbackRequest request, Executor executor) {
+        return serveAsync(request, Objects.requireNonNull(executor));
+    }
+
+    /**
+     * Serves given request with {@link java.util.concurrent.ForkJoinPool#commonPool()}. Cancelling the returned
+     * future acts as the client closing the connection, as with {@link #submit(LoopbackRequest, Executor)}.
+     *
+     * @param request the {@link LoopbackRequest} to be served, must be non-null
+     * @return the {@link CompletableFuture} completed with the captured {@link LoopbackResponse}
+     * @throws IllegalStateException if server is not started
+     */
+    public CompletableFuture<LoopbackResponse> submit(LoopbackRequest request) {
+        return serveAsync(request, null);
+    }
+}
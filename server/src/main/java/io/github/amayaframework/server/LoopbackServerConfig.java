@@ -0,0 +1,15 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.http.HttpVersion;
+
+/**
+ * The {@link HttpServerConfig} of {@link LoopbackServer}. Addresses are only recorded, no socket is opened.
+ * The default http version is {@link HttpVersion#HTTP_1_1}, requests of later versions are answered
+ * with 505 HTTP Version Not Supported.
+ */
+final class LoopbackServerConfig extends AbstractServerConfig {
+
+    LoopbackServerConfig() {
+        super(HttpVersion.HTTP_1_1);
+    }
+}
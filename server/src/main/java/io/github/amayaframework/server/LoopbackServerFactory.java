@@ -0,0 +1,20 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.options.OptionSet;
+
+/**
+ * An {@link HttpServerFactory} implementation creating {@link LoopbackServer} instances.
+ * The loopback server has no transport settings, so the options are ignored.
+ */
+public final class LoopbackServerFactory implements HttpServerFactory {
+
+    @Override
+    public LoopbackServer create(OptionSet set) {
+        return new LoopbackServer();
+    }
+
+    @Override
+    public LoopbackServer create() {
+        return new LoopbackServer();
+    }
+}
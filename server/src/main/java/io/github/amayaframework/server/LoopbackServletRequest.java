@@ -0,0 +1,653 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.context.FormDecoder;
+import io.github.amayaframework.context.FormLimitException;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.RequestDispatcher;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpUpgradeHandler;
+import jakarta.servlet.http.Part;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An in-memory {@link HttpServletRequest} built from a {@link LoopbackRequest}.
+ * <br>
+ * Parameters are decoded from the query string only,
+ * form bodies are left to {@link io.github.amayaframework.context.Request#getForm()}.
+ * Sessions, authentication, multipart parts, dispatching and protocol upgrades are not supported.
+ */
+final class LoopbackServletRequest implements HttpServletRequest {
+    private final LoopbackRequest request;
+    private final LoopbackServletResponse response;
+    private final InetSocketAddress local;
+    private final Map<String, Object> attributes;
+    private final boolean asyncSupported;
+    private String encoding;
+    private Map<String, String[]> parameters;
+    private Input input;
+    private BufferedReader reader;
+    private volatile LoopbackAsyncContext async;
+
+    LoopbackServletRequest(LoopbackRequest request,
+                           LoopbackServletResponse response,
+                           InetSocketAddress local,
+                           boolean asyncSupported) {
+        this.request = request;
+        this.response = response;
+        this.local = local;
+        this.attributes = new HashMap<>();
+        this.asyncSupported = asyncSupported;
+        var type = request.getHeader("Content-Type");
+        this.encoding = type == null ? null : getCharsetParameter(type);
+    }
+
+    private static String getCharsetParameter(String type) {
+        for (var parameter : type.split(";")) {
+            var trimmed = parameter.trim();
+            if (trimmed.regionMatches(true, 0, "charset=", 0, 8)) {
+                var ret = trimmed.substring(8);
+                if (ret.length() > 1 && ret.startsWith("\"") && ret.endsWith("\"")) {
+                    ret = ret.substring(1, ret.length() - 1);
+                }
+                return ret.isEmpty() ? null : ret;
+            }
+        }
+        return null;
+    }
+
+    LoopbackAsyncContext getAsync() {
+        return async;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(List.copyOf(attributes.keySet()));
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return encoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String env) throws UnsupportedEncodingException {
+        if (reader != null) {
+            return;
+        }
+        if (!Charset.isSupported(env)) {
+            throw new UnsupportedEncodingException(env);
+        }
+        encoding = env;
+    }
+
+    @Override
+    public int getContentLength() {
+        var ret = getContentLengthLong();
+        return ret > Integer.MAX_VALUE ? -1 : (int) ret;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        var value = request.getHeader("Content-Length");
+        if (value == null) {
+            return request.getBody().length == 0 ? -1 : request.getBody().length;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return request.getHeader("Content-Type");
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        if (reader != null) {
+            throw new IllegalStateException("Reader already obtained");
+        }
+        if (input == null) {
+            input = new Input(request.getBody());
+        }
+        return input;
+    }
+
+    private Map<String, String[]> decodeParameters() {
+        var query = request.getQuery();
+        if (query == null) {
+            return Map.of();
+        }
+        var found = new LinkedHashMap<String, List<String>>();
+        try {
+            FormDecoder.DEFAULT.decode(query, (name, value) -> {
+                found.computeIfAbsent(name, key -> new ArrayList<>(1)).add(value);
+                return true;
+            });
+        } catch (FormLimitException e) {
+            throw new UncheckedIOException(e);
+        }
+        var ret = new LinkedHashMap<String, String[]>();
+        found.forEach((name, values) -> ret.put(name, values.toArray(new String[0])));
+        return Collections.unmodifiableMap(ret);
+    }
+
+    @Override
+    public String getParameter(String name) {
+        var values = getParameterMap().get(name);
+        return values == null ? null : values[0];
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(getParameterMap().keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        var values = getParameterMap().get(name);
+        return values == null ? null : values.clone();
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        if (parameters == null) {
+            parameters = decodeParameters();
+        }
+        return parameters;
+    }
+
+    @Override
+    public String getProtocol() {
+        return request.getVersion().getTag();
+    }
+
+    @Override
+    public String getScheme() {
+        return request.getScheme();
+    }
+
+    private String getHost() {
+        var host = request.getHeader("Host");
+        if (host == null || host.isEmpty()) {
+            return null;
+        }
+        return host;
+    }
+
+    @Override
+    public String getServerName() {
+        var host = getHost();
+        if (host == null) {
+            return local.getHostString();
+        }
+        if (host.startsWith("[")) {
+            var end = host.indexOf(']');
+            return end < 0 ? host : host.substring(0, end + 1);
+        }
+        var colon = host.indexOf(':');
+        return colon < 0 ? host : host.substring(0, colon);
+    }
+
+    @Override
+    public int getServerPort() {
+        var host = getHost();
+        if (host == null) {
+            return local.getPort();
+        }
+        var colon = host.lastIndexOf(':');
+        if (colon < 0 || colon < host.lastIndexOf(']')) {
+            return isSecure() ? 443 : 80;
+        }
+        try {
+            return Integer.parseInt(host.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            return isSecure() ? 443 : 80;
+        }
+    }
+
+    @Override
+    public BufferedReader getReader() throws UnsupportedEncodingException {
+        if (reader != null) {
+            return reader;
+        }
+        if (input != null) {
+            throw new IllegalStateException("Input stream already obtained");
+        }
+        var charset = StandardCharsets.UTF_8;
+        if (encoding != null) {
+            if (!Charset.isSupported(encoding)) {
+                throw new UnsupportedEncodingException(encoding);
+            }
+            charset = (StandardCharsets.UTF_8.name().equals(encoding)) ? charset : Charset.forName(encoding);
+        }
+        input = new Input(request.getBody());
+        reader = new BufferedReader(new InputStreamReader(input, charset));
+        return reader;
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        var address = request.getRemoteAddress();
+        return address.isUnresolved() ? address.getHostString() : address.getAddress().getHostAddress();
+    }
+
+    @Override
+    public String getRemoteHost() {
+        // As containers do by default, the address is not resolved
+        return getRemoteAddr();
+    }
+
+    @Override
+    public void setAttribute(String name, Object o) {
+        if (o == null) {
+            attributes.remove(name);
+            return;
+        }
+        attributes.put(name, o);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public Locale getLocale() {
+        return Locale.getDefault();
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+        return Collections.enumeration(List.of(Locale.getDefault()));
+    }
+
+    @Override
+    public boolean isSecure() {
+        return "https".equalsIgnoreCase(request.getScheme());
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(String path) {
+        return null;
+    }
+
+    @Override
+    @Deprecated
+    public String getRealPath(String path) {
+        return null;
+    }
+
+    @Override
+    public int getRemotePort() {
+        return request.getRemoteAddress().getPort();
+    }
+
+    @Override
+    public String getLocalName() {
+        return local.getHostString();
+    }
+
+    @Override
+    public String getLocalAddr() {
+        return local.isUnresolved() ? local.getHostString() : local.getAddress().getHostAddress();
+    }
+
+    @Override
+    public int getLocalPort() {
+        return local.getPort();
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return null;
+    }
+
+    @Override
+    public AsyncContext startAsync() {
+        return startAsync(this, response);
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        if (!asyncSupported) {
+            throw new IllegalStateException("Async processing not supported");
+        }
+        if (async != null) {
+            throw new IllegalStateException("Async processing already started");
+        }
+        async = new LoopbackAsyncContext(this, response);
+        return async;
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        return async != null;
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return asyncSupported;
+    }
+
+    @Override
+    public AsyncContext getAsyncContext() {
+        if (async == null) {
+            throw new IllegalStateException("Async processing not started");
+        }
+        return async;
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    @Override
+    public String getAuthType() {
+        return null;
+    }
+
+    private Cookie[] parseCookies() {
+        var values = request.getHeaders().get("Cookie");
+        if (values == null) {
+            return null;
+        }
+        var ret = new ArrayList<Cookie>();
+        for (var value : values) {
+            for (var pair : value.split(";")) {
+                var index = pair.indexOf('=');
+                if (index <= 0) {
+                    continue;
+                }
+                var name = pair.substring(0, index).trim();
+                if (name.isEmpty()) {
+                    continue;
+                }
+                try {
+                    ret.add(new Cookie(name, pair.substring(index + 1).trim()));
+                } catch (IllegalArgumentException e) {
+                    // Cookies with illegal names are ignored, as containers do
+                }
+            }
+        }
+        return ret.isEmpty() ? null : ret.toArray(new Cookie[0]);
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+        return parseCookies();
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        var value = request.getHeader(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date header " + name + ": " + value, e);
+        }
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return request.getHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        var values = request.getHeaders().get(name);
+        return Collections.enumeration(values == null ? List.of() : values);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(request.getHeaders().keySet());
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        var value = request.getHeader(name);
+        if (value == null) {
+            return -1;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    @Override
+    public String getMethod() {
+        return request.getMethod().getName();
+    }
+
+    @Override
+    public String getPathInfo() {
+        return request.getPath();
+    }
+
+    @Override
+    public String getPathTranslated() {
+        return null;
+    }
+
+    @Override
+    public String getContextPath() {
+        return "";
+    }
+
+    @Override
+    public String getQueryString() {
+        return request.getQuery();
+    }
+
+    @Override
+    public String getRemoteUser() {
+        return null;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        return false;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return null;
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+        return null;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return request.getPath();
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        var ret = new StringBuffer();
+        var scheme = getScheme();
+        var port = getServerPort();
+        ret.append(scheme).append("://").append(getServerName());
+        if ((scheme.equals("http") && port != 80) || (scheme.equals("https") && port != 443)) {
+            ret.append(':').append(port);
+        }
+        return ret.append(request.getPath());
+    }
+
+    @Override
+    public String getServletPath() {
+        return "";
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+        if (create) {
+            throw new UnsupportedOperationException("Sessions are not supported by loopback server");
+        }
+        return null;
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return getSession(true);
+    }
+
+    @Override
+    public String changeSessionId() {
+        throw new IllegalStateException("Request has no session");
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromCookie() {
+        return false;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromURL() {
+        return false;
+    }
+
+    @Override
+    @Deprecated
+    public boolean isRequestedSessionIdFromUrl() {
+        return false;
+    }
+
+    @Override
+    public boolean authenticate(HttpServletResponse response) throws ServletException {
+        throw new ServletException("Authentication is not supported by loopback server");
+    }
+
+    @Override
+    public void login(String username, String password) throws ServletException {
+        throw new ServletException("Authentication is not supported by loopback server");
+    }
+
+    @Override
+    public void logout() throws ServletException {
+        throw new ServletException("Authentication is not supported by loopback server");
+    }
+
+    @Override
+    public Collection<Part> getParts() throws ServletException {
+        throw new ServletException("Multipart parts are not supported by loopback server");
+    }
+
+    @Override
+    public Part getPart(String name) throws ServletException {
+        throw new ServletException("Multipart parts are not supported by loopback server");
+    }
+
+    @Override
+    public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass) throws ServletException {
+        throw new ServletException("Protocol upgrades are not supported by loopback server");
+    }
+
+    private static final class Input extends ServletInputStream {
+        private final byte[] body;
+        private int position;
+        private ReadListener listener;
+
+        private Input(byte[] body) {
+            this.body = body;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return position == body.length;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            if (listener != null) {
+                throw new IllegalStateException("Read listener already set");
+            }
+            listener = readListener;
+            // The whole body is available, so the listener is completed at once
+            try {
+                if (!isFinished()) {
+                    readListener.onDataAvailable();
+                }
+                readListener.onAllDataRead();
+            } catch (Throwable e) {
+                readListener.onError(e);
+            }
+        }
+
+        @Override
+        public int read() {
+            return position < body.length ? body[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (position == body.length) {
+                return -1;
+            }
+            var ret = Math.min(len, body.length - position);
+            System.arraycopy(body, position, b, off, ret);
+            position += ret;
+            return ret;
+        }
+
+        @Override
+        public int available() {
+            return body.length - position;
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package io.github.amayaframework.server;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * An in-memory {@link HttpServletResponse} capturing the response of a {@link LoopbackServer} exchange.
+ * The whole body is buffered, so the response is committed only by flushing or sending an error or redirect.
+ */
+final class LoopbackServletResponse implements HttpServletResponse {
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+            .withZone(ZoneOffset.UTC);
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final String DEFAULT_ENCODING = StandardCharsets.ISO_8859_1.name();
+
+    private final Map<String, List<String>> headers;
+    private final List<Cookie> cookies;
+    private final ByteArrayOutputStream body;
+    private int status;
+    private String encoding;
+    private Locale locale;
+    private int bufferSize;
+    private boolean committed;
+    private boolean suspended;
+    private Output output;
+    private PrintWriter writer;
+    private Supplier<Map<String, String>> trailers;
+
+    LoopbackServletResponse() {
+        this.headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        this.cookies = new ArrayList<>();
+        this.body = new ByteArrayOutputStream();
+        this.status = SC_OK;
+        this.encoding = DEFAULT_ENCODING;
+        this.locale = Locale.getDefault();
+        this.bufferSize = DEFAULT_BUFFER_SIZE;
+    }
+
+    private static String getCharsetParameter(String type) {
+        var index = type.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (index < 0) {
+            return null;
+        }
+        var start = index + "charset=".length();
+        var end = type.indexOf(';', start);
+        var ret = (end < 0 ? type.substring(start) : type.substring(start, end)).trim();
+        if (ret.length() > 1 && ret.startsWith("\"") && ret.endsWith("\"")) {
+            ret = ret.substring(1, ret.length() - 1);
+        }
+        return ret.isEmpty() ? null : ret;
+    }
+
+    private void checkNotCommitted() {
+        if (committed) {
+            throw new IllegalStateException("Response already committed");
+        }
+    }
+
+    LoopbackResponse capture(Throwable throwable) {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (throwable != null && !committed) {
+            reset();
+            status = SC_INTERNAL_SERVER_ERROR;
+        }
+        committed = true;
+        var captured = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
+        headers.forEach((name, values) -> captured.put(name, List.copyOf(values)));
+        Map<String, String> fields = null;
+        if (trailers != null) {
+            fields = trailers.get();
+        }
+        return new LoopbackResponse(
+                status,
+                Collections.unmodifiableMap(captured),
+                List.copyOf(cookies),
+                body.toByteArray(),
+                Charset.forName(encoding),
+                fields == null ? Map.of() : Map.copyOf(fields),
+                throwable
+        );
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        if (committed) {
+            return;
+        }
+        cookies.add(cookie);
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return headers.containsKey(name);
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        // Sessions are not supported, so there is no session id to encode
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeUrl(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeRedirectUrl(String url) {
+        return url;
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        checkNotCommitted();
+        resetBuffer();
+        status = sc;
+        if (msg != null) {
+            setContentType("text/plain;charset=UTF-8");
+            body.writeBytes(msg.getBytes(StandardCharsets.UTF_8));
+        }
+        committed = true;
+        suspended = true;
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        sendError(sc, null);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        checkNotCommitted();
+        resetBuffer();
+        status = SC_FOUND;
+        setHeader("Location", location);
+        committed = true;
+        suspended = true;
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, DATE_FORMAT.format(Instant.ofEpochMilli(date)));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        addHeader(name, DATE_FORMAT.format(Instant.ofEpochMilli(date)));
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (committed || name == null) {
+            return;
+        }
+        if (name.equalsIgnoreCase("Content-Type")) {
+            setContentType(value);
+            return;
+        }
+        if (value == null) {
+            headers.remove(name);
+            return;
+        }
+        var values = new ArrayList<String>(1);
+        values.add(value);
+        headers.put(name, values);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (committed || name == null || value == null) {
+            return;
+        }
+        if (name.equalsIgnoreCase("Content-Type")) {
+            setContentType(value);
+            return;
+        }
+        headers.computeIfAbsent(name, key -> new ArrayList<>(1)).add(value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, Integer.toString(value));
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        if (committed) {
+            return;
+        }
+        status = sc;
+    }
+
+    @Override
+    @Deprecated
+    public void setStatus(int sc, String sm) {
+        setStatus(sc);
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        var values = headers.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        var values = headers.get(name);
+        return values == null ? List.of() : List.copyOf(values);
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return List.copyOf(headers.keySet());
+    }
+
+    @Override
+    public void setTrailerFields(Supplier<Map<String, String>> supplier) {
+        checkNotCommitted();
+        this.trailers = supplier;
+    }
+
+    @Override
+    public Supplier<Map<String, String>> getTrailerFields() {
+        return trailers;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return encoding;
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader("Content-Type");
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null) {
+            throw new IllegalStateException("Writer already obtained");
+        }
+        if (output == null) {
+            output = new Output();
+        }
+        return output;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (writer != null) {
+            return writer;
+        }
+        if (output != null) {
+            throw new IllegalStateException("Output stream already obtained");
+        }
+        output = new Output();
+        writer = new PrintWriter(new OutputStreamWriter(output, Charset.forName(encoding)));
+        return writer;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        if (committed || writer != null || charset == null) {
+            return;
+        }
+        encoding = charset;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (len < 0) {
+            setHeader("Content-Length", null);
+            return;
+        }
+        setHeader("Content-Length", Long.toString(len));
+    }
+
+    @Override
+    public void setContentType(String type) {
+        if (committed) {
+            return;
+        }
+        if (type == null) {
+            headers.remove("Content-Type");
+            return;
+        }
+        var charset = getCharsetParameter(type);
+        if (charset != null && writer == null) {
+            encoding = charset;
+        }
+        var values = new ArrayList<String>(1);
+        values.add(type);
+        headers.put("Content-Type", values);
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        if (committed || body.size() > 0) {
+            throw new IllegalStateException("Content already written");
+        }
+        bufferSize = size;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    public void flushBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+        committed = true;
+    }
+
+    @Override
+    public void resetBuffer() {
+        checkNotCommitted();
+        if (writer != null) {
+            writer.flush();
+        }
+        body.reset();
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    @Override
+    public void reset() {
+        checkNotCommitted();
+        headers.clear();
+        cookies.clear();
+        body.reset();
+        status = SC_OK;
+        encoding = DEFAULT_ENCODING;
+        output = null;
+        writer = null;
+        trailers = null;
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+        if (committed || loc == null) {
+            return;
+        }
+        locale = loc;
+        setHeader("Content-Language", loc.toLanguageTag());
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    private final class Output extends ServletOutputStream {
+        private WriteListener listener;
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            if (listener != null) {
+                throw new IllegalStateException("Write listener already set");
+            }
+            listener = writeListener;
+            // The body is buffered in memory, so writing is always possible
+            try {
+                writeListener.onWritePossible();
+            } catch (Throwable e) {
+                writeListener.onError(e);
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            if (!suspended) {
+                body.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (!suspended) {
+                body.write(b, off, len);
+            }
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package io.github.amayaframework.server;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpVersion;
+import jakarta.servlet.http.Cookie;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An {@link HttpServer} implementation serving the listened addresses with {@link HttpAcceptor}
+ * and {@link HttpConnectionLoop}s, so the same handler is served over HTTP/1.1 and HTTP/2 (h2c or ALPN),
+ * with or without TLS, and over unix domain sockets.
+ * <br>
+ * Each {@link HttpExchange} is adapted to an {@link HttpContext} built with the in-memory servlet request
+ * and response of {@link LoopbackServer}: the request head and body are copied, the handler runs on the loop thread,
+ * and the captured response is passed back to the exchange. The exchange must be answered before the handler
+ * returns, so asynchronous processing is not supported and handlers must not block for long.
+ * Sessions, authentication, multipart parts and dispatching are not supported.
+ */
+public final class NativeServer implements HttpServer {
+    private static final InetSocketAddress DEFAULT_LOCAL = new InetSocketAddress(InetAddress.getLoopbackAddress(), 80);
+
+    private final NativeServerConfig config;
+    private final Object lock;
+    private volatile Runnable1<HttpContext> handler;
+    private volatile InetSocketAddress local;
+    private BufferPool pool;
+    private List<HttpConnectionLoop> loops;
+    private HttpAcceptor acceptor;
+
+    /**
+     * Constructs {@link NativeServer} instance with the default config.
+     */
+    public NativeServer() {
+        this.config = new NativeServerConfig();
+        this.lock = new Object();
+    }
+
+    @Override
+    public void bind(InetSocketAddress address) {
+        config.addAddress(address);
+    }
+
+    @Override
+    public void bind(int port) {
+        config.addAddress(new InetSocketAddress(port));
+    }
+
+    @Override
+    public NativeServerConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public Runnable1<HttpContext> getHandler() {
+        return handler;
+    }
+
+    @Override
+    public void setHandler(Runnable1<HttpContext> handler) {
+        synchronized (lock) {
+            if (acceptor != null) {
+                throw new IllegalStateException("Server already started");
+            }
+            this.handler = Objects.requireNonNull(handler);
+        }
+    }
+
+    /**
+     * Checks if this server is started.
+     *
+     * @return true, if started, false otherwise
+     */
+    public boolean isStarted() {
+        synchronized (lock) {
+            return acceptor != null;
+        }
+    }
+
+    /**
+     * Gets the addresses the server is bound to. Unlike the listened addresses, they contain the actual ports
+     * if ephemeral ones were requested.
+     *
+     * @return the unmodifiable list of bound addresses, empty if server is not started
+     */
+    public List<SocketAddress> getLocalAddresses() {
+        synchronized (lock) {
+            return acceptor == null ? List.of() : acceptor.getLocalAddresses();
+        }
+    }
+
+    private static InetSocketAddress findLocal(List<SocketAddress> addresses) {
+        for (var address : addresses) {
+            if (address instanceof InetSocketAddress) {
+                return (InetSocketAddress) address;
+            }
+        }
+        return DEFAULT_LOCAL;
+    }
+
+    private static void close(HttpAcceptor acceptor,
+                              List<HttpConnectionLoop> loops,
+                              BufferPool pool) throws InterruptedException {
+        try {
+            if (acceptor != null) {
+                acceptor.stop();
+            }
+        } finally {
+            try {
+                // The loops must be stopped after the acceptor, which registers connections in them
+                for (var loop : loops) {
+                    loop.stop();
+                }
+            } finally {
+                pool.stop();
+            }
+        }
+    }
+
+    @Override
+    public void start() throws IOException, InterruptedException {
+        synchronized (lock) {
+            if (acceptor != null) {
+                throw new IllegalStateException("Server already started");
+            }
+            if (handler == null) {
+                throw new IllegalStateException("Handler not set");
+            }
+            config.setLocked(true);
+            var pool = new BufferPool();
+            pool.start();
+            var loops = new ArrayList<HttpConnectionLoop>();
+            HttpAcceptor acceptor = null;
+            try {
+                var connectionConfig = config.getConnectionConfig();
+                for (var i = 0; i < config.getThreads(); ++i) {
+                    var loop = new HttpConnectionLoop(this::serve, pool, connectionConfig);
+                    loop.start();
+                    loops.add(loop);
+                }
+                acceptor = new HttpAcceptor(loops, config.getBacklog(), true);
+                acceptor.bind(config);
+                acceptor.start();
+            } catch (IOException | RuntimeException e) {
+                close(null, loops, pool);
+                config.setLocked(false);
+                throw e;
+            }
+            this.local = findLocal(acceptor.getLocalAddresses());
+            this.pool = pool;
+            this.loops = loops;
+            this.acceptor = acceptor;
+        }
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        synchronized (lock) {
+            if (acceptor == null) {
+                throw new IllegalStateException("Server already stopped");
+            }
+            try {
+                close(acceptor, loops, pool);
+            } finally {
+                acceptor = null;
+                loops = null;
+                pool = null;
+                config.setLocked(false);
+            }
+        }
+    }
+
+    private static String getPathAndQuery(String target) {
+        if (target.startsWith("/")) {
+            return target;
+        }
+        // Absolute form, see rfc9112, section 3.2.2
+        URI uri;
+        try {
+            uri = new URI(target);
+        } catch (URISyntaxException e) {
+            return null;
+        }
+        var path = uri.getRawPath();
+        if (!uri.isAbsolute() || path == null) {
+            return null;
+        }
+        if (path.isEmpty()) {
+            path = "/";
+        }
+        var query = uri.getRawQuery();
+        return query == null ? path : path + "?" + query;
+    }
+
+    private static LoopbackRequest createRequest(HttpExchange exchange, String target) {
+        var ret = new LoopbackRequest(exchange.getMethod(), target);
+        ret.setVersion(exchange.getVersion());
+        ret.setScheme(exchange.isSecure() ? "https" : "http");
+        var count = exchange.getHeaderCount();
+        for (var i = 0; i < count; ++i) {
+            ret.addHeader(exchange.getHeaderName(i), exchange.getHeaderValue(i));
+        }
+        // The body of the exchange is valid only until the handler returns
+        var body = exchange.getBody();
+        if (body != null && body.hasRemaining()) {
+            var bytes = new byte[body.remaining()];
+            body.duplicate().get(bytes);
+            ret.setBody(bytes);
+        }
+        var remote = exchange.getRemoteAddress();
+        if (remote instanceof InetSocketAddress) {
+            ret.setRemoteAddress((InetSocketAddress) remote);
+        }
+        return ret;
+    }
+
+    private static String formatCookie(Cookie cookie) {
+        var ret = new StringBuilder(cookie.getName()).append('=');
+        var value = cookie.getValue();
+        if (value != null) {
+            ret.append(value);
+        }
+        if (cookie.getMaxAge() >= 0) {
+            ret.append("; Max-Age=").append(cookie.getMaxAge());
+        }
+        if (cookie.getDomain() != null) {
+            ret.append("; Domain=").append(cookie.getDomain());
+        }
+        if (cookie.getPath() != null) {
+            ret.append("; Path=").append(cookie.getPath());
+        }
+        if (cookie.getSecure()) {
+            ret.append("; Secure");
+        }
+        if (cookie.isHttpOnly()) {
+            ret.append("; HttpOnly");
+        }
+        return ret.toString();
+    }
+
+    private static void send(HttpExchange exchange, LoopbackResponse response) {
+        var code = response.getStatusCode();
+        var status = HttpCode.of(code);
+        if (status == null) {
+            status = new HttpCode(code, "", HttpVersion.HTTP_1_1);
+        }
+        exchange.begin(status);
+        for (var entry : response.getHeaders().entrySet()) {
+            var name = entry.getKey();
+            // Connection-specific fields are managed by the connection
+            if (name.equalsIgnoreCase("Connection")) {
+                if (entry.getValue().contains("close")) {
+                    exchange.close();
+                }
+                continue;
+            }
+            if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                continue;
+            }
+            for (var value : entry.getValue()) {
+                exchange.header(name, value);
+            }
+        }
+        for (var cookie : response.getCookies()) {
+            exchange.header("Set-Cookie", formatCookie(cookie));
+        }
+        var body = response.getBody();
+        if (body.length > 0 && HttpResponseEncoder.isBodyAllowed(status)) {
+            exchange.body(ByteBuffer.wrap(body));
+        }
+        if (response.getThrowable() != null) {
+            // The response may have been committed before the failure, so it cannot be trusted to be complete
+            exchange.close();
+        }
+    }
+
+    private void serve(HttpExchange exchange) {
+        var version = exchange.getVersion();
+        if (version.after(config.getHttpVersion())) {
+            exchange.begin(HttpCode.HTTP_VERSION_NOT_SUPPORTED);
+            return;
+        }
+        var target = getPathAndQuery(exchange.getTarget());
+        if (target == null) {
+            exchange.begin(HttpCode.BAD_REQUEST);
+            return;
+        }
+        var request = createRequest(exchange, target);
+        var servletResponse = new LoopbackServletResponse();
+        var servletRequest = new LoopbackServletRequest(request, servletResponse, local, false);
+        var context = new LoopbackContext(
+                servletRequest,
+                servletResponse,
+                version,
+                request.getScheme(),
+                config
+        );
+        Throwable thrown = null;
+        try {
+            handler.run(context);
+        } catch (Throwable e) {
+            thrown = e;
+        }
+        send(exchange, servletResponse.capture(thrown));
+    }
+}
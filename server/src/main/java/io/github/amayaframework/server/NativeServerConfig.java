@@ -0,0 +1,91 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.http.HttpVersion;
+
+import java.util.Objects;
+
+/**
+ * The {@link HttpServerConfig} of {@link NativeServer}. Besides the listened addresses and codecs,
+ * it holds the number of connection loops, the accept backlog and the {@link HttpConnectionConfig} limits.
+ * The default http version is {@link HttpVersion#HTTP_2_0}, so both HTTP/1.1 and HTTP/2 requests are served,
+ * requests of later versions than the set one are answered with 505 HTTP Version Not Supported.
+ */
+public final class NativeServerConfig extends AbstractServerConfig {
+    private volatile HttpConnectionConfig connectionConfig;
+    private volatile int threads;
+    private volatile int backlog;
+
+    NativeServerConfig() {
+        super(HttpVersion.HTTP_2_0);
+        this.connectionConfig = new HttpConnectionConfig();
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.backlog = HttpAcceptor.DEFAULT_BACKLOG;
+    }
+
+    /**
+     * Gets the limits of served connections.
+     *
+     * @return the {@link HttpConnectionConfig} instance
+     */
+    public HttpConnectionConfig getConnectionConfig() {
+        return connectionConfig;
+    }
+
+    /**
+     * Sets the limits of served connections.
+     *
+     * @param connectionConfig the {@link HttpConnectionConfig} instance, must be non-null
+     * @throws IllegalStateException if server started
+     */
+    public void setConnectionConfig(HttpConnectionConfig connectionConfig) {
+        checkNotLocked();
+        this.connectionConfig = Objects.requireNonNull(connectionConfig);
+    }
+
+    /**
+     * Gets the number of connection loops, each of which is served by its own thread.
+     * The default value is the number of available processors.
+     *
+     * @return the number of loops
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of connection loops.
+     *
+     * @param threads the number of loops, must be positive
+     * @throws IllegalStateException if server started
+     */
+    public void setThreads(int threads) {
+        checkNotLocked();
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Value must be positive: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Gets the maximum length of the queue of incoming connections.
+     *
+     * @return the backlog
+     */
+    public int getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * Sets the maximum length of the queue of incoming connections.
+     *
+     * @param backlog the backlog, must be positive
+     * @throws IllegalStateException if server started
+     */
+    public void setBacklog(int backlog) {
+        checkNotLocked();
+        if (backlog <= 0) {
+            throw new IllegalArgumentException("Value must be positive: " + backlog);
+        }
+        this.backlog = backlog;
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.options.OptionSet;
+
+/**
+ * An {@link HttpServerFactory} implementation creating {@link NativeServer} instances.
+ * <br>
+ * The following options are supported:
+ * <ul>
+ *     <li>{@link #THREADS}: the number of connection loops, an {@link Integer};</li>
+ *     <li>{@link #CONNECTION_CONFIG}: the {@link HttpConnectionConfig} instance.</li>
+ * </ul>
+ * Absent options keep the defaults of {@link NativeServerConfig}.
+ */
+public final class NativeServerFactory implements HttpServerFactory {
+    /**
+     * The name of the option containing the number of connection loops.
+     */
+    public static final String THREADS = "threads";
+    /**
+     * The name of the option containing the {@link HttpConnectionConfig} instance.
+     */
+    public static final String CONNECTION_CONFIG = "connection";
+
+    @Override
+    public NativeServer create(OptionSet set) {
+        var ret = new NativeServer();
+        var config = ret.getConfig();
+        Integer threads = set.get(THREADS);
+        if (threads != null) {
+            config.setThreads(threads);
+        }
+        HttpConnectionConfig connectionConfig = set.get(CONNECTION_CONFIG);
+        if (connectionConfig != null) {
+            config.setConnectionConfig(connectionConfig);
+        }
+        return ret;
+    }
+
+    @Override
+    public NativeServer create() {
+        return new NativeServer();
+    }
+}
@@ -1,6 +1,7 @@
 package io.github.amayaframework.server;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.Set;
 
 /**
@@ -28,4 +29,36 @@ public interface ServerConfig {
      * @param address the specified address to be removed, must be non-null
      */
     void removeAddress(InetSocketAddress address);
+
+    /**
+     * Gets the {@link Set} instance containing all listened unix domain socket addresses.
+     * By default, returns an empty set.
+     *
+     * @return the {@link Set} instance containing all listened unix domain socket addresses
+     */
+    default Set<SocketAddress> getUnixAddresses() {
+        return Set.of();
+    }
+
+    /**
+     * Adds given unix domain socket address to listened set and starts listen it.
+     * Unix domain sockets are available since Java 16, see {@link UnixSockets}.
+     * By default, throws {@link UnsupportedOperationException}.
+     *
+     * @param address the specified {@code java.net.UnixDomainSocketAddress} to be listened, must be non-null
+     * @throws IllegalArgumentException      if the address is not a unix domain socket address
+     * @throws UnsupportedOperationException if the runtime does not support unix domain sockets
+     */
+    default void addUnixAddress(SocketAddress address) {
+        throw new UnsupportedOperationException("Unix domain sockets are not supported by this server");
+    }
+
+    /**
+     * Removes given unix domain socket address from listened set and stops listen it.
+     * By default, does nothing.
+     *
+     * @param address the specified unix domain socket address to be removed, must be non-null
+     */
+    default void removeUnixAddress(SocketAddress address) {
+    }
 }
@@ -0,0 +1,212 @@
+package io.github.amayaframework.server;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hierarchical timer wheel for a large number of timeouts that are mostly rescheduled or cancelled
+ * before they expire, for example, idle timeouts of connections.
+ * <br>
+ * The wheel consists of four levels of 64 slots, the slots of the lowest level span one tick, the slots
+ * of each next level span 64 slots of the previous one. A timeout is placed in the lowest level which
+ * covers its deadline and moves down as time advances, so scheduling and cancelling take constant time
+ * and do not allocate: each {@link Timeout} is an intrusive list node, which can be rescheduled any number of times.
+ * Deadlines are rounded up to ticks, deadlines beyond the range of the wheel are clamped to it.
+ * <br>
+ * The wheel is not thread-safe and is expected to be driven by a single event loop thread, which periodically
+ * calls {@link #advance(long)} with the current time of {@link System#nanoTime()} clock.
+ */
+public final class TimerWheel {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tick;
+    private final long origin;
+    private final Timeout[][] wheel;
+    private long current;
+    private int size;
+
+    /**
+     * Constructs {@link TimerWheel} instance with given tick duration.
+     *
+     * @param tick the duration of a tick, must be positive
+     * @param unit the unit of the tick duration, must be non-null
+     * @param now  the current time, in nanoseconds
+     */
+    public TimerWheel(long tick, TimeUnit unit, long now) {
+        this.tick = unit.toNanos(tick);
+        if (this.tick <= 0) {
+            throw new IllegalArgumentException("Invalid tick duration");
+        }
+        this.origin = now;
+        this.wheel = new Timeout[LEVELS][];
+        for (var i = 0; i < LEVELS; ++i) {
+            var level = new Timeout[SLOTS];
+            for (var j = 0; j < SLOTS; ++j) {
+                // Sentinel heads of circular lists
+                var head = new Timeout(null);
+                head.prev = head;
+                head.next = head;
+                level[j] = head;
+            }
+            wheel[i] = level;
+        }
+    }
+
+    /**
+     * Gets the duration of a tick.
+     *
+     * @return the number of nanoseconds
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Gets the number of scheduled timeouts.
+     *
+     * @return the number of timeouts
+     */
+    public int size() {
+        return size;
+    }
+
+    private long toTicks(long time) {
+        return Math.floorDiv(time - origin, tick);
+    }
+
+    private void place(Timeout timeout) {
+        var target = Math.max(timeout.deadline, current + 1);
+        var delta = target - current;
+        var level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1))) {
+            ++level;
+        }
+        if (level == LEVELS - 1 && delta >= 1L << (BITS * LEVELS)) {
+            target = current + (1L << (BITS * LEVELS)) - 1;
+        }
+        var head = wheel[level][(int) (target >>> (BITS * level)) & MASK];
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+    }
+
+    private static void unlink(Timeout timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    /**
+     * Schedules the timeout to expire after given delay. If the timeout is already scheduled, it is rescheduled.
+     *
+     * @param timeout the {@link Timeout} instance, must be non-null
+     * @param delay   the delay, in nanoseconds
+     * @param now     the current time, in nanoseconds
+     */
+    public void schedule(Timeout timeout, long delay, long now) {
+        if (timeout.next != null) {
+            unlink(timeout);
+        } else {
+            ++size;
+        }
+        // Round up, so the timeout never expires earlier than requested
+        timeout.deadline = toTicks(now + delay + tick - 1);
+        place(timeout);
+    }
+
+    /**
+     * Cancels the timeout. Cancelling a timeout that is not scheduled has no effect.
+     *
+     * @param timeout the {@link Timeout} instance, must be non-null
+     */
+    public void cancel(Timeout timeout) {
+        if (timeout.next == null) {
+            return;
+        }
+        unlink(timeout);
+        --size;
+    }
+
+    private void cascade(int level, long ticks) {
+        var head = wheel[level][(int) (ticks >>> (BITS * level)) & MASK];
+        var node = head.next;
+        head.next = head;
+        head.prev = head;
+        while (node != head) {
+            var next = node.next;
+            place(node);
+            node = next;
+        }
+    }
+
+    private int expire(long ticks) {
+        var head = wheel[0][(int) ticks & MASK];
+        var ret = 0;
+        while (head.next != head) {
+            var timeout = head.next;
+            unlink(timeout);
+            --size;
+            ++ret;
+            timeout.task.run();
+        }
+        return ret;
+    }
+
+    /**
+     * Advances the wheel to the given time and runs the tasks of the expired timeouts.
+     * Tasks may schedule and cancel timeouts, including the expired one.
+     *
+     * @param now the current time, in nanoseconds
+     * @return the number of expired timeouts
+     */
+    public int advance(long now) {
+        var target = toTicks(now);
+        var ret = 0;
+        while (current < target) {
+            if (size == 0) {
+                current = target;
+                break;
+            }
+            var ticks = ++current;
+            for (var level = LEVELS - 1; level > 0; --level) {
+                if ((ticks & ((1L << (BITS * level)) - 1)) == 0) {
+                    cascade(level, ticks);
+                }
+            }
+            ret += expire(ticks);
+        }
+        return ret;
+    }
+
+    /**
+     * A reusable timeout handle holding the task to run on expiration.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private Timeout prev;
+        private Timeout next;
+        private long deadline;
+
+        /**
+         * Constructs {@link Timeout} instance with given task.
+         *
+         * @param task the task to run on expiration
+         */
+        public Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * Checks whether this timeout is scheduled.
+         *
+         * @return true if scheduled, false otherwise
+         */
+        public boolean isScheduled() {
+            return next != null;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package io.github.amayaframework.server;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A non-blocking channel terminating TLS over a {@link SocketChannel} with {@link SSLEngine}.
+ * <br>
+ * The handshake is driven by reads and writes: until it completes, they return 0, and the channel
+ * reads and writes handshake records instead. Delegated engine tasks run on the calling thread.
+ * Network records and decrypted data which does not fit in the caller's buffer are held in direct buffers
+ * acquired from the {@link BufferPool}, each buffer is returned to the pool as soon as it is drained,
+ * so idle connections hold no buffers. Records are decrypted directly into the caller's buffer where possible.
+ * <br>
+ * Since the channel buffers data, the thread driving it must check {@link #hasBuffered()} after reading,
+ * as the selector does not report the buffered data, and {@link #isFlushPending()} after any call,
+ * as the channel may need to flush records even if the caller has nothing to write.
+ * The channel is not thread-safe.
+ */
+public final class TlsChannel implements ByteChannel, GatheringByteChannel {
+    private static final ByteBuffer[] EMPTY = {ByteBuffer.allocate(0)};
+
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+    private final BufferPool pool;
+    private ByteBuffer netIn;
+    private ByteBuffer netOut;
+    private ByteBuffer appIn;
+    private boolean underflow;
+    private boolean handshaking;
+    private boolean inboundDone;
+
+    /**
+     * Constructs {@link TlsChannel} instance over the given channel.
+     *
+     * @param channel the non-blocking {@link SocketChannel}, must be non-null
+     * @param engine  the {@link SSLEngine} in server mode, must be non-null
+     * @param pool    the {@link BufferPool} supplying record buffers, must be non-null
+     */
+    public TlsChannel(SocketChannel channel, SSLEngine engine, BufferPool pool) {
+        this.channel = channel;
+        this.engine = engine;
+        this.pool = pool;
+        this.handshaking = true;
+    }
+
+    /**
+     * Gets the engine of this channel.
+     *
+     * @return the {@link SSLEngine} instance
+     */
+    public SSLEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Gets the application protocol negotiated with ALPN.
+     *
+     * @return the protocol name, empty if ALPN has not been used, or null if the handshake is not complete
+     */
+    public String getApplicationProtocol() {
+        return handshaking ? null : engine.getApplicationProtocol();
+    }
+
+    /**
+     * Checks whether the initial handshake is complete.
+     *
+     * @return true if complete, false otherwise
+     */
+    public boolean isHandshakeComplete() {
+        return !handshaking;
+    }
+
+    /**
+     * Checks whether the channel holds encrypted records which have not been written yet.
+     *
+     * @return true if records are pending, false otherwise
+     */
+    public boolean isFlushPending() {
+        return netOut != null;
+    }
+
+    /**
+     * Checks whether the channel holds data, which can be read without reading the socket.
+     *
+     * @return true if data is buffered, false otherwise
+     */
+    public boolean hasBuffered() {
+        return (appIn != null && appIn.hasRemaining()) || (netIn != null && netIn.hasRemaining() && !underflow);
+    }
+
+    /**
+     * Writes the pending records.
+     *
+     * @return true if all records have been written, false if the socket cannot accept more bytes now
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean flush() throws IOException {
+        if (netOut == null) {
+            return true;
+        }
+        channel.write(netOut);
+        if (netOut.hasRemaining()) {
+            return false;
+        }
+        pool.release(netOut);
+        netOut = null;
+        return true;
+    }
+
+    private static boolean isHandshaking(SSLEngineResult.HandshakeStatus status) {
+        return status != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING
+                && status != SSLEngineResult.HandshakeStatus.FINISHED;
+    }
+
+    private void wrap(ByteBuffer[] sources, int offset, int length) throws IOException {
+        var packet = engine.getSession().getPacketBufferSize();
+        netOut = pool.acquire(packet);
+        while (true) {
+            var result = engine.wrap(sources, offset, length, netOut);
+            if (result.getStatus() != SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                break;
+            }
+            // The session may have switched to larger records during the handshake
+            pool.release(netOut);
+            packet = Math.max(packet * 2, engine.getSession().getPacketBufferSize());
+            netOut = pool.acquire(packet);
+        }
+        netOut.flip();
+        if (!netOut.hasRemaining()) {
+            pool.release(netOut);
+            netOut = null;
+        }
+    }
+
+    private int fill() throws IOException {
+        if (netIn == null) {
+            netIn = pool.acquire(engine.getSession().getPacketBufferSize());
+            netIn.limit(0);
+        } else if (netIn.limit() == netIn.capacity()) {
+            if (netIn.position() > 0) {
+                netIn.compact().flip();
+            } else {
+                // A record larger than the buffer
+                var grown = pool.acquire(netIn.capacity() * 2);
+                grown.put(netIn).flip();
+                pool.release(netIn);
+                netIn = grown;
+            }
+        }
+        var position = netIn.position();
+        netIn.position(netIn.limit()).limit(netIn.capacity());
+        int ret;
+        try {
+            ret = channel.read(netIn);
+        } finally {
+            netIn.limit(netIn.position()).position(position);
+        }
+        if (ret > 0) {
+            underflow = false;
+        }
+        return ret;
+    }
+
+    private void releaseInput() {
+        if (netIn != null && !netIn.hasRemaining()) {
+            pool.release(netIn);
+            netIn = null;
+            underflow = false;
+        }
+        if (appIn != null && !appIn.hasRemaining()) {
+            pool.release(appIn);
+            appIn = null;
+        }
+    }
+
+    private SSLEngineResult unwrap(ByteBuffer destination) throws IOException {
+        var result = engine.unwrap(netIn, destination);
+        switch (result.getStatus()) {
+            case BUFFER_UNDERFLOW:
+                underflow = true;
+                break;
+            case CLOSED:
+                inboundDone = true;
+                break;
+            default:
+        }
+        return result;
+    }
+
+    private ByteBuffer appBuffer() {
+        if (appIn == null) {
+            appIn = pool.acquire(engine.getSession().getApplicationBufferSize());
+            appIn.limit(0);
+        }
+        // Switches the buffer to writing, the caller flips it back
+        appIn.compact();
+        return appIn;
+    }
+
+    private boolean handshake() throws IOException {
+        while (true) {
+            if (!flush()) {
+                return false;
+            }
+            var status = engine.getHandshakeStatus();
+            switch (status) {
+                case NEED_TASK:
+                    Runnable task;
+                    while ((task = engine.getDelegatedTask()) != null) {
+                        task.run();
+                    }
+                    break;
+                case NEED_WRAP:
+                    wrap(EMPTY, 0, 1);
+                    break;
+                case NEED_UNWRAP:
+                case NEED_UNWRAP_AGAIN:
+                    if (netIn == null || !netIn.hasRemaining() || underflow) {
+                        var read = fill();
+                        if (read < 0) {
+                            throw new EOFException("Connection closed during TLS handshake");
+                        }
+                        if (read == 0) {
+                            return false;
+                        }
+                    }
+                    // Application data may arrive in the same flight as the last handshake records
+                    var buffer = appBuffer();
+                    SSLEngineResult result;
+                    try {
+                        result = unwrap(buffer);
+                    } finally {
+                        buffer.flip();
+                    }
+                    if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                        var grown = pool.acquire(appIn.capacity() * 2);
+                        grown.put(appIn).flip();
+                        pool.release(appIn);
+                        appIn = grown;
+                    }
+                    if (inboundDone) {
+                        throw new SSLException("Connection closed during TLS handshake");
+                    }
+                    break;
+                default:
+                    handshaking = false;
+                    releaseInput();
+                    return true;
+            }
+        }
+    }
+
+    private static int transfer(ByteBuffer source, ByteBuffer destination) {
+        var ret = Math.min(source.remaining(), destination.remaining());
+        var slice = source.duplicate();
+        slice.limit(slice.position() + ret);
+        destination.put(slice);
+        source.position(source.position() + ret);
+        return ret;
+    }
+
+    @Override
+    public int read(ByteBuffer destination) throws IOException {
+        if (!channel.isOpen()) {
+            throw new ClosedChannelException();
+        }
+        if (handshaking && !handshake()) {
+            return 0;
+        }
+        try {
+            if (appIn != null && appIn.hasRemaining()) {
+                return transfer(appIn, destination);
+            }
+            if (!destination.hasRemaining()) {
+                return 0;
+            }
+            while (!inboundDone) {
+                if (netIn != null && netIn.hasRemaining() && !underflow) {
+                    var result = unwrap(destination);
+                    if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                        // The destination cannot hold a whole record
+                        var buffer = appBuffer();
+                        try {
+                            unwrap(buffer);
+                        } finally {
+                            buffer.flip();
+                        }
+                        return transfer(appIn, destination);
+                    }
+                    if (isHandshaking(result.getHandshakeStatus()) && !handshake()) {
+                        // Post-handshake messages, for example, key updates
+                        return result.bytesProduced();
+                    }
+                    if (result.bytesProduced() > 0) {
+                        return result.bytesProduced();
+                    }
+                    continue;
+                }
+                var read = fill();
+                if (read < 0) {
+                    try {
+                        engine.closeInbound();
+                    } catch (SSLException e) {
+                        // The peer has not sent close_notify, which is common for HTTP clients
+                    }
+                    inboundDone = true;
+                    break;
+                }
+                if (read == 0) {
+                    return 0;
+                }
+            }
+            return -1;
+        } finally {
+            releaseInput();
+        }
+    }
+
+    @Override
+    public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+        if (!channel.isOpen()) {
+            throw new ClosedChannelException();
+        }
+        if (handshaking && !handshake()) {
+            return 0;
+        }
+        var ret = 0L;
+        while (flush()) {
+            var remaining = false;
+            for (var i = offset; i < offset + length; ++i) {
+                remaining |= sources[i].hasRemaining();
+            }
+            if (!remaining) {
+                break;
+            }
+            var before = 0L;
+            for (var i = offset; i < offset + length; ++i) {
+                before += sources[i].remaining();
+            }
+            wrap(sources, offset, length);
+            var after = 0L;
+            for (var i = offset; i < offset + length; ++i) {
+                after += sources[i].remaining();
+            }
+            if (before == after) {
+                throw new SSLException("Engine does not accept application data");
+            }
+            ret += before - after;
+        }
+        return ret;
+    }
+
+    @Override
+    public long write(ByteBuffer[] sources) throws IOException {
+        return write(sources, 0, sources.length);
+    }
+
+    @Override
+    public int write(ByteBuffer source) throws IOException {
+        return (int) write(new ByteBuffer[]{source}, 0, 1);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * Sends close_notify if the socket accepts it without blocking, closes the socket and releases the buffers.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            engine.closeOutbound();
+            if (flush() && !handshaking) {
+                wrap(EMPTY, 0, 1);
+                flush();
+            }
+        } catch (IOException e) {
+            // The connection is closed anyway
+        } finally {
+            for (var buffer : new ByteBuffer[]{netIn, netOut, appIn}) {
+                if (buffer != null) {
+                    pool.release(buffer);
+                }
+            }
+            netIn = null;
+            netOut = null;
+            appIn = null;
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.amayaframework.server;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A class holding the TLS settings of a listened address.
+ * <br>
+ * Engines are created from the given {@link SSLContext} in server mode. The application protocols are offered
+ * with ALPN in the order of preference, by default HTTP/2 is preferred over HTTP/1.1. Sessions are resumed through
+ * the server session cache of the context, which is bounded by the configured size and timeout, so abbreviated
+ * handshakes of returning clients do not grow the cache without limit. The context is shared, so the cache bounds
+ * apply to all addresses using the same context.
+ */
+public final class TlsConfig {
+    /**
+     * The default maximum number of cached sessions.
+     */
+    public static final int DEFAULT_SESSION_CACHE_SIZE = 10_000;
+    /**
+     * The default lifetime of cached sessions, in seconds.
+     */
+    public static final int DEFAULT_SESSION_TIMEOUT = 3600;
+    /**
+     * The default application protocols offered with ALPN.
+     */
+    public static final List<String> DEFAULT_PROTOCOLS = List.of("h2", "http/1.1");
+
+    private final SSLContext context;
+    private List<String> protocols;
+    private int sessionCacheSize;
+    private int sessionTimeout;
+
+    /**
+     * Constructs {@link TlsConfig} instance with given context and default settings.
+     *
+     * @param context the {@link SSLContext} instance holding the server key material, must be non-null
+     */
+    public TlsConfig(SSLContext context) {
+        this.context = Objects.requireNonNull(context);
+        this.protocols = DEFAULT_PROTOCOLS;
+        setSessionCacheSize(DEFAULT_SESSION_CACHE_SIZE);
+        setSessionTimeout(DEFAULT_SESSION_TIMEOUT);
+    }
+
+    /**
+     * Gets the context the engines are created from.
+     *
+     * @return the {@link SSLContext} instance
+     */
+    public SSLContext getContext() {
+        return context;
+    }
+
+    /**
+     * Gets the application protocols offered with ALPN.
+     *
+     * @return the unmodifiable list of protocol names, in the order of preference
+     */
+    public List<String> getProtocols() {
+        return protocols;
+    }
+
+    /**
+     * Sets the application protocols offered with ALPN. An empty list disables ALPN.
+     *
+     * @param protocols the list of protocol names, in the order of preference, must be non-null
+     */
+    public void setProtocols(List<String> protocols) {
+        this.protocols = List.copyOf(protocols);
+    }
+
+    /**
+     * Gets the maximum number of cached sessions.
+     *
+     * @return the number of sessions
+     */
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of cached sessions, which is applied to the server session context.
+     *
+     * @param sessionCacheSize the number of sessions, must be positive
+     */
+    public void setSessionCacheSize(int sessionCacheSize) {
+        if (sessionCacheSize <= 0) {
+            throw new IllegalArgumentException("Value must be positive: " + sessionCacheSize);
+        }
+        this.sessionCacheSize = sessionCacheSize;
+        context.getServerSessionContext().setSessionCacheSize(sessionCacheSize);
+    }
+
+    /**
+     * Gets the lifetime of cached sessions.
+     *
+     * @return the number of seconds
+     */
+    public int getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    /**
+     * Sets the lifetime of cached sessions, which is applied to the server session context.
+     *
+     * @param sessionTimeout the number of seconds, must be positive
+     */
+    public void setSessionTimeout(int sessionTimeout) {
+        if (sessionTimeout <= 0) {
+            throw new IllegalArgumentException("Value must be positive: " + sessionTimeout);
+        }
+        this.sessionTimeout = sessionTimeout;
+        context.getServerSessionContext().setSessionTimeout(sessionTimeout);
+    }
+
+    /**
+     * Creates the server engine offering the configured application protocols.
+     *
+     * @return the {@link SSLEngine} instance
+     */
+    public SSLEngine createEngine() {
+        var ret = context.createSSLEngine();
+        ret.setUseClientMode(false);
+        if (!protocols.isEmpty()) {
+            var parameters = ret.getSSLParameters();
+            parameters.setApplicationProtocols(protocols.toArray(new String[0]));
+            ret.setSSLParameters(parameters);
+        }
+        return ret;
+    }
+}
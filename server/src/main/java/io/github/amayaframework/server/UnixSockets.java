@@ -0,0 +1,135 @@
+package io.github.amayaframework.server;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Path;
+
+/**
+ * A class containing utilities for unix domain sockets.
+ * <br>
+ * Unix domain socket channels are available since Java 16, while the server is built for Java 11,
+ * so they are accessed reflectively. On older runtimes {@link #isSupported()} returns false,
+ * and the methods creating addresses or channels throw {@link UnsupportedOperationException}.
+ */
+public final class UnixSockets {
+    private static final String UNSUPPORTED = "Unix domain sockets require Java 16 or later";
+    private static final Class<?> ADDRESS;
+    private static final ProtocolFamily UNIX;
+    private static final MethodHandle OF;
+    private static final MethodHandle GET_PATH;
+    private static final MethodHandle OPEN;
+
+    static {
+        Class<?> address = null;
+        ProtocolFamily unix = null;
+        MethodHandle of = null;
+        MethodHandle getPath = null;
+        MethodHandle open = null;
+        try {
+            var lookup = MethodHandles.publicLookup();
+            address = Class.forName("java.net.UnixDomainSocketAddress");
+            unix = StandardProtocolFamily.valueOf("UNIX");
+            of = lookup.findStatic(address, "of", MethodType.methodType(address, Path.class));
+            getPath = lookup.findVirtual(address, "getPath", MethodType.methodType(Path.class));
+            open = lookup.findStatic(ServerSocketChannel.class, "open",
+                    MethodType.methodType(ServerSocketChannel.class, ProtocolFamily.class));
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            address = null;
+        }
+        ADDRESS = address;
+        UNIX = unix;
+        OF = of;
+        GET_PATH = getPath;
+        OPEN = open;
+    }
+
+    private UnixSockets() {
+    }
+
+    /**
+     * Checks whether the runtime supports unix domain socket channels.
+     *
+     * @return true if supported, false otherwise
+     */
+    public static boolean isSupported() {
+        return ADDRESS != null;
+    }
+
+    private static void checkSupported() {
+        if (ADDRESS == null) {
+            throw new UnsupportedOperationException(UNSUPPORTED);
+        }
+    }
+
+    /**
+     * Checks whether given address is a unix domain socket address.
+     *
+     * @param address the {@link SocketAddress} instance to check
+     * @return true if the address is a {@code java.net.UnixDomainSocketAddress}, false otherwise
+     */
+    public static boolean isUnixAddress(SocketAddress address) {
+        return ADDRESS != null && ADDRESS.isInstance(address);
+    }
+
+    /**
+     * Creates the unix domain socket address of given path.
+     *
+     * @param path the path of the socket file, must be non-null
+     * @return the {@code java.net.UnixDomainSocketAddress} instance
+     * @throws UnsupportedOperationException if the runtime does not support unix domain sockets
+     */
+    public static SocketAddress of(Path path) {
+        checkSupported();
+        try {
+            return (SocketAddress) OF.invoke(path);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gets the path of given unix domain socket address.
+     *
+     * @param address the unix domain socket address, must be non-null
+     * @return the path of the socket file
+     * @throws IllegalArgumentException if the address is not a unix domain socket address
+     */
+    public static Path getPath(SocketAddress address) {
+        if (!isUnixAddress(address)) {
+            throw new IllegalArgumentException("Not a unix domain socket address: " + address);
+        }
+        try {
+            return (Path) GET_PATH.invoke(address);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Opens the unbound unix domain server socket channel.
+     *
+     * @return the {@link ServerSocketChannel} instance
+     * @throws IOException                   if an I/O error occurs
+     * @throws UnsupportedOperationException if the runtime does not support unix domain sockets
+     */
+    public static ServerSocketChannel open() throws IOException {
+        checkSupported();
+        try {
+            return (ServerSocketChannel) OPEN.invoke(UNIX);
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
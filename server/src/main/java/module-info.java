@@ -10,6 +10,7 @@ open module io.github.amayaframework.server {
     requires io.github.amayaframework.context;
     requires io.github.amayaframework.service;
     requires io.github.amayaframework.http;
+    requires jakarta.servlet;
     // Exports
     exports io.github.amayaframework.server;
 }
@@ -0,0 +1,127 @@
+package io.github.amayaframework.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class BufferPoolTest {
+
+    @Test
+    public void testSizeClasses() {
+        var pool = new BufferPool(1024, 16 * 1024, 1024 * 1024, false);
+        pool.start();
+        assertEquals(1024, pool.acquire(0).capacity());
+        assertEquals(1024, pool.acquire(1024).capacity());
+        assertEquals(2048, pool.acquire(1025).capacity());
+        assertEquals(16 * 1024, pool.acquire(10000).capacity());
+        var large = pool.acquire(16 * 1024 + 1);
+        assertEquals(16 * 1024 + 1, large.capacity());
+        assertTrue(large.isDirect());
+        assertEquals(1, pool.getOverflows());
+        assertEquals(1024 * 2 + 2048 + 16 * 1024, pool.getUsedMemory());
+        pool.release(large);
+        assertEquals(1024 * 2 + 2048 + 16 * 1024, pool.getUsedMemory());
+    }
+
+    @Test
+    public void testReuse() {
+        var pool = new BufferPool();
+        pool.start();
+        var buffer = pool.acquire(4000);
+        assertTrue(buffer.isDirect());
+        buffer.put((byte) 1).flip();
+        pool.release(buffer);
+        assertEquals(0, pool.getUsedMemory());
+        var reused = pool.acquire(4096);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(reused.capacity(), reused.limit());
+    }
+
+    @Test
+    public void testMemoryLimit() {
+        var pool = new BufferPool(64 * 1024, 64 * 1024, 256 * 1024, false);
+        pool.start();
+        var buffers = new ArrayList<ByteBuffer>();
+        for (var i = 0; i < 4; ++i) {
+            buffers.add(pool.acquire(64 * 1024));
+        }
+        assertEquals(256 * 1024, pool.getAllocatedMemory());
+        assertEquals(0, pool.getOverflows());
+        var overflow = pool.acquire(100);
+        assertFalse(overflow.isDirect());
+        assertEquals(1, pool.getOverflows());
+        pool.release(overflow);
+        pool.release(buffers.get(0));
+        assertTrue(pool.acquire(100).isDirect());
+        assertEquals(256 * 1024, pool.getAllocatedMemory());
+    }
+
+    @Test
+    public void testThreads() throws InterruptedException {
+        var pool = new BufferPool(1024, 1024, 256 * 1024, false);
+        pool.start();
+        var acquired = Collections.synchronizedList(new ArrayList<ByteBuffer>());
+        var threads = new ArrayList<Thread>();
+        for (var i = 0; i < 8; ++i) {
+            var thread = new Thread(() -> {
+                for (var j = 0; j < 1000; ++j) {
+                    var buffer = pool.acquire(512);
+                    buffer.putInt(0, j);
+                    if (j % 3 == 0) {
+                        acquired.add(buffer);
+                    } else {
+                        assertEquals(j, buffer.getInt(0));
+                        pool.release(buffer);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (var thread : threads) {
+            thread.join();
+        }
+        var unique = Collections.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
+        unique.addAll(acquired);
+        assertEquals(acquired.size(), unique.size());
+        assertEquals(acquired.stream().filter(ByteBuffer::isDirect).count() * 1024, pool.getUsedMemory());
+        acquired.forEach(pool::release);
+        assertEquals(0, pool.getUsedMemory());
+        // Buffers cached by terminated threads are reclaimed instead of allocating new slabs
+        var allocated = pool.getAllocatedMemory();
+        var buffers = acquireAll(pool, (int) (allocated / 1024));
+        assertEquals(allocated, pool.getAllocatedMemory());
+        assertEquals(allocated / 1024, buffers.stream().filter(ByteBuffer::isDirect).count());
+    }
+
+    private static ArrayList<ByteBuffer> acquireAll(BufferPool pool, int count) {
+        var ret = new ArrayList<ByteBuffer>();
+        for (var i = 0; i < count; ++i) {
+            ret.add(pool.acquire(1024));
+        }
+        return ret;
+    }
+
+    @Test
+    public void testDebug() {
+        var pool = new BufferPool(1024, 4096, 1024 * 1024, true);
+        assertThrows(IllegalStateException.class, () -> pool.acquire(10));
+        pool.start();
+        var buffer = pool.acquire(10);
+        var leaked = pool.acquire(2000);
+        pool.release(buffer);
+        assertThrows(IllegalStateException.class, () -> pool.release(buffer));
+        assertEquals(1, pool.getOutstanding().size());
+        var e = assertThrows(IllegalStateException.class, pool::stop);
+        assertEquals(1, e.getSuppressed().length);
+        assertEquals(0, pool.getAllocatedMemory());
+        pool.release(leaked);
+        assertEquals(0, pool.getUsedMemory());
+    }
+}
@@ -0,0 +1,168 @@
+package io.github.amayaframework.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class HpackTest {
+
+    private static byte[] hex(String value) {
+        var ret = new byte[value.length() / 2];
+        for (var i = 0; i < ret.length; ++i) {
+            ret[i] = (byte) Integer.parseInt(value.substring(i * 2, i * 2 + 2), 16);
+        }
+        return ret;
+    }
+
+    private static List<String> decode(HpackDecoder decoder, byte[] block) throws Http2Exception {
+        var ret = new ArrayList<String>();
+        assertTrue(decoder.decode(block, 0, block.length, (name, value) -> ret.add(name + ": " + value)));
+        return ret;
+    }
+
+    private static void checkRequests(String... blocks) throws Http2Exception {
+        // rfc7541, appendix C.3 and C.4
+        var decoder = new HpackDecoder(4096, 65536);
+        assertEquals(List.of(":method: GET", ":scheme: http", ":path: /", ":authority: www.example.com"),
+                decode(decoder, hex(blocks[0])));
+        assertEquals(57, decoder.getTable().getSize());
+        assertEquals(List.of(":method: GET", ":scheme: http", ":path: /", ":authority: www.example.com",
+                "cache-control: no-cache"), decode(decoder, hex(blocks[1])));
+        assertEquals(110, decoder.getTable().getSize());
+        assertEquals(List.of(":method: GET", ":scheme: https", ":path: /index.html", ":authority: www.example.com",
+                "custom-key: custom-value"), decode(decoder, hex(blocks[2])));
+        assertEquals(164, decoder.getTable().getSize());
+        assertEquals(3, decoder.getTable().length());
+    }
+
+    @Test
+    public void testRequests() throws Http2Exception {
+        checkRequests(
+                "828684410f7777772e6578616d706c652e636f6d",
+                "828684be58086e6f2d6361636865",
+                "828785bf400a637573746f6d2d6b65790c637573746f6d2d76616c7565"
+        );
+    }
+
+    @Test
+    public void testHuffmanRequests() throws Http2Exception {
+        checkRequests(
+                "828684418cf1e3c2e5f23a6ba0ab90f4ff",
+                "828684be5886a8eb10649cbf",
+                "828785bf408825a849e95ba97d7f8925a849e95bb8e8b4bf"
+        );
+    }
+
+    @Test
+    public void testEviction() throws Http2Exception {
+        // rfc7541, appendix C.5
+        var decoder = new HpackDecoder(256, 65536);
+        decoder.getTable().setMaxSize(256);
+        assertEquals(List.of(":status: 302", "cache-control: private", "date: Mon, 21 Oct 2013 20:13:21 GMT",
+                "location: https://www.example.com"), decode(decoder, hex(
+                "4803333032580770726976617465611d4d6f6e2c203231204f637420323031332032303a31333a323120474d54" +
+                        "6e1768747470733a2f2f7777772e6578616d706c652e636f6d")));
+        assertEquals(222, decoder.getTable().getSize());
+        assertEquals(List.of(":status: 307", "cache-control: private", "date: Mon, 21 Oct 2013 20:13:21 GMT",
+                "location: https://www.example.com"), decode(decoder, hex("4803333037c1c0bf")));
+        assertEquals(222, decoder.getTable().getSize());
+        assertEquals(List.of(":status: 200", "cache-control: private", "date: Mon, 21 Oct 2013 20:13:22 GMT",
+                "location: https://www.example.com", "content-encoding: gzip",
+                "set-cookie: foo=ASDJKHQKBZXOQWEOPIUAXQWEOIU; max-age=3600; version=1"), decode(decoder, hex(
+                "88c1611d4d6f6e2c203231204f637420323031332032303a31333a323220474d54c05a04677a69707738666f6f3d" +
+                        "4153444a4b48514b425a584f5157454f50495541585157454f49553b206d61782d6167653d333630303b207665" +
+                        "7273696f6e3d31")));
+        assertEquals(215, decoder.getTable().getSize());
+        assertEquals(3, decoder.getTable().length());
+    }
+
+    @Test
+    public void testStaticFastPath() {
+        var encoder = new HpackEncoder(4096);
+        encoder.begin();
+        encoder.encode(":status", "200");
+        encoder.encode(":status", "404");
+        assertEquals(2, encoder.getLength());
+        assertEquals((byte) 0x88, encoder.getBlock()[0]);
+        assertEquals((byte) 0x8d, encoder.getBlock()[1]);
+        assertEquals(0, encoder.getTable().length());
+    }
+
+    @Test
+    public void testInvalidBlocks() {
+        var decoder = new HpackDecoder(4096, 65536);
+        // Index 0, index out of the table, truncated string, EOS in Huffman string, oversized table update
+        for (var block : List.of("80", "be", "4005", "0085ffffffffff", "3fe21f")) {
+            var bytes = hex(block);
+            var e = assertThrows(Http2Exception.class, () -> decoder.decode(bytes, 0, bytes.length, (n, v) -> {
+            }));
+            assertEquals(Http2Exception.COMPRESSION_ERROR, e.getError());
+        }
+    }
+
+    @Test
+    public void testListSizeLimit() throws Http2Exception {
+        var encoder = new HpackEncoder(4096);
+        encoder.begin();
+        encoder.encode("x-large", "v".repeat(100));
+        encoder.encode("x-small", "v");
+        var decoder = new HpackDecoder(4096, 100);
+        var fields = new ArrayList<String>();
+        assertFalse(decoder.decode(encoder.getBlock(), 0, encoder.getLength(), (n, v) -> fields.add(n)));
+        assertEquals(List.of(), fields);
+        // The table stays in sync even if the list is rejected
+        assertEquals(encoder.getTable().length(), decoder.getTable().length());
+    }
+
+    @Test
+    public void testHuffman() throws Http2Exception {
+        var random = new Random(7);
+        for (var i = 0; i < 1000; ++i) {
+            var builder = new StringBuilder();
+            var length = random.nextInt(64);
+            for (var j = 0; j < length; ++j) {
+                builder.append((char) (i % 2 == 0 ? random.nextInt(256) : 32 + random.nextInt(95)));
+            }
+            var value = builder.toString();
+            var encoded = new byte[HpackHuffman.length(value)];
+            assertEquals(encoded.length, HpackHuffman.encode(value, encoded, 0));
+            assertEquals(value, HpackHuffman.decode(encoded, 0, encoded.length));
+        }
+        // Padding longer than 7 bits and padding with zeros
+        assertThrows(Http2Exception.class, () -> HpackHuffman.decode(hex("1fff"), 0, 2));
+        assertThrows(Http2Exception.class, () -> HpackHuffman.decode(hex("00"), 0, 1));
+    }
+
+    @Test
+    public void testRoundTrip() throws Http2Exception {
+        var random = new Random(42);
+        var names = List.of(":status", "content-type", "cache-control", "set-cookie", "x-trace", "date", "vary");
+        var values = List.of("200", "404", "text/html", "no-cache", "a=b", "x".repeat(3000), "", "gzip");
+        var encoder = new HpackEncoder(4096);
+        var decoder = new HpackDecoder(4096, 1 << 20);
+        for (var i = 0; i < 2000; ++i) {
+            if (random.nextInt(50) == 0) {
+                encoder.setTableSizeLimit(random.nextInt(5000));
+            }
+            var expected = new ArrayList<String>();
+            encoder.begin();
+            var count = random.nextInt(10);
+            for (var j = 0; j < count; ++j) {
+                var name = names.get(random.nextInt(names.size()));
+                var value = random.nextBoolean()
+                        ? values.get(random.nextInt(values.size()))
+                        : Integer.toString(random.nextInt(100));
+                encoder.encode(name, value);
+                expected.add(name + ": " + value);
+            }
+            var block = new byte[encoder.getLength()];
+            System.arraycopy(encoder.getBlock(), 0, block, 0, block.length);
+            assertEquals(expected, decode(decoder, block));
+            assertEquals(encoder.getTable().getSize(), decoder.getTable().getSize());
+        }
+    }
+}
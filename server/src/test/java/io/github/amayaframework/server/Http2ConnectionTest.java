@@ -0,0 +1,309 @@
+package io.github.amayaframework.server;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpVersion;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class Http2ConnectionTest {
+    private static final int DATA = 0x0;
+    private static final int HEADERS = 0x1;
+    private static final int RST_STREAM = 0x3;
+    private static final int SETTINGS = 0x4;
+    private static final int PING = 0x6;
+    private static final int GOAWAY = 0x7;
+    private static final int WINDOW_UPDATE = 0x8;
+
+    private static final Runnable1<HttpExchange> ECHO = exchange -> {
+        assertSame(HttpVersion.HTTP_2_0, exchange.getVersion());
+        if (exchange.getTarget().equals("/fail")) {
+            throw new IOException("Failure");
+        }
+        if (exchange.getTarget().equals("/large")) {
+            exchange.begin(HttpCode.OK);
+            exchange.body(ByteBuffer.wrap(new byte[100_000]));
+            return;
+        }
+        exchange.begin(HttpCode.OK);
+        exchange.header("X-Host", String.valueOf(exchange.getHeader("Host")));
+        exchange.header("Connection", "close");
+        exchange.body(ByteBuffer.wrap(exchange.getTarget().getBytes(StandardCharsets.US_ASCII)));
+        exchange.body(exchange.getBody());
+    };
+
+    private static void serve(Runnable1<HttpExchange> handler, Runnable1<Client> client) throws Throwable {
+        var pool = new BufferPool();
+        pool.start();
+        var loop = new HttpConnectionLoop(handler, pool, new HttpConnectionConfig());
+        loop.start();
+        try (var server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try (var socket = new Socket()) {
+                socket.connect(server.getLocalAddress());
+                loop.register(server.accept());
+                socket.setSoTimeout(5000);
+                client.run(new Client(socket));
+            }
+        } finally {
+            loop.stop();
+            assertEquals(0, loop.getConnections());
+            pool.stop();
+            assertEquals(0, pool.getUsedMemory());
+        }
+    }
+
+    @Test
+    public void testPriorKnowledge() throws Throwable {
+        serve(ECHO, client -> {
+            client.preface();
+            client.request(1, "GET", "/a", null);
+            client.request(3, "POST", "/b", "hello");
+            client.request(5, "GET", "/fail", null);
+            var responses = client.responses(3);
+            assertEquals(List.of(":status: 200", "x-host: localhost", "content-length: 2"),
+                    responses.get(1).headers);
+            assertEquals("/a", responses.get(1).body());
+            assertEquals("/bhello", responses.get(3).body());
+            assertEquals(":status: 500", responses.get(5).headers.get(0));
+            // Ping is answered and the connection stays open
+            client.frame(PING, 0, 0, new byte[8]);
+            assertEquals(1, client.next(PING).flags);
+        });
+    }
+
+    @Test
+    public void testUpgrade() throws Throwable {
+        serve(ECHO, client -> {
+            client.output.write(("GET /u HTTP/1.1\r\nHost: h\r\nConnection: Upgrade, HTTP2-Settings\r\n" +
+                    "Upgrade: h2c\r\nHTTP2-Settings: AAMAAABkAAQAAP__\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            var expected = "HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n";
+            var head = new byte[expected.length()];
+            client.input.readFully(head);
+            assertEquals(expected, new String(head, StandardCharsets.US_ASCII));
+            client.preface();
+            client.request(3, "GET", "/next", null);
+            var responses = client.responses(2);
+            assertEquals("/u", responses.get(1).body());
+            assertTrue(responses.get(1).headers.contains("x-host: h"));
+            assertEquals("/next", responses.get(3).body());
+        });
+    }
+
+    @Test
+    public void testFlowControl() throws Throwable {
+        serve(ECHO, client -> {
+            client.preface();
+            client.request(1, "GET", "/large", null);
+            var received = 0;
+            client.socket.setSoTimeout(500);
+            try {
+                while (true) {
+                    var frame = client.read();
+                    if (frame.type == DATA) {
+                        received += frame.payload.length;
+                    }
+                }
+            } catch (SocketTimeoutException e) {
+                // The server waits for window updates
+            }
+            assertEquals(65535, received);
+            client.socket.setSoTimeout(5000);
+            client.frame(WINDOW_UPDATE, 0, 0, ByteBuffer.allocate(4).putInt(40000).array());
+            client.frame(WINDOW_UPDATE, 0, 1, ByteBuffer.allocate(4).putInt(40000).array());
+            while (true) {
+                var frame = client.read();
+                if (frame.type != DATA) {
+                    continue;
+                }
+                received += frame.payload.length;
+                assertTrue(frame.payload.length <= 16384);
+                if ((frame.flags & 1) != 0) {
+                    break;
+                }
+            }
+            assertEquals(100_000, received);
+        });
+    }
+
+    @Test
+    public void testErrors() throws Throwable {
+        serve(ECHO, client -> {
+            client.preface();
+            // Upper case header names are malformed, only the stream is reset
+            client.encoder.begin();
+            client.encoder.encode(":method", "GET");
+            client.encoder.encode(":path", "/");
+            client.encoder.encode("X-Upper", "1");
+            client.frame(HEADERS, 0x5, 1, client.block());
+            var frame = client.next(RST_STREAM);
+            assertEquals(1, frame.stream);
+            assertEquals(Http2Exception.PROTOCOL_ERROR, ByteBuffer.wrap(frame.payload).getInt());
+            // Zero window increment is a stream error
+            client.request(3, "POST", "/", "");
+            client.frame(WINDOW_UPDATE, 0, 3, new byte[4]);
+            frame = client.next(RST_STREAM);
+            assertEquals(3, frame.stream);
+            assertEquals(Http2Exception.PROTOCOL_ERROR, ByteBuffer.wrap(frame.payload).getInt());
+            // Even stream identifiers are a connection error
+            client.request(4, "GET", "/", null);
+            frame = client.next(GOAWAY);
+            assertEquals(Http2Exception.PROTOCOL_ERROR, ByteBuffer.wrap(frame.payload).getInt(4));
+            assertEquals(-1, client.input.read());
+        });
+    }
+
+    @Test
+    public void testCancellation() throws Throwable {
+        var cancelled = new CopyOnWriteArrayList<String>();
+        Runnable1<HttpExchange> handler = exchange -> {
+            var target = exchange.getTarget();
+            exchange.onCancel(() -> cancelled.add(target + ":" + exchange.isCancelled()));
+            exchange.begin(HttpCode.OK);
+            exchange.body(ByteBuffer.wrap(new byte[target.equals("/small") ? 10 : 100_000]));
+        };
+        serve(handler, client -> {
+            client.preface();
+            client.request(1, "GET", "/small", null);
+            assertEquals(10, client.responses(1).get(1).data.size());
+            // The large responses exceed the connection window, so they wait for window updates
+            client.request(3, "GET", "/a", null);
+            client.request(5, "GET", "/b", null);
+            client.frame(RST_STREAM, 0, 3, ByteBuffer.allocate(4).putInt(Http2Exception.CANCEL).array());
+            // The ping is answered after the reset is processed
+            client.frame(PING, 0, 0, new byte[8]);
+            client.next(PING);
+            assertEquals(List.of("/a:true"), cancelled);
+        });
+        // The stream still open is cancelled when the connection is closed
+        assertEquals(List.of("/a:true", "/b:true"), cancelled);
+    }
+
+    private static final class Frame {
+        private int type;
+        private int flags;
+        private int stream;
+        private byte[] payload;
+    }
+
+    private static final class Response {
+        private final List<String> headers = new ArrayList<>();
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private boolean done;
+
+        private String body() {
+            return data.toString(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static final class Client {
+        private final Socket socket;
+        private final DataInputStream input;
+        private final OutputStream output;
+        private final HpackEncoder encoder = new HpackEncoder(4096);
+        private final HpackDecoder decoder = new HpackDecoder(4096, 65536);
+
+        private Client(Socket socket) throws IOException {
+            this.socket = socket;
+            this.input = new DataInputStream(socket.getInputStream());
+            this.output = socket.getOutputStream();
+        }
+
+        private void frame(int type, int flags, int stream, byte[] payload) throws IOException {
+            var buffer = ByteBuffer.allocate(9 + payload.length);
+            buffer.put((byte) (payload.length >>> 16))
+                    .put((byte) (payload.length >>> 8))
+                    .put((byte) payload.length)
+                    .put((byte) type)
+                    .put((byte) flags)
+                    .putInt(stream)
+                    .put(payload);
+            output.write(buffer.array());
+        }
+
+        private Frame read() throws IOException {
+            var ret = new Frame();
+            var length = input.readUnsignedByte() << 16 | input.readUnsignedShort();
+            ret.type = input.readUnsignedByte();
+            ret.flags = input.readUnsignedByte();
+            ret.stream = input.readInt();
+            ret.payload = new byte[length];
+            input.readFully(ret.payload);
+            return ret;
+        }
+
+        private Frame next(int type) throws IOException {
+            var ret = read();
+            while (ret.type != type) {
+                ret = read();
+            }
+            return ret;
+        }
+
+        private byte[] block() {
+            var ret = new byte[encoder.getLength()];
+            System.arraycopy(encoder.getBlock(), 0, ret, 0, ret.length);
+            return ret;
+        }
+
+        private void preface() throws IOException {
+            output.write(Http2Connection.PREFACE);
+            frame(SETTINGS, 0, 0, new byte[0]);
+        }
+
+        // An empty body leaves the stream open
+        private void request(int stream, String method, String path, String body) throws IOException {
+            encoder.begin();
+            encoder.encode(":method", method);
+            encoder.encode(":scheme", "http");
+            encoder.encode(":path", path);
+            encoder.encode(":authority", "localhost");
+            frame(HEADERS, body == null ? 0x5 : 0x4, stream, block());
+            if (body != null && !body.isEmpty()) {
+                frame(DATA, 0x1, stream, body.getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+
+        private Map<Integer, Response> responses(int count) throws IOException {
+            var ret = new HashMap<Integer, Response>();
+            var done = 0;
+            while (done < count) {
+                var frame = read();
+                if (frame.type != HEADERS && frame.type != DATA) {
+                    continue;
+                }
+                var response = ret.computeIfAbsent(frame.stream, key -> new Response());
+                if (frame.type == HEADERS) {
+                    decoder.decode(frame.payload, 0, frame.payload.length,
+                            (name, value) -> response.headers.add(name + ": " + value));
+                } else {
+                    response.data.write(frame.payload);
+                }
+                if ((frame.flags & 1) != 0) {
+                    assertFalse(response.done);
+                    response.done = true;
+                    ++done;
+                }
+            }
+            return ret;
+        }
+    }
+}
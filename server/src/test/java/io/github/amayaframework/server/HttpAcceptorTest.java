@@ -0,0 +1,214 @@
+package io.github.amayaframework.server;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.http.HttpCode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.Socket;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class HttpAcceptorTest {
+    private static final Runnable1<HttpExchange> ECHO = exchange -> {
+        exchange.begin(HttpCode.OK);
+        exchange.body(ByteBuffer.wrap(exchange.getTarget().getBytes(StandardCharsets.US_ASCII)));
+    };
+
+    private static void serve(boolean reusePort) throws Throwable {
+        var pool = new BufferPool();
+        pool.start();
+        var loops = new ArrayList<HttpConnectionLoop>();
+        for (var i = 0; i < 2; ++i) {
+            var loop = new HttpConnectionLoop(ECHO, pool, new HttpConnectionConfig());
+            loop.start();
+            loops.add(loop);
+        }
+        var acceptor = new HttpAcceptor(loops, 128, reusePort);
+        acceptor.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        acceptor.bind(new InetSocketAddress(0));
+        acceptor.start();
+        var clients = new ArrayList<Socket>();
+        var counts = new ArrayList<Integer>();
+        try {
+            var addresses = acceptor.getLocalAddresses();
+            assertEquals(2, addresses.size());
+            for (var local : addresses) {
+                var port = ((InetSocketAddress) local).getPort();
+                assertNotEquals(0, port);
+                var address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+                for (var i = 0; i < 8; ++i) {
+                    var client = new Socket();
+                    clients.add(client);
+                    client.connect(address);
+                    client.setSoTimeout(5000);
+                    client.getOutputStream().write(("GET /" + i + " HTTP/1.1\r\n\r\n")
+                            .getBytes(StandardCharsets.US_ASCII));
+                    var expected = "HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n/" + i;
+                    var response = client.getInputStream().readNBytes(expected.length());
+                    assertEquals(expected, new String(response, StandardCharsets.US_ASCII));
+                }
+            }
+            // Responses are sent, so the loops have already counted the kept-alive connections
+            for (var loop : loops) {
+                counts.add(loop.getConnections());
+            }
+        } finally {
+            acceptor.stop();
+            assertTrue(acceptor.getLocalAddresses().isEmpty());
+            for (var client : clients) {
+                client.close();
+            }
+            for (var loop : loops) {
+                loop.stop();
+            }
+            pool.stop();
+            assertEquals(0, pool.getUsedMemory());
+        }
+        assertEquals(16, counts.get(0) + counts.get(1));
+        if (!reusePort) {
+            assertEquals(List.of(8, 8), counts);
+        }
+    }
+
+    @Test
+    public void testReusePort() throws Throwable {
+        serve(true);
+    }
+
+    @Test
+    public void testRoundRobin() throws Throwable {
+        serve(false);
+    }
+
+    @Test
+    public void testBindWhileRunning() throws Throwable {
+        var pool = new BufferPool();
+        pool.start();
+        var loop = new HttpConnectionLoop(ECHO, pool, new HttpConnectionConfig());
+        loop.start();
+        var acceptor = new HttpAcceptor(List.of(loop));
+        acceptor.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        acceptor.start();
+        try {
+            assertFalse(acceptor.isReusePort());
+            assertThrows(IllegalStateException.class,
+                    () -> acceptor.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)));
+            assertThrows(IllegalStateException.class, acceptor::start);
+            var output = new ByteArrayOutputStream();
+            try (var client = new Socket()) {
+                client.connect(acceptor.getLocalAddresses().get(0));
+                client.setSoTimeout(5000);
+                client.getOutputStream().write("GET /x HTTP/1.1\r\nConnection: close\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII));
+                client.getInputStream().transferTo(output);
+            }
+            assertTrue(output.toString(StandardCharsets.US_ASCII).endsWith("/x"));
+        } finally {
+            acceptor.stop();
+            loop.stop();
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void testBindConfig() throws Throwable {
+        var address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        var config = new ServerConfig() {
+            @Override
+            public Set<InetSocketAddress> getAddresses() {
+                return Set.of(address);
+            }
+
+            @Override
+            public void addAddress(InetSocketAddress address) {
+            }
+
+            @Override
+            public void removeAddress(InetSocketAddress address) {
+            }
+        };
+        assertTrue(config.getUnixAddresses().isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> config.addUnixAddress(address));
+        var pool = new BufferPool();
+        pool.start();
+        var loop = new HttpConnectionLoop(ECHO, pool, new HttpConnectionConfig());
+        loop.start();
+        var acceptor = new HttpAcceptor(List.of(loop));
+        acceptor.bind(config);
+        acceptor.start();
+        try {
+            assertEquals(1, acceptor.getLocalAddresses().size());
+            var output = new ByteArrayOutputStream();
+            try (var client = new Socket()) {
+                client.connect(acceptor.getLocalAddresses().get(0));
+                client.setSoTimeout(5000);
+                client.getOutputStream().write("GET /c HTTP/1.1\r\nConnection: close\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII));
+                client.getInputStream().transferTo(output);
+            }
+            assertTrue(output.toString(StandardCharsets.US_ASCII).endsWith("/c"));
+        } finally {
+            acceptor.stop();
+            loop.stop();
+            pool.stop();
+        }
+    }
+
+    @Test
+    public void testUnixSocket() throws Throwable {
+        var directory = Files.createTempDirectory("amaya-uds");
+        var path = directory.resolve("server.sock");
+        if (!UnixSockets.isSupported()) {
+            assertThrows(UnsupportedOperationException.class, () -> UnixSockets.of(path));
+            Files.delete(directory);
+            return;
+        }
+        var pool = new BufferPool();
+        pool.start();
+        var loop = new HttpConnectionLoop(ECHO, pool, new HttpConnectionConfig());
+        loop.start();
+        var acceptor = new HttpAcceptor(List.of(loop));
+        var address = UnixSockets.of(path);
+        acceptor.bind(address);
+        acceptor.start();
+        try {
+            assertTrue(Files.exists(path));
+            // The client channel is opened reflectively as well, since the tests are built for Java 11
+            var open = MethodHandles.publicLookup().findStatic(SocketChannel.class, "open",
+                    MethodType.methodType(SocketChannel.class, ProtocolFamily.class));
+            try (var client = (SocketChannel) open.invoke(StandardProtocolFamily.valueOf("UNIX"))) {
+                client.connect(address);
+                client.write(ByteBuffer.wrap("GET /uds HTTP/1.1\r\nConnection: close\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII)));
+                var output = new ByteArrayOutputStream();
+                var buffer = ByteBuffer.allocate(256);
+                while (client.read(buffer) >= 0) {
+                    output.write(buffer.array(), 0, buffer.position());
+                    buffer.clear();
+                }
+                assertEquals("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 4\r\n\r\n/uds",
+                        output.toString(StandardCharsets.US_ASCII));
+            }
+        } finally {
+            acceptor.stop();
+            loop.stop();
+            pool.stop();
+        }
+        assertFalse(Files.exists(path));
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,201 @@
+package io.github.amayaframework.server;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.http.HttpCode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class HttpConnectionLoopTest {
+    private static final Runnable1<HttpExchange> ECHO = exchange -> {
+        exchange.begin(HttpCode.OK);
+        exchange.body(ByteBuffer.wrap(exchange.getTarget().getBytes(StandardCharsets.US_ASCII)));
+        var body = exchange.getBody();
+        if (body.hasRemaining()) {
+            exchange.body(body);
+        }
+    };
+
+    private static String exchange(Runnable1<HttpExchange> handler,
+                                   HttpConnectionConfig config,
+                                   String request) throws Throwable {
+        return exchange(new BufferPool(), handler, config, request);
+    }
+
+    private static String exchange(BufferPool pool,
+                                   Runnable1<HttpExchange> handler,
+                                   HttpConnectionConfig config,
+                                   String request) throws Throwable {
+        pool.start();
+        var loop = new HttpConnectionLoop(handler, pool, config);
+        loop.start();
+        try (var server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try (var client = new Socket()) {
+                client.connect(server.getLocalAddress());
+                loop.register(server.accept());
+                client.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+                client.setSoTimeout(5000);
+                var output = new ByteArrayOutputStream();
+                client.getInputStream().transferTo(output);
+                return output.toString(StandardCharsets.US_ASCII);
+            }
+        } finally {
+            loop.stop();
+            assertEquals(0, loop.getConnections());
+            pool.stop();
+            assertEquals(0, pool.getUsedMemory());
+        }
+    }
+
+    @Test
+    public void testPipelining() throws Throwable {
+        var response = exchange(ECHO, new HttpConnectionConfig(),
+                "GET /a HTTP/1.1\r\nHost: x\r\n\r\n" +
+                        "POST /b HTTP/1.1\r\nContent-Length: 5\r\n\r\nhello" +
+                        "GET /c HTTP/1.1\r\nConnection: close\r\n\r\n");
+        assertEquals("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n/a" +
+                "HTTP/1.1 200 OK\r\nContent-Length: 7\r\n\r\n/bhello" +
+                "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\n/c", response);
+    }
+
+    @Test
+    public void testHead() throws Throwable {
+        var response = exchange(ECHO, new HttpConnectionConfig(),
+                "HEAD /a HTTP/1.1\r\n\r\n" +
+                        "GET /b HTTP/1.1\r\nConnection: close\r\n\r\n");
+        // The body of HEAD response is not sent, so it does not break the next response
+        assertEquals("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n" +
+                "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\n/b", response);
+    }
+
+    @Test
+    public void testMaxRequests() throws Throwable {
+        var config = new HttpConnectionConfig();
+        config.setMaxRequests(2);
+        var response = exchange(ECHO, config, "GET /1 HTTP/1.1\r\n\r\nGET /2 HTTP/1.1\r\n\r\nGET /3 HTTP/1.1\r\n\r\n");
+        assertEquals("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n/1" +
+                "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\n/2", response);
+    }
+
+    @Test
+    public void testHttp10() throws Throwable {
+        var response = exchange(ECHO, new HttpConnectionConfig(),
+                "GET /1 HTTP/1.0\r\nConnection: keep-alive\r\n\r\nGET /2 HTTP/1.0\r\n\r\nGET /3 HTTP/1.0\r\n\r\n");
+        assertEquals("HTTP/1.1 200 OK\r\nConnection: keep-alive\r\nContent-Length: 2\r\n\r\n/1" +
+                "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\n/2", response);
+    }
+
+    @Test
+    public void testLargeRequest() throws Throwable {
+        var config = new HttpConnectionConfig();
+        config.setBufferSize(1024);
+        var body = "z".repeat(40_000);
+        var header = "v".repeat(3000);
+        var response = exchange(ECHO, config,
+                "GET /a HTTP/1.1\r\n\r\n" +
+                        "PUT /b HTTP/1.1\r\nX-Large: " + header + "\r\nContent-Length: 40000\r\n\r\n" + body +
+                        "GET /c HTTP/1.1\r\nConnection: close\r\n\r\n");
+        assertEquals("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n/a" +
+                "HTTP/1.1 200 OK\r\nContent-Length: 40002\r\n\r\n/b" + body +
+                "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\n/c", response);
+    }
+
+    @Test
+    public void testGrownBuffer() throws Throwable {
+        var pool = new BufferPool();
+        Runnable1<HttpExchange> handler = exchange -> {
+            // Reuse the released buffer as another connection would, before the head is read
+            var other = pool.acquire(1024);
+            while (other.hasRemaining()) {
+                other.put((byte) 'x');
+            }
+            pool.release(other);
+            exchange.begin(HttpCode.OK);
+            exchange.body(ByteBuffer.wrap(exchange.getHeader("X-Echo").getBytes(StandardCharsets.US_ASCII)));
+            exchange.body(ByteBuffer.wrap(Integer.toString(exchange.getBody().remaining())
+                    .getBytes(StandardCharsets.US_ASCII)));
+        };
+        var config = new HttpConnectionConfig();
+        config.setBufferSize(1024);
+        var response = exchange(pool, handler, config,
+                "PUT /a HTTP/1.1\r\nX-Echo: hello\r\nConnection: close\r\nContent-Length: 4000\r\n\r\n"
+                        + "z".repeat(4000));
+        assertEquals("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 9\r\n\r\nhello4000", response);
+    }
+
+    @Test
+    public void testErrors() throws Throwable {
+        Runnable1<HttpExchange> failing = exchange -> {
+            throw new IOException("Failure");
+        };
+        assertEquals("HTTP/1.1 500 Internal Server Error\r\nConnection: close\r\nContent-Length: 0\r\n\r\n",
+                exchange(failing, new HttpConnectionConfig(), "GET / HTTP/1.1\r\n\r\n"));
+        assertEquals("HTTP/1.1 400 Bad Request\r\nConnection: close\r\nContent-Length: 0\r\n\r\n",
+                exchange(ECHO, new HttpConnectionConfig(), "GET / HTTP/1.1\r\nContent-Length: x\r\n\r\n"));
+        assertEquals("HTTP/1.1 501 Not Implemented\r\nConnection: close\r\nContent-Length: 0\r\n\r\n",
+                exchange(ECHO, new HttpConnectionConfig(), "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"));
+    }
+
+    @Test
+    public void testIdleTimeout() throws Throwable {
+        var config = new HttpConnectionConfig();
+        config.setIdleTimeout(200);
+        var start = System.nanoTime();
+        var response = exchange(ECHO, config, "GET /a HTTP/1.1\r\n\r\n");
+        var elapsed = (System.nanoTime() - start) / 1_000_000;
+        assertEquals("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n/a", response);
+        assertTrue(elapsed >= 200 && elapsed < 4000, "Elapsed: " + elapsed);
+    }
+
+    @Test
+    public void testCancellation() throws Throwable {
+        var cancelled = new CountDownLatch(1);
+        var flagged = new AtomicBoolean();
+        Runnable1<HttpExchange> large = exchange -> {
+            exchange.onCancel(() -> {
+                flagged.set(exchange.isCancelled());
+                cancelled.countDown();
+            });
+            exchange.begin(HttpCode.OK);
+            // Too large for the socket buffers, so the response stays pending while the client does not read
+            exchange.body(ByteBuffer.allocate(64 << 20));
+        };
+        var pool = new BufferPool();
+        pool.start();
+        var loop = new HttpConnectionLoop(large, pool, new HttpConnectionConfig());
+        loop.start();
+        try (var server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try (var client = new Socket()) {
+                client.connect(server.getLocalAddress());
+                loop.register(server.accept());
+                client.getOutputStream().write("GET / HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                client.setSoTimeout(5000);
+                assertEquals('H', client.getInputStream().read());
+                assertEquals(1, cancelled.getCount());
+                // The connection is reset, so the pending write fails and the connection is closed
+                client.setSoLinger(true, 0);
+            }
+            assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+            assertTrue(flagged.get());
+        } finally {
+            loop.stop();
+            assertEquals(0, loop.getConnections());
+            pool.stop();
+            assertEquals(0, pool.getUsedMemory());
+        }
+    }
+}
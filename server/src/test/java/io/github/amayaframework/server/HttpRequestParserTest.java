@@ -0,0 +1,193 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.http.HttpVersion;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class HttpRequestParserTest {
+    private static final String REQUEST = "GET /path/to?a=1&b=2 HTTP/1.1\r\n" +
+            "Host: example.com\r\n" +
+            "User-Agent:   test/1.0 \t\r\n" +
+            "Accept: text/html,\tapplication/json;q=0.9\r\n" +
+            "X-Empty:\r\n" +
+            "Content-Length: 5\r\n" +
+            "\r\n" +
+            "hello";
+
+    private static ByteBuffer wrap(String data) {
+        return ByteBuffer.wrap(data.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static List<String> headers(HttpRequestParser parser) {
+        var ret = new ArrayList<String>();
+        for (var i = 0; i < parser.getHeaderCount(); ++i) {
+            ret.add(parser.getHeaderName(i) + "=" + parser.getHeaderValue(i));
+        }
+        return ret;
+    }
+
+    private static HttpCode error(String request) {
+        var parser = new HttpRequestParser();
+        var e = assertThrows(HttpParseException.class, () -> parser.parse(wrap(request)));
+        return e.getCode();
+    }
+
+    @Test
+    public void testParse() throws HttpParseException {
+        var parser = new HttpRequestParser();
+        var buffer = wrap(REQUEST);
+        assertTrue(parser.parse(buffer));
+        assertTrue(parser.isComplete());
+        assertSame(HttpMethod.GET, parser.getMethod());
+        assertSame(HttpVersion.HTTP_1_1, parser.getVersion());
+        assertEquals("/path/to?a=1&b=2", parser.getTarget());
+        assertEquals(List.of(
+                "Host=example.com",
+                "User-Agent=test/1.0",
+                "Accept=text/html,\tapplication/json;q=0.9",
+                "X-Empty=",
+                "Content-Length=5"
+        ), headers(parser));
+        assertEquals("5", parser.getHeader("content-length"));
+        assertEquals(1, parser.indexOf("USER-AGENT"));
+        assertEquals(-1, parser.indexOf("Cookie"));
+        assertNull(parser.getHeader("Host2"));
+        assertEquals(REQUEST.length() - 5, buffer.position());
+        assertEquals(buffer.position(), parser.getHeadEnd());
+        assertThrows(IllegalStateException.class, () -> parser.parse(buffer));
+    }
+
+    @Test
+    public void testPipelined() throws HttpParseException {
+        var parser = new HttpRequestParser();
+        var buffer = wrap("\r\nHEAD / HTTP/1.0\nA: 1\n\nDELETE /x HTTP/1.1\r\nB: 2\r\n\r\n");
+        assertTrue(parser.parse(buffer));
+        assertSame(HttpMethod.HEAD, parser.getMethod());
+        assertSame(HttpVersion.HTTP_1_0, parser.getVersion());
+        assertEquals(List.of("A=1"), headers(parser));
+        parser.reset();
+        assertTrue(parser.parse(buffer));
+        assertSame(HttpMethod.DELETE, parser.getMethod());
+        assertEquals("/x", parser.getTarget());
+        assertEquals(List.of("B=2"), headers(parser));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testErrors() {
+        assertEquals(HttpCode.NOT_IMPLEMENTED, error("BREW /pot HTTP/1.1\r\n\r\n"));
+        assertEquals(HttpCode.HTTP_VERSION_NOT_SUPPORTED, error("GET / HTTP/3.0\r\n\r\n"));
+        assertEquals(HttpCode.BAD_REQUEST, error("GET / HTTQ/1.1\r\n\r\n"));
+        assertEquals(HttpCode.BAD_REQUEST, error("GET /\r\n\r\n"));
+        assertEquals(HttpCode.BAD_REQUEST, error("GET  / HTTP/1.1\r\n\r\n"));
+        assertEquals(HttpCode.BAD_REQUEST, error("G(T / HTTP/1.1\r\n\r\n"));
+        assertEquals(HttpCode.BAD_REQUEST, error("GET /a\tb HTTP/1.1\r\n\r\n"));
+        assertEquals(HttpCode.BAD_REQUEST, error("GET / HTTP/1.1\r\nHost : a\r\n\r\n"));
+        assertEquals(HttpCode.BAD_REQUEST, error("GET / HTTP/1.1\r\nHost: a\r\n folded\r\n\r\n"));
+        assertEquals(HttpCode.BAD_REQUEST, error("GET / HTTP/1.1\r\nHost: a\rb\r\n\r\n"));
+        assertEquals(HttpCode.BAD_REQUEST, error("GET / HTTP/1.1\r\nHost: a\0b\r\n\r\n"));
+        assertEquals(HttpCode.BAD_REQUEST, error("GET / HTTP/1.1\r\nNoColon\r\n\r\n"));
+        assertEquals(HttpCode.BAD_REQUEST, error("GET / HTTP/1.1\r\n: value\r\n\r\n"));
+    }
+
+    @Test
+    public void testLimits() throws HttpParseException {
+        var parser = new HttpRequestParser(64, 2);
+        assertTrue(parser.parse(wrap("GET / HTTP/1.1\r\nA: 1\r\nB: 2\r\n\r\n")));
+        parser.reset();
+        var e = assertThrows(HttpParseException.class,
+                () -> parser.parse(wrap("GET / HTTP/1.1\r\nA: 1\r\nB: 2\r\nC: 3\r\n\r\n")));
+        assertEquals(HttpCode.REQUEST_HEADER_FIELDS_TOO_LARGE, e.getCode());
+        parser.reset();
+        e = assertThrows(HttpParseException.class,
+                () -> parser.parse(wrap("GET /" + "a".repeat(100) + " HTTP/1.1\r\n\r\n")));
+        assertEquals(HttpCode.URI_TOO_LONG, e.getCode());
+        parser.reset();
+        e = assertThrows(HttpParseException.class,
+                () -> parser.parse(wrap("GET / HTTP/1.1\r\nA: " + "a".repeat(100) + "\r\n\r\n")));
+        assertEquals(HttpCode.REQUEST_HEADER_FIELDS_TOO_LARGE, e.getCode());
+        // Exactly at the limit
+        var request = "GET / HTTP/1.1\r\nA: " + "a".repeat(64 - 23) + "\r\n\r\n";
+        assertEquals(64, request.length());
+        parser.reset();
+        assertTrue(parser.parse(wrap(request)));
+    }
+
+    @Test
+    public void testRandomSplits() throws HttpParseException {
+        var random = new Random(42);
+        var bytes = REQUEST.getBytes(StandardCharsets.ISO_8859_1);
+        var expected = new HttpRequestParser();
+        expected.parse(wrap(REQUEST));
+        var parser = new HttpRequestParser();
+        for (var i = 0; i < 2000; ++i) {
+            var offset = random.nextInt(16);
+            var buffer = random.nextBoolean()
+                    ? ByteBuffer.allocate(offset + bytes.length)
+                    : ByteBuffer.allocateDirect(offset + bytes.length);
+            if (random.nextBoolean()) {
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            buffer.position(offset);
+            buffer.put(bytes);
+            buffer.position(offset);
+            parser.reset();
+            var limit = offset;
+            var done = false;
+            while (!done) {
+                assertTrue(limit < buffer.capacity());
+                limit = Math.min(buffer.capacity(), limit + 1 + random.nextInt(12));
+                buffer.limit(limit);
+                done = parser.parse(buffer);
+                assertEquals(done ? expected.getHeadEnd() + offset : offset, buffer.position());
+            }
+            assertSame(expected.getMethod(), parser.getMethod());
+            assertEquals(expected.getTarget(), parser.getTarget());
+            assertEquals(headers(expected), headers(parser));
+            assertEquals(expected.getValueStart(2) + offset, parser.getValueStart(2));
+        }
+    }
+
+    @Test
+    public void testFuzz() {
+        var random = new Random(7);
+        var base = REQUEST.getBytes(StandardCharsets.ISO_8859_1);
+        var parser = new HttpRequestParser(256, 8);
+        for (var i = 0; i < 20000; ++i) {
+            var bytes = base.clone();
+            var mutations = 1 + random.nextInt(4);
+            for (var j = 0; j < mutations; ++j) {
+                bytes[random.nextInt(bytes.length)] = (byte) random.nextInt(256);
+            }
+            var buffer = ByteBuffer.wrap(bytes);
+            buffer.limit(random.nextInt(bytes.length + 1));
+            parser.reset();
+            try {
+                if (parser.parse(buffer)) {
+                    assertNotNull(parser.getMethod());
+                    assertNotNull(parser.getVersion());
+                    assertTrue(parser.getTargetEnd() > parser.getTargetStart());
+                    for (var k = 0; k < parser.getHeaderCount(); ++k) {
+                        assertTrue(parser.getNameEnd(k) > parser.getNameStart(k));
+                        assertTrue(parser.getValueEnd(k) >= parser.getValueStart(k));
+                        assertTrue(parser.getValueEnd(k) <= parser.getHeadEnd());
+                    }
+                } else {
+                    assertEquals(0, buffer.position());
+                }
+            } catch (HttpParseException e) {
+                assertNotNull(e.getCode());
+            }
+        }
+    }
+}
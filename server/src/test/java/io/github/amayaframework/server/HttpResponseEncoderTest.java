@@ -0,0 +1,151 @@
+package io.github.amayaframework.server;
+
+import io.github.amayaframework.http.HttpCode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class HttpResponseEncoderTest {
+    private static final byte[] SERVER = HttpResponseEncoder.encodeHeader("Server", "amaya");
+
+    private static BufferPool pool() {
+        var ret = new BufferPool();
+        ret.start();
+        return ret;
+    }
+
+    private static ByteBuffer ascii(String data) {
+        return ByteBuffer.wrap(data.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testCoalesced() throws Exception {
+        var pool = pool();
+        var encoder = new HttpResponseEncoder(pool);
+        var channel = new Channel(Integer.MAX_VALUE);
+        encoder.begin(HttpCode.OK);
+        encoder.header(SERVER);
+        encoder.header("Content-Type", "application/json");
+        encoder.body(ascii("{\"a\":"));
+        encoder.body(ascii("1}"));
+        assertTrue(encoder.write(channel));
+        assertEquals("HTTP/1.1 200 OK\r\n" +
+                "Server: amaya\r\n" +
+                "Content-Type: application/json\r\n" +
+                "Content-Length: 7\r\n" +
+                "\r\n" +
+                "{\"a\":1}", channel.toString());
+        assertEquals(1, channel.calls);
+        assertEquals(1, channel.buffers);
+        assertFalse(encoder.isPending());
+        assertEquals(0, pool.getUsedMemory());
+    }
+
+    @Test
+    public void testGathering() throws Exception {
+        var encoder = new HttpResponseEncoder(pool(), 16);
+        var channel = new Channel(Integer.MAX_VALUE);
+        var body = "x".repeat(100);
+        encoder.begin(HttpCode.NOT_FOUND);
+        encoder.header("Content-Length", "100");
+        encoder.body(ascii(body.substring(0, 40)));
+        encoder.body(ByteBuffer.allocate(0));
+        encoder.body(ascii(body.substring(40)));
+        assertTrue(encoder.write(channel));
+        assertEquals("HTTP/1.1 404 Not Found\r\nContent-Length: 100\r\n\r\n" + body, channel.toString());
+        assertEquals(1, channel.calls);
+        assertEquals(3, channel.buffers);
+    }
+
+    @Test
+    public void testPartialWrites() throws Exception {
+        var encoder = new HttpResponseEncoder(pool(), 0);
+        var channel = new Channel(7);
+        var body = "y".repeat(50);
+        encoder.begin(HttpCode.OK);
+        encoder.body(ascii(body));
+        while (!encoder.write(channel)) {
+            channel.allowed = 7;
+        }
+        assertEquals("HTTP/1.1 200 OK\r\nContent-Length: 50\r\n\r\n" + body, channel.toString());
+    }
+
+    @Test
+    public void testNoBody() throws Exception {
+        var encoder = new HttpResponseEncoder(pool());
+        var channel = new Channel(Integer.MAX_VALUE);
+        encoder.begin(HttpCode.NO_CONTENT);
+        assertThrows(IllegalStateException.class, () -> encoder.body(ascii("a")));
+        assertThrows(IllegalArgumentException.class, () -> encoder.header("A", "b\r\nC: d"));
+        assertTrue(encoder.write(channel));
+        assertEquals("HTTP/1.1 204 No Content\r\n\r\n", channel.toString());
+        assertThrows(IllegalStateException.class, () -> encoder.header(SERVER));
+    }
+
+    @Test
+    public void testLargeHead() throws Exception {
+        var encoder = new HttpResponseEncoder(pool());
+        var channel = new Channel(Integer.MAX_VALUE);
+        var value = "v".repeat(3000);
+        encoder.begin(HttpCode.OK);
+        encoder.header("X-Large", value);
+        assertTrue(encoder.write(channel));
+        assertEquals("HTTP/1.1 200 OK\r\nX-Large: " + value + "\r\nContent-Length: 0\r\n\r\n", channel.toString());
+    }
+
+    private static final class Channel implements GatheringByteChannel {
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private int allowed;
+        private int calls;
+        private int buffers;
+
+        private Channel(int allowed) {
+            this.allowed = allowed;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) {
+            ++calls;
+            buffers += length;
+            var ret = 0L;
+            for (var i = offset; i < offset + length && allowed > 0; ++i) {
+                var source = sources[i];
+                while (source.hasRemaining() && allowed > 0) {
+                    output.write(source.get());
+                    --allowed;
+                    ++ret;
+                }
+            }
+            return ret;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources) {
+            return write(sources, 0, sources.length);
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            return (int) write(new ByteBuffer[]{source}, 0, 1);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return output.toString(StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package io.github.amayaframework.server;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.http.HttpVersion;
+import io.github.amayaframework.http.MimeData;
+import io.github.amayaframework.http.MimeType;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class LoopbackServerTest {
+
+    private static LoopbackServer start(Runnable1<HttpContext> handler) {
+        var ret = new LoopbackServerFactory().create();
+        ret.bind(8080);
+        ret.setHandler(handler);
+        ret.start();
+        return ret;
+    }
+
+    @Test
+    public void testExchange() {
+        var server = start(context -> {
+            var request = context.getRequest();
+            var response = context.getResponse();
+            response.setStatus(HttpCode.CREATED);
+            response.setHeader("X-Segments", String.join(",", request.getPathSegments()));
+            response.setHeader("X-Name", request.getParameter("name"));
+            response.setHeader("X-Agent", request.getHeader("user-agent"));
+            response.setCookie(new Cookie("session", context.getServletRequest().getCookies()[0].getValue()));
+            response.setMimeData(MimeData.of(MimeType.PLAIN, "charset", "UTF-8"));
+            response.getWriter().write("\u00e9t\u00e9, " + request.getURL());
+        });
+        var request = new LoopbackRequest(HttpMethod.GET, "/hello//world?name=amaya");
+        request.addHeader("User-Agent", "test");
+        request.addHeader("Host", "localhost:8080");
+        request.addHeader("Cookie", "id=42; theme=dark");
+        var response = server.exchange(request);
+        assertEquals(HttpCode.CREATED, response.getStatus());
+        assertEquals("hello,world", response.getHeader("x-segments"));
+        assertEquals("amaya", response.getHeader("X-Name"));
+        assertEquals("test", response.getHeader("X-Agent"));
+        assertEquals("42", response.getCookies().get(0).getValue());
+        assertEquals("\u00e9t\u00e9, http://localhost:8080/hello//world?name=amaya", response.getBodyAsString());
+        assertNull(response.getThrowable());
+        server.stop();
+    }
+
+    @Test
+    public void testAsyncBody() {
+        var server = start(context -> {
+            var request = context.getServletRequest();
+            context.getRequest().readBody().thenAccept(body -> {
+                try {
+                    var stream = context.getResponse().getOutputStream();
+                    while (body.hasRemaining()) {
+                        stream.write(body.get());
+                    }
+                    request.getAsyncContext().complete();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        });
+        var request = new LoopbackRequest(HttpMethod.POST, "/echo");
+        var body = "x".repeat(20000);
+        request.setBody(body, StandardCharsets.US_ASCII);
+        var response = server.exchange(request);
+        assertEquals(200, response.getStatusCode());
+        assertEquals(body, response.getBodyAsString());
+        server.stop();
+    }
+
+    @Test
+    public void testAsyncTimeout() {
+        var server = start(context -> {
+            context.getServletResponse().getWriter().write("partial");
+            context.getServletRequest().startAsync().setTimeout(50);
+        });
+        var response = server.exchange(new LoopbackRequest(HttpMethod.GET, "/"));
+        assertEquals(500, response.getStatusCode());
+        assertEquals(0, response.getBody().length);
+        server.stop();
+    }
+
+    @Test
+    public void testFailure() {
+        var failure = new IllegalStateException("failure");
+        var server = start(context -> {
+            context.getResponse().setHeader("X-Lost", "value");
+            throw failure;
+        });
+        var response = server.exchange(new LoopbackRequest(HttpMethod.GET, "/"));
+        assertEquals(500, response.getStatusCode());
+        assertNull(response.getHeader("X-Lost"));
+        assertSame(failure, response.getThrowable());
+        var sent = start(context -> {
+            context.getResponse().sendError(HttpCode.NOT_FOUND);
+            throw failure;
+        });
+        response = sent.exchange(new LoopbackRequest(HttpMethod.GET, "/"));
+        assertEquals(404, response.getStatusCode());
+        assertSame(failure, response.getThrowable());
+        server.stop();
+        sent.stop();
+    }
+
+    @Test
+    public void testVersion() {
+        var server = new LoopbackServer();
+        server.setHandler(context -> {
+            var version = context.getRequest().getHttpVersion();
+            context.getResponse().setHeader("X-Version", version);
+        });
+        server.start();
+        var request = new LoopbackRequest(HttpMethod.GET, "/");
+        request.setVersion(HttpVersion.HTTP_1_0);
+        assertEquals("HTTP/1.0", server.exchange(request).getHeader("X-Version"));
+        request.setVersion(HttpVersion.HTTP_2_0);
+        assertEquals(505, server.exchange(request).getStatusCode());
+        server.stop();
+    }
+
+    @Test
+    public void testLifecycle() {
+        var server = new LoopbackServer();
+        var request = new LoopbackRequest(HttpMethod.GET, "/");
+        assertThrows(IllegalStateException.class, server::start);
+        server.setHandler(context -> {
+        });
+        assertThrows(IllegalStateException.class, () -> server.exchange(request));
+        server.start();
+        assertThrows(IllegalStateException.class, () -> server.setHandler(context -> {
+        }));
+        assertThrows(IllegalStateException.class, () -> server.getConfig().setHttpVersion(HttpVersion.HTTP_1_0));
+        assertEquals(200, server.exchange(request).getStatusCode());
+        server.stop();
+        assertThrows(IllegalStateException.class, server::stop);
+        assertThrows(IllegalArgumentException.class, () -> new LoopbackRequest(HttpMethod.GET, "path"));
+    }
+
+    @Test
+    public void testParallel() {
+        var server = start(context -> {
+            var id = context.getRequest().getHeader("X-Id");
+            context.getResponse().getWriter().write(id);
+        });
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            var futures = new ArrayList<CompletableFuture<LoopbackResponse>>();
+            for (var i = 0; i < 256; ++i) {
+                futures.add(server.submit(idRequest(i), executor));
+            }
+            var bodies = new ArrayList<String>();
+            for (var future : futures) {
+                bodies.add(future.join().getBodyAsString());
+            }
+            var expected = new ArrayList<String>();
+            for (var i = 0; i < 256; ++i) {
+                expected.add(Integer.toString(i));
+            }
+            assertEquals(expected, bodies);
+            assertEquals("7", server.submit(idRequest(7)).join().getBodyAsString());
+        } finally {
+            executor.shutdown();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testDisconnect() throws InterruptedException {
+        var started = new CountDownLatch(1);
+        var errors = new CompletableFuture<Throwable>();
+        var work = new CompletableFuture<Void>();
+        var contexts = new CompletableFuture<HttpContext>();
+        var server = start(context -> {
+            var async = context.getServletRequest().startAsync();
+            async.addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                    errors.complete(event.getThrowable());
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+            context.getCancellation().link(work);
+            contexts.complete(context);
+            started.countDown();
+        });
+        var response = server.submit(new LoopbackRequest(HttpMethod.GET, "/"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        var token = contexts.join().getCancellation();
+        assertFalse(token.isCancelled());
+        assertTrue(response.cancel(false));
+        assertTrue(token.isCancelled());
+        assertFalse(token.isExpired());
+        assertTrue(work.isCancelled());
+        assertTrue(errors.join() instanceof EOFException);
+        server.stop();
+    }
+
+    @Test
+    public void testDeadline() {
+        var contexts = new CompletableFuture<HttpContext>();
+        var work = new CompletableFuture<Void>();
+        var server = start(context -> {
+            var token = context.getCancellation();
+            assertFalse(token.hasDeadline());
+            assertEquals(Long.MAX_VALUE, token.getRemaining(TimeUnit.MILLISECONDS));
+            token.setTimeout(Duration.ofSeconds(10));
+            token.setTimeout(Duration.ofMillis(20));
+            token.setTimeout(Duration.ofSeconds(20));
+            assertTrue(token.getRemaining(TimeUnit.MILLISECONDS) <= 20);
+            var async = context.getServletRequest().startAsync();
+            token.link(work).whenComplete((v, e) -> async.complete());
+            contexts.complete(context);
+        });
+        assertEquals(200, server.exchange(new LoopbackRequest(HttpMethod.GET, "/")).getStatusCode());
+        var token = contexts.join().getCancellation();
+        assertTrue(work.isCancelled());
+        assertTrue(token.isCancelled());
+        assertTrue(token.isExpired());
+        assertEquals(0, token.getRemaining(TimeUnit.MILLISECONDS));
+        server.stop();
+    }
+
+    private static LoopbackRequest idRequest(int id) {
+        var ret = new LoopbackRequest(HttpMethod.GET, "/");
+        ret.addHeader("X-Id", Integer.toString(id));
+        return ret;
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.amayaframework.server;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.http.HttpCode;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class NativeServerTest {
+    private static final Runnable1<HttpContext> ECHO = context -> {
+        var request = context.getRequest();
+        var response = context.getResponse();
+        var body = context.getServletRequest().getInputStream().readAllBytes();
+        response.setStatus(HttpCode.CREATED);
+        response.setHeader("X-Version", request.getHttpVersion().toString());
+        response.setHeader("X-Agent", request.getHeader("X-Agent"));
+        response.setCookie(new Cookie("id", "42"));
+        response.getWriter().write(request.getPath() + " " + new String(body, StandardCharsets.UTF_8));
+    };
+
+    private static NativeServer start(Runnable1<HttpContext> handler) throws Throwable {
+        var ret = new NativeServerFactory().create();
+        ret.getConfig().setThreads(2);
+        ret.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        ret.setHandler(handler);
+        ret.start();
+        return ret;
+    }
+
+    private static URI uri(NativeServer server, String path) {
+        var address = (InetSocketAddress) server.getLocalAddresses().get(0);
+        return URI.create("http://localhost:" + address.getPort() + path);
+    }
+
+    private static HttpResponse<String> send(HttpClient client, HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void testHttp1() throws Throwable {
+        var server = start(ECHO);
+        var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        var response = send(client, HttpRequest.newBuilder(uri(server, "/echo?a=1"))
+                .timeout(Duration.ofSeconds(5))
+                .header("X-Agent", "test")
+                .POST(HttpRequest.BodyPublishers.ofString("hello"))
+                .build());
+        assertEquals(201, response.statusCode());
+        assertEquals(HttpClient.Version.HTTP_1_1, response.version());
+        assertEquals("/echo hello", response.body());
+        assertEquals("test", response.headers().firstValue("X-Agent").orElseThrow());
+        assertEquals("id=42", response.headers().firstValue("Set-Cookie").orElseThrow());
+        server.stop();
+        assertTrue(server.getLocalAddresses().isEmpty());
+    }
+
+    @Test
+    public void testHttp2() throws Throwable {
+        var server = start(ECHO);
+        var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        // The first request upgrades the connection to h2c, the next ones are multiplexed over it
+        for (var i = 0; i < 3; ++i) {
+            var response = send(client, HttpRequest.newBuilder(uri(server, "/" + i))
+                    .timeout(Duration.ofSeconds(5))
+                    .header("X-Agent", "h2")
+                    .build());
+            assertEquals(201, response.statusCode());
+            assertEquals("/" + i + " ", response.body());
+            assertEquals("h2", response.headers().firstValue("x-agent").orElseThrow());
+            if (i > 0) {
+                assertEquals(HttpClient.Version.HTTP_2, response.version());
+                assertEquals("HTTP/2.0", response.headers().firstValue("x-version").orElseThrow());
+            }
+        }
+        server.stop();
+    }
+
+    @Test
+    public void testFailure() throws Throwable {
+        var server = start(context -> {
+            // Asynchronous processing cannot outlive the exchange
+            assertFalse(context.getServletRequest().isAsyncSupported());
+            if (context.getRequest().getPath().equals("/fail")) {
+                throw new IllegalStateException("fail");
+            }
+            context.getServletRequest().startAsync();
+        });
+        var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        for (var path : new String[]{"/fail", "/async"}) {
+            var response = send(client, HttpRequest.newBuilder(uri(server, path))
+                    .timeout(Duration.ofSeconds(5))
+                    .build());
+            assertEquals(500, response.statusCode());
+        }
+        server.stop();
+    }
+
+    @Test
+    public void testLifecycle() throws Throwable {
+        var server = start(ECHO);
+        assertTrue(server.isStarted());
+        assertThrows(IllegalStateException.class, () -> server.setHandler(ECHO));
+        assertThrows(IllegalStateException.class, () -> server.getConfig().setThreads(1));
+        assertThrows(IllegalStateException.class, server::start);
+        server.stop();
+        assertFalse(server.isStarted());
+        assertThrows(IllegalStateException.class, server::stop);
+        // The server can be started again after the stop
+        server.start();
+        assertEquals(1, server.getLocalAddresses().size());
+        server.stop();
+    }
+}
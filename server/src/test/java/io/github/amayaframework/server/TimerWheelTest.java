@@ -0,0 +1,79 @@
+package io.github.amayaframework.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class TimerWheelTest {
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    public void testExpiration() {
+        var wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 0);
+        var fired = new ArrayList<String>();
+        var first = new TimerWheel.Timeout(() -> fired.add("first"));
+        var second = new TimerWheel.Timeout(() -> fired.add("second"));
+        wheel.schedule(first, 25 * 1_000_000L, 0);
+        wheel.schedule(second, 10 * 1_000_000L, 0);
+        assertEquals(2, wheel.size());
+        assertTrue(first.isScheduled());
+        assertEquals(0, wheel.advance(TICK - 1));
+        assertEquals(1, wheel.advance(TICK));
+        assertEquals(List.of("second"), fired);
+        assertEquals(0, wheel.advance(2 * TICK));
+        assertEquals(1, wheel.advance(3 * TICK));
+        assertEquals(List.of("second", "first"), fired);
+        assertFalse(first.isScheduled());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testRescheduleAndCancel() {
+        var wheel = new TimerWheel(10, TimeUnit.MILLISECONDS, 0);
+        var count = new int[1];
+        var timeout = new TimerWheel.Timeout(() -> ++count[0]);
+        for (var now = 0L; now < 1000 * TICK; now += TICK) {
+            wheel.schedule(timeout, 5 * TICK, now);
+            wheel.advance(now);
+        }
+        assertEquals(0, count[0]);
+        assertEquals(1, wheel.size());
+        wheel.cancel(timeout);
+        wheel.cancel(timeout);
+        assertEquals(0, wheel.size());
+        wheel.advance(2000 * TICK);
+        assertEquals(0, count[0]);
+    }
+
+    @Test
+    public void testRandomDeadlines() {
+        var random = new Random(1);
+        var wheel = new TimerWheel(1, TimeUnit.MILLISECONDS, 1000);
+        var tick = TimeUnit.MILLISECONDS.toNanos(1);
+        var count = 5000;
+        var deadlines = new long[count];
+        var fired = new long[count];
+        var now = new long[]{1000};
+        for (var i = 0; i < count; ++i) {
+            var index = i;
+            // Up to about 5 hours, beyond the range of the third level
+            var delay = (long) (Math.pow(random.nextDouble(), 4) * 18_000_000) * tick;
+            deadlines[i] = 1000 + delay;
+            wheel.schedule(new TimerWheel.Timeout(() -> fired[index] = now[0]), delay, 1000);
+        }
+        while (wheel.size() > 0) {
+            now[0] += 1 + random.nextInt(50) * tick;
+            wheel.advance(now[0]);
+        }
+        for (var i = 0; i < count; ++i) {
+            assertTrue(fired[i] >= deadlines[i], "Expired early: " + i);
+            // Expired within the advance step after the deadline
+            assertTrue(fired[i] - deadlines[i] <= 51 * tick, "Expired late: " + i);
+        }
+    }
+}
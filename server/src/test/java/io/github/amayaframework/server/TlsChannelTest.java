@@ -0,0 +1,128 @@
+package io.github.amayaframework.server;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.http.HttpCode;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class TlsChannelTest {
+    private static final char[] PASSWORD = "password".toCharArray();
+    private static final Runnable1<HttpExchange> ECHO = exchange -> {
+        exchange.begin(HttpCode.OK);
+        exchange.body(ByteBuffer.wrap(exchange.getTarget().getBytes(StandardCharsets.US_ASCII)));
+        exchange.body(exchange.getBody());
+    };
+    private static SSLContext server;
+    private static SSLContext client;
+
+    private static synchronized void createContexts() throws Exception {
+        if (server != null) {
+            return;
+        }
+        var directory = Files.createTempDirectory("amaya-tls");
+        var file = directory.resolve("keystore.p12");
+        var keytool = Path.of(System.getProperty("java.home"), "bin", "keytool").toString();
+        var process = new ProcessBuilder(keytool, "-genkeypair", "-alias", "server", "-keyalg", "EC",
+                "-dname", "CN=localhost", "-validity", "1", "-storetype", "PKCS12",
+                "-keystore", file.toString(), "-storepass", "password", "-keypass", "password")
+                .redirectErrorStream(true)
+                .start();
+        process.getInputStream().transferTo(new ByteArrayOutputStream());
+        assertEquals(0, process.waitFor());
+        var store = KeyStore.getInstance("PKCS12");
+        try (var stream = new FileInputStream(file.toFile())) {
+            store.load(stream, PASSWORD);
+        }
+        Files.delete(file);
+        Files.delete(directory);
+        var keys = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keys.init(store, PASSWORD);
+        server = SSLContext.getInstance("TLS");
+        server.init(keys.getKeyManagers(), null, null);
+        var trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trust.init(store);
+        client = SSLContext.getInstance("TLS");
+        client.init(null, trust.getTrustManagers(), null);
+    }
+
+    private static void serve(String[] protocols, Runnable1<SSLSocket> test) throws Throwable {
+        createContexts();
+        var pool = new BufferPool();
+        pool.start();
+        var config = new HttpConnectionConfig();
+        config.setBufferSize(1024);
+        var loop = new HttpConnectionLoop(ECHO, pool, config);
+        loop.start();
+        var tls = new TlsConfig(server);
+        assertEquals(TlsConfig.DEFAULT_SESSION_CACHE_SIZE, server.getServerSessionContext().getSessionCacheSize());
+        try (var channel = ServerSocketChannel.open()) {
+            channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            var address = (InetSocketAddress) channel.getLocalAddress();
+            try (var socket = (SSLSocket) client.getSocketFactory().createSocket()) {
+                var parameters = socket.getSSLParameters();
+                parameters.setApplicationProtocols(protocols);
+                socket.setSSLParameters(parameters);
+                socket.setSoTimeout(5000);
+                socket.connect(address);
+                loop.register(channel.accept(), tls);
+                socket.startHandshake();
+                test.run(socket);
+            }
+        } finally {
+            loop.stop();
+            assertEquals(0, loop.getConnections());
+            pool.stop();
+            assertEquals(0, pool.getUsedMemory());
+        }
+    }
+
+    @Test
+    public void testHttp11() throws Throwable {
+        serve(new String[]{"http/1.1"}, socket -> {
+            assertEquals("http/1.1", socket.getApplicationProtocol());
+            var body = "z".repeat(100_000);
+            socket.getOutputStream().write(("GET /a HTTP/1.1\r\n\r\n" +
+                    "PUT /b HTTP/1.1\r\nContent-Length: 100000\r\n\r\n" + body +
+                    "GET /c HTTP/1.1\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            var output = new ByteArrayOutputStream();
+            socket.getInputStream().transferTo(output);
+            assertEquals("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\n/a" +
+                    "HTTP/1.1 200 OK\r\nContent-Length: 100002\r\n\r\n/b" + body +
+                    "HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\n/c",
+                    output.toString(StandardCharsets.US_ASCII));
+        });
+    }
+
+    @Test
+    public void testAlpnHttp2() throws Throwable {
+        serve(new String[]{"http/1.1", "h2"}, socket -> {
+            // The server preference wins
+            assertEquals("h2", socket.getApplicationProtocol());
+            var output = socket.getOutputStream();
+            output.write(Http2Connection.PREFACE);
+            output.write(new byte[]{0, 0, 0, 4, 0, 0, 0, 0, 0});
+            var input = new DataInputStream(socket.getInputStream());
+            var head = new byte[9];
+            input.readFully(head);
+            // Server SETTINGS frame
+            assertEquals(4, head[3]);
+        });
+    }
+}
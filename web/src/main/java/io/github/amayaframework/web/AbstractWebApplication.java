@@ -1,6 +1,7 @@
 package io.github.amayaframework.web;
 
 import com.github.romanqed.jfunc.Runnable1;
+import com.github.romanqed.jfunc.Runnable2;
 import io.github.amayaframework.application.AbstractApplication;
 import io.github.amayaframework.context.HttpContext;
 import io.github.amayaframework.environment.Environment;
@@ -14,12 +15,18 @@ import java.util.Objects;
 
 /**
  * A class that provides a skeletal implementation of the {@link WebApplication}.
+ * <br>
+ * Once a {@link DeadlineHandler} is added or the cancellation is enabled, the handlers added after that
+ * are not run if the request is cancelled, see {@link io.github.amayaframework.context.CancellationToken}.
+ * Otherwise, the handlers are added as is, so the pipeline does not check the token on each stage.
  */
 public abstract class AbstractWebApplication extends AbstractApplication<HttpContext> implements WebApplication {
     /**
      * The web application http server.
      */
     protected final HttpServer server;
+    private boolean cancellation;
+    private boolean deadline;
 
     /**
      * Constructs an {@link AbstractWebApplication} instance with given options, environment, service manager
@@ -57,6 +64,28 @@ public abstract class AbstractWebApplication extends AbstractApplication<HttpCon
         server.getConfig().addAddress(new InetSocketAddress(port));
     }
 
+    @Override
+    public void enableCancellation() {
+        cancellation = true;
+    }
+
+    @Override
+    public void addHandler(Runnable2<HttpContext, Runnable1<HttpContext>> handler) {
+        Objects.requireNonNull(handler);
+        if (cancellation || deadline) {
+            super.addHandler(new CancellableStage(handler));
+            return;
+        }
+        super.addHandler(handler);
+        deadline = handler instanceof DeadlineHandler;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        deadline = false;
+    }
+
     @Override
     protected void doStart(Runnable1<HttpContext> handler) throws Throwable {
         this.manager.start();
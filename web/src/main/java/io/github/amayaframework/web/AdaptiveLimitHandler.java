@@ -0,0 +1,243 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import com.github.romanqed.jfunc.Runnable2;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.http.HttpCode;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A pipeline stage limiting the number of requests processed at once with an adaptive limit.
+ * <br>
+ * Unlike {@link AdmissionHandler}, the limit is not configured, but estimated by {@link AdaptiveLimiter}
+ * from the observed round-trip times, so it follows the actual capacity of the application and its downstream
+ * services. Requests over the limit are rejected at once with a pre-encoded 503 Service Unavailable response.
+ * A request is measured from its admission until its asynchronous processing completes, if the downstream handlers
+ * started it. Requests that threw or were answered with a server error count as dropped and reduce the limit.
+ * <br>
+ * The limit is either global, or kept per key, e.g. per route with {@link RequestKeys#pathPrefix(int)}.
+ * Each key gets its own algorithm instance; once the number of keys reaches the maximum,
+ * requests with new keys share the global limiter. Limiters of keys that had no requests for longer than
+ * the idle timeout and have none in flight are evicted by a sweep, performed by one of the requests once
+ * per idle timeout, so that the keys seen once do not hold the slots for good. An evicted key starts again
+ * from the initial limit.
+ * <br>
+ * The stage can be added to the application with {@link WebApplication#addHandler(Runnable2)},
+ * or wrap an already built pipeline with {@link #wrap(Runnable1)}.
+ */
+public final class AdaptiveLimitHandler implements Runnable2<HttpContext, Runnable1<HttpContext>> {
+    /**
+     * The default maximum number of keys with their own limiter.
+     */
+    public static final int DEFAULT_MAX_KEYS = 1024;
+    /**
+     * The default time an idle limiter is kept, in milliseconds.
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT = 60000;
+
+    private final Supplier<LimitAlgorithm> algorithms;
+    private final Function<HttpContext, String> key;
+    private final int maxKeys;
+    private final long idle;
+    private final AdaptiveLimiter global;
+    private final ConcurrentMap<String, Keyed> limiters;
+    private final AtomicLong sweep;
+    private final RejectedResponse rejected;
+    private final LongAdder admitted;
+    private final LongAdder rejections;
+
+    /**
+     * Constructs {@link AdaptiveLimitHandler} instance keeping the limit per key.
+     *
+     * @param algorithms  the supplier of {@link LimitAlgorithm} instances, must return a new instance on each call
+     * @param key         the key extractor, null to keep a single global limit
+     * @param maxKeys     the maximum number of keys with their own limiter, must be positive
+     * @param idleTimeout the time an idle limiter is kept, in milliseconds, must be non-negative
+     */
+    public AdaptiveLimitHandler(Supplier<LimitAlgorithm> algorithms,
+                                Function<HttpContext, String> key,
+                                int maxKeys,
+                                long idleTimeout) {
+        if (maxKeys <= 0 || idleTimeout < 0) {
+            throw new IllegalArgumentException("Illegal key limits");
+        }
+        this.algorithms = Objects.requireNonNull(algorithms);
+        this.key = key;
+        this.maxKeys = maxKeys;
+        this.idle = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        this.global = new AdaptiveLimiter(algorithms.get());
+        this.limiters = new ConcurrentHashMap<>();
+        this.sweep = new AtomicLong(System.nanoTime() + idle);
+        this.rejected = new RejectedResponse(HttpCode.SERVICE_UNAVAILABLE);
+        this.admitted = new LongAdder();
+        this.rejections = new LongAdder();
+    }
+
+    /**
+     * Constructs {@link AdaptiveLimitHandler} instance keeping the limit per key, with the default idle timeout.
+     *
+     * @param algorithms the supplier of {@link LimitAlgorithm} instances, must return a new instance on each call
+     * @param key        the key extractor, null to keep a single global limit
+     * @param maxKeys    the maximum number of keys with their own limiter, must be positive
+     */
+    public AdaptiveLimitHandler(Supplier<LimitAlgorithm> algorithms, Function<HttpContext, String> key, int maxKeys) {
+        this(algorithms, key, maxKeys, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Constructs {@link AdaptiveLimitHandler} instance keeping the limit per key,
+     * with the default maximum number of keys and the default idle timeout.
+     *
+     * @param algorithms the supplier of {@link LimitAlgorithm} instances, must return a new instance on each call
+     * @param key        the key extractor, null to keep a single global limit
+     */
+    public AdaptiveLimitHandler(Supplier<LimitAlgorithm> algorithms, Function<HttpContext, String> key) {
+        this(algorithms, key, DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * Constructs {@link AdaptiveLimitHandler} instance keeping a single global limit.
+     *
+     * @param algorithms the supplier of {@link LimitAlgorithm} instances
+     */
+    public AdaptiveLimitHandler(Supplier<LimitAlgorithm> algorithms) {
+        this(algorithms, null, DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * Constructs {@link AdaptiveLimitHandler} instance keeping a single global limit
+     * estimated by {@link GradientLimit} with the default parameters.
+     */
+    public AdaptiveLimitHandler() {
+        this(GradientLimit::new);
+    }
+
+    /**
+     * Gets the current global limit. If the limit is kept per key,
+     * it is the limit shared by the keys over the maximum.
+     *
+     * @return the number of requests allowed to be processed at once
+     */
+    public int getLimit() {
+        return global.getLimit();
+    }
+
+    /**
+     * Gets the current limits per key.
+     *
+     * @return the snapshot of the limits, empty if a single global limit is kept
+     */
+    public Map<String, Integer> getLimits() {
+        var ret = new HashMap<String, Integer>();
+        limiters.forEach((name, keyed) -> ret.put(name, keyed.limiter.getLimit()));
+        return ret;
+    }
+
+    /**
+     * Gets the number of requests being processed under the global limit.
+     *
+     * @return the number of in-flight requests
+     */
+    public int getInFlight() {
+        return global.getInFlight();
+    }
+
+    /**
+     * Gets the number of admitted requests.
+     *
+     * @return the number of admitted requests
+     */
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    /**
+     * Gets the number of requests rejected because the limit was reached.
+     *
+     * @return the number of rejected requests
+     */
+    public long getRejected() {
+        return rejections.sum();
+    }
+
+    private AdaptiveLimiter select(HttpContext context) {
+        if (key == null) {
+            return global;
+        }
+        var name = key.apply(context);
+        if (name == null) {
+            return global;
+        }
+        var now = System.nanoTime();
+        var next = sweep.get();
+        if (now - next >= 0 && sweep.compareAndSet(next, now + idle)) {
+            var cutoff = now - idle;
+            // A request which selected the limiter before its removal still releases it, which is harmless
+            limiters.values().removeIf(keyed -> keyed.used - cutoff < 0 && keyed.limiter.getInFlight() == 0);
+        }
+        var ret = limiters.get(name);
+        if (ret == null) {
+            if (limiters.size() >= maxKeys) {
+                return global;
+            }
+            ret = limiters.computeIfAbsent(name, k -> new Keyed(new AdaptiveLimiter(algorithms.get()), now));
+        }
+        ret.used = now;
+        return ret.limiter;
+    }
+
+    private static boolean isDropped(HttpContext context) {
+        var status = context.getResponse().getStatus();
+        return status != null && status.getCode() >= 500;
+    }
+
+    /**
+     * Wraps the given handler, so that it runs under the limit of this stage.
+     *
+     * @param handler the handler to be wrapped, e.g. the pipeline built by the application
+     * @return the wrapping {@link Runnable1} instance
+     */
+    public Runnable1<HttpContext> wrap(Runnable1<HttpContext> handler) {
+        Objects.requireNonNull(handler);
+        return context -> run(context, handler);
+    }
+
+    @Override
+    public void run(HttpContext context, Runnable1<HttpContext> next) throws Throwable {
+        var limiter = select(context);
+        if (!limiter.tryAcquire()) {
+            rejections.increment();
+            rejected.send(context.getResponse());
+            return;
+        }
+        admitted.increment();
+        var start = System.nanoTime();
+        try {
+            next.run(context);
+        } catch (Throwable e) {
+            limiter.release(System.nanoTime() - start, true);
+            throw e;
+        }
+        RequestCompletion.whenComplete(context, () -> limiter.release(System.nanoTime() - start, isDropped(context)));
+    }
+
+    private static final class Keyed {
+        private final AdaptiveLimiter limiter;
+        private volatile long used;
+
+        private Keyed(AdaptiveLimiter limiter, long used) {
+            this.limiter = limiter;
+            this.used = used;
+        }
+    }
+}
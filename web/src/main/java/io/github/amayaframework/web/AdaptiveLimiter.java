@@ -0,0 +1,161 @@
+package io.github.amayaframework.web;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free concurrency limiter, which limit is continuously adjusted by {@link LimitAlgorithm}.
+ * <br>
+ * Round-trip times of released requests are aggregated over a window. Once the window is long enough and contains
+ * enough samples, the thread releasing a request passes the window to the algorithm and publishes the new limit.
+ * Other threads never wait for the update, they keep using the previous limit meanwhile.
+ */
+public final class AdaptiveLimiter {
+    /**
+     * The default minimum length of a window, in milliseconds.
+     */
+    public static final long DEFAULT_WINDOW = 100;
+    /**
+     * The default minimum number of samples in a window.
+     */
+    public static final int DEFAULT_MIN_SAMPLES = 10;
+
+    private final LimitAlgorithm algorithm;
+    private final long window;
+    private final int minSamples;
+    private final AtomicInteger inFlight;
+    private volatile int limit;
+    // Window aggregates
+    private final AtomicLong windowStart;
+    private final AtomicBoolean updating;
+    private final LongAdder samples;
+    private final LongAdder rttSum;
+    private final AtomicLong minRtt;
+    private final AtomicInteger maxInFlight;
+    private volatile boolean dropped;
+
+    /**
+     * Constructs {@link AdaptiveLimiter} instance with given algorithm and window parameters.
+     *
+     * @param algorithm  the {@link LimitAlgorithm} instance, must be non-null and not shared
+     * @param window     the minimum length of a window, in milliseconds, must be positive
+     * @param minSamples the minimum number of samples in a window, must be positive
+     */
+    public AdaptiveLimiter(LimitAlgorithm algorithm, long window, int minSamples) {
+        if (window <= 0 || minSamples <= 0) {
+            throw new IllegalArgumentException("Illegal window parameters");
+        }
+        this.algorithm = Objects.requireNonNull(algorithm);
+        this.window = TimeUnit.MILLISECONDS.toNanos(window);
+        this.minSamples = minSamples;
+        this.inFlight = new AtomicInteger();
+        this.limit = Math.max(1, algorithm.getLimit());
+        this.windowStart = new AtomicLong(System.nanoTime());
+        this.updating = new AtomicBoolean();
+        this.samples = new LongAdder();
+        this.rttSum = new LongAdder();
+        this.minRtt = new AtomicLong(Long.MAX_VALUE);
+        this.maxInFlight = new AtomicInteger();
+    }
+
+    /**
+     * Constructs {@link AdaptiveLimiter} instance with given algorithm and the default window parameters.
+     *
+     * @param algorithm the {@link LimitAlgorithm} instance, must be non-null and not shared
+     */
+    public AdaptiveLimiter(LimitAlgorithm algorithm) {
+        this(algorithm, DEFAULT_WINDOW, DEFAULT_MIN_SAMPLES);
+    }
+
+    /**
+     * Gets the current limit.
+     *
+     * @return the number of requests allowed to be processed at once
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets the number of requests being processed.
+     *
+     * @return the number of in-flight requests
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Tries to acquire a permit for a request.
+     *
+     * @return true, if the request may be processed, false if the limit is reached
+     */
+    public boolean tryAcquire() {
+        var current = inFlight.get();
+        while (current < limit) {
+            if (inFlight.compareAndSet(current, current + 1)) {
+                var max = maxInFlight.get();
+                while (max <= current && !maxInFlight.compareAndSet(max, current + 1)) {
+                    max = maxInFlight.get();
+                }
+                return true;
+            }
+            current = inFlight.get();
+        }
+        return false;
+    }
+
+    /**
+     * Releases the permit of a completed request and records its round-trip time.
+     *
+     * @param rtt     the round-trip time of the request, in nanoseconds
+     * @param dropped true, if the request failed or was answered with a server error
+     */
+    public void release(long rtt, boolean dropped) {
+        inFlight.decrementAndGet();
+        if (dropped) {
+            this.dropped = true;
+        }
+        samples.increment();
+        rttSum.add(rtt);
+        var min = minRtt.get();
+        while (rtt < min && !minRtt.compareAndSet(min, rtt)) {
+            min = minRtt.get();
+        }
+        var now = System.nanoTime();
+        var start = windowStart.get();
+        if (now - start >= window && samples.sum() >= minSamples) {
+            update(start, now);
+        }
+    }
+
+    private void update(long start, long now) {
+        if (!updating.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (windowStart.get() != start) {
+                // The window has already been closed by another thread
+                return;
+            }
+            // Samples recorded concurrently with the reset may fall into either window, which is harmless
+            var count = samples.sumThenReset();
+            var sum = rttSum.sumThenReset();
+            var min = minRtt.getAndSet(Long.MAX_VALUE);
+            var max = maxInFlight.getAndSet(inFlight.get());
+            var drop = dropped;
+            dropped = false;
+            windowStart.set(now);
+            if (count == 0) {
+                return;
+            }
+            limit = Math.max(1, algorithm.update(min, sum / count, max, drop));
+        } finally {
+            updating.set(false);
+        }
+    }
+}
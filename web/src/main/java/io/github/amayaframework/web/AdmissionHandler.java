@@ -0,0 +1,313 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import com.github.romanqed.jfunc.Runnable2;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.http.HttpCode;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pipeline stage limiting the number of requests processed at once (admission control).
+ * <br>
+ * A request is admitted at once while fewer than the in-flight limit requests are processed. Otherwise, it waits
+ * in a bounded queue for at most the queue timeout, and is admitted as soon as an admitted request completes.
+ * Requests which find the queue full, or which are not admitted in time, are rejected with a pre-encoded
+ * 503 Service Unavailable response having the Retry-After header, without running the downstream handlers.
+ * <br>
+ * Queued requests wait without blocking if the servlet request supports asynchronous processing: the request is put
+ * into asynchronous mode and resumed from the given executor once it is admitted or timed out, and the stage completes
+ * the asynchronous processing after the downstream handlers return. Handlers placed before this stage must tolerate
+ * the pipeline returning with an unfinished response in this case. If asynchronous processing is not supported,
+ * queued requests wait on their own thread, so the queue limit also bounds the number of blocked container threads.
+ * A request stays in flight until its asynchronous processing completes, if the downstream handlers started it.
+ * The counters are cumulative, so rejection and admission rates are derived by sampling them,
+ * while {@link #getInFlight()} and {@link #getQueued()} report the current load.
+ */
+public final class AdmissionHandler implements Runnable2<HttpContext, Runnable1<HttpContext>> {
+    /**
+     * The default maximum time a request waits in the queue, in milliseconds.
+     */
+    public static final long DEFAULT_QUEUE_TIMEOUT = 1000;
+    /**
+     * The default value of the Retry-After header of rejected requests, in seconds.
+     */
+    public static final int DEFAULT_RETRY_AFTER = 1;
+
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final long queueTimeout;
+    private final RejectedResponse rejected;
+    private final Executor executor;
+    private final AtomicInteger inFlight;
+    private final AtomicInteger queued;
+    private final Queue<CompletableFuture<Void>> waiters;
+    private final LongAdder admitted;
+    private final LongAdder delayed;
+    private final LongAdder rejections;
+    private final LongAdder timeouts;
+
+    /**
+     * Constructs {@link AdmissionHandler} instance with given limits.
+     *
+     * @param maxInFlight  the maximum number of requests processed at once, must be positive
+     * @param maxQueued    the maximum number of waiting requests, 0 to reject at once
+     * @param queueTimeout the maximum time a request waits in the queue, in milliseconds, must be positive
+     * @param retryAfter   the value of the Retry-After header of rejected requests, in seconds
+     * @param executor     the {@link Executor} resuming asynchronous queued requests, must be non-null
+     */
+    public AdmissionHandler(int maxInFlight, int maxQueued, long queueTimeout, int retryAfter, Executor executor) {
+        if (maxInFlight <= 0 || maxQueued < 0 || queueTimeout <= 0 || retryAfter < 0) {
+            throw new IllegalArgumentException("Illegal admission limits");
+        }
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.queueTimeout = queueTimeout;
+        this.rejected = new RejectedResponse(HttpCode.SERVICE_UNAVAILABLE, "Retry-After", Integer.toString(retryAfter));
+        this.executor = Objects.requireNonNull(executor);
+        this.inFlight = new AtomicInteger();
+        this.queued = new AtomicInteger();
+        this.waiters = new ConcurrentLinkedQueue<>();
+        this.admitted = new LongAdder();
+        this.delayed = new LongAdder();
+        this.rejections = new LongAdder();
+        this.timeouts = new LongAdder();
+    }
+
+    /**
+     * Constructs {@link AdmissionHandler} instance with given limits, resuming asynchronous queued requests
+     * from {@link ForkJoinPool#commonPool()}.
+     *
+     * @param maxInFlight  the maximum number of requests processed at once, must be positive
+     * @param maxQueued    the maximum number of waiting requests, 0 to reject at once
+     * @param queueTimeout the maximum time a request waits in the queue, in milliseconds, must be positive
+     * @param retryAfter   the value of the Retry-After header of rejected requests, in seconds
+     */
+    public AdmissionHandler(int maxInFlight, int maxQueued, long queueTimeout, int retryAfter) {
+        this(maxInFlight, maxQueued, queueTimeout, retryAfter, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs {@link AdmissionHandler} instance with given limits, the default queue timeout
+     * and the default Retry-After value.
+     *
+     * @param maxInFlight the maximum number of requests processed at once, must be positive
+     * @param maxQueued   the maximum number of waiting requests, 0 to reject at once
+     */
+    public AdmissionHandler(int maxInFlight, int maxQueued) {
+        this(maxInFlight, maxQueued, DEFAULT_QUEUE_TIMEOUT, DEFAULT_RETRY_AFTER);
+    }
+
+    /**
+     * Gets the number of requests being processed.
+     *
+     * @return the number of in-flight requests
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Gets the number of requests waiting in the queue.
+     *
+     * @return the queue depth
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * Gets the number of admitted requests, including the requests admitted after waiting.
+     *
+     * @return the number of admitted requests
+     */
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    /**
+     * Gets the number of requests admitted after waiting in the queue.
+     *
+     * @return the number of delayed requests
+     */
+    public long getDelayed() {
+        return delayed.sum();
+    }
+
+    /**
+     * Gets the number of rejected requests, including the requests rejected after waiting.
+     *
+     * @return the number of rejected requests
+     */
+    public long getRejected() {
+        return rejections.sum();
+    }
+
+    /**
+     * Gets the number of requests rejected because they were not admitted within the queue timeout.
+     *
+     * @return the number of timeouts
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    private boolean tryAcquire() {
+        var current = inFlight.get();
+        while (current < maxInFlight) {
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+            current = inFlight.get();
+        }
+        return false;
+    }
+
+    private void release() {
+        // The permit is handed over to the oldest waiter, skipping the timed out ones
+        CompletableFuture<Void> waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.complete(null)) {
+                return;
+            }
+        }
+        inFlight.decrementAndGet();
+        // A waiter may have been queued after the poll, but failed to acquire before the decrement
+        while (!waiters.isEmpty() && tryAcquire()) {
+            waiter = waiters.poll();
+            if (waiter != null && waiter.complete(null)) {
+                return;
+            }
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private boolean tryEnqueue() {
+        var current = queued.get();
+        while (current < maxQueued) {
+            if (queued.compareAndSet(current, current + 1)) {
+                return true;
+            }
+            current = queued.get();
+        }
+        return false;
+    }
+
+    private CompletableFuture<Void> offer() {
+        var ret = new CompletableFuture<Void>();
+        waiters.offer(ret);
+        // Retry once queued, as all permits may have been released before the waiter was visible
+        if (tryAcquire() && !ret.complete(null)) {
+            // The waiter was already given a permit, so the extra one is returned
+            release();
+        }
+        return ret;
+    }
+
+    private boolean await(CompletableFuture<Void> waiter) throws InterruptedException {
+        try {
+            waiter.get(queueTimeout, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException | InterruptedException e) {
+            if (waiter.completeExceptionally(e)) {
+                waiters.remove(waiter);
+                if (e instanceof InterruptedException) {
+                    throw (InterruptedException) e;
+                }
+                return false;
+            }
+            // The permit arrived concurrently with the timeout
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        } catch (ExecutionException e) {
+            // Waiters are only completed exceptionally by themselves
+            throw new IllegalStateException(e);
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private void reject(HttpContext context) throws Throwable {
+        rejections.increment();
+        rejected.send(context.getResponse());
+    }
+
+    private void resume(HttpContext context, Runnable1<HttpContext> next, CompletableFuture<Void> waiter) {
+        var servlet = context.getServletRequest();
+        var async = servlet.isAsyncStarted() ? servlet.getAsyncContext() : servlet.startAsync();
+        async.setTimeout(0);
+        // The waiter times out itself, so a permit arriving concurrently is either taken or handed over
+        waiter.orTimeout(queueTimeout, TimeUnit.MILLISECONDS)
+                .whenCompleteAsync((value, e) -> {
+                    queued.decrementAndGet();
+                    if (e != null) {
+                        waiters.remove(waiter);
+                        timeouts.increment();
+                        try {
+                            reject(context);
+                        } catch (Throwable t) {
+                            CoalescingHandler.fail(context);
+                        } finally {
+                            async.complete();
+                        }
+                        return;
+                    }
+                    delayed.increment();
+                    admitted.increment();
+                    try {
+                        next.run(context);
+                    } catch (Throwable t) {
+                        CoalescingHandler.fail(context);
+                    } finally {
+                        // Released before the completion, so the permit is free once the response is delivered
+                        try {
+                            release();
+                        } finally {
+                            async.complete();
+                        }
+                    }
+                }, executor);
+    }
+
+    @Override
+    public void run(HttpContext context, Runnable1<HttpContext> next) throws Throwable {
+        if (!tryAcquire()) {
+            if (!tryEnqueue()) {
+                reject(context);
+                return;
+            }
+            var waiter = offer();
+            var servlet = context.getServletRequest();
+            if (servlet != null && servlet.isAsyncSupported()) {
+                resume(context, next, waiter);
+                return;
+            }
+            if (!await(waiter)) {
+                timeouts.increment();
+                reject(context);
+                return;
+            }
+            delayed.increment();
+        }
+        admitted.increment();
+        try {
+            next.run(context);
+        } catch (Throwable e) {
+            release();
+            throw e;
+        }
+        RequestCompletion.whenComplete(context, this::release);
+    }
+}
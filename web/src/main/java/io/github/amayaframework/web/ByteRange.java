@@ -0,0 +1,120 @@
+package io.github.amayaframework.web;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A class describing a satisfiable byte range of a resource (see rfc7233).
+ */
+final class ByteRange {
+    /**
+     * The maximum number of range specifiers in one header. Requests with more are served as a whole.
+     */
+    static final int MAX_RANGES = 16;
+    private static final String UNIT = "bytes=";
+
+    final long start;
+    final long end;
+
+    ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    private static long parseLong(String value) {
+        if (value.isEmpty()) {
+            return -1;
+        }
+        for (var i = 0; i < value.length(); ++i) {
+            var c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -2;
+            }
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static List<ByteRange> merge(List<ByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(range -> range.start));
+        var ret = new ArrayList<ByteRange>(ranges.size());
+        var current = ranges.get(0);
+        for (var i = 1; i < ranges.size(); ++i) {
+            var range = ranges.get(i);
+            // Overlapping and adjacent ranges are coalesced, so no byte is sent twice
+            if (range.start <= current.end + 1) {
+                if (range.end > current.end) {
+                    current = new ByteRange(current.start, range.end);
+                }
+                continue;
+            }
+            ret.add(current);
+            current = range;
+        }
+        ret.add(current);
+        return ret;
+    }
+
+    /**
+     * Parses the value of Range header for the resource of the specified size.
+     * Unsatisfiable ranges are skipped, overlapping and adjacent ranges are merged and sorted by offset.
+     * Headers with more than {@link #MAX_RANGES} specifiers are treated as malformed,
+     * so the whole resource is sent instead.
+     *
+     * @param header the specified header value
+     * @param size   the resource size
+     * @return a {@link List} of satisfiable ranges (may be empty) or null if the header is malformed or excessive
+     */
+    static List<ByteRange> parse(String header, long size) {
+        if (!header.regionMatches(true, 0, UNIT, 0, UNIT.length())) {
+            return null;
+        }
+        var ret = new ArrayList<ByteRange>();
+        var specs = header.substring(UNIT.length()).split(",", MAX_RANGES + 1);
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        for (var spec : specs) {
+            spec = spec.trim();
+            var dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            var first = parseLong(spec.substring(0, dash).trim());
+            var last = parseLong(spec.substring(dash + 1).trim());
+            if (first < -1 || last < -1 || (first == -1 && last == -1)) {
+                return null;
+            }
+            if (first == -1) {
+                // Suffix range: the last N bytes
+                if (last > 0 && size > 0) {
+                    ret.add(new ByteRange(Math.max(0, size - last), size - 1));
+                }
+                continue;
+            }
+            if (last != -1 && last < first) {
+                return null;
+            }
+            if (first >= size) {
+                continue;
+            }
+            ret.add(new ByteRange(first, last == -1 ? size - 1 : Math.min(last, size - 1)));
+        }
+        return merge(ret);
+    }
+
+    long length() {
+        return end - start + 1;
+    }
+
+    String toContentRange(long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.amayaframework.web;
+
+/**
+ * A class holding the parsed directives of Cache-Control header (see rfc9111, section 5.2)
+ * relevant to a shared cache.
+ */
+final class CacheControl {
+    static final CacheControl EMPTY = new CacheControl();
+
+    boolean noStore;
+    boolean noCache;
+    boolean isPrivate;
+    boolean isPublic;
+    long maxAge = -1;
+    long sharedMaxAge = -1;
+
+    private static long parseSeconds(String value) {
+        if (value.length() > 1 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+            value = value.substring(1, value.length() - 1);
+        }
+        try {
+            var ret = Long.parseLong(value);
+            return ret < 0 ? 0 : ret;
+        } catch (NumberFormatException e) {
+            // Invalid freshness information, treat response as stale (rfc9111, section 4.2.1)
+            return 0;
+        }
+    }
+
+    static CacheControl parse(String header) {
+        if (header == null || header.isEmpty()) {
+            return EMPTY;
+        }
+        var ret = new CacheControl();
+        for (var directive : header.split(",")) {
+            var separator = directive.indexOf('=');
+            var name = (separator < 0 ? directive : directive.substring(0, separator)).trim();
+            var value = separator < 0 ? null : directive.substring(separator + 1).trim();
+            if (name.equalsIgnoreCase("no-store")) {
+                ret.noStore = true;
+            } else if (name.equalsIgnoreCase("no-cache")) {
+                ret.noCache = true;
+            } else if (name.equalsIgnoreCase("private")) {
+                ret.isPrivate = true;
+            } else if (name.equalsIgnoreCase("public")) {
+                ret.isPublic = true;
+            } else if (name.equalsIgnoreCase("max-age") && value != null) {
+                ret.maxAge = parseSeconds(value);
+            } else if (name.equalsIgnoreCase("s-maxage") && value != null) {
+                ret.sharedMaxAge = parseSeconds(value);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the freshness lifetime for a shared cache.
+     *
+     * @param defaultAge the lifetime used when no explicit one is given, in seconds
+     * @return the lifetime in seconds
+     */
+    long getLifetime(long defaultAge) {
+        if (sharedMaxAge >= 0) {
+            return sharedMaxAge;
+        }
+        if (maxAge >= 0) {
+            return maxAge;
+        }
+        return defaultAge;
+    }
+}
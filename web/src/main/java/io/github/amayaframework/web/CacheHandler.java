@@ -0,0 +1,296 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import com.github.romanqed.jfunc.Runnable2;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.context.HttpContextWrapper;
+import io.github.amayaframework.context.HttpRequest;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pipeline stage caching complete responses to GET requests in memory.
+ * <br>
+ * A response is stored if it has one of the cacheable statuses (200, 203, 204, 300, 301, 308, 404, 405, 410, 414, 501),
+ * its body has been written through the response output stream or writer and fits in the entry size limit
+ * (a declared Content-Length must match the captured body; responses that have not opened the stream are stored
+ * only with zero Content-Length or 204 status), it sets no cookies, and its Cache-Control header allows a shared
+ * cache to store it: responses marked with 'no-store', 'no-cache' or 'private' are skipped. The freshness lifetime
+ * is taken from 's-maxage' or 'max-age' directives, falling back to the default lifetime, which is zero (not cached)
+ * unless specified.
+ * <br>
+ * Responses are keyed by request host, path and query, and by the values of request headers listed in the
+ * Vary header of the response; 'Vary: *' responses are not stored. Hits are served without running downstream
+ * handlers, HEAD requests are served from the entries of GET requests. Successful responses to unsafe methods
+ * invalidate all the entries of the request path.
+ * <br>
+ * Stored responses are kept within the byte budget with W-TinyLFU-style admission: a new response replaces
+ * an old one only if it is requested more frequently.
+ */
+public final class CacheHandler implements Runnable2<HttpContext, Runnable1<HttpContext>> {
+    /**
+     * The default maximum size of a single cached response body, in bytes.
+     */
+    public static final int DEFAULT_MAX_ENTRY_SIZE = 1024 * 1024;
+    private static final Set<Integer> CACHEABLE = Set.of(200, 203, 204, 300, 301, 308, 404, 405, 410, 414, 501);
+
+    private final ResponseCache cache;
+    private final int maxEntrySize;
+    private final long defaultAge;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Constructs {@link CacheHandler} instance with given limits.
+     *
+     * @param capacity     the maximum total size of cached responses, in bytes
+     * @param maxEntrySize the maximum size of a single cached response body, in bytes
+     * @param defaultAge   the freshness lifetime of responses without explicit one, in seconds
+     */
+    public CacheHandler(long capacity, int maxEntrySize, long defaultAge) {
+        if (capacity < 2 || maxEntrySize < 0 || defaultAge < 0) {
+            throw new IllegalArgumentException("Illegal cache limits");
+        }
+        this.cache = new ResponseCache(capacity);
+        this.maxEntrySize = maxEntrySize;
+        this.defaultAge = defaultAge;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * Constructs {@link CacheHandler} instance with given capacity, caching only responses
+     * with explicit freshness lifetime.
+     *
+     * @param capacity the maximum total size of cached responses, in bytes
+     */
+    public CacheHandler(long capacity) {
+        this(capacity, (int) Math.min(DEFAULT_MAX_ENTRY_SIZE, capacity / 2), 0);
+    }
+
+    private static String getPrimaryKey(HttpRequest request) {
+        var query = request.getQueryString();
+        var path = request.getRequestURI().getRawPath();
+        return query == null ? path : path + "?" + query;
+    }
+
+    private static String getKey(String primaryKey, String[] vary, HttpRequest request) {
+        var builder = new StringBuilder(primaryKey).append('\n');
+        var host = request.getHeader("Host");
+        if (host != null) {
+            builder.append(host.toLowerCase(Locale.ENGLISH));
+        }
+        if (vary == null) {
+            return builder.toString();
+        }
+        for (var name : vary) {
+            var value = request.getHeader(name);
+            builder.append('\n');
+            if (value != null) {
+                builder.append(value);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String[] parseVary(String header) {
+        if (header == null || header.isBlank()) {
+            return new String[0];
+        }
+        var ret = new ArrayList<String>();
+        for (var name : header.split(",")) {
+            name = name.trim();
+            if (name.equals("*")) {
+                return null;
+            }
+            if (!name.isEmpty()) {
+                ret.add(name);
+            }
+        }
+        return ret.toArray(new String[0]);
+    }
+
+    static boolean isLength(String header, int length) {
+        try {
+            return Long.parseLong(header.trim()) == length;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean isUnsafe(HttpRequest request) {
+        var method = request.getMethod();
+        return !HttpMethod.GET.equals(method)
+                && !HttpMethod.HEAD.equals(method)
+                && !HttpMethod.OPTIONS.equals(method)
+                && !HttpMethod.TRACE.equals(method);
+    }
+
+    /**
+     * Gets the number of requests served from the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of cacheable requests that were not found in the cache.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of responses evicted from the cache or rejected by the admission policy.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return cache.getEvictions();
+    }
+
+    /**
+     * Gets the approximate total size of cached responses.
+     *
+     * @return the number of bytes
+     */
+    public long getSize() {
+        return cache.size();
+    }
+
+    /**
+     * Gets the number of cached responses.
+     *
+     * @return the number of responses
+     */
+    public int getCount() {
+        return cache.count();
+    }
+
+    /**
+     * Invalidates all cached responses for the specified path and query.
+     *
+     * @param path the specified path with optional query, for example, '/api/items?page=2'
+     */
+    public void invalidate(String path) {
+        cache.invalidate(path);
+    }
+
+    /**
+     * Drops all cached responses.
+     */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    private void send(HttpContext context, CachedResponse cached, boolean head, long now) throws IOException {
+        var response = context.getResponse();
+        cached.sendHeaders(response);
+        response.setHeader("Age", String.valueOf(TimeUnit.NANOSECONDS.toSeconds(now - cached.created)));
+        var match = context.getRequest().getHeader("If-None-Match");
+        if (match != null && cached.etag != null && StaticHandler.matchesEtag(match, cached.etag)) {
+            response.setStatus(HttpCode.NOT_MODIFIED);
+            return;
+        }
+        cached.sendBody(response, head);
+    }
+
+    private void store(String primaryKey, HttpRequest request, CapturingResponse captured) {
+        var response = captured.getResponse();
+        var status = response.getStatus();
+        if (!CACHEABLE.contains(status.getCode())) {
+            return;
+        }
+        var control = CacheControl.parse(response.getHeader("Cache-Control"));
+        if (control.noStore || control.noCache || control.isPrivate) {
+            return;
+        }
+        if (request.containsHeader("Authorization") && !control.isPublic && control.sharedMaxAge < 0) {
+            return;
+        }
+        if (!response.getCookies().isEmpty() || response.containsHeader("Set-Cookie")) {
+            return;
+        }
+        var lifetime = control.getLifetime(defaultAge);
+        if (lifetime <= 0) {
+            return;
+        }
+        var vary = parseVary(response.getHeader("Vary"));
+        if (vary == null) {
+            return;
+        }
+        var body = captured.getBody();
+        if (body == null) {
+            return;
+        }
+        // The body may have been written past the wrapper, for example, to the servlet response
+        var length = response.getHeader("Content-Length");
+        if (length == null ? !captured.isOpened() && status != HttpCode.NO_CONTENT : !isLength(length, body.length)) {
+            return;
+        }
+        var now = System.nanoTime();
+        var cached = CachedResponse.of(
+                getKey(primaryKey, vary, request),
+                primaryKey,
+                response,
+                body,
+                now,
+                now + TimeUnit.SECONDS.toNanos(lifetime)
+        );
+        cache.put(cached, vary, now);
+    }
+
+    @Override
+    public void run(HttpContext context, Runnable1<HttpContext> next) throws Throwable {
+        var request = context.getRequest();
+        var method = request.getMethod();
+        var head = HttpMethod.HEAD.equals(method);
+        if (!head && !HttpMethod.GET.equals(method)) {
+            next.run(context);
+            if (isUnsafe(request) && context.getResponse().getStatus().getCode() < 400) {
+                cache.invalidate(getPrimaryKey(request));
+            }
+            return;
+        }
+        var control = CacheControl.parse(request.getHeader("Cache-Control"));
+        if (control.noStore) {
+            next.run(context);
+            return;
+        }
+        var primaryKey = getPrimaryKey(request);
+        if (!control.noCache) {
+            var vary = cache.getVary(primaryKey);
+            var now = System.nanoTime();
+            var cached = cache.get(getKey(primaryKey, vary, request), now);
+            if (cached != null) {
+                hits.increment();
+                send(context, cached, head, now);
+                return;
+            }
+        }
+        misses.increment();
+        if (head) {
+            next.run(context);
+            return;
+        }
+        var captured = new CapturingResponse(context.getResponse(), maxEntrySize);
+        next.run(new HttpContextWrapper(context, captured));
+        var servlet = context.getServletRequest();
+        if (servlet != null && servlet.isAsyncStarted()) {
+            return;
+        }
+        captured.finish();
+        store(primaryKey, request, captured);
+    }
+}
@@ -0,0 +1,130 @@
+package io.github.amayaframework.web;
+
+import io.github.amayaframework.context.HttpResponse;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.MimeData;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A class holding complete cached response: status, headers and body.
+ */
+final class CachedResponse {
+    private static final int OVERHEAD = 128;
+    private static final Set<String> SKIPPED = Set.of(
+            "connection", "keep-alive", "transfer-encoding", "upgrade", "content-length",
+            "date", "age", "set-cookie", "trailer", "proxy-authenticate"
+    );
+
+    final String key;
+    final String primaryKey;
+    final HttpCode status;
+    final MimeData mimeData;
+    final String[] headers;
+    final byte[] body;
+    final String etag;
+    final long created;
+    final long expires;
+
+    CachedResponse(String key,
+                   String primaryKey,
+                   HttpCode status,
+                   MimeData mimeData,
+                   String[] headers,
+                   byte[] body,
+                   String etag,
+                   long created,
+                   long expires) {
+        this.key = key;
+        this.primaryKey = primaryKey;
+        this.status = status;
+        this.mimeData = mimeData;
+        this.headers = headers;
+        this.body = body;
+        this.etag = etag;
+        this.created = created;
+        this.expires = expires;
+    }
+
+    /**
+     * Takes a snapshot of the response status and headers, except hop-by-hop ones.
+     *
+     * @param key        the cache key
+     * @param primaryKey the cache key without vary part
+     * @param response   the {@link HttpResponse} instance
+     * @param body       the captured response body
+     * @param created    the creation time, in nanoseconds
+     * @param expires    the expiration time, in nanoseconds
+     * @return the {@link CachedResponse} instance
+     */
+    static CachedResponse of(String key,
+                             String primaryKey,
+                             HttpResponse response,
+                             byte[] body,
+                             long created,
+                             long expires) {
+        var mimeData = response.getMimeData();
+        var headers = new ArrayList<String>();
+        for (var entry : response.getHeaders().entrySet()) {
+            var name = entry.getKey();
+            var lower = name.toLowerCase(Locale.ENGLISH);
+            // Content type is restored from mime data, if present
+            if (SKIPPED.contains(lower) || (mimeData != null && lower.equals("content-type"))) {
+                continue;
+            }
+            headers.add(name);
+            headers.add(entry.getValue());
+        }
+        return new CachedResponse(
+                key,
+                primaryKey,
+                response.getStatus(),
+                mimeData,
+                headers.toArray(new String[0]),
+                body,
+                response.getHeader("ETag"),
+                created,
+                expires
+        );
+    }
+
+    void sendHeaders(HttpResponse response) {
+        for (var i = 0; i < headers.length; i += 2) {
+            response.setHeader(headers[i], headers[i + 1]);
+        }
+    }
+
+    void sendBody(HttpResponse response, boolean head) throws IOException {
+        response.setStatus(status);
+        if (mimeData != null) {
+            response.setMimeData(mimeData);
+        }
+        if (status == HttpCode.NO_CONTENT) {
+            return;
+        }
+        response.setContentLength(body.length);
+        if (!head) {
+            response.getOutputStream().write(body);
+        }
+    }
+
+    /**
+     * Gets the approximate number of bytes this response occupies in the cache.
+     *
+     * @return the number of bytes
+     */
+    long weight() {
+        var ret = (long) OVERHEAD + body.length + key.length() * 2L;
+        for (var header : headers) {
+            ret += header.length() * 2L;
+        }
+        return ret;
+    }
+
+    boolean isExpired(long now) {
+        return now - expires >= 0;
+    }
+}
@@ -0,0 +1,33 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import com.github.romanqed.jfunc.Runnable2;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.http.HttpCode;
+
+/**
+ * A pipeline stage running the wrapped stage only if the request is not cancelled. Cancelled requests skip
+ * the rest of the pipeline; requests which exceeded their deadline are answered with a pre-encoded
+ * 504 Gateway Timeout response, unless the response is already sent.
+ */
+final class CancellableStage implements Runnable2<HttpContext, Runnable1<HttpContext>> {
+    static final RejectedResponse EXPIRED = new RejectedResponse(HttpCode.GATEWAY_TIMEOUT);
+
+    private final Runnable2<HttpContext, Runnable1<HttpContext>> stage;
+
+    CancellableStage(Runnable2<HttpContext, Runnable1<HttpContext>> stage) {
+        this.stage = stage;
+    }
+
+    @Override
+    public void run(HttpContext context, Runnable1<HttpContext> next) throws Throwable {
+        var token = context.getCancellation();
+        if (!token.isCancelled()) {
+            stage.run(context, next);
+            return;
+        }
+        if (token.isExpired()) {
+            EXPIRED.send(context.getResponse());
+        }
+    }
+}
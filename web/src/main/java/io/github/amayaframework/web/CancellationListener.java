@@ -0,0 +1,53 @@
+package io.github.amayaframework.web;
+
+import io.github.amayaframework.context.CancellationToken;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+
+/**
+ * Cancels the token of a request when its asynchronous processing fails or times out. Containers report
+ * the client closing the connection during asynchronous processing as an error.
+ */
+final class CancellationListener implements AsyncListener {
+    private final CancellationToken token;
+
+    private CancellationListener(CancellationToken token) {
+        this.token = token;
+    }
+
+    /**
+     * Registers the listener cancelling given token with given asynchronous context.
+     *
+     * @param async the {@link AsyncContext} of the request
+     * @param token the {@link CancellationToken} of the request
+     */
+    static void register(AsyncContext async, CancellationToken token) {
+        try {
+            async.addListener(new CancellationListener(token));
+        } catch (IllegalStateException e) {
+            // The async context is already completed, so there is nothing left to cancel
+        }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        // The request is answered, the token is left as is
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        token.cancel();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        token.cancel();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // Listeners are dropped when the processing is restarted, so the listener registers itself again
+        event.getAsyncContext().addListener(this);
+    }
+}
@@ -0,0 +1,208 @@
+package io.github.amayaframework.web;
+
+import io.github.amayaframework.context.HttpResponse;
+import io.github.amayaframework.context.HttpResponseWrapper;
+import io.github.amayaframework.http.HttpCode;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * A response wrapper that passes the body through to the wrapped response, keeping a copy of it
+ * while it fits in the specified limit. The copy is abandoned if the body is written in any other way
+ * than the output stream or writer of this wrapper.
+ */
+final class CapturingResponse extends HttpResponseWrapper {
+    private final int limit;
+    private CapturingStream stream;
+    private PrintWriter writer;
+    private byte[] buffer;
+    private int count;
+    private boolean opened;
+    private boolean abandoned;
+
+    CapturingResponse(HttpResponse response, int limit) {
+        super(response);
+        this.limit = limit;
+        this.buffer = new byte[Math.min(limit, 1024)];
+    }
+
+    private void capture(byte[] bytes, int offset, int length) {
+        if (abandoned) {
+            return;
+        }
+        var required = count + length;
+        if (required > limit || required < 0) {
+            abandon();
+            return;
+        }
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, (int) Math.min(limit, Math.max(required, buffer.length * 2L)));
+        }
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count = required;
+    }
+
+    private void abandon() {
+        abandoned = true;
+        buffer = null;
+    }
+
+    /**
+     * Flushes the characters buffered by the writer of this wrapper to the response.
+     */
+    void finish() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Gets the captured body. The writer must be flushed with {@link #finish()} before.
+     *
+     * @return the copy of the body or null if the body has not been captured
+     */
+    byte[] getBody() {
+        if (abandoned) {
+            return null;
+        }
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * Checks whether the body has been written through the output stream or writer of this wrapper.
+     * If not, the captured body is empty, but the actual one may have been written past the wrapper.
+     *
+     * @return true, if the output stream or writer has been obtained since the last reset
+     */
+    boolean isOpened() {
+        return opened;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        opened = true;
+        if (stream == null) {
+            stream = new CapturingStream(response.getOutputStream());
+        }
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), response.getCharset()), false);
+        }
+        return writer;
+    }
+
+    @Override
+    public CompletionStage<Void> write(Flow.Publisher<ByteBuffer> publisher,
+                                       Consumer<ByteBuffer> release) throws IOException {
+        abandon();
+        return response.write(publisher, release);
+    }
+
+    @Override
+    public CompletionStage<Void> write(Flow.Publisher<ByteBuffer> publisher) throws IOException {
+        abandon();
+        return response.write(publisher);
+    }
+
+    @Override
+    public void sendFile(Path file) throws IOException {
+        abandon();
+        response.sendFile(file);
+    }
+
+    @Override
+    public void sendError(HttpCode code, String message) throws IOException {
+        abandon();
+        response.sendError(code, message);
+    }
+
+    @Override
+    public void sendError(HttpCode code) throws IOException {
+        abandon();
+        response.sendError(code);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        abandon();
+        response.sendRedirect(location);
+    }
+
+    @Override
+    public void reset() {
+        response.reset();
+        writer = null;
+        stream = null;
+        opened = false;
+        if (!abandoned) {
+            count = 0;
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        response.resetBuffer();
+        writer = null;
+        stream = null;
+        opened = false;
+        if (!abandoned) {
+            count = 0;
+        }
+    }
+
+    private final class CapturingStream extends ServletOutputStream {
+        private final ServletOutputStream stream;
+
+        private CapturingStream(ServletOutputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            stream.write(b);
+            capture(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            stream.write(bytes, offset, length);
+            capture(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            stream.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return stream.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            // Non-blocking writes may outlive the pipeline, so the body cannot be captured
+            abandon();
+            stream.setWriteListener(listener);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import com.github.romanqed.jfunc.Runnable2;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.context.HttpContextWrapper;
+import io.github.amayaframework.context.HttpRequest;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pipeline stage coalescing identical concurrent GET requests (single-flight).
+ * <br>
+ * Requests are identical if they have the same method, host, path, query and values of the specified headers.
+ * Requests carrying credentials (Authorization or Cookie headers), conditional requests and range requests
+ * are never coalesced.
+ * The first of them becomes the leader and runs the downstream handlers, while its response body is captured.
+ * The requests arriving while the leader is running become followers: they do not run the downstream handlers,
+ * but receive a copy of the leader response. If the leader response cannot be shared (it is partial or not modified,
+ * sets cookies, is marked with 'private' or 'no-store' Cache-Control directives, is written asynchronously,
+ * its body is incomplete or exceeds the size limit), or the leader fails or does not finish
+ * within the wait limit, the follower runs the downstream handlers itself.
+ * <br>
+ * Followers wait without blocking if the servlet request supports asynchronous processing: the request is put into
+ * asynchronous mode and completed from the given executor once the leader response is ready. Handlers placed before
+ * this stage must tolerate the pipeline returning with an unfinished response in this case. If asynchronous
+ * processing is not supported, followers fall back to a blocking wait bounded by the same limit.
+ */
+public final class CoalescingHandler implements Runnable2<HttpContext, Runnable1<HttpContext>> {
+    /**
+     * The default maximum size of a shared response body, in bytes.
+     */
+    public static final int DEFAULT_MAX_BODY_SIZE = 1024 * 1024;
+
+    private static final String[] PERSONAL = {
+            "Authorization",
+            "Cookie",
+            "Range",
+            "If-Range",
+            "If-None-Match",
+            "If-Modified-Since",
+            "If-Match",
+            "If-Unmodified-Since"
+    };
+
+    private final ConcurrentMap<String, CompletableFuture<CachedResponse>> flights;
+    private final String[] headers;
+    private final long timeout;
+    private final int maxBodySize;
+    private final Executor executor;
+    private final LongAdder coalesced;
+    private final LongAdder timeouts;
+
+    /**
+     * Constructs {@link CoalescingHandler} instance with given parameters.
+     *
+     * @param headers     the names of headers distinguishing requests, must be non-null
+     * @param timeout     the maximum time the followers wait for the leader, in milliseconds
+     * @param maxBodySize the maximum size of a shared response body, in bytes
+     * @param executor    the {@link Executor} completing asynchronous followers, must be non-null
+     */
+    public CoalescingHandler(String[] headers, long timeout, int maxBodySize, Executor executor) {
+        if (timeout <= 0 || maxBodySize < 0) {
+            throw new IllegalArgumentException("Illegal coalescing limits");
+        }
+        this.flights = new ConcurrentHashMap<>();
+        this.headers = headers.clone();
+        this.timeout = timeout;
+        this.maxBodySize = maxBodySize;
+        this.executor = Objects.requireNonNull(executor);
+        this.coalesced = new LongAdder();
+        this.timeouts = new LongAdder();
+    }
+
+    /**
+     * Constructs {@link CoalescingHandler} instance with given headers, wait limit and executor
+     * and with default body size limit.
+     *
+     * @param headers  the names of headers distinguishing requests, must be non-null
+     * @param timeout  the maximum time the followers wait for the leader, in milliseconds
+     * @param executor the {@link Executor} completing asynchronous followers, must be non-null
+     */
+    public CoalescingHandler(String[] headers, long timeout, Executor executor) {
+        this(headers, timeout, DEFAULT_MAX_BODY_SIZE, executor);
+    }
+
+    /**
+     * Gets the number of requests served with a copy of the leader response.
+     *
+     * @return the number of coalesced requests
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Gets the number of followers that stopped waiting for the leader because of the wait limit.
+     *
+     * @return the number of timeouts
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    private String getKey(HttpRequest request) {
+        var host = request.getHeader("Host");
+        var builder = new StringBuilder(request.getMethod().toString())
+                .append(' ')
+                .append(host == null ? "" : host.toLowerCase(Locale.ENGLISH))
+                .append(request.getRequestURI().getRawPath());
+        var query = request.getQueryString();
+        if (query != null) {
+            builder.append('?').append(query);
+        }
+        for (var name : headers) {
+            var value = request.getHeader(name);
+            builder.append('\n');
+            if (value != null) {
+                builder.append(value);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isCoalescible(HttpRequest request) {
+        if (!HttpMethod.GET.equals(request.getMethod())) {
+            return false;
+        }
+        for (var name : PERSONAL) {
+            if (request.containsHeader(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isShareable(CapturingResponse captured, byte[] body) {
+        var response = captured.getResponse();
+        var status = response.getStatus();
+        // Only complete responses can replace the full response expected by followers
+        if (status == HttpCode.PARTIAL_CONTENT || status == HttpCode.NOT_MODIFIED) {
+            return false;
+        }
+        // The body may have been written past the wrapper, for example, to the servlet response
+        var length = response.getHeader("Content-Length");
+        if (length == null ? !captured.isOpened() && status != HttpCode.NO_CONTENT
+                : !CacheHandler.isLength(length, body.length)) {
+            return false;
+        }
+        if (!response.getCookies().isEmpty() || response.containsHeader("Set-Cookie")) {
+            return false;
+        }
+        var control = CacheControl.parse(response.getHeader("Cache-Control"));
+        return !control.isPrivate && !control.noStore;
+    }
+
+    private void lead(HttpContext context,
+                      Runnable1<HttpContext> next,
+                      String key,
+                      CompletableFuture<CachedResponse> flight) throws Throwable {
+        CachedResponse shared = null;
+        try {
+            var captured = new CapturingResponse(context.getResponse(), maxBodySize);
+            next.run(new HttpContextWrapper(context, captured));
+            var servlet = context.getServletRequest();
+            captured.finish();
+            var body = captured.getBody();
+            if (body != null
+                    && (servlet == null || !servlet.isAsyncStarted())
+                    && isShareable(captured, body)) {
+                shared = CachedResponse.of(key, key, captured.getResponse(), body, 0, 0);
+            }
+        } finally {
+            flights.remove(key, flight);
+            flight.complete(shared);
+        }
+    }
+
+    private void follow(HttpContext context,
+                        Runnable1<HttpContext> next,
+                        CompletableFuture<CachedResponse> flight) throws Throwable {
+        var servlet = context.getServletRequest();
+        if (servlet == null || !servlet.isAsyncSupported()) {
+            CachedResponse shared;
+            try {
+                shared = flight.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                timeouts.increment();
+                shared = null;
+            }
+            complete(context, next, shared);
+            return;
+        }
+        var async = servlet.isAsyncStarted() ? servlet.getAsyncContext() : servlet.startAsync();
+        async.setTimeout(0);
+        flight.copy()
+                .orTimeout(timeout, TimeUnit.MILLISECONDS)
+                .whenCompleteAsync((shared, e) -> {
+                    try {
+                        if (e != null) {
+                            timeouts.increment();
+                        }
+                        complete(context, next, shared);
+                        context.getResponse().getOutputStream().close();
+                    } catch (Throwable t) {
+                        fail(context);
+                    } finally {
+                        async.complete();
+                    }
+                }, executor);
+    }
+
+    static void fail(HttpContext context) {
+        var response = context.getResponse();
+        if (response.isSent()) {
+            return;
+        }
+        try {
+            response.sendError(HttpCode.INTERNAL_SERVER_ERROR);
+        } catch (IOException e) {
+            // Nothing can be sent, completing the async context releases the connection
+        }
+    }
+
+    private void complete(HttpContext context,
+                          Runnable1<HttpContext> next,
+                          CachedResponse shared) throws Throwable {
+        if (shared == null) {
+            next.run(context);
+            return;
+        }
+        coalesced.increment();
+        var response = context.getResponse();
+        shared.sendHeaders(response);
+        shared.sendBody(response, false);
+    }
+
+    @Override
+    public void run(HttpContext context, Runnable1<HttpContext> next) throws Throwable {
+        var request = context.getRequest();
+        // Responses to requests with credentials, conditions or ranges may differ from the full response
+        if (!isCoalescible(request)) {
+            next.run(context);
+            return;
+        }
+        var key = getKey(request);
+        var flight = new CompletableFuture<CachedResponse>();
+        var current = flights.putIfAbsent(key, flight);
+        if (current == null) {
+            lead(context, next, key, flight);
+        } else {
+            follow(context, next, current);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package io.github.amayaframework.web;
+
+import io.github.amayaframework.context.HttpResponse;
+import io.github.amayaframework.context.HttpResponseWrapper;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.MimeType;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * A response wrapper compressing the body written through its output stream or writer.
+ * <br>
+ * The first bytes of the body are buffered until the size threshold for the response content type is reached.
+ * If the whole body fits in the threshold, or the response turns out not to be compressible,
+ * it is sent as is, otherwise it is compressed with the negotiated {@link ContentCoding}.
+ */
+final class CompressedResponse extends HttpResponseWrapper {
+    private static final int BUFFERING = 0;
+    private static final int IDENTITY = 1;
+    private static final int COMPRESSING = 2;
+    private static final int FINISHED = 3;
+
+    private final ContentCoding coding;
+    private final int level;
+    private final int textThreshold;
+    private final int binaryThreshold;
+    private CompressingStream stream;
+    private PrintWriter writer;
+    private long length;
+    private boolean bypass;
+
+    CompressedResponse(HttpResponse response,
+                       ContentCoding coding,
+                       int level,
+                       int textThreshold,
+                       int binaryThreshold) {
+        super(response);
+        this.coding = coding;
+        this.level = level;
+        this.textThreshold = textThreshold;
+        this.binaryThreshold = binaryThreshold;
+        this.length = -1;
+    }
+
+    private MimeType getMimeType() {
+        var data = response.getMimeData();
+        if (data != null) {
+            return data.getType();
+        }
+        var header = response.getHeader("Content-Type");
+        if (header == null) {
+            return null;
+        }
+        var separator = header.indexOf(';');
+        return MimeType.of((separator < 0 ? header : header.substring(0, separator)).trim());
+    }
+
+    private int getThreshold() {
+        if (bypass) {
+            return -1;
+        }
+        var status = response.getStatus();
+        if (status == HttpCode.NO_CONTENT
+                || status == HttpCode.NOT_MODIFIED
+                || status == HttpCode.PARTIAL_CONTENT
+                || status.getCode() < 200) {
+            return -1;
+        }
+        if (response.containsHeader("Content-Encoding") || response.containsHeader("Content-Range")) {
+            return -1;
+        }
+        var control = response.getHeader("Cache-Control");
+        if (control != null && control.contains("no-transform")) {
+            return -1;
+        }
+        var type = getMimeType();
+        if (type == null) {
+            return binaryThreshold;
+        }
+        return Boolean.TRUE.equals(type.isText()) ? textThreshold : binaryThreshold;
+    }
+
+    private void startEncoding() {
+        response.setHeader("Content-Encoding", coding.name);
+        var vary = response.getHeader("Vary");
+        if (vary == null) {
+            response.setHeader("Vary", "Accept-Encoding");
+        } else if (!vary.contains("Accept-Encoding") && !vary.trim().equals("*")) {
+            response.setHeader("Vary", vary + ", Accept-Encoding");
+        }
+        // The compressed representation is not byte-identical to the original one
+        var etag = response.getHeader("ETag");
+        if (etag != null && !etag.startsWith("W/")) {
+            response.setHeader("ETag", "W/" + etag);
+        }
+    }
+
+    private CompressingStream getStream() {
+        if (stream == null) {
+            stream = new CompressingStream();
+        }
+        return stream;
+    }
+
+    /**
+     * Completes the response body, writing buffered data and compression trailer.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void finish() throws IOException {
+        if (stream == null) {
+            return;
+        }
+        // Flushing the writer must not commit the buffered part of the body
+        stream.closing = true;
+        if (writer != null) {
+            writer.flush();
+        }
+        stream.close();
+    }
+
+    /**
+     * Releases the resources held by this response without completing the body.
+     */
+    void abort() {
+        if (stream != null) {
+            stream.abort();
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return getStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getStream(), response.getCharset()), false);
+        }
+        return writer;
+    }
+
+    @Override
+    public CompletionStage<Void> write(Flow.Publisher<ByteBuffer> publisher,
+                                       Consumer<ByteBuffer> release) throws IOException {
+        startBypass();
+        return response.write(publisher, release);
+    }
+
+    @Override
+    public CompletionStage<Void> write(Flow.Publisher<ByteBuffer> publisher) throws IOException {
+        startBypass();
+        return response.write(publisher);
+    }
+
+    private void startBypass() {
+        if (stream != null && (stream.state != BUFFERING || stream.count > 0)) {
+            throw new IllegalStateException("Response body has already been written");
+        }
+        bypass = true;
+        if (length >= 0) {
+            response.setContentLength(length);
+        }
+    }
+
+    @Override
+    public void setContentLength(long length) {
+        if (bypass || (stream != null && stream.state == IDENTITY)) {
+            response.setContentLength(length);
+            return;
+        }
+        this.length = length;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length < 0 ? response.getContentLength() : length;
+    }
+
+    @Override
+    public void sendFile(Path file) throws IOException {
+        if (response.getMimeData() == null) {
+            var name = file.getFileName();
+            var type = name == null ? null : MimeType.ofFileName(name.toString());
+            response.setMimeType(type == null ? MimeType.OCTET_STREAM : type);
+        }
+        var size = Files.size(file);
+        if (stream == null || (stream.state == BUFFERING && stream.threshold == -2)) {
+            var threshold = getThreshold();
+            if (threshold < 0 || size < threshold) {
+                // The file is sent as is, so the wrapped response can transfer it without copying
+                bypass = true;
+                length = -1;
+                if (stream != null) {
+                    stream.state = FINISHED;
+                }
+                response.sendFile(file);
+                return;
+            }
+        }
+        setContentLength(size);
+        response.setHeader("Last-Modified", Files.getLastModifiedTime(file).toMillis());
+        Files.copy(file, getStream());
+    }
+
+    @Override
+    public void sendError(HttpCode code, String message) throws IOException {
+        discard();
+        response.sendError(code, message);
+    }
+
+    @Override
+    public void sendError(HttpCode code) throws IOException {
+        discard();
+        response.sendError(code);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        discard();
+        response.sendRedirect(location);
+    }
+
+    private void discard() {
+        bypass = true;
+        if (stream != null) {
+            stream.abort();
+            stream.state = FINISHED;
+        }
+    }
+
+    @Override
+    public void reset() {
+        response.reset();
+        if (stream != null) {
+            stream.abort();
+            stream = null;
+        }
+        writer = null;
+        length = -1;
+        bypass = false;
+    }
+
+    @Override
+    public void resetBuffer() {
+        response.resetBuffer();
+        if (stream != null) {
+            stream.abort();
+            stream = null;
+        }
+        writer = null;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stream != null) {
+            stream.flush();
+        }
+        response.flushBuffer();
+    }
+
+    @Override
+    public boolean isSent() {
+        return response.isSent() || (stream != null && stream.state != BUFFERING);
+    }
+
+    private final class CompressingStream extends ServletOutputStream {
+        private final byte[] single = new byte[1];
+        private ServletOutputStream target;
+        private Compressor compressor;
+        private byte[] buffer;
+        private int threshold;
+        private int count;
+        private int state;
+        private boolean closing;
+
+        private CompressingStream() {
+            this.threshold = -2;
+        }
+
+        private ServletOutputStream getTarget() throws IOException {
+            if (target == null) {
+                target = response.getOutputStream();
+            }
+            return target;
+        }
+
+        private void startIdentity(boolean complete) throws IOException {
+            state = IDENTITY;
+            if (length >= 0) {
+                response.setContentLength(length);
+            } else if (complete) {
+                response.setContentLength(count);
+            }
+            if (count > 0) {
+                getTarget().write(buffer, 0, count);
+            }
+            buffer = null;
+        }
+
+        private void startCompressing() throws IOException {
+            state = COMPRESSING;
+            startEncoding();
+            compressor = new Compressor(coding, level, getTarget());
+            if (count > 0) {
+                compressor.write(buffer, 0, count);
+            }
+            buffer = null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (state == BUFFERING) {
+                if (threshold == -2) {
+                    threshold = getThreshold();
+                    // Known small or non-compressible bodies are sent as is without buffering
+                    var declared = CompressedResponse.this.length;
+                    if (threshold < 0 || (declared >= 0 && declared < threshold)) {
+                        startIdentity(false);
+                    } else {
+                        buffer = new byte[threshold];
+                    }
+                }
+                if (state == BUFFERING && count + length <= threshold) {
+                    System.arraycopy(bytes, offset, buffer, count, length);
+                    count += length;
+                    return;
+                }
+                if (state == BUFFERING) {
+                    startCompressing();
+                }
+            }
+            if (state == COMPRESSING) {
+                compressor.write(bytes, offset, length);
+                return;
+            }
+            if (state == IDENTITY) {
+                getTarget().write(bytes, offset, length);
+                return;
+            }
+            throw new IOException("Stream closed");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (state == BUFFERING) {
+                if (count == 0 || closing) {
+                    return;
+                }
+                startIdentity(false);
+            }
+            if (state == COMPRESSING) {
+                compressor.flush();
+            } else if (state == IDENTITY) {
+                getTarget().flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (state == BUFFERING && threshold == -2) {
+                // Nothing has been written
+                if (CompressedResponse.this.length >= 0) {
+                    response.setContentLength(CompressedResponse.this.length);
+                }
+                state = FINISHED;
+                return;
+            }
+            if (state == BUFFERING) {
+                startIdentity(true);
+            }
+            if (state == COMPRESSING) {
+                compressor.finish();
+            }
+            state = FINISHED;
+        }
+
+        private void abort() {
+            if (compressor != null) {
+                compressor.release();
+            }
+            buffer = null;
+        }
+
+        @Override
+        public boolean isReady() {
+            return target == null || target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            try {
+                getTarget().setWriteListener(listener);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.amayaframework.web;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A disk store of precompressed static file variants. The variant of the file 'root/a/b.css'
+ * is stored as 'directory/a/b.css.gz'. The variant modification time is set equal to the source one,
+ * so stale variants are detected without any additional metadata. Variants are built by the background
+ * executor, never on the request thread.
+ */
+final class CompressedVariants {
+    private static final int BUFFER_SIZE = 65536;
+
+    private final Path root;
+    private final Path directory;
+    private final int level;
+    private final Set<Path> building;
+
+    CompressedVariants(Path root, Path directory, int level) {
+        this.root = root;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.level = level;
+        this.building = ConcurrentHashMap.newKeySet();
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    Path resolve(Path file, ContentCoding coding) {
+        return directory.resolve(root.relativize(file).toString() + coding.extension);
+    }
+
+    boolean isActual(Path variant, long lastModified) throws IOException {
+        try {
+            return Files.getLastModifiedTime(variant).toMillis() == lastModified;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Schedules building of the variant on the specified executor. If the same variant is already
+     * scheduled or being built, or the executor rejects the task, does nothing.
+     *
+     * @param executor     the executor building the variant
+     * @param source       the source file
+     * @param lastModified the source modification time
+     * @param variant      the variant file
+     * @param coding       the variant coding
+     */
+    void submit(Executor executor, Path source, long lastModified, Path variant, ContentCoding coding) {
+        if (!building.add(variant)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    build(source, lastModified, variant, coding);
+                } catch (IOException e) {
+                    // The source is served uncompressed until the next attempt
+                } finally {
+                    building.remove(variant);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            building.remove(variant);
+        }
+    }
+
+    /**
+     * Compresses the source file into the variant file.
+     *
+     * @param source       the source file
+     * @param lastModified the source modification time
+     * @param variant      the variant file
+     * @param coding       the variant coding
+     * @throws IOException if an I/O error occurs
+     */
+    void build(Path source, long lastModified, Path variant, ContentCoding coding) throws IOException {
+        Path temporary = null;
+        try {
+            var parent = variant.getParent();
+            Files.createDirectories(parent);
+            temporary = Files.createTempFile(parent, variant.getFileName().toString(), ".tmp");
+            try (var input = Files.newInputStream(source);
+                 var output = Files.newOutputStream(temporary)) {
+                var compressor = new Compressor(coding, level, output);
+                try {
+                    var buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((read = input.read(buffer)) >= 0) {
+                        compressor.write(buffer, 0, read);
+                    }
+                    compressor.finish();
+                } finally {
+                    compressor.release();
+                }
+            }
+            Files.setLastModifiedTime(temporary, FileTime.fromMillis(lastModified));
+            try {
+                Files.move(temporary, variant, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, variant, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (NoSuchFileException e) {
+            // The source has been removed
+        } finally {
+            if (temporary != null) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import com.github.romanqed.jfunc.Runnable2;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.context.HttpContextWrapper;
+import io.github.amayaframework.http.HttpMethod;
+
+import java.util.zip.Deflater;
+
+/**
+ * A pipeline stage compressing dynamic response bodies with gzip or deflate, negotiated by Accept-Encoding.
+ * <br>
+ * The downstream handlers receive a wrapped response whose output stream and writer compress the data on the fly
+ * with a {@link Deflater} taken from a per-thread pool. Bodies smaller than the threshold for their content type
+ * are sent as is: {@link io.github.amayaframework.http.MimeType#isText()} types use the text threshold,
+ * all others use the binary threshold. A negative threshold disables compression for the corresponding types.
+ * <br>
+ * Responses already having Content-Encoding or Content-Range headers, as well as 204, 206 and 304 responses,
+ * are never compressed, so the stage can be safely placed before {@link StaticHandler}.
+ * Bodies written with {@link io.github.amayaframework.context.Response#write(java.util.concurrent.Flow.Publisher)}
+ * or directly to the servlet response are not compressed either. Handlers that continue writing the body
+ * asynchronously after the pipeline returns must close the output stream to complete the compressed body.
+ */
+public final class CompressionHandler implements Runnable2<HttpContext, Runnable1<HttpContext>> {
+    /**
+     * The default minimal size of compressed text bodies, in bytes.
+     */
+    public static final int DEFAULT_TEXT_THRESHOLD = 1024;
+    /**
+     * The default minimal size of compressed non-text bodies, in bytes. Non-text bodies are not compressed.
+     */
+    public static final int DEFAULT_BINARY_THRESHOLD = -1;
+
+    private final int level;
+    private final int textThreshold;
+    private final int binaryThreshold;
+
+    /**
+     * Constructs {@link CompressionHandler} instance with given compression level and size thresholds.
+     *
+     * @param level           the compression level (0-9)
+     * @param textThreshold   the minimal size of compressed text bodies, negative to disable
+     * @param binaryThreshold the minimal size of compressed non-text bodies, negative to disable
+     */
+    public CompressionHandler(int level, int textThreshold, int binaryThreshold) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.level = level;
+        this.textThreshold = textThreshold;
+        this.binaryThreshold = binaryThreshold;
+    }
+
+    /**
+     * Constructs {@link CompressionHandler} instance with default compression level and size thresholds.
+     */
+    public CompressionHandler() {
+        this(Deflater.DEFAULT_COMPRESSION, DEFAULT_TEXT_THRESHOLD, DEFAULT_BINARY_THRESHOLD);
+    }
+
+    @Override
+    public void run(HttpContext context, Runnable1<HttpContext> next) throws Throwable {
+        var request = context.getRequest();
+        if (HttpMethod.HEAD.equals(request.getMethod())) {
+            next.run(context);
+            return;
+        }
+        var coding = ContentCoding.negotiate(request.getHeader("Accept-Encoding"));
+        if (coding == null) {
+            next.run(context);
+            return;
+        }
+        var response = new CompressedResponse(context.getResponse(), coding, level, textThreshold, binaryThreshold);
+        try {
+            next.run(new HttpContextWrapper(context, response));
+        } catch (Throwable e) {
+            response.abort();
+            throw e;
+        }
+        var servlet = context.getServletRequest();
+        if (servlet != null && servlet.isAsyncStarted()) {
+            return;
+        }
+        response.finish();
+    }
+}
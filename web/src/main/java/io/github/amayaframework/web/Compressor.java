@@ -0,0 +1,107 @@
+package io.github.amayaframework.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A streaming encoder producing gzip (rfc1952) or zlib-wrapped deflate (rfc1950) output
+ * with a pooled {@link Deflater}. The deflater is returned to the pool by {@link #finish()}
+ * or {@link #release()}.
+ */
+final class Compressor {
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] GZIP_HEADER = {
+            0x1f, (byte) 0x8b, // Magic number
+            Deflater.DEFLATED, // Compression method
+            0,                 // Flags
+            0, 0, 0, 0,        // Modification time
+            0,                 // Extra flags
+            (byte) 0xff        // Operating system (unknown)
+    };
+
+    private final ContentCoding coding;
+    private final OutputStream stream;
+    private final CRC32 crc;
+    private final byte[] buffer;
+    private Deflater deflater;
+
+    Compressor(ContentCoding coding, int level, OutputStream stream) throws IOException {
+        this.coding = coding;
+        this.stream = stream;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.deflater = DeflaterPool.acquire(coding, level);
+        if (coding == ContentCoding.GZIP) {
+            this.crc = new CRC32();
+            stream.write(GZIP_HEADER);
+        } else {
+            this.crc = null;
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        stream.write(value & 0xff);
+        stream.write((value >> 8) & 0xff);
+        stream.write((value >> 16) & 0xff);
+        stream.write((value >> 24) & 0xff);
+    }
+
+    private void deflate(int mode) throws IOException {
+        int length;
+        do {
+            length = deflater.deflate(buffer, 0, buffer.length, mode);
+            if (length > 0) {
+                stream.write(buffer, 0, length);
+            }
+        } while (length == buffer.length);
+    }
+
+    void write(byte[] bytes, int offset, int length) throws IOException {
+        if (deflater == null) {
+            throw new IOException("Compressor already finished");
+        }
+        if (length == 0) {
+            return;
+        }
+        if (crc != null) {
+            crc.update(bytes, offset, length);
+        }
+        deflater.setInput(bytes, offset, length);
+        while (!deflater.needsInput()) {
+            deflate(Deflater.NO_FLUSH);
+        }
+    }
+
+    void flush() throws IOException {
+        if (deflater == null) {
+            return;
+        }
+        deflate(Deflater.SYNC_FLUSH);
+        stream.flush();
+    }
+
+    void finish() throws IOException {
+        if (deflater == null) {
+            return;
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            var length = deflater.deflate(buffer);
+            stream.write(buffer, 0, length);
+        }
+        if (crc != null) {
+            writeInt((int) crc.getValue());
+            writeInt((int) deflater.getBytesRead());
+        }
+        release();
+    }
+
+    void release() {
+        if (deflater == null) {
+            return;
+        }
+        DeflaterPool.release(coding, deflater);
+        deflater = null;
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.amayaframework.web;
+
+/**
+ * An enumeration containing supported http content codings (see rfc9110, section 8.4.1).
+ */
+enum ContentCoding {
+    GZIP("gzip", ".gz"),
+    DEFLATE("deflate", ".deflate");
+
+    final String name;
+    final String extension;
+
+    ContentCoding(String name, String extension) {
+        this.name = name;
+        this.extension = extension;
+    }
+
+    private static float parseQuality(String value) {
+        try {
+            var ret = Float.parseFloat(value);
+            return ret < 0 || ret > 1 ? 0 : ret;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Selects the most preferred supported coding from the value of Accept-Encoding header.
+     * Gzip wins ties.
+     *
+     * @param header the specified header value, may be null
+     * @return the {@link ContentCoding} instance or null if none of supported codings is acceptable
+     */
+    static ContentCoding negotiate(String header) {
+        if (header == null || header.isEmpty()) {
+            return null;
+        }
+        var gzip = -1f;
+        var deflate = -1f;
+        var any = -1f;
+        var start = 0;
+        var length = header.length();
+        while (start < length) {
+            var end = header.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            var token = header.substring(start, end);
+            start = end + 1;
+            var quality = 1f;
+            var separator = token.indexOf(';');
+            if (separator >= 0) {
+                var parameter = token.substring(separator + 1).trim();
+                if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                    quality = parseQuality(parameter.substring(2).trim());
+                }
+                token = token.substring(0, separator);
+            }
+            token = token.trim();
+            if (token.equalsIgnoreCase("gzip") || token.equalsIgnoreCase("x-gzip")) {
+                gzip = quality;
+            } else if (token.equalsIgnoreCase("deflate")) {
+                deflate = quality;
+            } else if (token.equals("*")) {
+                any = quality;
+            }
+        }
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip <= 0 && deflate <= 0) {
+            return null;
+        }
+        return gzip >= deflate ? GZIP : DEFLATE;
+    }
+}
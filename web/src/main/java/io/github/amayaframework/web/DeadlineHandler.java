@@ -0,0 +1,119 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import com.github.romanqed.jfunc.Runnable2;
+import io.github.amayaframework.context.CancellationToken;
+import io.github.amayaframework.context.HttpContext;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pipeline stage setting the deadline of requests and connecting their {@link CancellationToken}
+ * to the transport.
+ * <br>
+ * The deadline is the closer of the configured timeout and the timeout sent by the client in the header,
+ * in milliseconds, so clients can shorten the deadline, but not extend it. Invalid header values are ignored.
+ * Requests which exceeded their deadline are answered with a pre-encoded 504 Gateway Timeout response once they
+ * reach the next stage, and the timeout of their asynchronous processing is shortened to the deadline.
+ * If the asynchronous processing fails, e.g. because the client has closed the connection, or times out,
+ * the token is cancelled.
+ * <br>
+ * The stage should be added first, so that the deadline also covers the other stages.
+ */
+public final class DeadlineHandler implements Runnable2<HttpContext, Runnable1<HttpContext>> {
+    /**
+     * The default name of the header containing the timeout of the request, in milliseconds.
+     */
+    public static final String DEFAULT_HEADER = "X-Request-Timeout";
+
+    private final Duration timeout;
+    private final String header;
+
+    /**
+     * Constructs {@link DeadlineHandler} instance with given timeout and header.
+     *
+     * @param timeout the timeout of requests, null for no timeout unless sent by the client
+     * @param header  the name of the header containing the timeout in milliseconds, null to ignore clients
+     */
+    public DeadlineHandler(Duration timeout, String header) {
+        if (timeout != null && timeout.isNegative()) {
+            throw new IllegalArgumentException("Illegal deadline timeout");
+        }
+        this.timeout = timeout;
+        this.header = header;
+    }
+
+    /**
+     * Constructs {@link DeadlineHandler} instance with given timeout and the default header.
+     *
+     * @param timeout the timeout of requests, null for no timeout unless sent by the client
+     */
+    public DeadlineHandler(Duration timeout) {
+        this(timeout, DEFAULT_HEADER);
+    }
+
+    /**
+     * Gets the timeout of requests.
+     *
+     * @return the {@link Duration} instance, or null if there is no timeout
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Gets the name of the header containing the timeout of the request.
+     *
+     * @return the header name, or null if clients cannot set the timeout
+     */
+    public String getHeader() {
+        return header;
+    }
+
+    private static Duration parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            var ret = Long.parseLong(value.trim());
+            return ret < 0 ? null : Duration.ofMillis(ret);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void run(HttpContext context, Runnable1<HttpContext> next) throws Throwable {
+        var token = context.getCancellation();
+        if (timeout != null) {
+            token.setTimeout(timeout);
+        }
+        if (header != null) {
+            var requested = parse(context.getRequest().getHeader(header));
+            if (requested != null) {
+                token.setTimeout(requested);
+            }
+        }
+        if (token.isCancelled()) {
+            if (token.isExpired()) {
+                CancellableStage.EXPIRED.send(context.getResponse());
+            }
+            return;
+        }
+        next.run(context);
+        var servlet = context.getServletRequest();
+        if (servlet == null || !servlet.isAsyncStarted()) {
+            return;
+        }
+        var async = servlet.getAsyncContext();
+        if (token.hasDeadline()) {
+            var remaining = Math.max(1, token.getRemaining(TimeUnit.MILLISECONDS));
+            var current = async.getTimeout();
+            if (current <= 0 || remaining < current) {
+                async.setTimeout(remaining);
+            }
+        }
+        CancellationListener.register(async, token);
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.amayaframework.web;
+
+import java.util.zip.Deflater;
+
+/**
+ * A per-thread pool of {@link Deflater} instances, holding one idle deflater per {@link ContentCoding}.
+ * Allocating a deflater is expensive because of its native state, so finished deflaters are reset
+ * and reused by the next response compressed on the same thread.
+ */
+final class DeflaterPool {
+    private static final ThreadLocal<Deflater[]> DEFLATERS = ThreadLocal.withInitial(
+            () -> new Deflater[ContentCoding.values().length]
+    );
+
+    private DeflaterPool() {
+    }
+
+    static Deflater acquire(ContentCoding coding, int level) {
+        var deflaters = DEFLATERS.get();
+        var index = coding.ordinal();
+        var ret = deflaters[index];
+        if (ret == null) {
+            // Gzip framing is written manually, so it needs raw deflate output
+            return new Deflater(level, coding == ContentCoding.GZIP);
+        }
+        deflaters[index] = null;
+        ret.setLevel(level);
+        return ret;
+    }
+
+    static void release(ContentCoding coding, Deflater deflater) {
+        var deflaters = DEFLATERS.get();
+        var index = coding.ordinal();
+        if (deflaters[index] != null) {
+            deflater.end();
+            return;
+        }
+        deflater.reset();
+        deflaters[index] = deflater;
+    }
+}
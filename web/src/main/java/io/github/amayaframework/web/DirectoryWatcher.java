@@ -0,0 +1,92 @@
+package io.github.amayaframework.web;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A task that watches the directory tree and invalidates the corresponding {@link FileCache} entries
+ * when files are created, modified or deleted.
+ */
+final class DirectoryWatcher implements Runnable {
+    private final FileCache cache;
+    private final WatchService service;
+    private final Map<WatchKey, Path> keys;
+
+    DirectoryWatcher(Path root, FileCache cache) throws IOException {
+        this.cache = cache;
+        this.service = root.getFileSystem().newWatchService();
+        this.keys = new HashMap<>();
+        try {
+            registerTree(root);
+        } catch (IOException e) {
+            service.close();
+            throw e;
+        }
+    }
+
+    private void registerTree(Path directory) throws IOException {
+        try (var stream = Files.walk(directory)) {
+            var iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                var path = iterator.next();
+                if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                    continue;
+                }
+                var key = path.register(service,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                keys.put(key, path);
+            }
+        }
+    }
+
+    private void handle(Path directory, WatchEvent<?> event) {
+        var kind = event.kind();
+        if (kind == StandardWatchEventKinds.OVERFLOW) {
+            cache.clear();
+            return;
+        }
+        var path = directory.resolve((Path) event.context());
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            cache.invalidateTree(path);
+            return;
+        }
+        cache.invalidate(path);
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            try {
+                registerTree(path);
+            } catch (IOException e) {
+                // Changes in the unregistered directory cannot be tracked, so drop everything
+                cache.clear();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            var directory = keys.get(key);
+            for (var event : key.pollEvents()) {
+                if (directory != null) {
+                    handle(directory, event);
+                }
+            }
+            if (!key.reset()) {
+                keys.remove(key);
+            }
+        }
+    }
+
+    void close() throws IOException {
+        service.close();
+    }
+}
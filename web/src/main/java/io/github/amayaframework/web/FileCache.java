@@ -0,0 +1,77 @@
+package io.github.amayaframework.web;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+
+/**
+ * A size-bounded cache of {@link StaticFile} instances with least-recently-used eviction.
+ * The bound applies to the total size of the cached file contents plus a fixed overhead per cached file.
+ * Every invalidation advances the cache generation, so a file loaded before the invalidation is not stored.
+ */
+final class FileCache {
+    private final LinkedHashMap<Path, StaticFile> files;
+    private final long capacity;
+    private long size;
+    private long generation;
+
+    FileCache(long capacity) {
+        this.files = new LinkedHashMap<>(16, 0.75f, true);
+        this.capacity = capacity;
+    }
+
+    synchronized StaticFile get(Path path) {
+        return files.get(path);
+    }
+
+    synchronized long generation() {
+        return generation;
+    }
+
+    synchronized void put(StaticFile file, long generation) {
+        var weight = file.weight();
+        if (weight > capacity || generation != this.generation) {
+            return;
+        }
+        var previous = files.put(file.path, file);
+        if (previous != null) {
+            size -= previous.weight();
+        }
+        size += weight;
+        var iterator = files.values().iterator();
+        while (size > capacity && iterator.hasNext()) {
+            var eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.weight();
+        }
+    }
+
+    synchronized void invalidate(Path path) {
+        ++generation;
+        var removed = files.remove(path);
+        if (removed != null) {
+            size -= removed.weight();
+        }
+    }
+
+    synchronized void invalidateTree(Path path) {
+        ++generation;
+        var iterator = files.values().iterator();
+        while (iterator.hasNext()) {
+            var file = iterator.next();
+            if (file.path.startsWith(path)) {
+                iterator.remove();
+                size -= file.weight();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        ++generation;
+        files.clear();
+        size = 0;
+    }
+
+    synchronized long size() {
+        return size;
+    }
+}
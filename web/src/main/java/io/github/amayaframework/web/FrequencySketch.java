@@ -0,0 +1,75 @@
+package io.github.amayaframework.web;
+
+/**
+ * A count-min sketch estimating the popularity of keys with 4-bit counters, as used by TinyLFU admission policy.
+ * Each table element packs 16 counters; every key maps to 4 counters from different elements.
+ * When the number of increments reaches the sample size, all counters are halved, so the estimates
+ * reflect the recent history.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(int capacity) {
+        var length = Integer.highestOneBit(Math.max(capacity, 64) - 1) << 1;
+        this.table = new long[length];
+        this.mask = length - 1;
+        this.sampleSize = 10 * length;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+
+    private int indexOf(int hash, int depth) {
+        var ret = (hash + SEEDS[depth]) * SEEDS[depth];
+        ret += ret >>> 32;
+        return ((int) ret) & mask;
+    }
+
+    int frequency(Object key) {
+        var hash = spread(key.hashCode());
+        var start = (hash & 3) << 2;
+        var ret = Integer.MAX_VALUE;
+        for (var i = 0; i < 4; ++i) {
+            var index = indexOf(hash, i);
+            var count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            ret = Math.min(ret, count);
+        }
+        return ret;
+    }
+
+    void increment(Object key) {
+        var hash = spread(key.hashCode());
+        var start = (hash & 3) << 2;
+        var added = false;
+        for (var i = 0; i < 4; ++i) {
+            var index = indexOf(hash, i);
+            var offset = (start + i) << 2;
+            var counter = 0xfL << offset;
+            if ((table[index] & counter) != counter) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (var i = 0; i < table.length; ++i) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size /= 2;
+    }
+}
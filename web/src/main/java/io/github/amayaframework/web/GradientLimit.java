@@ -0,0 +1,113 @@
+package io.github.amayaframework.web;
+
+/**
+ * A gradient {@link LimitAlgorithm} comparing the short-term latency with the long-term one.
+ * <br>
+ * The long-term latency is an exponential moving average of the window latencies. Each window the limit is
+ * multiplied by the gradient {@code tolerance * longRtt / shortRtt}, clamped to [0.5, 1], and a queue allowance
+ * of {@code sqrt(limit)} is added, so the limit grows while the latency does not rise and shrinks as soon as
+ * it does. While the limit is used, a rising latency is absorbed into the average much slower, as it is likely
+ * caused by the queue the limit itself allows, so the limit does not drift up under sustained load, but still
+ * follows a downstream which became slower for good. When the latency falls well below the long-term one,
+ * the average is pulled down faster, so that the algorithm recovers after a latency spike. Windows in which less
+ * than half of the limit was used do not change the limit.
+ */
+public final class GradientLimit implements LimitAlgorithm {
+    /**
+     * The default initial limit.
+     */
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+    /**
+     * The default maximum limit.
+     */
+    public static final int DEFAULT_MAX_LIMIT = 1000;
+    /**
+     * The default ratio of the latency increase tolerated without decreasing the limit.
+     */
+    public static final double DEFAULT_TOLERANCE = 1.5;
+    /**
+     * The default number of windows averaged in the long-term latency.
+     */
+    public static final int DEFAULT_LONG_WINDOW = 600;
+    private static final double RISE_DAMPING = 30;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double tolerance;
+    private final int longWindow;
+    private double limit;
+    private double longRtt;
+    private int windows;
+
+    /**
+     * Constructs {@link GradientLimit} instance with given parameters.
+     *
+     * @param initialLimit the initial limit
+     * @param minLimit     the minimum limit, must be positive
+     * @param maxLimit     the maximum limit, must not be less than the minimum limit
+     * @param smoothing    the weight of the new estimation, from 0 exclusive to 1 inclusive
+     * @param tolerance    the ratio of the latency increase tolerated without decreasing the limit, at least 1
+     * @param longWindow   the number of windows averaged in the long-term latency, must be positive
+     */
+    public GradientLimit(int initialLimit,
+                         int minLimit,
+                         int maxLimit,
+                         double smoothing,
+                         double tolerance,
+                         int longWindow) {
+        if (minLimit <= 0
+                || maxLimit < minLimit
+                || !(smoothing > 0 && smoothing <= 1)
+                || !(tolerance >= 1)
+                || longWindow <= 0) {
+            throw new IllegalArgumentException("Illegal gradient parameters");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.tolerance = tolerance;
+        this.longWindow = longWindow;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Constructs {@link GradientLimit} instance with the default parameters.
+     */
+    public GradientLimit() {
+        this(DEFAULT_INITIAL_LIMIT, 1, DEFAULT_MAX_LIMIT, 0.2, DEFAULT_TOLERANCE, DEFAULT_LONG_WINDOW);
+    }
+
+    @Override
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    @Override
+    public int update(long minRtt, long meanRtt, int maxInFlight, boolean dropped) {
+        if (meanRtt <= 0) {
+            return (int) limit;
+        }
+        var shortRtt = (double) meanRtt;
+        if (windows < longWindow) {
+            ++windows;
+        }
+        var factor = 2.0 / (windows + 1);
+        if (shortRtt > longRtt && maxInFlight * 2 >= limit) {
+            // The latency may have risen because of the queue built by the limit itself
+            factor /= RISE_DAMPING;
+        }
+        longRtt = longRtt == 0 ? shortRtt : longRtt * (1 - factor) + shortRtt * factor;
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        if (!dropped && maxInFlight * 2 < limit) {
+            return (int) limit;
+        }
+        var gradient = dropped ? 0.5 : Math.max(0.5, Math.min(1, tolerance * longRtt / shortRtt));
+        var next = limit * gradient + Math.sqrt(limit);
+        next = limit * (1 - smoothing) + next * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+        return (int) limit;
+    }
+}
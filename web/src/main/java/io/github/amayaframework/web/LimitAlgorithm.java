@@ -0,0 +1,28 @@
+package io.github.amayaframework.web;
+
+/**
+ * An interface describing an algorithm estimating the concurrency limit from observed latencies.
+ * <br>
+ * The algorithm is fed with the samples aggregated over a window by {@link AdaptiveLimiter}.
+ * Windows are processed by one thread at a time, so implementations need not be thread-safe.
+ */
+public interface LimitAlgorithm {
+
+    /**
+     * Gets the current limit.
+     *
+     * @return the number of requests allowed to be processed at once
+     */
+    int getLimit();
+
+    /**
+     * Updates the limit with the samples of a finished window.
+     *
+     * @param minRtt      the minimum round-trip time of the window, in nanoseconds
+     * @param meanRtt     the mean round-trip time of the window, in nanoseconds
+     * @param maxInFlight the maximum number of requests processed at once during the window
+     * @param dropped     true, if any request of the window failed or was answered with a server error
+     * @return the new limit
+     */
+    int update(long minRtt, long meanRtt, int maxInFlight, boolean dropped);
+}
@@ -0,0 +1,171 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import com.github.romanqed.jfunc.Runnable2;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.http.HttpCode;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A pipeline stage limiting the rate of requests per key with token buckets.
+ * <br>
+ * Each key, e.g. the client address, header value or path prefix extracted with {@link RequestKeys},
+ * has a bucket of the burst size refilled at the configured rate. A request takes one token, and requests
+ * finding their bucket empty are rejected with a pre-encoded 429 Too Many Requests response having
+ * the Retry-After header, without running the downstream handlers.
+ * <br>
+ * Checking a bucket takes no locks and is a single atomic add on the bucket in the common case, so requests
+ * of the same key do not spin on contention. Idle buckets are refilled lazily on their next request
+ * and evicted after the idle timeout.
+ * <br>
+ * Requests without a key share the keyless bucket, and requests with new keys once the maximum number of keys
+ * is reached share the overflow bucket. Both have their own rate and burst, the per-key ones by default,
+ * which should usually be raised, as each of them serves many clients. As the keys are taken from the request,
+ * clients controlling them, e.g. by sending arbitrary header values, can pass with new keys until the maximum
+ * is reached, and then compete for the overflow bucket only.
+ */
+public final class RateLimitHandler implements Runnable2<HttpContext, Runnable1<HttpContext>> {
+    /**
+     * The default maximum number of keys with their own bucket.
+     */
+    public static final int DEFAULT_MAX_KEYS = 65536;
+    /**
+     * The default time a full bucket is kept, in milliseconds.
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT = 60000;
+
+    private final Function<HttpContext, String> key;
+    private final TokenBuckets buckets;
+    private final RejectedResponse rejected;
+    private final LongAdder allowed;
+    private final LongAdder rejections;
+
+    /**
+     * Constructs {@link RateLimitHandler} instance with given limits.
+     *
+     * @param rate        the number of requests per second allowed for each key, must be positive
+     * @param burst       the number of requests allowed for each key at once, must be positive
+     * @param key         the key extractor, must be non-null
+     * @param maxKeys     the maximum number of keys with their own bucket, must be positive
+     * @param idleTimeout the time a full bucket is kept, in milliseconds, must be non-negative
+     * @param sharedRate  the number of requests per second allowed for the keyless requests, and separately
+     *                    for the keys over the maximum, must be positive
+     * @param sharedBurst the number of requests allowed for the keyless requests at once, and separately
+     *                    for the keys over the maximum, must be positive
+     */
+    public RateLimitHandler(double rate,
+                            int burst,
+                            Function<HttpContext, String> key,
+                            int maxKeys,
+                            long idleTimeout,
+                            double sharedRate,
+                            int sharedBurst) {
+        if (!isRate(rate) || burst <= 0 || maxKeys <= 0 || idleTimeout < 0 || !isRate(sharedRate) || sharedBurst <= 0) {
+            throw new IllegalArgumentException("Illegal rate limits");
+        }
+        this.key = Objects.requireNonNull(key);
+        this.buckets = new TokenBuckets(
+                toInterval(rate),
+                burst,
+                TimeUnit.MILLISECONDS.toNanos(idleTimeout),
+                maxKeys,
+                toInterval(sharedRate),
+                sharedBurst
+        );
+        // The rejected request may belong to either bucket, so the longer of the token intervals is advised
+        var retryAfter = Math.max(1, (long) Math.ceil(1 / Math.min(rate, sharedRate)));
+        this.rejected = new RejectedResponse(HttpCode.TOO_MANY_REQUESTS, "Retry-After", Long.toString(retryAfter));
+        this.allowed = new LongAdder();
+        this.rejections = new LongAdder();
+    }
+
+    /**
+     * Constructs {@link RateLimitHandler} instance with given limits. The keyless requests, and separately
+     * the keys over the maximum, are allowed the same rate and burst as each key.
+     *
+     * @param rate        the number of requests per second allowed for each key, must be positive
+     * @param burst       the number of requests allowed for each key at once, must be positive
+     * @param key         the key extractor, must be non-null
+     * @param maxKeys     the maximum number of keys with their own bucket, must be positive
+     * @param idleTimeout the time a full bucket is kept, in milliseconds, must be non-negative
+     */
+    public RateLimitHandler(double rate,
+                            int burst,
+                            Function<HttpContext, String> key,
+                            int maxKeys,
+                            long idleTimeout) {
+        this(rate, burst, key, maxKeys, idleTimeout, rate, burst);
+    }
+
+    /**
+     * Constructs {@link RateLimitHandler} instance with given limits,
+     * the default maximum number of keys and the default idle timeout.
+     *
+     * @param rate  the number of requests per second allowed for each key, must be positive
+     * @param burst the number of requests allowed for each key at once, must be positive
+     * @param key   the key extractor, must be non-null
+     */
+    public RateLimitHandler(double rate, int burst, Function<HttpContext, String> key) {
+        this(rate, burst, key, DEFAULT_MAX_KEYS, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Constructs {@link RateLimitHandler} instance with given limits per client address.
+     *
+     * @param rate  the number of requests per second allowed for each client, must be positive
+     * @param burst the number of requests allowed for each client at once, must be positive
+     */
+    public RateLimitHandler(double rate, int burst) {
+        this(rate, burst, RequestKeys.remoteAddress());
+    }
+
+    private static boolean isRate(double rate) {
+        return rate > 0 && !Double.isInfinite(rate);
+    }
+
+    private static long toInterval(double rate) {
+        return Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+    }
+
+    /**
+     * Gets the number of allowed requests.
+     *
+     * @return the number of allowed requests
+     */
+    public long getAllowed() {
+        return allowed.sum();
+    }
+
+    /**
+     * Gets the number of requests rejected because their bucket was empty.
+     *
+     * @return the number of rejected requests
+     */
+    public long getRejected() {
+        return rejections.sum();
+    }
+
+    /**
+     * Gets the number of buckets currently kept.
+     *
+     * @return the number of keys with their own bucket
+     */
+    public int getKeys() {
+        return buckets.size();
+    }
+
+    @Override
+    public void run(HttpContext context, Runnable1<HttpContext> next) throws Throwable {
+        if (!buckets.tryAcquire(key.apply(context))) {
+            rejections.increment();
+            rejected.send(context.getResponse());
+            return;
+        }
+        allowed.increment();
+        next.run(context);
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.amayaframework.web;
+
+import io.github.amayaframework.context.HttpResponse;
+import io.github.amayaframework.http.HttpCode;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A pre-encoded response sent by the stages rejecting requests. The header values and the body are built once,
+ * so rejecting a request under overload costs no formatting.
+ */
+final class RejectedResponse {
+    private static final String CONTENT_TYPE = "text/plain;charset=UTF-8";
+
+    private final HttpCode code;
+    private final String[] headers;
+    private final byte[] body;
+
+    /**
+     * Constructs {@link RejectedResponse} instance with given status and headers.
+     *
+     * @param code    the status of the response, its description is used as the body
+     * @param headers the header names and values, alternating
+     */
+    RejectedResponse(HttpCode code, String... headers) {
+        if (headers.length % 2 != 0) {
+            throw new IllegalArgumentException("Headers must be name-value pairs");
+        }
+        this.code = code;
+        this.headers = headers.clone();
+        this.body = (code.getCode() + " " + code.getDescription()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    HttpCode getCode() {
+        return code;
+    }
+
+    /**
+     * Sends this response, unless the response is already sent.
+     *
+     * @param response the {@link HttpResponse} to send to
+     * @throws IOException if any problems occurred during sending
+     */
+    void send(HttpResponse response) throws IOException {
+        if (response.isSent()) {
+            return;
+        }
+        response.setStatus(code);
+        for (var i = 0; i < headers.length; i += 2) {
+            response.setHeader(headers[i], headers[i + 1]);
+        }
+        response.setHeader("Content-Type", CONTENT_TYPE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.amayaframework.web;
+
+import io.github.amayaframework.context.HttpContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs an action once the request has been processed: at once if the pipeline finished it synchronously,
+ * or when its asynchronous processing completes, fails or times out.
+ */
+final class RequestCompletion implements AsyncListener {
+    private final AtomicBoolean done;
+    private final Runnable action;
+
+    private RequestCompletion(Runnable action) {
+        this.done = new AtomicBoolean();
+        this.action = action;
+    }
+
+    /**
+     * Runs given action when the request of the context is completed. Must be called after the downstream
+     * handlers returned.
+     *
+     * @param context the {@link HttpContext} of the request
+     * @param action  the action to be run exactly once
+     */
+    static void whenComplete(HttpContext context, Runnable action) {
+        var servlet = context.getServletRequest();
+        if (servlet == null || !servlet.isAsyncStarted()) {
+            action.run();
+            return;
+        }
+        try {
+            servlet.getAsyncContext().addListener(new RequestCompletion(action));
+        } catch (IllegalStateException e) {
+            // The async context is already completed
+            action.run();
+        }
+    }
+
+    private void fire() {
+        if (done.compareAndSet(false, true)) {
+            action.run();
+        }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        fire();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        fire();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        fire();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // Listeners are dropped when the processing is restarted, so the listener registers itself again
+        event.getAsyncContext().addListener(this);
+    }
+}
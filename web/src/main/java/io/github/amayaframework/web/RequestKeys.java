@@ -0,0 +1,66 @@
+package io.github.amayaframework.web;
+
+import io.github.amayaframework.context.HttpContext;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A utility class containing the common extractors of request keys used by per-key pipeline stages.
+ */
+public final class RequestKeys {
+    private RequestKeys() {
+    }
+
+    /**
+     * Creates the extractor returning the address of the client or the last proxy, without resolving it.
+     *
+     * @return the {@link Function} instance
+     */
+    public static Function<HttpContext, String> remoteAddress() {
+        return context -> context.getServletRequest().getRemoteAddr();
+    }
+
+    /**
+     * Creates the extractor returning the value of the given request header, or null if there is no such header.
+     *
+     * @param name the header name, must be non-null
+     * @return the {@link Function} instance
+     */
+    public static Function<HttpContext, String> header(String name) {
+        Objects.requireNonNull(name);
+        return context -> context.getRequest().getHeader(name);
+    }
+
+    /**
+     * Creates the extractor returning the request path.
+     *
+     * @return the {@link Function} instance
+     */
+    public static Function<HttpContext, String> path() {
+        return context -> context.getRequest().getPath();
+    }
+
+    /**
+     * Creates the extractor returning the given number of the leading request path segments.
+     * For example, with depth 2 both /api/users/1 and /api/users/2 give /api/users.
+     * Unlike {@link #path()}, it keeps the number of keys bounded for routes with path parameters.
+     *
+     * @param depth the number of segments, must be positive
+     * @return the {@link Function} instance
+     */
+    public static Function<HttpContext, String> pathPrefix(int depth) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("Illegal path depth: " + depth);
+        }
+        return context -> {
+            var segments = context.getRequest().getPathSegments();
+            var count = Math.min(depth, segments.size());
+            var builder = new StringBuilder();
+            for (var i = 0; i < count; ++i) {
+                builder.append('/').append(segments.get(i));
+            }
+            return count == 0 ? "/" : builder.toString();
+        };
+    }
+}
@@ -0,0 +1,189 @@
+package io.github.amayaframework.web;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A byte-bounded store of {@link CachedResponse} instances with W-TinyLFU-style eviction.
+ * <br>
+ * New responses enter a small LRU admission window. Responses evicted from the window compete with
+ * the least-recently-used responses of the main region: a candidate is admitted only if its estimated
+ * popularity is higher than the popularity of every victim, so one-off responses cannot flush popular ones.
+ * The victims are evicted only if the candidate is admitted, expired responses met on the way are dropped.
+ */
+final class ResponseCache {
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<String, CachedResponse> window;
+    private final LinkedHashMap<String, CachedResponse> main;
+    private final Map<String, Set<String>> index;
+    private final Map<String, String[]> varies;
+    private final long windowCapacity;
+    private final long mainCapacity;
+    private final LongAdder evictions;
+    private long windowSize;
+    private long mainSize;
+
+    ResponseCache(long capacity) {
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = capacity - windowCapacity;
+        // Assume about 4 KiB per response to size the sketch
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, capacity / 4096));
+        this.window = new LinkedHashMap<>(16, 0.75f, true);
+        this.main = new LinkedHashMap<>(16, 0.75f, true);
+        this.index = new HashMap<>();
+        this.varies = new HashMap<>();
+        this.evictions = new LongAdder();
+    }
+
+    private void unlink(CachedResponse response) {
+        var keys = index.get(response.primaryKey);
+        if (keys == null) {
+            return;
+        }
+        keys.remove(response.key);
+        if (keys.isEmpty()) {
+            index.remove(response.primaryKey);
+            varies.remove(response.primaryKey);
+        }
+    }
+
+    private void link(CachedResponse response) {
+        index.computeIfAbsent(response.primaryKey, k -> new HashSet<>()).add(response.key);
+    }
+
+    private CachedResponse removeEntry(String key) {
+        var ret = window.remove(key);
+        if (ret != null) {
+            windowSize -= ret.weight();
+            return ret;
+        }
+        ret = main.remove(key);
+        if (ret != null) {
+            mainSize -= ret.weight();
+        }
+        return ret;
+    }
+
+    private void reject(CachedResponse candidate) {
+        unlink(candidate);
+        evictions.increment();
+    }
+
+    private void admit(CachedResponse candidate, long now) {
+        var weight = candidate.weight();
+        if (weight > mainCapacity || candidate.isExpired(now)) {
+            reject(candidate);
+            return;
+        }
+        var frequency = sketch.frequency(candidate.key);
+        var victims = new ArrayList<CachedResponse>();
+        var freed = 0L;
+        var iterator = main.values().iterator();
+        while (mainSize - freed + weight > mainCapacity && iterator.hasNext()) {
+            var victim = iterator.next();
+            // Expired responses are dropped regardless of the outcome, they cannot be served anyway
+            if (victim.isExpired(now)) {
+                iterator.remove();
+                mainSize -= victim.weight();
+                unlink(victim);
+                continue;
+            }
+            if (frequency <= sketch.frequency(victim.key)) {
+                reject(candidate);
+                return;
+            }
+            victims.add(victim);
+            freed += victim.weight();
+        }
+        // The victims are evicted only once the candidate has won against all of them
+        for (var victim : victims) {
+            main.remove(victim.key);
+            mainSize -= victim.weight();
+            unlink(victim);
+            evictions.increment();
+        }
+        main.put(candidate.key, candidate);
+        mainSize += weight;
+    }
+
+    synchronized String[] getVary(String primaryKey) {
+        return varies.get(primaryKey);
+    }
+
+    synchronized CachedResponse get(String key, long now) {
+        sketch.increment(key);
+        var ret = window.get(key);
+        if (ret == null) {
+            ret = main.get(key);
+        }
+        if (ret == null) {
+            return null;
+        }
+        if (ret.isExpired(now)) {
+            removeEntry(key);
+            unlink(ret);
+            return null;
+        }
+        return ret;
+    }
+
+    synchronized void put(CachedResponse response, String[] vary, long now) {
+        sketch.increment(response.key);
+        var previous = removeEntry(response.key);
+        if (previous != null) {
+            unlink(previous);
+        }
+        var weight = response.weight();
+        if (weight > mainCapacity) {
+            return;
+        }
+        varies.put(response.primaryKey, vary);
+        link(response);
+        window.put(response.key, response);
+        windowSize += weight;
+        var iterator = window.values().iterator();
+        while (windowSize > windowCapacity && iterator.hasNext()) {
+            var candidate = iterator.next();
+            iterator.remove();
+            windowSize -= candidate.weight();
+            admit(candidate, now);
+        }
+    }
+
+    synchronized void invalidate(String primaryKey) {
+        var keys = index.remove(primaryKey);
+        varies.remove(primaryKey);
+        if (keys == null) {
+            return;
+        }
+        for (var key : keys) {
+            removeEntry(key);
+        }
+    }
+
+    synchronized void clear() {
+        window.clear();
+        main.clear();
+        index.clear();
+        varies.clear();
+        windowSize = 0;
+        mainSize = 0;
+    }
+
+    synchronized long size() {
+        return windowSize + mainSize;
+    }
+
+    synchronized int count() {
+        return window.size() + main.size();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.amayaframework.web;
+
+import io.github.amayaframework.http.MimeType;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * A class holding cached static file: its content and precomputed headers.
+ */
+final class StaticFile {
+    /**
+     * The number of bytes every cached file is accounted for in addition to its mapped content,
+     * approximating the entry itself and its precomputed headers.
+     */
+    static final long OVERHEAD = 256;
+
+    final Path path;
+    final ByteBuffer content;
+    final long size;
+    final long lastModified;
+    final String lastModifiedHeader;
+    final String etag;
+    final MimeType type;
+    final String contentType;
+
+    StaticFile(Path path,
+               ByteBuffer content,
+               long size,
+               long lastModified,
+               String lastModifiedHeader,
+               String etag,
+               MimeType type,
+               String contentType) {
+        this.path = path;
+        this.content = content;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.lastModifiedHeader = lastModifiedHeader;
+        this.etag = etag;
+        this.type = type;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Gets the number of bytes this file occupies in the cache. Unmapped files still weigh the
+     * {@link #OVERHEAD}, so their number is bounded by the cache capacity too.
+     *
+     * @return the number of bytes
+     */
+    long weight() {
+        return content == null ? OVERHEAD : OVERHEAD + size;
+    }
+
+    /**
+     * Creates an independent view of the requested part of the file content.
+     *
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     * @return the {@link ByteBuffer} instance
+     */
+    ByteBuffer slice(long offset, long length) {
+        var ret = content.duplicate();
+        ret.position((int) offset);
+        ret.limit((int) (offset + length));
+        return ret;
+    }
+}
@@ -0,0 +1,595 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import com.github.romanqed.jfunc.Runnable2;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.context.HttpRequest;
+import io.github.amayaframework.context.HttpResponse;
+import io.github.amayaframework.environment.Environment;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.http.MimeType;
+import io.github.amayaframework.service.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * A pipeline stage serving static files from the specified directory.
+ * <br>
+ * Files are kept in a size-bounded LRU cache of memory-mapped buffers together with precomputed
+ * ETag and Last-Modified values, so conditional requests (If-None-Match, If-Modified-Since) are answered
+ * without touching the disk. Single and multiple byte ranges are supported: overlapping ranges are merged
+ * and headers with too many ranges are ignored. Files larger than the mapping limit are cached without content
+ * and sent with {@link HttpResponse#sendFile(Path)}.
+ * <br>
+ * The handler is also a {@link Service}: while started, it watches the directory tree and invalidates
+ * changed files. Without it the cached files are never refreshed, so the handler should be added both
+ * to the application pipeline and to the application {@link io.github.amayaframework.service.ServiceManager}.
+ * <br>
+ * If the directory for compressed variants is specified, text files are also served precompressed
+ * according to Accept-Encoding: gzip and deflate variants are built once per file version, stored on disk
+ * and cached the same way as the original files. Variants are built by a background thread of the started handler:
+ * for existing files at start, for new and changed ones after the first request. Until the variant is ready,
+ * the file is served uncompressed.
+ * <br>
+ * Requests for other methods than GET and HEAD, for paths outside the prefix and for missing files
+ * are passed to the next handler.
+ */
+public final class StaticHandler implements Runnable2<HttpContext, Runnable1<HttpContext>>, Service {
+    /**
+     * The default total size of cached file contents, in bytes.
+     */
+    public static final long DEFAULT_CACHE_SIZE = 64L * 1024 * 1024;
+    /**
+     * The default size of the largest file to be memory-mapped, in bytes.
+     */
+    public static final long DEFAULT_MAX_MAPPED_SIZE = 8L * 1024 * 1024;
+    /**
+     * The default name of the directory containing compressed file variants, relative to the environment root.
+     */
+    public static final String VARIANT_DIRECTORY = ".compressed";
+    private static final long MIN_VARIANT_SIZE = 1024;
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.ENGLISH)
+            .withZone(ZoneOffset.UTC);
+    private static final int TRANSFER_SIZE = 65536;
+    private static final ThreadLocal<byte[]> TRANSFER_BUFFER = ThreadLocal.withInitial(() -> new byte[TRANSFER_SIZE]);
+
+    private final Path root;
+    private final String prefix;
+    private final long maxMappedSize;
+    private final FileCache cache;
+    private final CompressedVariants variants;
+    private final String boundary;
+    private final Object lock;
+    private DirectoryWatcher watcher;
+    private Thread thread;
+    private volatile ExecutorService compressor;
+
+    /**
+     * Constructs {@link StaticHandler} instance serving given directory under given path prefix.
+     *
+     * @param root          the specified directory containing static files, must be non-null
+     * @param prefix        the specified path prefix, for example, '/static', must be non-null
+     * @param cacheSize     the maximum total size of cached files, in bytes
+     * @param maxMappedSize the size of the largest file to be memory-mapped, in bytes
+     * @param variants      the directory for compressed file variants, null to disable precompression
+     */
+    public StaticHandler(Path root, String prefix, long cacheSize, long maxMappedSize, Path variants) {
+        if (cacheSize < 0 || maxMappedSize < 0 || maxMappedSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Illegal cache size limits");
+        }
+        this.root = root.toAbsolutePath().normalize();
+        this.prefix = normalizePrefix(Objects.requireNonNull(prefix));
+        this.maxMappedSize = maxMappedSize;
+        this.cache = new FileCache(cacheSize);
+        this.variants = variants == null
+                ? null
+                : new CompressedVariants(this.root, variants, Deflater.BEST_COMPRESSION);
+        this.boundary = UUID.randomUUID().toString().replace("-", "");
+        this.lock = new Object();
+    }
+
+    /**
+     * Constructs {@link StaticHandler} instance serving given directory under given path prefix
+     * without precompression.
+     *
+     * @param root          the specified directory containing static files, must be non-null
+     * @param prefix        the specified path prefix, for example, '/static', must be non-null
+     * @param cacheSize     the maximum total size of cached files, in bytes
+     * @param maxMappedSize the size of the largest file to be memory-mapped, in bytes
+     */
+    public StaticHandler(Path root, String prefix, long cacheSize, long maxMappedSize) {
+        this(root, prefix, cacheSize, maxMappedSize, null);
+    }
+
+    /**
+     * Constructs {@link StaticHandler} instance serving given directory under given path prefix
+     * with default cache limits and without precompression.
+     *
+     * @param root   the specified directory containing static files, must be non-null
+     * @param prefix the specified path prefix, for example, '/static', must be non-null
+     */
+    public StaticHandler(Path root, String prefix) {
+        this(root, prefix, DEFAULT_CACHE_SIZE, DEFAULT_MAX_MAPPED_SIZE);
+    }
+
+    /**
+     * Constructs {@link StaticHandler} instance serving given directory, resolved against the environment root,
+     * under given path prefix with default cache limits. Compressed variants are stored
+     * in the {@link #VARIANT_DIRECTORY} directory of the environment root.
+     *
+     * @param environment the specified {@link Environment} instance, must be non-null
+     * @param directory   the specified directory name relative to the environment root, must be non-null
+     * @param prefix      the specified path prefix, for example, '/static', must be non-null
+     */
+    public StaticHandler(Environment environment, String directory, String prefix) {
+        this(environment.getRoot().resolve(directory),
+                prefix,
+                DEFAULT_CACHE_SIZE,
+                DEFAULT_MAX_MAPPED_SIZE,
+                environment.getRoot().resolve(VARIANT_DIRECTORY));
+    }
+
+    private static String normalizePrefix(String prefix) {
+        var end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == '/') {
+            --end;
+        }
+        return prefix.substring(0, end);
+    }
+
+    static boolean matchesEtag(String header, String etag) {
+        if (header.trim().equals("*")) {
+            return true;
+        }
+        for (var tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long getDate(HttpRequest request, String name) {
+        try {
+            var date = request.getDateHeader(name);
+            return date == null ? -1 : date.getTime();
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static void write(OutputStream stream, ByteBuffer buffer) throws IOException {
+        var chunk = TRANSFER_BUFFER.get();
+        while (buffer.hasRemaining()) {
+            var length = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, length);
+            stream.write(chunk, 0, length);
+        }
+    }
+
+    private static void write(OutputStream stream, FileChannel channel, long offset, long length) throws IOException {
+        var chunk = TRANSFER_BUFFER.get();
+        var wrapped = ByteBuffer.wrap(chunk);
+        while (length > 0) {
+            wrapped.clear();
+            if (length < chunk.length) {
+                wrapped.limit((int) length);
+            }
+            var read = channel.read(wrapped, offset);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            stream.write(chunk, 0, read);
+            offset += read;
+            length -= read;
+        }
+    }
+
+    /**
+     * Gets the path to the directory served by this handler.
+     *
+     * @return the {@link Path} instance
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Gets the total size of currently cached files, including the fixed overhead of each file.
+     *
+     * @return the number of bytes
+     */
+    public long getCachedSize() {
+        return cache.size();
+    }
+
+    /**
+     * Drops all cached files.
+     */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    private Path resolve(String path) {
+        if (!path.startsWith(prefix)) {
+            return null;
+        }
+        var length = prefix.length();
+        if (path.length() > length && path.charAt(length) != '/') {
+            return null;
+        }
+        while (length < path.length() && path.charAt(length) == '/') {
+            ++length;
+        }
+        if (length == path.length()) {
+            return null;
+        }
+        try {
+            var ret = root.resolve(path.substring(length)).normalize();
+            if (!ret.startsWith(root)) {
+                return null;
+            }
+            return variants != null && ret.startsWith(variants.getDirectory()) ? null : ret;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private static boolean isSameVersion(BasicFileAttributes first, BasicFileAttributes second) {
+        return first.size() == second.size()
+                && first.lastModifiedTime().equals(second.lastModifiedTime())
+                && Objects.equals(first.fileKey(), second.fileKey());
+    }
+
+    private StaticFile load(Path path, MimeType type, String etag) throws IOException {
+        var generation = cache.generation();
+        try {
+            var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            var size = attributes.size();
+            var modified = attributes.lastModifiedTime().toMillis();
+            ByteBuffer content;
+            try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                content = size <= maxMappedSize ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+            }
+            if (etag == null) {
+                etag = "\"" + Long.toHexString(size) + "-" + Long.toHexString(modified) + "\"";
+            }
+            var ret = new StaticFile(
+                    path,
+                    content,
+                    size,
+                    modified,
+                    HTTP_DATE.format(Instant.ofEpochMilli(modified)),
+                    etag,
+                    type,
+                    "Content-Type: " + type.getQualifier() + "\r\n"
+            );
+            // The file may have been replaced while it was loaded, such a version is served once but not cached
+            if (isSameVersion(attributes, Files.readAttributes(path, BasicFileAttributes.class))) {
+                cache.put(ret, generation);
+            }
+            return ret;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private StaticFile lookup(HttpRequest request) throws IOException {
+        var path = resolve(request.getRequestURI().getPath());
+        if (path == null) {
+            return null;
+        }
+        var ret = cache.get(path);
+        if (ret != null) {
+            return ret;
+        }
+        var type = MimeType.ofFileName(path.getFileName().toString());
+        return load(path, type == null ? MimeType.OCTET_STREAM : type, null);
+    }
+
+    private StaticFile lookupVariant(StaticFile file, ContentCoding coding) throws IOException {
+        var path = variants.resolve(file.path, coding);
+        var ret = cache.get(path);
+        if (ret == null || ret.lastModified != file.lastModified) {
+            if (!variants.isActual(path, file.lastModified)) {
+                var executor = compressor;
+                if (executor != null) {
+                    variants.submit(executor, file.path, file.lastModified, path, coding);
+                }
+                return null;
+            }
+            var etag = file.etag.substring(0, file.etag.length() - 1) + "-" + coding.name + "\"";
+            ret = load(path, file.type, etag);
+        }
+        // Incompressible content is not worth sending encoded
+        return ret == null || ret.lastModified != file.lastModified || ret.size >= file.size ? null : ret;
+    }
+
+    private boolean isCompressible(StaticFile file) {
+        return variants != null && file.size >= MIN_VARIANT_SIZE && Boolean.TRUE.equals(file.type.isText());
+    }
+
+    private void prebuild(Executor executor) {
+        try (var paths = Files.walk(root)) {
+            var iterator = paths.iterator();
+            while (!Thread.currentThread().isInterrupted()) {
+                Path path;
+                BasicFileAttributes attributes;
+                try {
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+                    path = iterator.next();
+                    if (path.startsWith(variants.getDirectory())) {
+                        continue;
+                    }
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    // The file was removed after it was listed
+                    continue;
+                } catch (UncheckedIOException e) {
+                    // The walk goes on with the next entry if a listed one was removed
+                    if (e.getCause() instanceof NoSuchFileException) {
+                        continue;
+                    }
+                    throw e;
+                }
+                var type = MimeType.ofFileName(path.getFileName().toString());
+                if (!attributes.isRegularFile()
+                        || attributes.size() < MIN_VARIANT_SIZE
+                        || type == null
+                        || !Boolean.TRUE.equals(type.isText())) {
+                    continue;
+                }
+                var modified = attributes.lastModifiedTime().toMillis();
+                for (var coding : ContentCoding.values()) {
+                    var variant = variants.resolve(path, coding);
+                    if (!variants.isActual(variant, modified)) {
+                        variants.submit(executor, path, modified, variant, coding);
+                    }
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // The remaining variants are built on the first request
+        }
+    }
+
+    private boolean isNotModified(HttpRequest request, StaticFile file) {
+        var match = request.getHeader("If-None-Match");
+        if (match != null) {
+            return matchesEtag(match, file.etag);
+        }
+        var since = getDate(request, "If-Modified-Since");
+        return since >= 0 && file.lastModified / 1000 <= since / 1000;
+    }
+
+    private boolean isRangeApplicable(HttpRequest request, StaticFile file) {
+        var condition = request.getHeader("If-Range");
+        if (condition == null) {
+            return true;
+        }
+        condition = condition.trim();
+        if (condition.startsWith("\"") || condition.startsWith("W/")) {
+            return condition.equals(file.etag);
+        }
+        var date = getDate(request, "If-Range");
+        return date >= 0 && file.lastModified / 1000 == date / 1000;
+    }
+
+    private void writeContent(HttpResponse response, StaticFile file, List<ByteRange> ranges) throws IOException {
+        var stream = response.getOutputStream();
+        if (file.content != null) {
+            for (var range : ranges) {
+                write(stream, file.slice(range.start, range.length()));
+            }
+            return;
+        }
+        try (var channel = FileChannel.open(file.path, StandardOpenOption.READ)) {
+            for (var range : ranges) {
+                write(stream, channel, range.start, range.length());
+            }
+        }
+    }
+
+    private void sendRange(HttpResponse response, StaticFile file, ByteRange range, boolean head) throws IOException {
+        response.setStatus(HttpCode.PARTIAL_CONTENT);
+        response.setHeader("Content-Range", range.toContentRange(file.size));
+        response.setMimeType(file.type);
+        response.setContentLength(range.length());
+        if (!head) {
+            writeContent(response, file, List.of(range));
+        }
+    }
+
+    private void sendRanges(HttpResponse response,
+                            StaticFile file,
+                            List<ByteRange> ranges,
+                            boolean head) throws IOException {
+        var headers = new byte[ranges.size()][];
+        var length = 0L;
+        for (var i = 0; i < headers.length; ++i) {
+            var range = ranges.get(i);
+            var header = "\r\n--" + boundary + "\r\n"
+                    + file.contentType
+                    + "Content-Range: " + range.toContentRange(file.size) + "\r\n\r\n";
+            headers[i] = header.getBytes(StandardCharsets.ISO_8859_1);
+            length += headers[i].length + range.length();
+        }
+        var end = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        length += end.length;
+        response.setStatus(HttpCode.PARTIAL_CONTENT);
+        response.setHeader("Content-Type", "multipart/byteranges; boundary=" + boundary);
+        response.setContentLength(length);
+        if (head) {
+            return;
+        }
+        var stream = response.getOutputStream();
+        for (var i = 0; i < headers.length; ++i) {
+            stream.write(headers[i]);
+            writeContent(response, file, List.of(ranges.get(i)));
+        }
+        stream.write(end);
+    }
+
+    private void serveVariant(HttpContext context,
+                              StaticFile variant,
+                              ContentCoding coding,
+                              boolean head) throws IOException {
+        var response = context.getResponse();
+        response.setHeader("ETag", variant.etag);
+        response.setHeader("Last-Modified", variant.lastModifiedHeader);
+        if (isNotModified(context.getRequest(), variant)) {
+            response.setStatus(HttpCode.NOT_MODIFIED);
+            return;
+        }
+        response.setHeader("Content-Encoding", coding.name);
+        response.setStatus(HttpCode.OK);
+        response.setMimeType(variant.type);
+        if (head) {
+            response.setContentLength(variant.size);
+            return;
+        }
+        if (variant.content == null) {
+            response.sendFile(variant.path);
+            return;
+        }
+        response.setContentLength(variant.size);
+        write(response.getOutputStream(), variant.slice(0, variant.size));
+    }
+
+    private void serve(HttpContext context, StaticFile file, boolean head) throws IOException {
+        var request = context.getRequest();
+        var response = context.getResponse();
+        if (isCompressible(file)) {
+            response.setHeader("Vary", "Accept-Encoding");
+            var coding = ContentCoding.negotiate(request.getHeader("Accept-Encoding"));
+            // Ranges are always served from the identity representation
+            var variant = coding == null || request.getHeader("Range") != null ? null : lookupVariant(file, coding);
+            if (variant != null) {
+                serveVariant(context, variant, coding, head);
+                return;
+            }
+        }
+        response.setHeader("ETag", file.etag);
+        response.setHeader("Last-Modified", file.lastModifiedHeader);
+        response.setHeader("Accept-Ranges", "bytes");
+        if (isNotModified(request, file)) {
+            response.setStatus(HttpCode.NOT_MODIFIED);
+            return;
+        }
+        var header = request.getHeader("Range");
+        if (header != null && isRangeApplicable(request, file)) {
+            var ranges = ByteRange.parse(header, file.size);
+            if (ranges != null && ranges.isEmpty()) {
+                response.setStatus(HttpCode.RANGE_NOT_SATISFIABLE);
+                response.setHeader("Content-Range", "bytes */" + file.size);
+                return;
+            }
+            if (ranges != null && ranges.size() == 1) {
+                sendRange(response, file, ranges.get(0), head);
+                return;
+            }
+            if (ranges != null) {
+                sendRanges(response, file, ranges, head);
+                return;
+            }
+        }
+        response.setStatus(HttpCode.OK);
+        response.setMimeType(file.type);
+        if (head) {
+            response.setContentLength(file.size);
+            return;
+        }
+        if (file.content == null) {
+            response.sendFile(file.path);
+            return;
+        }
+        response.setContentLength(file.size);
+        write(response.getOutputStream(), file.slice(0, file.size));
+    }
+
+    @Override
+    public void run(HttpContext context, Runnable1<HttpContext> next) throws Throwable {
+        var method = context.getRequest().getMethod();
+        var head = HttpMethod.HEAD.equals(method);
+        if (!head && !HttpMethod.GET.equals(method)) {
+            next.run(context);
+            return;
+        }
+        var file = lookup(context.getRequest());
+        if (file == null) {
+            next.run(context);
+            return;
+        }
+        serve(context, file, head);
+    }
+
+    @Override
+    public void start() throws IOException {
+        synchronized (lock) {
+            if (watcher != null) {
+                throw new IllegalStateException("Static handler already started");
+            }
+            watcher = new DirectoryWatcher(root, cache);
+            thread = new Thread(watcher, "static-watcher");
+            thread.setDaemon(true);
+            thread.start();
+            if (variants != null) {
+                var executor = Executors.newSingleThreadExecutor(task -> {
+                    var ret = new Thread(task, "static-compressor");
+                    ret.setDaemon(true);
+                    return ret;
+                });
+                executor.execute(() -> prebuild(executor));
+                compressor = executor;
+            }
+        }
+    }
+
+    @Override
+    public void stop() throws IOException, InterruptedException {
+        synchronized (lock) {
+            if (watcher == null) {
+                throw new IllegalStateException("Static handler already stopped");
+            }
+            watcher.close();
+            thread.join();
+            watcher = null;
+            thread = null;
+            if (compressor != null) {
+                compressor.shutdownNow();
+                compressor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                compressor = null;
+            }
+            cache.clear();
+        }
+    }
+}
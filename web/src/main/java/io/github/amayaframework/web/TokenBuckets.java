@@ -0,0 +1,137 @@
+package io.github.amayaframework.web;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A striped table of token buckets.
+ * <br>
+ * Each bucket is a single {@link AtomicLong} holding the time at which it becomes full again (the theoretical
+ * arrival time of the generic cell rate algorithm). Taking a token is one fetch-and-add of the token interval,
+ * and a rejected request returns it with another one, so requests of the same key do not retry on contention.
+ * Only a bucket that was refilled since its last request moves its schedule up to the current time with
+ * compare-and-set, which is the lazy refill; the retries stop as soon as any request has moved it.
+ * Buckets full for longer than the idle timeout are evicted by a sweep of their stripe, performed by one
+ * of the requests hitting the stripe once per idle timeout. As a full bucket is indistinguishable from a new one,
+ * eviction does not change the limits.
+ * <br>
+ * Requests without a key and requests with new keys once the maximum is reached are not mixed: each of these
+ * groups has its own bucket with its own rate and burst, so that requests of one group cannot exhaust the other.
+ */
+final class TokenBuckets {
+    private final long interval;
+    private final long capacity;
+    private final long idle;
+    private final int maxPerStripe;
+    private final Stripe[] stripes;
+    private final long sharedInterval;
+    private final long sharedCapacity;
+    private final AtomicLong keyless;
+    private final AtomicLong overflow;
+
+    /**
+     * Constructs {@link TokenBuckets} instance.
+     *
+     * @param interval       the time in which one token is refilled, in nanoseconds
+     * @param burst          the number of tokens in a full bucket
+     * @param idle           the time a bucket stays full before it is evicted, in nanoseconds
+     * @param maxKeys        the maximum number of buckets
+     * @param sharedInterval the time in which one token of the keyless and the overflow buckets is refilled,
+     *                       in nanoseconds
+     * @param sharedBurst    the number of tokens in the full keyless and overflow buckets
+     */
+    TokenBuckets(long interval, int burst, long idle, int maxKeys, long sharedInterval, int sharedBurst) {
+        this.interval = interval;
+        this.capacity = interval * burst;
+        this.idle = idle;
+        var count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1;
+        this.maxPerStripe = Math.max(1, maxKeys / count);
+        this.stripes = new Stripe[count];
+        var now = System.nanoTime();
+        for (var i = 0; i < count; ++i) {
+            stripes[i] = new Stripe(now + idle);
+        }
+        this.sharedInterval = sharedInterval;
+        this.sharedCapacity = sharedInterval * sharedBurst;
+        this.keyless = new AtomicLong(now);
+        this.overflow = new AtomicLong(now);
+    }
+
+    private AtomicLong find(String key, long now) {
+        var hash = key.hashCode();
+        var stripe = stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+        var next = stripe.sweep.get();
+        if (now - next >= 0 && stripe.sweep.compareAndSet(next, now + idle)) {
+            var cutoff = now - idle;
+            stripe.buckets.values().removeIf(bucket -> bucket.get() - cutoff < 0);
+        }
+        var ret = stripe.buckets.get(key);
+        if (ret != null) {
+            return ret;
+        }
+        if (stripe.buckets.size() >= maxPerStripe) {
+            return null;
+        }
+        return stripe.buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    /**
+     * Tries to take a token from the bucket of the given key.
+     *
+     * @param key the key of the bucket, null for the keyless bucket
+     * @return true, if a token was taken, false if the bucket is empty
+     */
+    boolean tryAcquire(String key) {
+        var now = System.nanoTime();
+        if (key == null) {
+            return take(keyless, now, sharedInterval, sharedCapacity);
+        }
+        var bucket = find(key, now);
+        if (bucket == null) {
+            // Keys over the maximum share one bucket, so that they cannot exhaust the memory
+            return take(overflow, now, sharedInterval, sharedCapacity);
+        }
+        return take(bucket, now, interval, capacity);
+    }
+
+    private static boolean take(AtomicLong bucket, long now, long interval, long capacity) {
+        var prev = bucket.getAndAdd(interval);
+        if (prev - now < 0) {
+            // The bucket was refilled, so the schedule catches up with the clock, keeping the tokens taken since
+            var current = prev + interval;
+            while (current - now < 0 && !bucket.compareAndSet(current, now + current - prev)) {
+                current = bucket.get();
+            }
+            return true;
+        }
+        if (prev + interval - now <= capacity) {
+            return true;
+        }
+        bucket.getAndAdd(-interval);
+        return false;
+    }
+
+    /**
+     * Gets the number of buckets, not counting the keyless and the overflow ones.
+     *
+     * @return the number of buckets
+     */
+    int size() {
+        var ret = 0;
+        for (var stripe : stripes) {
+            ret += stripe.buckets.size();
+        }
+        return ret;
+    }
+
+    private static final class Stripe {
+        private final ConcurrentMap<String, AtomicLong> buckets;
+        private final AtomicLong sweep;
+
+        private Stripe(long sweep) {
+            this.buckets = new ConcurrentHashMap<>();
+            this.sweep = new AtomicLong(sweep);
+        }
+    }
+}
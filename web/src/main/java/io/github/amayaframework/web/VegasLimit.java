@@ -0,0 +1,108 @@
+package io.github.amayaframework.web;
+
+/**
+ * A {@link LimitAlgorithm} in the style of TCP Vegas congestion control.
+ * <br>
+ * The algorithm keeps the lowest round-trip time observed as the no-load latency and estimates the number
+ * of queued requests as {@code limit * (1 - noLoadRtt / rtt)}. The limit grows quickly while the queue
+ * is nearly empty, grows slowly while it is short and shrinks once it is long, with thresholds proportional
+ * to {@code log10(limit)}. The no-load latency is re-measured periodically with the limit halved for one window,
+ * so the limit follows changes of the downstream latency. Windows in which less than half of the limit was used
+ * do not change it.
+ */
+public final class VegasLimit implements LimitAlgorithm {
+    /**
+     * The default initial limit.
+     */
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+    /**
+     * The default maximum limit.
+     */
+    public static final int DEFAULT_MAX_LIMIT = 1000;
+    /**
+     * The default number of windows after which the no-load latency is re-measured.
+     */
+    public static final int DEFAULT_PROBE_INTERVAL = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final int probeInterval;
+    private double limit;
+    private long noLoadRtt;
+    private int windows;
+
+    /**
+     * Constructs {@link VegasLimit} instance with given parameters.
+     *
+     * @param initialLimit  the initial limit
+     * @param minLimit      the minimum limit, must be positive
+     * @param maxLimit      the maximum limit, must not be less than the minimum limit
+     * @param smoothing     the weight of the new estimation, from 0 exclusive to 1 inclusive
+     * @param probeInterval the number of windows after which the no-load latency is re-measured, must be positive
+     */
+    public VegasLimit(int initialLimit, int minLimit, int maxLimit, double smoothing, int probeInterval) {
+        if (minLimit <= 0 || maxLimit < minLimit || !(smoothing > 0 && smoothing <= 1) || probeInterval <= 0) {
+            throw new IllegalArgumentException("Illegal Vegas parameters");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.probeInterval = probeInterval;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Constructs {@link VegasLimit} instance with the default parameters.
+     */
+    public VegasLimit() {
+        this(DEFAULT_INITIAL_LIMIT, 1, DEFAULT_MAX_LIMIT, 1, DEFAULT_PROBE_INTERVAL);
+    }
+
+    @Override
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    private double estimate(long rtt, int maxInFlight, boolean dropped) {
+        var log = Math.max(1, Math.log10(limit));
+        if (dropped) {
+            return limit - log;
+        }
+        if (maxInFlight * 2 < limit) {
+            return limit;
+        }
+        var queue = Math.ceil(limit * (1 - (double) noLoadRtt / rtt));
+        if (queue <= log) {
+            return limit + 6 * log;
+        }
+        if (queue < 3 * log) {
+            return limit + log;
+        }
+        if (queue > 6 * log) {
+            return limit - log;
+        }
+        return limit;
+    }
+
+    @Override
+    public int update(long minRtt, long meanRtt, int maxInFlight, boolean dropped) {
+        if (minRtt <= 0) {
+            return (int) limit;
+        }
+        if (++windows == probeInterval) {
+            // Forget the old baseline and halve the limit, so that the queue drains
+            // and the next window measures the latency of a slower downstream without it
+            windows = 0;
+            noLoadRtt = 0;
+            limit = Math.max(minLimit, limit / 2);
+            return (int) limit;
+        }
+        if (noLoadRtt == 0 || minRtt < noLoadRtt) {
+            noLoadRtt = minRtt;
+        }
+        var next = limit * (1 - smoothing) + estimate(minRtt, maxInFlight, dropped) * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+        return (int) limit;
+    }
+}
@@ -34,6 +34,15 @@ public interface WebApplication extends Application<HttpContext> {
      */
     void bind(int port);
 
+    /**
+     * Enables the cancellation of requests: the handlers added after this call are not run if the request
+     * is cancelled, see {@link io.github.amayaframework.context.CancellationToken}. Adding {@link DeadlineHandler}
+     * enables it for the handlers added after it as well. By default, throws {@link UnsupportedOperationException}.
+     */
+    default void enableCancellation() {
+        throw new UnsupportedOperationException("Cancellation is not supported by this application");
+    }
+
     @Override
     void addHandler(Runnable2<HttpContext, Runnable1<HttpContext>> handler);
 
@@ -12,6 +12,8 @@ module io.github.amayaframework.web {
     requires io.github.amayaframework.server;
     requires io.github.amayaframework.application;
     requires io.github.amayaframework.context;
+    requires io.github.amayaframework.http;
+    requires jakarta.servlet;
     // Optional imports
     requires static io.github.amayaframework.di;
     // Exports
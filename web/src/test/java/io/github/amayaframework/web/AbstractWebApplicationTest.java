@@ -0,0 +1,103 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import com.github.romanqed.jfunc.Runnable2;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.di.ServiceProvider;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.server.LoopbackRequest;
+import io.github.amayaframework.server.LoopbackServerFactory;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class AbstractWebApplicationTest {
+    private static final Runnable2<HttpContext, Runnable1<HttpContext>> CANCEL = (context, next) -> {
+        context.getCancellation().cancel();
+        next.run(context);
+    };
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Runnable2<HttpContext, Runnable1<HttpContext>> counter = (context, next) -> {
+        calls.incrementAndGet();
+        next.run(context);
+    };
+
+    private static HttpCode serve(TestApplication application) throws Throwable {
+        application.start();
+        var server = new LoopbackServerFactory().create();
+        server.bind(8080);
+        server.setHandler(application.pipeline);
+        server.start();
+        try {
+            return server.exchange(new LoopbackRequest(HttpMethod.GET, "/")).getStatus();
+        } finally {
+            server.stop();
+            application.stop();
+        }
+    }
+
+    @Test
+    public void testNotCancellable() throws Throwable {
+        var application = new TestApplication();
+        application.addHandler(CANCEL);
+        application.addHandler(counter);
+        assertEquals(HttpCode.OK, serve(application));
+        // Without deadlines or enabled cancellation, the stages are not wrapped
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testEnabled() throws Throwable {
+        var application = new TestApplication();
+        application.enableCancellation();
+        application.addHandler(CANCEL);
+        application.addHandler(counter);
+        assertEquals(HttpCode.OK, serve(application));
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    public void testDeadline() throws Throwable {
+        var application = new TestApplication();
+        application.addHandler(counter);
+        application.addHandler(new DeadlineHandler(Duration.ZERO));
+        application.addHandler(counter);
+        assertEquals(HttpCode.GATEWAY_TIMEOUT, serve(application));
+        // The stage added before the deadline handler runs
+        assertEquals(1, calls.get());
+        // Resetting the handlers removes the deadline handler as well
+        application.reset();
+        application.addHandler(CANCEL);
+        application.addHandler(counter);
+        assertEquals(HttpCode.OK, serve(application));
+        assertEquals(2, calls.get());
+    }
+
+    private static final class TestApplication extends AbstractWebApplication {
+        private Runnable1<HttpContext> pipeline;
+
+        private TestApplication() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public ServiceProvider getProvider() {
+            return null;
+        }
+
+        @Override
+        protected void doStart(Runnable1<HttpContext> handler) {
+            this.pipeline = handler;
+        }
+
+        @Override
+        protected void doStop() {
+            this.pipeline = null;
+        }
+    }
+}
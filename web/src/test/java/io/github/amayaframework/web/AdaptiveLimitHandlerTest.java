@@ -0,0 +1,113 @@
+package io.github.amayaframework.web;
+
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.server.LoopbackRequest;
+import io.github.amayaframework.server.LoopbackServer;
+import io.github.amayaframework.server.LoopbackServerFactory;
+import jakarta.servlet.AsyncContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class AdaptiveLimitHandlerTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch returned = new CountDownLatch(1);
+    private AsyncContext async;
+
+    /**
+     * Starts the server with an endpoint leaving the processing of the requests marked with X-Async unfinished.
+     */
+    private LoopbackServer start(AdaptiveLimitHandler handler) {
+        var ret = new LoopbackServerFactory().create();
+        ret.bind(8080);
+        ret.setHandler(context -> {
+            var pending = context.getRequest().containsHeader("X-Async");
+            handler.run(context, ctx -> {
+                if (pending) {
+                    async = ctx.getServletRequest().startAsync();
+                }
+            });
+            if (pending) {
+                returned.countDown();
+            }
+        });
+        ret.start();
+        return ret;
+    }
+
+    private CompletableFuture<?> pending(LoopbackServer server, String key) throws InterruptedException {
+        var ret = server.submit(request(key, "X-Async", "true"), executor);
+        assertTrue(returned.await(10, TimeUnit.SECONDS));
+        return ret;
+    }
+
+    private void stop(LoopbackServer server) {
+        server.stop();
+        executor.shutdown();
+    }
+
+    private static LoopbackRequest request(String key, String... headers) {
+        var ret = new LoopbackRequest(HttpMethod.GET, "/");
+        if (key != null) {
+            ret.setHeader("X-Key", key);
+        }
+        for (var i = 0; i < headers.length; i += 2) {
+            ret.setHeader(headers[i], headers[i + 1]);
+        }
+        return ret;
+    }
+
+    @Test
+    public void testKeys() throws InterruptedException {
+        var handler = new AdaptiveLimitHandler(() -> new VegasLimit(1, 1, 1, 1, 100),
+                RequestKeys.header("X-Key"), 2, 60_000);
+        var server = start(handler);
+        var pending = pending(server, "a");
+        // The limit of the key is reached, while other keys have their own limiters
+        assertEquals(HttpCode.SERVICE_UNAVAILABLE, server.exchange(request("a")).getStatus());
+        assertEquals(HttpCode.OK, server.exchange(request("b")).getStatus());
+        // Keys over the maximum and keyless requests share the global limiter
+        assertEquals(HttpCode.OK, server.exchange(request("c")).getStatus());
+        assertEquals(HttpCode.OK, server.exchange(request(null)).getStatus());
+        assertEquals(Map.of("a", 1, "b", 1), handler.getLimits());
+        async.complete();
+        pending.join();
+        assertEquals(HttpCode.OK, server.exchange(request("a")).getStatus());
+        assertEquals(1, handler.getRejected());
+        assertEquals(5, handler.getAdmitted());
+        stop(server);
+    }
+
+    @Test
+    public void testEviction() throws InterruptedException {
+        var handler = new AdaptiveLimitHandler(VegasLimit::new, RequestKeys.header("X-Key"), 2, 0);
+        var server = start(handler);
+        var pending = pending(server, "a");
+        server.exchange(request("b"));
+        // The idle limiter of b is evicted, while a has a request in flight
+        server.exchange(request("c"));
+        assertEquals(Set.of("a", "c"), handler.getLimits().keySet());
+        async.complete();
+        pending.join();
+        server.exchange(request("d"));
+        assertEquals(Set.of("d"), handler.getLimits().keySet());
+        stop(server);
+    }
+
+    @Test
+    public void testLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimitHandler(VegasLimit::new, null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveLimitHandler(VegasLimit::new, null, 1, -1));
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.amayaframework.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class AdaptiveLimiterTest {
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    public void testWindow() {
+        var algorithm = new RecordingAlgorithm(2, 5);
+        var limiter = new AdaptiveLimiter(algorithm, 1, 3);
+        assertEquals(2, limiter.getLimit());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+        sleep(5);
+        limiter.release(100, false);
+        limiter.release(300, false);
+        // The window is long enough, but has too few samples
+        assertTrue(algorithm.windows.isEmpty());
+        assertTrue(limiter.tryAcquire());
+        limiter.release(200, true);
+        assertEquals(List.of("100 200 2 true"), algorithm.windows);
+        assertEquals(5, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+        // The aggregates are reset, the maximum starts from the requests in flight
+        for (var i = 0; i < 5; ++i) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        sleep(5);
+        for (var i = 0; i < 5; ++i) {
+            limiter.release(1000, false);
+        }
+        assertEquals(List.of("100 200 2 true", "1000 1000 5 false"), algorithm.windows);
+    }
+
+    @Test
+    public void testShortWindow() {
+        var algorithm = new RecordingAlgorithm(1, 10);
+        var limiter = new AdaptiveLimiter(algorithm, 60_000, 1);
+        for (var i = 0; i < 10; ++i) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(100, false);
+        }
+        assertTrue(algorithm.windows.isEmpty());
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void testMinimumLimit() {
+        var limiter = new AdaptiveLimiter(new RecordingAlgorithm(0, 0), 1, 1);
+        assertEquals(1, limiter.getLimit());
+        assertTrue(limiter.tryAcquire());
+        sleep(5);
+        limiter.release(100, true);
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void testParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(new VegasLimit(), 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(new VegasLimit(), 1, 0));
+        assertThrows(NullPointerException.class, () -> new AdaptiveLimiter(null));
+    }
+
+    private static final class RecordingAlgorithm implements LimitAlgorithm {
+        private final List<String> windows = new ArrayList<>();
+        private final int initial;
+        private final int next;
+
+        private RecordingAlgorithm(int initial, int next) {
+            this.initial = initial;
+            this.next = next;
+        }
+
+        @Override
+        public int getLimit() {
+            return initial;
+        }
+
+        @Override
+        public int update(long minRtt, long meanRtt, int maxInFlight, boolean dropped) {
+            windows.add(minRtt + " " + meanRtt + " " + maxInFlight + " " + dropped);
+            return next;
+        }
+    }
+}
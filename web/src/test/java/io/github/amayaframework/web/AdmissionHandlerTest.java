@@ -0,0 +1,196 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.server.LoopbackRequest;
+import io.github.amayaframework.server.LoopbackResponse;
+import io.github.amayaframework.server.LoopbackServer;
+import io.github.amayaframework.server.LoopbackServerFactory;
+import jakarta.servlet.AsyncContext;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class AdmissionHandlerTest {
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch returned = new CountDownLatch(1);
+    private final List<String> served = new ArrayList<>();
+    private AsyncContext async;
+
+    /**
+     * Starts the server with an endpoint recording the served paths. The requests marked with X-Block wait
+     * until released, and the requests marked with X-Async leave their processing unfinished.
+     */
+    private LoopbackServer start(AdmissionHandler handler) {
+        Runnable1<HttpContext> endpoint = context -> {
+            var request = context.getRequest();
+            synchronized (served) {
+                served.add(request.getPath());
+            }
+            if (request.containsHeader("X-Async")) {
+                async = context.getServletRequest().startAsync();
+                entered.countDown();
+                return;
+            }
+            if (request.containsHeader("X-Block")) {
+                entered.countDown();
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+            }
+            context.getResponse().getWriter().write("ok");
+        };
+        var ret = new LoopbackServerFactory().create();
+        ret.bind(8080);
+        ret.setHandler(context -> {
+            handler.run(context, endpoint);
+            returned.countDown();
+        });
+        ret.start();
+        return ret;
+    }
+
+    private static LoopbackRequest request(String path, String... headers) {
+        var ret = new LoopbackRequest(HttpMethod.GET, path);
+        for (var i = 0; i < headers.length; i += 2) {
+            ret.setHeader(headers[i], headers[i + 1]);
+        }
+        return ret;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private void stop(LoopbackServer server) {
+        server.stop();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testQueueFull() throws InterruptedException {
+        var handler = new AdmissionHandler(1, 0, 1000, 7);
+        var server = start(handler);
+        var blocked = server.submit(request("/blocked", "X-Block", "true"), executor);
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        var response = server.exchange(request("/rejected"));
+        assertEquals(HttpCode.SERVICE_UNAVAILABLE, response.getStatus());
+        assertEquals("7", response.getHeader("Retry-After"));
+        release.countDown();
+        assertEquals("ok", blocked.join().getBodyAsString());
+        assertEquals(List.of("/blocked"), served);
+        assertEquals(1, handler.getAdmitted());
+        assertEquals(1, handler.getRejected());
+        assertEquals(0, handler.getTimeouts());
+        assertEquals(0, handler.getInFlight());
+        stop(server);
+    }
+
+    @Test
+    public void testTimeout() throws InterruptedException {
+        var handler = new AdmissionHandler(1, 1, 50, 1);
+        var server = start(handler);
+        var blocked = server.submit(request("/blocked", "X-Block", "true"), executor);
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        var response = server.exchange(request("/waiting"));
+        assertEquals(HttpCode.SERVICE_UNAVAILABLE, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals(1, handler.getTimeouts());
+        assertEquals(0, handler.getQueued());
+        release.countDown();
+        assertEquals("ok", blocked.join().getBodyAsString());
+        assertEquals(List.of("/blocked"), served);
+        // The timed out waiter does not take the released permit
+        assertEquals(0, handler.getInFlight());
+        assertEquals(HttpCode.OK, server.exchange(request("/next")).getStatus());
+        stop(server);
+    }
+
+    @Test
+    public void testHandoff() throws InterruptedException {
+        var handler = new AdmissionHandler(1, 3, 10_000, 1);
+        var server = start(handler);
+        var blocked = server.submit(request("/blocked", "X-Block", "true"), executor);
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        var waiters = new ArrayList<CompletableFuture<LoopbackResponse>>();
+        for (var i = 0; i < 3; ++i) {
+            waiters.add(server.submit(request("/" + i), executor));
+            var queued = i + 1;
+            waitFor(() -> handler.getQueued() == queued);
+        }
+        release.countDown();
+        assertEquals("ok", blocked.join().getBodyAsString());
+        for (var waiter : waiters) {
+            assertEquals("ok", waiter.join().getBodyAsString());
+        }
+        // Each released permit is handed over to the oldest waiter
+        assertEquals(List.of("/blocked", "/0", "/1", "/2"), served);
+        assertEquals(4, handler.getAdmitted());
+        assertEquals(3, handler.getDelayed());
+        assertEquals(0, handler.getRejected());
+        assertEquals(0, handler.getInFlight());
+        stop(server);
+    }
+
+    @Test
+    public void testQueuedAsync() throws InterruptedException {
+        var handler = new AdmissionHandler(1, 1, 10_000, 1, executor);
+        var server = start(handler);
+        var blocked = server.submit(request("/blocked", "X-Block", "true"), executor);
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        var waiting = server.submit(request("/waiting"), executor);
+        // The queued request does not hold its thread, the pipeline returns while it waits
+        assertTrue(returned.await(10, TimeUnit.SECONDS));
+        assertEquals(1, handler.getQueued());
+        assertFalse(waiting.isDone());
+        release.countDown();
+        assertEquals("ok", blocked.join().getBodyAsString());
+        assertEquals("ok", waiting.join().getBodyAsString());
+        assertEquals(List.of("/blocked", "/waiting"), served);
+        assertEquals(1, handler.getDelayed());
+        waitFor(() -> handler.getInFlight() == 0);
+        stop(server);
+    }
+
+    @Test
+    public void testAsync() throws InterruptedException {
+        var handler = new AdmissionHandler(1, 0, 1000, 1);
+        var server = start(handler);
+        var pending = server.submit(request("/async", "X-Async", "true"), executor);
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        // The pipeline returned, but the request stays in flight until its processing completes
+        assertTrue(returned.await(10, TimeUnit.SECONDS));
+        assertEquals(1, handler.getInFlight());
+        assertEquals(HttpCode.SERVICE_UNAVAILABLE, server.exchange(request("/rejected")).getStatus());
+        async.complete();
+        assertNull(pending.join().getThrowable());
+        assertEquals(0, handler.getInFlight());
+        assertEquals(HttpCode.OK, server.exchange(request("/next")).getStatus());
+        assertEquals(List.of("/async", "/next"), served);
+        stop(server);
+    }
+
+    @Test
+    public void testLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionHandler(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionHandler(1, -1));
+        assertThrows(IllegalArgumentException.class, () -> new AdmissionHandler(1, 0, 0, 1));
+        assertThrows(NullPointerException.class, () -> new AdmissionHandler(1, 0, 1000, 1, null));
+        executor.shutdown();
+    }
+}
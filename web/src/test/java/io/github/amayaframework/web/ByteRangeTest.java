@@ -0,0 +1,69 @@
+package io.github.amayaframework.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class ByteRangeTest {
+
+    private static void assertRanges(List<ByteRange> ranges, long... bounds) {
+        assertNotNull(ranges);
+        assertEquals(bounds.length / 2, ranges.size());
+        for (var i = 0; i < ranges.size(); ++i) {
+            assertEquals(bounds[i * 2], ranges.get(i).start);
+            assertEquals(bounds[i * 2 + 1], ranges.get(i).end);
+        }
+    }
+
+    @Test
+    public void testSingle() {
+        assertRanges(ByteRange.parse("bytes=0-9", 100), 0, 9);
+        assertRanges(ByteRange.parse("Bytes= 10 - ", 100), 10, 99);
+        assertRanges(ByteRange.parse("bytes=-20", 100), 80, 99);
+        assertRanges(ByteRange.parse("bytes=-200", 100), 0, 99);
+        assertRanges(ByteRange.parse("bytes=90-1000", 100), 90, 99);
+        assertEquals(10, ByteRange.parse("bytes=0-9", 100).get(0).length());
+        assertEquals("bytes 0-9/100", ByteRange.parse("bytes=0-9", 100).get(0).toContentRange(100));
+    }
+
+    @Test
+    public void testUnsatisfiable() {
+        assertRanges(ByteRange.parse("bytes=100-200", 100));
+        assertRanges(ByteRange.parse("bytes=-0", 100));
+        assertRanges(ByteRange.parse("bytes=0-1", 0));
+        assertRanges(ByteRange.parse("bytes=100-, 0-4", 100), 0, 4);
+    }
+
+    @Test
+    public void testMalformed() {
+        assertNull(ByteRange.parse("items=0-1", 100));
+        assertNull(ByteRange.parse("bytes=5", 100));
+        assertNull(ByteRange.parse("bytes=-", 100));
+        assertNull(ByteRange.parse("bytes=9-5", 100));
+        assertNull(ByteRange.parse("bytes=a-5", 100));
+        assertNull(ByteRange.parse("bytes=+1-5", 100));
+    }
+
+    @Test
+    public void testMerge() {
+        assertRanges(ByteRange.parse("bytes=50-59,0-9", 100), 0, 9, 50, 59);
+        assertRanges(ByteRange.parse("bytes=0-9,5-14", 100), 0, 14);
+        assertRanges(ByteRange.parse("bytes=0-9,10-19", 100), 0, 19);
+        assertRanges(ByteRange.parse("bytes=0-50,10-20,-10", 100), 0, 50, 90, 99);
+        assertRanges(ByteRange.parse("bytes=0-,0-,0-", 100), 0, 99);
+    }
+
+    @Test
+    public void testLimit() {
+        var header = new StringBuilder("bytes=0-0");
+        for (var i = 1; i < ByteRange.MAX_RANGES; ++i) {
+            header.append(',').append(i * 2).append('-').append(i * 2);
+        }
+        assertEquals(ByteRange.MAX_RANGES, ByteRange.parse(header.toString(), 100).size());
+        header.append(",99-99");
+        assertNull(ByteRange.parse(header.toString(), 100));
+        assertNull(ByteRange.parse("bytes=" + "0-0,".repeat(10000) + "0-0", 100));
+    }
+}
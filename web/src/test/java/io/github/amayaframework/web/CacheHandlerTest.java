@@ -0,0 +1,215 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.server.LoopbackRequest;
+import io.github.amayaframework.server.LoopbackResponse;
+import io.github.amayaframework.server.LoopbackServer;
+import io.github.amayaframework.server.LoopbackServerFactory;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class CacheHandlerTest {
+
+    private static LoopbackServer start(CacheHandler handler, Runnable1<HttpContext> endpoint) {
+        var ret = new LoopbackServerFactory().create();
+        ret.bind(8080);
+        ret.setHandler(context -> handler.run(context, endpoint));
+        ret.start();
+        return ret;
+    }
+
+    private static LoopbackResponse exchange(LoopbackServer server, HttpMethod method, String... headers) {
+        var request = new LoopbackRequest(method, "/items?page=1");
+        request.addHeader("Host", "example.com");
+        for (var i = 0; i < headers.length; i += 2) {
+            request.setHeader(headers[i], headers[i + 1]);
+        }
+        var ret = server.exchange(request);
+        assertNull(ret.getThrowable());
+        return ret;
+    }
+
+    private static LoopbackResponse get(LoopbackServer server, String... headers) {
+        return exchange(server, HttpMethod.GET, headers);
+    }
+
+    /**
+     * Creates an endpoint writing the number of its calls and the values of the request headers
+     * specified in X-Echo.
+     */
+    private static Runnable1<HttpContext> endpoint(AtomicInteger calls, String control) {
+        return context -> {
+            var request = context.getRequest();
+            var response = context.getResponse();
+            response.setHeader("Cache-Control", control);
+            response.setHeader("ETag", "\"v1\"");
+            var echo = request.getHeader("X-Echo");
+            var body = calls.incrementAndGet() + (echo == null ? "" : ":" + request.getHeader(echo));
+            response.getWriter().write(body);
+        };
+    }
+
+    @Test
+    public void testHit() {
+        var calls = new AtomicInteger();
+        var handler = new CacheHandler(1024 * 1024);
+        var server = start(handler, endpoint(calls, "max-age=60"));
+        assertEquals("1", get(server).getBodyAsString());
+        var response = get(server);
+        assertEquals("1", response.getBodyAsString());
+        assertEquals("0", response.getHeader("Age"));
+        assertEquals("\"v1\"", response.getHeader("ETag"));
+        assertEquals(HttpCode.NOT_MODIFIED, get(server, "If-None-Match", "\"v1\"").getStatus());
+        var head = exchange(server, HttpMethod.HEAD);
+        assertEquals(HttpCode.OK, head.getStatus());
+        assertEquals(0, head.getBody().length);
+        assertEquals(1, calls.get());
+        assertEquals(1, handler.getMisses());
+        assertEquals(3, handler.getHits());
+        assertEquals(1, handler.getCount());
+        // Request directives bypass the cache
+        assertEquals("2", get(server, "Cache-Control", "no-cache").getBodyAsString());
+        server.stop();
+    }
+
+    @Test
+    public void testHost() {
+        var calls = new AtomicInteger();
+        var server = start(new CacheHandler(1024 * 1024), endpoint(calls, "max-age=60"));
+        assertEquals("1", get(server).getBodyAsString());
+        assertEquals("2", get(server, "Host", "other.com").getBodyAsString());
+        assertEquals("1", get(server, "Host", "EXAMPLE.com").getBodyAsString());
+        assertEquals("2", get(server, "Host", "other.com").getBodyAsString());
+        server.stop();
+    }
+
+    @Test
+    public void testVary() {
+        var calls = new AtomicInteger();
+        var server = start(new CacheHandler(1024 * 1024), context -> {
+            context.getResponse().setHeader("Vary", "Accept-Language");
+            endpoint(calls, "max-age=60").run(context);
+        });
+        var en = get(server, "Accept-Language", "en", "X-Echo", "Accept-Language");
+        var fr = get(server, "Accept-Language", "fr", "X-Echo", "Accept-Language");
+        assertEquals("1:en", en.getBodyAsString());
+        assertEquals("2:fr", fr.getBodyAsString());
+        assertEquals("1:en", get(server, "Accept-Language", "en").getBodyAsString());
+        assertEquals("2:fr", get(server, "Accept-Language", "fr").getBodyAsString());
+        server.stop();
+    }
+
+    @Test
+    public void testNotStored() {
+        for (var control : new String[]{"private, max-age=60", "no-store", "no-cache", "max-age=0"}) {
+            var calls = new AtomicInteger();
+            var server = start(new CacheHandler(1024 * 1024), endpoint(calls, control));
+            get(server);
+            assertEquals("2", get(server).getBodyAsString(), control);
+            server.stop();
+        }
+        var calls = new AtomicInteger();
+        var server = start(new CacheHandler(1024 * 1024), context -> {
+            context.getResponse().setHeader("Set-Cookie", "id=1");
+            endpoint(calls, "max-age=60").run(context);
+        });
+        get(server);
+        assertEquals("2", get(server).getBodyAsString());
+        server.stop();
+    }
+
+    @Test
+    public void testUncaptured() {
+        // The body written to the servlet response is not seen by the cache
+        var calls = new AtomicInteger();
+        var server = start(new CacheHandler(1024 * 1024), context -> {
+            context.getResponse().setHeader("Cache-Control", "max-age=60");
+            var body = String.valueOf(calls.incrementAndGet()).getBytes(StandardCharsets.UTF_8);
+            context.getServletResponse().getOutputStream().write(body);
+        });
+        assertEquals("1", get(server).getBodyAsString());
+        assertEquals("2", get(server).getBodyAsString());
+        server.stop();
+        // The declared length does not match the captured body
+        server = start(new CacheHandler(1024 * 1024), context -> {
+            context.getResponse().setContentLength(2);
+            endpoint(calls, "max-age=60").run(context);
+            context.getServletResponse().getOutputStream().write('!');
+        });
+        get(server);
+        assertEquals(3, calls.get());
+        get(server);
+        assertEquals(4, calls.get());
+        server.stop();
+        // Responses without body are stored when they declare it
+        server = start(new CacheHandler(1024 * 1024), context -> {
+            calls.incrementAndGet();
+            context.getResponse().setStatus(HttpCode.NO_CONTENT);
+            context.getResponse().setHeader("Cache-Control", "max-age=60");
+        });
+        get(server);
+        assertEquals(HttpCode.NO_CONTENT, get(server).getStatus());
+        assertEquals(5, calls.get());
+        server.stop();
+    }
+
+    @Test
+    public void testInvalidation() {
+        var calls = new AtomicInteger();
+        var handler = new CacheHandler(1024 * 1024);
+        var server = start(handler, endpoint(calls, "max-age=60"));
+        get(server);
+        assertEquals("1", get(server).getBodyAsString());
+        exchange(server, HttpMethod.POST);
+        assertEquals("3", get(server).getBodyAsString());
+        handler.invalidate("/items?page=1");
+        assertEquals("4", get(server).getBodyAsString());
+        handler.invalidate();
+        assertEquals(0, handler.getCount());
+        server.stop();
+    }
+
+    private static CachedResponse cached(String key, int size, long expires) {
+        return new CachedResponse(key, key, HttpCode.OK, null, new String[0], new byte[size], null, 0, expires);
+    }
+
+    @Test
+    public void testAdmission() {
+        var cache = new ResponseCache(1_000_000);
+        for (var key : new String[]{"a", "b", "c"}) {
+            cache.put(cached(key, 300_000, 100), new String[0], 0);
+        }
+        assertEquals(3, cache.count());
+        for (var i = 0; i < 5; ++i) {
+            cache.get("b", 0);
+            cache.get("c", 0);
+        }
+        cache.get("d", 0);
+        cache.get("d", 0);
+        // The candidate beats the first victim, but not the second one, so nothing is evicted
+        cache.put(cached("d", 400_000, 100), new String[0], 0);
+        assertEquals(3, cache.count());
+        assertNull(cache.get("d", 0));
+        assertNotNull(cache.get("a", 0));
+    }
+
+    @Test
+    public void testExpiredVictim() {
+        var cache = new ResponseCache(1_000_000);
+        cache.put(cached("a", 300_000, 10), new String[0], 0);
+        cache.put(cached("b", 300_000, 100), new String[0], 0);
+        cache.put(cached("c", 300_000, 100), new String[0], 0);
+        // The expired response is dropped instead of competing with the candidate
+        cache.put(cached("d", 300_000, 100), new String[0], 20);
+        assertEquals(3, cache.count());
+        assertNotNull(cache.get("d", 20));
+        assertNull(cache.get("a", 20));
+    }
+}
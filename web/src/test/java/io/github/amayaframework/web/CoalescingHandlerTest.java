@@ -0,0 +1,200 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.server.LoopbackRequest;
+import io.github.amayaframework.server.LoopbackResponse;
+import io.github.amayaframework.server.LoopbackServer;
+import io.github.amayaframework.server.LoopbackServerFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class CoalescingHandlerTest {
+    private static final int FOLLOWERS = 3;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch returned = new CountDownLatch(FOLLOWERS);
+    private CoalescingHandler handler;
+    private boolean distinct;
+
+    /**
+     * Starts the server with an endpoint numbering its calls. The requests marked with X-Block wait
+     * until released, so the requests submitted meanwhile meet a running leader.
+     */
+    private LoopbackServer start(String control) {
+        handler = new CoalescingHandler(new String[]{"Accept"}, 10_000, executor);
+        Runnable1<HttpContext> endpoint = context -> {
+            var call = calls.incrementAndGet();
+            if (context.getRequest().containsHeader("X-Block")) {
+                entered.countDown();
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+            }
+            var response = context.getResponse();
+            response.setHeader("Cache-Control", control);
+            if (context.getRequest().containsHeader("Range")) {
+                response.setStatus(HttpCode.PARTIAL_CONTENT);
+                response.setHeader("Content-Range", "bytes 0-3/6");
+                response.getWriter().write("part");
+                return;
+            }
+            response.getWriter().write("call " + call);
+        };
+        var ret = new LoopbackServerFactory().create();
+        ret.bind(8080);
+        ret.setHandler(context -> {
+            handler.run(context, endpoint);
+            returned.countDown();
+        });
+        ret.start();
+        return ret;
+    }
+
+    private static LoopbackRequest request(String... headers) {
+        var ret = new LoopbackRequest(HttpMethod.GET, "/report");
+        ret.addHeader("Host", "example.com");
+        for (var i = 0; i < headers.length; i += 2) {
+            ret.setHeader(headers[i], headers[i + 1]);
+        }
+        return ret;
+    }
+
+    private List<String> run(LoopbackServer server, String... headers) throws InterruptedException {
+        var leader = server.submit(request("X-Block", "true"), executor);
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        var followers = new ArrayList<CompletableFuture<LoopbackResponse>>();
+        for (var i = 0; i < FOLLOWERS; ++i) {
+            var request = request(headers);
+            if (distinct) {
+                // Each follower has its own key, so that followers do not coalesce with each other either
+                if (i == 0) {
+                    request.setHeader("Accept", "text/html");
+                } else {
+                    request.setHeader("Host", "host" + i + ".com");
+                }
+            }
+            followers.add(server.submit(request, executor));
+        }
+        // Followers return from the pipeline while waiting, the uncoalesced ones are served at once
+        assertTrue(returned.await(10, TimeUnit.SECONDS));
+        release.countDown();
+        assertEquals("call 1", leader.join().getBodyAsString());
+        var ret = new ArrayList<String>();
+        for (var follower : followers) {
+            var response = follower.join();
+            assertNull(response.getThrowable());
+            ret.add(response.getBodyAsString());
+        }
+        server.stop();
+        executor.shutdown();
+        return ret;
+    }
+
+    @Test
+    public void testCoalesce() throws InterruptedException {
+        var bodies = run(start("max-age=10"));
+        assertEquals(List.of("call 1", "call 1", "call 1"), bodies);
+        assertEquals(1, calls.get());
+        assertEquals(FOLLOWERS, handler.getCoalesced());
+    }
+
+    private void runCredentials(String header) throws Exception {
+        var server = start("max-age=10");
+        var leader = server.submit(request("X-Block", "true"), executor);
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        // Served while the leader is still running, a follower would wait for it
+        var response = server.submit(request(header, "secret"), executor).get(5, TimeUnit.SECONDS);
+        assertEquals("call 2", response.getBodyAsString());
+        release.countDown();
+        assertEquals("call 1", leader.join().getBodyAsString());
+        assertEquals(0, handler.getCoalesced());
+        server.stop();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testCredentials() throws Exception {
+        new CoalescingHandlerTest().runCredentials("Authorization");
+        new CoalescingHandlerTest().runCredentials("Cookie");
+        executor.shutdown();
+    }
+
+    private void runRange(String[] leader, String[] request, String expected) throws Exception {
+        var server = start("max-age=10");
+        var blocked = server.submit(request(leader), executor);
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        // Served while the leader is still running, a follower would wait for it
+        var response = server.submit(request(request), executor).get(5, TimeUnit.SECONDS);
+        assertEquals(expected, response.getBodyAsString());
+        release.countDown();
+        assertNull(blocked.join().getThrowable());
+        assertEquals(2, calls.get());
+        assertEquals(0, handler.getCoalesced());
+        server.stop();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRange() throws Exception {
+        // A plain request does not receive the partial response of a range leader
+        new CoalescingHandlerTest().runRange(
+                new String[]{"X-Block", "true", "Range", "bytes=0-3"},
+                new String[0],
+                "call 2"
+        );
+        // A range request does not receive the full response of a plain leader
+        new CoalescingHandlerTest().runRange(
+                new String[]{"X-Block", "true"},
+                new String[]{"Range", "bytes=0-3"},
+                "part"
+        );
+        // Conditional requests are not coalesced either
+        new CoalescingHandlerTest().runRange(
+                new String[]{"X-Block", "true"},
+                new String[]{"If-None-Match", "\"tag\""},
+                "call 2"
+        );
+        executor.shutdown();
+    }
+
+    @Test
+    public void testDistinctRequests() throws InterruptedException {
+        distinct = true;
+        var bodies = run(start("max-age=10"));
+        assertEquals(FOLLOWERS + 1, calls.get());
+        assertEquals(FOLLOWERS, bodies.size());
+    }
+
+    @Test
+    public void testNotShareable() throws InterruptedException {
+        for (var control : new String[]{"private", "no-store"}) {
+            var test = new CoalescingHandlerTest();
+            var bodies = test.run(test.start(control));
+            // Followers wait for the leader, then run the handlers themselves
+            assertEquals(FOLLOWERS + 1, test.calls.get(), control);
+            assertEquals(0, test.handler.getCoalesced());
+            assertFalse(bodies.contains("call 1"));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testExecutor() {
+        assertThrows(NullPointerException.class, () -> new CoalescingHandler(new String[0], 1000, null));
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.context.HttpContextWrapper;
+import io.github.amayaframework.context.HttpResponseWrapper;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.server.LoopbackRequest;
+import io.github.amayaframework.server.LoopbackResponse;
+import io.github.amayaframework.server.LoopbackServer;
+import io.github.amayaframework.server.LoopbackServerFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class CompressionHandlerTest {
+    private static final String TEXT = "compressible text, ".repeat(200);
+
+    private static LoopbackServer start(AtomicInteger sent, Runnable1<HttpContext> endpoint) {
+        var handler = new CompressionHandler();
+        var ret = new LoopbackServerFactory().create();
+        ret.bind(8080);
+        ret.setHandler(context -> {
+            var response = new HttpResponseWrapper(context.getResponse()) {
+                @Override
+                public void sendFile(Path file) throws IOException {
+                    sent.incrementAndGet();
+                    super.sendFile(file);
+                }
+            };
+            handler.run(new HttpContextWrapper(context, response), endpoint);
+        });
+        ret.start();
+        return ret;
+    }
+
+    private static LoopbackResponse get(LoopbackServer server) {
+        var request = new LoopbackRequest(HttpMethod.GET, "/");
+        request.addHeader("Accept-Encoding", "gzip");
+        var ret = server.exchange(request);
+        assertNull(ret.getThrowable());
+        assertEquals(HttpCode.OK, ret.getStatus());
+        return ret;
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (var stream = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Runnable1<HttpContext> sendFile(Path file) {
+        return context -> context.getResponse().sendFile(file);
+    }
+
+    @Test
+    public void testSmallFile() throws IOException {
+        var file = Files.createTempFile("small", ".txt");
+        Files.writeString(file, "small");
+        var sent = new AtomicInteger();
+        var server = start(sent, sendFile(file));
+        var response = get(server);
+        // The file is below the threshold, so it is passed to the wrapped response untouched
+        assertEquals(1, sent.get());
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("5", response.getHeader("Content-Length"));
+        assertEquals("small", response.getBodyAsString());
+        server.stop();
+        Files.delete(file);
+    }
+
+    @Test
+    public void testBinaryFile() throws IOException {
+        var file = Files.createTempFile("binary", ".png");
+        Files.write(file, new byte[4096]);
+        var sent = new AtomicInteger();
+        var server = start(sent, sendFile(file));
+        var response = get(server);
+        assertEquals(1, sent.get());
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(4096, response.getBody().length);
+        server.stop();
+        Files.delete(file);
+    }
+
+    @Test
+    public void testCompressedFile() throws IOException {
+        var file = Files.createTempFile("large", ".txt");
+        Files.writeString(file, TEXT);
+        var sent = new AtomicInteger();
+        var server = start(sent, sendFile(file));
+        var response = get(server);
+        assertEquals(0, sent.get());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertTrue(response.getBody().length < TEXT.length());
+        assertEquals(TEXT, gunzip(response.getBody()));
+        server.stop();
+        Files.delete(file);
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        var sent = new AtomicInteger();
+        var server = start(sent, context -> {
+            var response = context.getResponse();
+            response.setHeader("Content-Type", "text/plain");
+            var body = context.getRequest().getHeader("X-Body");
+            response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        });
+        var request = new LoopbackRequest(HttpMethod.GET, "/");
+        request.addHeader("Accept-Encoding", "gzip");
+        request.addHeader("X-Body", "short");
+        var response = server.exchange(request);
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("short", response.getBodyAsString());
+        request.setHeader("X-Body", TEXT);
+        response = server.exchange(request);
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals(TEXT, gunzip(response.getBody()));
+        server.stop();
+    }
+
+    @Test
+    public void testHandlerResponse() {
+        // The wrapper is transparent for handlers not touching the body
+        var sent = new AtomicInteger();
+        var server = start(sent, context -> context.getResponse().setStatus(HttpCode.NO_CONTENT));
+        var request = new LoopbackRequest(HttpMethod.GET, "/");
+        request.addHeader("Accept-Encoding", "gzip");
+        var response = server.exchange(request);
+        assertEquals(HttpCode.NO_CONTENT, response.getStatus());
+        assertNull(response.getHeader("Content-Encoding"));
+        server.stop();
+    }
+}
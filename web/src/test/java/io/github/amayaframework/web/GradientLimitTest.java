@@ -0,0 +1,66 @@
+package io.github.amayaframework.web;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class GradientLimitTest {
+    private static final long MS = 1_000_000;
+
+    @Test
+    public void testGradient() {
+        var gradient = new GradientLimit(20, 1, 1000, 1, 1.5, 600);
+        // The first window sets the long-term latency, so the gradient is 1 and sqrt(20) is added
+        assertEquals(24, gradient.update(10 * MS, 10 * MS, 20, false));
+        // The latency rose fourfold, the damped average barely follows, so the gradient is clamped to 0.5
+        assertEquals(17, gradient.update(40 * MS, 40 * MS, 24, false));
+        // Less than half of the limit used
+        assertEquals(17, gradient.update(10 * MS, 10 * MS, 2, false));
+        // Drops halve the limit before the queue allowance is added
+        assertEquals(12, gradient.update(10 * MS, 10 * MS, 17, true));
+        assertEquals(12, gradient.getLimit());
+    }
+
+    @Test
+    public void testTolerance() {
+        var gradient = new GradientLimit(100, 1, 1000, 1, 1.5, 600);
+        assertEquals(110, gradient.update(10 * MS, 10 * MS, 100, false));
+        // A rise within the tolerance keeps the gradient at 1, so the limit still grows
+        assertEquals(120, gradient.update(14 * MS, 14 * MS, 110, false));
+    }
+
+    @Test
+    public void testRecovery() {
+        var gradient = new GradientLimit(100, 1, 1000, 1, 1.5, 600);
+        gradient.update(10 * MS, 10 * MS, 100, false);
+        for (var i = 0; i < 20; ++i) {
+            gradient.update(100 * MS, 100 * MS, 1000, false);
+        }
+        var low = gradient.getLimit();
+        // Once the latency falls back, the average is pulled down, so the limit grows again
+        for (var i = 0; i < 20; ++i) {
+            gradient.update(10 * MS, 10 * MS, 1000, false);
+        }
+        assertTrue(gradient.getLimit() > low);
+    }
+
+    @Test
+    public void testBounds() {
+        var gradient = new GradientLimit(20, 10, 22, 1, 1.5, 600);
+        assertEquals(22, gradient.update(10 * MS, 10 * MS, 20, false));
+        for (var i = 0; i < 10; ++i) {
+            gradient.update(10 * MS, 10 * MS, 22, true);
+        }
+        assertEquals(10, gradient.getLimit());
+        assertEquals(10, gradient.update(0, 0, 10, true));
+    }
+
+    @Test
+    public void testParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new GradientLimit(20, 0, 1000, 1, 1.5, 600));
+        assertThrows(IllegalArgumentException.class, () -> new GradientLimit(20, 10, 5, 1, 1.5, 600));
+        assertThrows(IllegalArgumentException.class, () -> new GradientLimit(20, 1, 1000, 2, 1.5, 600));
+        assertThrows(IllegalArgumentException.class, () -> new GradientLimit(20, 1, 1000, 1, 0.5, 600));
+        assertThrows(IllegalArgumentException.class, () -> new GradientLimit(20, 1, 1000, 1, 1.5, 0));
+    }
+}
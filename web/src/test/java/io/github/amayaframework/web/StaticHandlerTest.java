@@ -0,0 +1,244 @@
+package io.github.amayaframework.web;
+
+import com.github.romanqed.jfunc.Runnable1;
+import com.github.romanqed.jfunc.Runnable2;
+import io.github.amayaframework.context.HttpContext;
+import io.github.amayaframework.http.HttpCode;
+import io.github.amayaframework.http.HttpMethod;
+import io.github.amayaframework.server.LoopbackRequest;
+import io.github.amayaframework.server.LoopbackResponse;
+import io.github.amayaframework.server.LoopbackServer;
+import io.github.amayaframework.server.LoopbackServerFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class StaticHandlerTest {
+    private static final String CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    private static LoopbackServer start(Runnable2<HttpContext, Runnable1<HttpContext>> stage) {
+        var ret = new LoopbackServerFactory().create();
+        ret.bind(8080);
+        ret.setHandler(context -> stage.run(context, next -> next.getResponse().setStatus(HttpCode.NOT_FOUND)));
+        ret.start();
+        return ret;
+    }
+
+    private static Path directory() throws IOException {
+        var ret = Files.createTempDirectory("static");
+        Files.writeString(ret.resolve("file.txt"), CONTENT);
+        Files.writeString(ret.resolve("..secret"), "secret");
+        return ret;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (var path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static LoopbackResponse get(LoopbackServer server, String path, String... headers) {
+        var request = new LoopbackRequest(HttpMethod.GET, path);
+        for (var i = 0; i < headers.length; i += 2) {
+            request.addHeader(headers[i], headers[i + 1]);
+        }
+        var ret = server.exchange(request);
+        assertNull(ret.getThrowable());
+        return ret;
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        var root = directory();
+        var server = start(new StaticHandler(root, "/static/"));
+        var response = get(server, "/static/file.txt");
+        assertEquals(HttpCode.OK, response.getStatus());
+        assertEquals(CONTENT, response.getBodyAsString());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertNotNull(response.getHeader("ETag"));
+        assertNotNull(response.getHeader("Last-Modified"));
+        assertEquals(HttpCode.NOT_FOUND, get(server, "/static/missing.txt").getStatus());
+        assertEquals(HttpCode.NOT_FOUND, get(server, "/other/file.txt").getStatus());
+        assertEquals(HttpCode.NOT_FOUND, get(server, "/static/../static/file.txt/..").getStatus());
+        server.stop();
+        delete(root);
+    }
+
+    @Test
+    public void testNotModified() throws IOException {
+        var root = directory();
+        var server = start(new StaticHandler(root, "/static"));
+        var first = get(server, "/static/file.txt");
+        var etag = first.getHeader("ETag");
+        var response = get(server, "/static/file.txt", "If-None-Match", "\"other\", " + etag);
+        assertEquals(HttpCode.NOT_MODIFIED, response.getStatus());
+        assertEquals(0, response.getBody().length);
+        response = get(server, "/static/file.txt", "If-None-Match", "W/" + etag);
+        assertEquals(HttpCode.NOT_MODIFIED, response.getStatus());
+        response = get(server, "/static/file.txt", "If-None-Match", "\"other\"");
+        assertEquals(HttpCode.OK, response.getStatus());
+        response = get(server, "/static/file.txt", "If-Modified-Since", first.getHeader("Last-Modified"));
+        assertEquals(HttpCode.NOT_MODIFIED, response.getStatus());
+        response = get(server, "/static/file.txt", "If-Modified-Since", "Thu, 01 Jan 1970 00:00:00 GMT");
+        assertEquals(HttpCode.OK, response.getStatus());
+        server.stop();
+        delete(root);
+    }
+
+    @Test
+    public void testRanges() throws IOException {
+        var root = directory();
+        var server = start(new StaticHandler(root, "/static"));
+        var response = get(server, "/static/file.txt", "Range", "bytes=10-15");
+        assertEquals(HttpCode.PARTIAL_CONTENT, response.getStatus());
+        assertEquals("bytes 10-15/36", response.getHeader("Content-Range"));
+        assertEquals("abcdef", response.getBodyAsString());
+        // Overlapping ranges are merged into one
+        response = get(server, "/static/file.txt", "Range", "bytes=0-3,2-5");
+        assertEquals(HttpCode.PARTIAL_CONTENT, response.getStatus());
+        assertEquals("012345", response.getBodyAsString());
+        response = get(server, "/static/file.txt", "Range", "bytes=0-1,-2");
+        assertEquals(HttpCode.PARTIAL_CONTENT, response.getStatus());
+        assertTrue(response.getHeader("Content-Type").startsWith("multipart/byteranges; boundary="));
+        var body = response.getBodyAsString();
+        assertTrue(body.contains("Content-Range: bytes 0-1/36\r\n\r\n01\r\n"));
+        assertTrue(body.contains("Content-Range: bytes 34-35/36\r\n\r\nyz\r\n"));
+        assertEquals(body.length(), response.getBody().length);
+        response = get(server, "/static/file.txt", "Range", "bytes=100-");
+        assertEquals(HttpCode.RANGE_NOT_SATISFIABLE, response.getStatus());
+        assertEquals("bytes */36", response.getHeader("Content-Range"));
+        // Malformed and excessive ranges are ignored
+        response = get(server, "/static/file.txt", "Range", "bytes=5-1");
+        assertEquals(HttpCode.OK, response.getStatus());
+        assertEquals(CONTENT, response.getBodyAsString());
+        response = get(server, "/static/file.txt", "Range", "bytes=" + "0-0,".repeat(100) + "0-0");
+        assertEquals(HttpCode.OK, response.getStatus());
+        assertEquals(CONTENT, response.getBodyAsString());
+        server.stop();
+        delete(root);
+    }
+
+    @Test
+    public void testIfRange() throws IOException {
+        var root = directory();
+        var server = start(new StaticHandler(root, "/static"));
+        var first = get(server, "/static/file.txt");
+        var response = get(server, "/static/file.txt", "Range", "bytes=0-1", "If-Range", first.getHeader("ETag"));
+        assertEquals(HttpCode.PARTIAL_CONTENT, response.getStatus());
+        assertEquals("01", response.getBodyAsString());
+        response = get(server, "/static/file.txt", "Range", "bytes=0-1", "If-Range", first.getHeader("Last-Modified"));
+        assertEquals(HttpCode.PARTIAL_CONTENT, response.getStatus());
+        response = get(server, "/static/file.txt", "Range", "bytes=0-1", "If-Range", "\"stale\"");
+        assertEquals(HttpCode.OK, response.getStatus());
+        assertEquals(CONTENT, response.getBodyAsString());
+        response = get(server, "/static/file.txt", "Range", "bytes=0-1", "If-Range", "Thu, 01 Jan 1970 00:00:00 GMT");
+        assertEquals(HttpCode.OK, response.getStatus());
+        server.stop();
+        delete(root);
+    }
+
+    @Test
+    public void testUnmapped() throws IOException {
+        var root = directory();
+        var server = start(new StaticHandler(root, "/static", 1024, 0));
+        var response = get(server, "/static/file.txt");
+        assertEquals(HttpCode.OK, response.getStatus());
+        assertEquals(CONTENT, response.getBodyAsString());
+        response = get(server, "/static/file.txt", "Range", "bytes=-3");
+        assertEquals("xyz", response.getBodyAsString());
+        server.stop();
+        delete(root);
+    }
+
+    @Test
+    public void testInvalidate() throws IOException {
+        var root = directory();
+        var handler = new StaticHandler(root, "/static");
+        var server = start(handler);
+        var first = get(server, "/static/file.txt");
+        assertEquals(StaticFile.OVERHEAD + CONTENT.length(), handler.getCachedSize());
+        // The file is replaced rather than rewritten in place, so the mapped version stays intact
+        var replacement = root.resolve("file.tmp");
+        Files.writeString(replacement, "changed");
+        Files.setLastModifiedTime(replacement, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+        Files.move(replacement, root.resolve("file.txt"), StandardCopyOption.REPLACE_EXISTING);
+        // Without the watcher the cached version is served until invalidated
+        assertEquals(CONTENT, get(server, "/static/file.txt").getBodyAsString());
+        handler.invalidate();
+        assertEquals(0, handler.getCachedSize());
+        var response = get(server, "/static/file.txt");
+        assertEquals("changed", new String(response.getBody(), StandardCharsets.UTF_8));
+        assertNotEquals(first.getHeader("ETag"), response.getHeader("ETag"));
+        server.stop();
+        delete(root);
+    }
+
+    @Test
+    public void testStaleLoad() throws IOException {
+        // A file invalidated while it was loaded must not be cached
+        var cache = new FileCache(1024);
+        var generation = cache.generation();
+        var file = new StaticFile(Path.of("a"), null, 0, 0, "", "\"\"", null, "");
+        cache.invalidate(file.path);
+        cache.put(file, generation);
+        assertNull(cache.get(file.path));
+        cache.put(file, cache.generation());
+        assertSame(file, cache.get(file.path));
+    }
+
+    @Test
+    public void testUnmappedWeight() {
+        // Files without mapped content still count against the capacity
+        var cache = new FileCache(2 * StaticFile.OVERHEAD);
+        for (var name : new String[]{"a", "b", "c"}) {
+            cache.put(new StaticFile(Path.of(name), null, 1 << 20, 0, "", "\"\"", null, ""), cache.generation());
+        }
+        assertNull(cache.get(Path.of("a")));
+        assertNotNull(cache.get(Path.of("b")));
+        assertNotNull(cache.get(Path.of("c")));
+        assertEquals(2 * StaticFile.OVERHEAD, cache.size());
+    }
+
+    @Test
+    public void testVariants() throws IOException, InterruptedException {
+        var root = directory();
+        var text = "precompressed content ".repeat(100);
+        Files.writeString(root.resolve("page.html"), text);
+        var variants = root.resolve(".compressed");
+        var handler = new StaticHandler(root, "/static", 1024 * 1024, 1024 * 1024, variants);
+        var server = start(handler);
+        // Without the started handler variants are never built on the request thread
+        var response = get(server, "/static/page.html", "Accept-Encoding", "gzip");
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(text, response.getBodyAsString());
+        assertFalse(Files.exists(variants));
+        handler.start();
+        var variant = variants.resolve("page.html.gz");
+        for (var i = 0; i < 500 && !Files.exists(variant); ++i) {
+            Thread.sleep(10);
+        }
+        handler.stop();
+        assertTrue(Files.exists(variant));
+        response = get(server, "/static/page.html", "Accept-Encoding", "gzip");
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        try (var stream = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            assertEquals(text, new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(HttpCode.NOT_FOUND, get(server, "/static/.compressed/page.html.gz").getStatus());
+        server.stop();
+        delete(root);
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.amayaframework.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class TokenBucketsTest {
+    private static final long HOUR = TimeUnit.HOURS.toNanos(1);
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testBurst() {
+        var buckets = new TokenBuckets(HOUR, 3, HOUR, 16, HOUR, 1);
+        for (var i = 0; i < 3; ++i) {
+            assertTrue(buckets.tryAcquire("a"));
+        }
+        assertFalse(buckets.tryAcquire("a"));
+        assertFalse(buckets.tryAcquire("a"));
+        // Other keys have their own full buckets
+        assertTrue(buckets.tryAcquire("b"));
+        assertEquals(2, buckets.size());
+    }
+
+    @Test
+    public void testRefill() throws InterruptedException {
+        var buckets = new TokenBuckets(20 * MS, 2, HOUR, 16, HOUR, 1);
+        assertTrue(buckets.tryAcquire("a"));
+        assertTrue(buckets.tryAcquire("a"));
+        // Rejected requests return their tokens, so they do not delay the refill
+        for (var i = 0; i < 100; ++i) {
+            assertFalse(buckets.tryAcquire("a"));
+        }
+        Thread.sleep(30);
+        assertTrue(buckets.tryAcquire("a"));
+        // One token was refilled
+        assertFalse(buckets.tryAcquire("a"));
+        Thread.sleep(100);
+        // The bucket is refilled up to the burst only
+        assertTrue(buckets.tryAcquire("a"));
+        assertTrue(buckets.tryAcquire("a"));
+        assertFalse(buckets.tryAcquire("a"));
+    }
+
+    @Test
+    public void testConcurrentBurst() throws InterruptedException {
+        var buckets = new TokenBuckets(HOUR, 100, HOUR, 16, HOUR, 1);
+        var taken = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        for (var i = 0; i < 8; ++i) {
+            var thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (var j = 0; j < 50; ++j) {
+                    if (buckets.tryAcquire("a")) {
+                        taken.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertEquals(100, taken.get());
+    }
+
+    @Test
+    public void testSharedBuckets() {
+        var buckets = new TokenBuckets(HOUR, 1, HOUR, 1, HOUR, 2);
+        // The keys have the same hash, so they hit the same stripe, which holds one bucket
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertTrue(buckets.tryAcquire("Aa"));
+        assertFalse(buckets.tryAcquire("Aa"));
+        assertTrue(buckets.tryAcquire("BB"));
+        assertTrue(buckets.tryAcquire("BB"));
+        assertFalse(buckets.tryAcquire("BB"));
+        assertEquals(1, buckets.size());
+        // Keyless requests do not compete with the keys over the maximum
+        assertTrue(buckets.tryAcquire(null));
+        assertTrue(buckets.tryAcquire(null));
+        assertFalse(buckets.tryAcquire(null));
+    }
+
+    @Test
+    public void testEviction() throws InterruptedException {
+        var buckets = new TokenBuckets(MS, 1, 0, 1, HOUR, 1);
+        assertTrue(buckets.tryAcquire("Aa"));
+        Thread.sleep(5);
+        // The bucket of Aa is full again, so the sweep of the stripe evicts it and frees the slot for BB
+        assertTrue(buckets.tryAcquire("BB"));
+        assertEquals(1, buckets.size());
+        assertFalse(buckets.tryAcquire("BB"));
+        var pending = new TokenBuckets(HOUR, 1, 0, 1024, HOUR, 1);
+        assertTrue(pending.tryAcquire("Aa"));
+        assertTrue(pending.tryAcquire("BB"));
+        // Buckets which are not full are kept
+        assertEquals(2, pending.size());
+        assertFalse(pending.tryAcquire("Aa"));
+    }
+}
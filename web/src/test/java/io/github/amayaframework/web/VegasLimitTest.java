@@ -0,0 +1,61 @@
+package io.github.amayaframework.web;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class VegasLimitTest {
+    private static final long MS = 1_000_000;
+
+    @Test
+    public void testQueue() {
+        var vegas = new VegasLimit(20, 1, 1000, 1, 100);
+        // No queue: the limit grows by 6 * log10(20)
+        assertEquals(27, vegas.update(10 * MS, 10 * MS, 20, false));
+        // The latency doubled, so half of the limit is queued, which is over 6 * log10(27)
+        assertEquals(26, vegas.update(20 * MS, 20 * MS, 27, false));
+        // Less than half of the limit used
+        assertEquals(26, vegas.update(10 * MS, 10 * MS, 5, false));
+        // Drops shrink the limit by log10(26)
+        assertEquals(24, vegas.update(10 * MS, 10 * MS, 26, true));
+        assertEquals(24, vegas.getLimit());
+    }
+
+    @Test
+    public void testBounds() {
+        var vegas = new VegasLimit(20, 10, 25, 1, 100);
+        assertEquals(25, vegas.update(10 * MS, 10 * MS, 20, false));
+        for (var i = 0; i < 20; ++i) {
+            vegas.update(10 * MS, 10 * MS, 25, true);
+        }
+        assertEquals(10, vegas.getLimit());
+        // Windows without samples do not change the limit
+        assertEquals(10, vegas.update(0, 0, 10, true));
+    }
+
+    @Test
+    public void testProbe() {
+        var vegas = new VegasLimit(40, 1, 1000, 1, 3);
+        assertEquals(40, vegas.update(10 * MS, 10 * MS, 10, false));
+        assertEquals(40, vegas.update(10 * MS, 10 * MS, 10, false));
+        // The third window halves the limit and forgets the no-load latency
+        assertEquals(20, vegas.update(10 * MS, 10 * MS, 10, false));
+        // The slower latency is the new baseline, so there is no queue
+        assertEquals(27, vegas.update(20 * MS, 20 * MS, 20, false));
+    }
+
+    @Test
+    public void testSmoothing() {
+        var vegas = new VegasLimit(20, 1, 1000, 0.5, 100);
+        // Half of the way to 20 + 6 * log10(20)
+        assertEquals(23, vegas.update(10 * MS, 10 * MS, 20, false));
+    }
+
+    @Test
+    public void testParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new VegasLimit(20, 0, 1000, 1, 100));
+        assertThrows(IllegalArgumentException.class, () -> new VegasLimit(20, 10, 5, 1, 100));
+        assertThrows(IllegalArgumentException.class, () -> new VegasLimit(20, 1, 1000, 0, 100));
+        assertThrows(IllegalArgumentException.class, () -> new VegasLimit(20, 1, 1000, 1, 0));
+    }
+}